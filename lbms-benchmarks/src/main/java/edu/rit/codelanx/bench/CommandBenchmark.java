@@ -0,0 +1,98 @@
+package edu.rit.codelanx.bench;
+
+import edu.rit.codelanx.data.state.types.Book;
+import edu.rit.codelanx.data.state.types.Visitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures whole commands, from the framed client input through to the
+ * response, against a populated library
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommandBenchmark {
+
+    @Benchmark
+    public long infoByIsbn(LibraryState state, InterpreterBenchmark.Sink sink) {
+        return run(state, sink, "info,*,*," + state.randomIsbn() + ";");
+    }
+
+    @Benchmark
+    public long infoByTitle(LibraryState state, InterpreterBenchmark.Sink sink) {
+        return run(state, sink, "info,History,*,*,*,title;");
+    }
+
+    @Benchmark
+    public long search(LibraryState state, InterpreterBenchmark.Sink sink) {
+        return run(state, sink, "search,Modern,*,*,*,title;");
+    }
+
+    @Benchmark
+    public long borrowAndReturn(LibraryState state, Patron patron, InterpreterBenchmark.Sink sink) {
+        run(state, sink, "borrow," + patron.visitor + ",{" + patron.book + "};");
+        return run(state, sink, "return," + patron.visitor + "," + patron.book + ";");
+    }
+
+    @Benchmark
+    public long reportWeek(LibraryState state, InterpreterBenchmark.Sink sink) {
+        return run(state, sink, "report,7;");
+    }
+
+    @Benchmark
+    public long reportAll(LibraryState state, InterpreterBenchmark.Sink sink) {
+        return run(state, sink, "report;");
+    }
+
+    private static long run(LibraryState state, InterpreterBenchmark.Sink sink, String input) {
+        state.server.getInterpreter().receive(sink, input);
+        return sink.received;
+    }
+
+    /**
+     * A visitor and book reserved for one thread, so that borrowing never
+     * runs into the limits another thread's checkouts would impose
+     */
+    @State(Scope.Thread)
+    public static class Patron {
+
+        public long visitor;
+        public long book;
+
+        @Setup(Level.Trial)
+        public void setup(LibraryState state) {
+            this.visitor = Visitor.create()
+                    .setValue(Visitor.Field.FIRST, "Bench")
+                    .setValue(Visitor.Field.LAST, "Patron " + Thread.currentThread().getId())
+                    .setValue(Visitor.Field.ADDRESS, Thread.currentThread().getId() + " Benchmark Way")
+                    .setValue(Visitor.Field.PHONE, "555" + Thread.currentThread().getId())
+                    .setValue(Visitor.Field.REGISTRATION_DATE, state.server.getClock().getCurrentTime())
+                    .setValue(Visitor.Field.MONEY, BigDecimal.ZERO)
+                    .build(state.library).getID();
+            this.book = Book.create()
+                    .setValue(Book.Field.ISBN, "bench-" + Thread.currentThread().getId())
+                    .setValue(Book.Field.TITLE, "Benchmarking")
+                    .setValue(Book.Field.PUBLISHER, "Codelanx")
+                    .setValue(Book.Field.PUBLISH_DATE, state.server.getClock().getCurrentTime())
+                    .setValue(Book.Field.PAGE_COUNT, 1)
+                    .setValue(Book.Field.TOTAL_COPIES, 1)
+                    .setValue(Book.Field.CHECKED_OUT, 0)
+                    .build(state.library).getID();
+        }
+    }
+}
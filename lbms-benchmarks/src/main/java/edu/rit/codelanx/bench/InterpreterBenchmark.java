@@ -0,0 +1,85 @@
+package edu.rit.codelanx.bench;
+
+import edu.rit.codelanx.cmd.CommandExecutor;
+import edu.rit.codelanx.cmd.text.TextInterpreter;
+import edu.rit.codelanx.network.server.TextServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of framing and splitting client input, separately from
+ * the work done by the commands themselves. The framed commands are unknown
+ * to the interpreter, so only the parsing and lookup is measured
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterpreterBenchmark {
+
+    private static final String COMMAND = "info,*,{Claudia Dale Goldin, Lawrence F. Katz},*,*,title";
+    private static final String FRAMED = "benchmark-unknown," + COMMAND + ";";
+
+    @Benchmark
+    public long receive(EmptyServer state, Sink sink) {
+        state.server.getInterpreter().receive(sink, FRAMED);
+        return sink.received;
+    }
+
+    @Benchmark
+    public String[] splitInput() {
+        return TextInterpreter.splitInput(COMMAND);
+    }
+
+    /**
+     * A server over an empty library, since no command is ever run
+     */
+    @State(Scope.Benchmark)
+    public static class EmptyServer {
+
+        public TextServer server;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            this.server = new TextServer(SyntheticLibrary.newLibrary(), SyntheticLibrary.newLibrary());
+        }
+
+        @TearDown(Level.Trial)
+        public void teardown() {
+            this.server.getClock().stop();
+        }
+    }
+
+    /**
+     * A {@link CommandExecutor} which only tallies its responses. One is kept
+     * per thread, as the interpreter buffers input per executor
+     */
+    @State(Scope.Thread)
+    public static class Sink implements CommandExecutor {
+
+        long received; //characters of response, read back by benchmarks
+
+        @Override
+        public void sendMessage(String message) {
+            this.received += message.length();
+        }
+
+        @Override
+        public boolean flush() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package edu.rit.codelanx.bench;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.network.server.TextServer;
+import edu.rit.codelanx.util.BookParser;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A populated, open library shared by every thread of a benchmark. The
+ * library holds {@code books} books and a tenth as many visitors, and the
+ * book store a catalog of {@code books} more, all generated from
+ * {@link SyntheticLibrary#DEFAULT_SEED}
+ */
+@State(Scope.Benchmark)
+public class LibraryState {
+
+    @Param({"10000", "100000", "1000000"})
+    public int books;
+
+    public TextServer server;
+    public DataSource library;
+    public SyntheticLibrary.Population population;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.library = SyntheticLibrary.newLibrary();
+        DataSource bookStore = SyntheticLibrary.newLibrary();
+        String catalog = SyntheticLibrary.catalog(this.books, SyntheticLibrary.DEFAULT_SEED);
+        BookParser.parseBooks(bookStore, new ByteArrayInputStream(catalog.getBytes(StandardCharsets.UTF_8)));
+        this.server = new TextServer(this.library, bookStore);
+        this.library.getLibrary().setClock(this.server.getClock());
+        this.library.getLibrary().open();
+        this.population = new SyntheticLibrary(this.books, SyntheticLibrary.DEFAULT_SEED)
+                .populate(this.library, this.books, Math.max(1, this.books / 10), this.server.getClock());
+        this.library.getLibrary().getRollups(); //as the server would before taking commands
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        this.server.getClock().stop();
+    }
+
+    /**
+     * @return The id of a random book within the library
+     */
+    public long randomBook() {
+        return this.population.books.get(ThreadLocalRandom.current().nextInt(this.population.books.size()));
+    }
+
+    /**
+     * @return The isbn of a random book within the library
+     */
+    public String randomIsbn() {
+        return this.population.isbns.get(ThreadLocalRandom.current().nextInt(this.population.isbns.size()));
+    }
+
+    /**
+     * @return The id of a random visitor within the library
+     */
+    public long randomVisitor() {
+        return this.population.visitors.get(ThreadLocalRandom.current().nextInt(this.population.visitors.size()));
+    }
+}
@@ -0,0 +1,170 @@
+package edu.rit.codelanx.bench;
+
+import edu.rit.codelanx.network.server.SocketServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Drives a {@link SocketServer} with many concurrent clients over loopback,
+ * reporting the throughput and latency of the commands they send. Each client
+ * sends a mix of lookups and reports one at a time, waiting for every
+ * response before sending its next command, as a front-desk terminal would.
+ * <p>
+ * Unless an address is given, a server over a {@link LibraryState populated
+ * library} is started in this process on a free port:
+ * {@code java -cp benchmarks.jar edu.rit.codelanx.bench.LoadGenerator <clients> <commands> [books] [host:port]}
+ */
+public class LoadGenerator {
+
+    private final InetSocketAddress address;
+    private final LibraryState state; //null if the server is elsewhere
+
+    /**
+     * Prepares to load a server at the given address
+     *
+     * @param address The {@link InetSocketAddress} of the server
+     * @param state The {@link LibraryState} of the server, to draw command
+     *              arguments from, or {@code null} if it is unknown
+     */
+    public LoadGenerator(InetSocketAddress address, LibraryState state) {
+        this.address = address;
+        this.state = state;
+    }
+
+    /**
+     * Runs every client to completion
+     *
+     * @param clients The number of clients connected at once
+     * @param commands The number of commands each client sends
+     * @return The latency of every command, in nanoseconds
+     * @throws IOException If any client fails
+     * @throws InterruptedException If interrupted while waiting on the clients
+     */
+    public long[] run(int clients, int commands) throws IOException, InterruptedException {
+        long[] latencies = new long[clients * commands];
+        CountDownLatch done = new CountDownLatch(clients);
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        for (int c = 0; c < clients; c++) {
+            int offset = c * commands;
+            new Thread(() -> {
+                try (SocketChannel channel = SocketChannel.open(this.address)) {
+                    channel.socket().setTcpNoDelay(true);
+                    ByteBuffer in = ByteBuffer.allocate(1 << 16);
+                    for (int i = 0; i < commands; i++) {
+                        byte[] command = this.nextCommand().getBytes(StandardCharsets.UTF_8);
+                        long start = System.nanoTime();
+                        channel.write(ByteBuffer.wrap(command));
+                        LoadGenerator.awaitResponse(channel, in);
+                        latencies[offset + i] = System.nanoTime() - start;
+                    }
+                } catch (IOException ex) {
+                    failure.compareAndSet(null, ex);
+                } finally {
+                    done.countDown();
+                }
+            }, "LBMS-load-" + c).start();
+        }
+        done.await();
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return latencies;
+    }
+
+    //a read-heavy mix, as most terminal traffic is looking things up
+    private String nextCommand() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int pick = random.nextInt(10);
+        if (this.state == null || pick < 2) {
+            return "datetime;";
+        } else if (pick < 6) {
+            return "info,*,*," + this.state.randomIsbn() + ";";
+        } else if (pick < 8) {
+            return "search,Modern,*,*,*,title;";
+        } else if (pick < 9) {
+            return "borrowed," + this.state.randomVisitor() + ";";
+        }
+        return "report,7;";
+    }
+
+    //reads until the end of one response, discarding it
+    private static void awaitResponse(SocketChannel channel, ByteBuffer in) throws IOException {
+        for (;;) {
+            ((Buffer) in).clear(); //Buffer's, as ByteBuffer only overrides these from Java 9 on
+            if (channel.read(in) < 0) {
+                throw new IOException("Server closed the connection");
+            }
+            ((Buffer) in).flip();
+            while (in.hasRemaining()) {
+                if (in.get() == SocketServer.RESPONSE_END) {
+                    return; //one command is in flight, so nothing follows
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the load generator
+     *
+     * @param args {@code <clients> <commands> [books] [host:port]}
+     * @throws Exception If the server or any client fails
+     */
+    public static void main(String... args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: LoadGenerator <clients> <commands> [books] [host:port]");
+            return;
+        }
+        int clients = Integer.parseInt(args[0]);
+        int commands = Integer.parseInt(args[1]);
+        LibraryState state = null;
+        SocketServer server = null;
+        InetSocketAddress address;
+        if (args.length > 3) {
+            String[] hostPort = args[3].split(":");
+            address = new InetSocketAddress(hostPort[0], Integer.parseInt(hostPort[1]));
+        } else {
+            state = new LibraryState();
+            state.books = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+            state.setup();
+            server = new SocketServer(state.server, new InetSocketAddress("localhost", 0));
+            server.start();
+            address = server.getAddress();
+        }
+        int status = 0;
+        try {
+            long start = System.nanoTime();
+            long[] latencies = new LoadGenerator(address, state).run(clients, commands);
+            long elapsed = System.nanoTime() - start;
+            Arrays.sort(latencies);
+            System.out.printf("%d clients x %d commands in %.2fs: %.0f commands/s%n",
+                    clients, commands, elapsed / 1e9, latencies.length / (elapsed / 1e9));
+            System.out.printf("latency p50 %.3fms, p99 %.3fms, max %.3fms%n",
+                    LoadGenerator.percentile(latencies, 0.50),
+                    LoadGenerator.percentile(latencies, 0.99),
+                    latencies[latencies.length - 1] / 1e6);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            status = 1;
+        } finally {
+            if (server != null) {
+                server.close();
+                state.teardown();
+            }
+        }
+        System.exit(status); //the shared clock thread would otherwise keep us running
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,77 @@
+package edu.rit.codelanx.bench;
+
+import edu.rit.codelanx.data.state.types.Book;
+import edu.rit.codelanx.data.state.types.Checkout;
+import edu.rit.codelanx.data.state.types.Visitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link edu.rit.codelanx.data.storage.StateQuery#results()} for
+ * each kind of comparison, both where an index can answer it and where the
+ * loaded states must be scanned
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+
+    @Benchmark
+    public long equalityIndexed(LibraryState state) {
+        return state.library.query(Book.class)
+                .isEqual(Book.Field.ISBN, state.randomIsbn())
+                .results().count();
+    }
+
+    @Benchmark
+    public long equalityScan(LibraryState state) {
+        return state.library.query(Book.class)
+                .isEqual(Book.Field.PAGE_COUNT, 24 + ThreadLocalRandom.current().nextInt(1200))
+                .results().count();
+    }
+
+    @Benchmark
+    public long anyIndexed(LibraryState state) {
+        return state.library.query(Book.class)
+                .isAny(Book.Field.ID, Arrays.asList(state.randomBook(), state.randomBook(), state.randomBook()))
+                .results().count();
+    }
+
+    @Benchmark
+    public long rangeOrdered(LibraryState state) {
+        Instant now = state.server.getClock().getCurrentTime();
+        return state.library.query(Checkout.class)
+                .isGreaterThanOrEq(Checkout.Field.AT, now.minus(Duration.ofDays(7)))
+                .results().count();
+    }
+
+    @Benchmark
+    public long rangeScan(LibraryState state) {
+        return state.library.query(Book.class)
+                .isGreaterThan(Book.Field.PAGE_COUNT, 1100)
+                .results().count();
+    }
+
+    @Benchmark
+    public long compound(LibraryState state) {
+        Visitor visitor = state.library.getRelativeStorage()
+                .getStateStorage(Visitor.class).getByID(state.randomVisitor());
+        return state.library.query(Checkout.class)
+                .isEqual(Checkout.Field.VISITOR, visitor)
+                .isEqual(Checkout.Field.RETURNED, false)
+                .results().count();
+    }
+}
@@ -0,0 +1,110 @@
+package edu.rit.codelanx.bench;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.state.State;
+import edu.rit.codelanx.data.state.types.Book;
+import edu.rit.codelanx.data.state.types.Visitor;
+import edu.rit.codelanx.util.Clock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-state costs paid on every index and cache operation:
+ * hashing, set membership, and reading a field value. The hash of each
+ * state is compared against the {@link Objects#hash} it used to be computed
+ * with; run with {@code -prof gc} to confirm that no allocation remains
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+public class StateIdentityBenchmark {
+
+    private static final int STATES = 10000;
+
+    private Clock clock;
+    private Book[] books;
+    private Visitor[] visitors;
+    private Set<State> members;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.clock = new Clock();
+        DataSource library = SyntheticLibrary.newLibrary();
+        new SyntheticLibrary(STATES, SyntheticLibrary.DEFAULT_SEED).populate(library, STATES, STATES, this.clock);
+        this.books = library.ofLoaded(Book.class).toArray(Book[]::new);
+        this.visitors = library.ofLoaded(Visitor.class).toArray(Visitor[]::new);
+        this.members = new HashSet<>();
+        for (int i = 0; i < STATES; i += 2) {
+            this.members.add(this.books[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        this.clock.stop();
+    }
+
+    @Benchmark
+    public int hashBooks() {
+        int back = 0;
+        for (Book book : this.books) {
+            back += book.hashCode();
+        }
+        return back;
+    }
+
+    @Benchmark
+    public int hashVisitors() {
+        int back = 0;
+        for (Visitor visitor : this.visitors) {
+            back += visitor.hashCode();
+        }
+        return back;
+    }
+
+    @Benchmark
+    public int hashBaseline() {
+        int back = 0;
+        for (Book book : this.books) {
+            back += Objects.hash(book.getType().getName(), book.getID());
+        }
+        return back;
+    }
+
+    @Benchmark
+    public int setContains() {
+        int back = 0;
+        for (Book book : this.books) {
+            if (this.members.contains(book)) {
+                back++;
+            }
+        }
+        return back;
+    }
+
+    @Benchmark
+    public long fieldGet() {
+        long back = 0;
+        for (Book book : this.books) {
+            back += Book.Field.PAGE_COUNT.get(book);
+        }
+        return back;
+    }
+}
@@ -0,0 +1,142 @@
+package edu.rit.codelanx.bench;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.LibraryData;
+import edu.rit.codelanx.data.storage.BookCatalog;
+import edu.rit.codelanx.data.storage.FFStorageAdapter;
+import edu.rit.codelanx.util.BookParser;
+import edu.rit.codelanx.util.Clock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures loading and saving whole data sets: the flat-file adapter's
+ * {@code loadAll}/{@code saveAll} over a populated library, rewriting its
+ * snapshot files with {@code compact} (in each snapshot storage-type),
+ * parsing a generated book catalog, and opening its compiled index. Each operation is a single shot over fresh data,
+ * as repeating one in place would only measure a warm, already-loaded cache
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StorageBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int books;
+    @Param({"json", "binary"})
+    public String storageType;
+
+    private Path folder;
+    private File loadFolder; //written once, read back by every load
+    private File saveFolder; //emptied before each iteration's save
+    private Clock clock;
+    private byte[] catalog;
+    private File catalogFile;
+    private File indexFile; //compiled once, mapped by every open
+    private DataSource populated; //held ready for the next save
+    private DataSource empty; //held ready for the next load or parse
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException {
+        this.folder = Files.createTempDirectory("lbms-bench");
+        this.loadFolder = new File(this.folder.toFile(), "load");
+        this.saveFolder = new File(this.folder.toFile(), "save");
+        this.clock = new Clock();
+        this.catalog = SyntheticLibrary.catalog(this.books, SyntheticLibrary.DEFAULT_SEED)
+                .getBytes(StandardCharsets.UTF_8);
+        this.catalogFile = new File(this.folder.toFile(), "catalog.txt");
+        this.indexFile = new File(this.folder.toFile(), "catalog.idx");
+        Files.write(this.catalogFile.toPath(), this.catalog);
+        this.openCatalog();
+        //compacted, so loads read the snapshot rather than replaying a journal
+        ((FFStorageAdapter) this.populate(this.loadFolder).getAdapter()).compact();
+    }
+
+    @Setup(Level.Iteration)
+    public void setupIteration() throws IOException {
+        delete(this.saveFolder.toPath());
+        this.populated = this.populate(this.saveFolder);
+        this.empty = SyntheticLibrary.newLibrary();
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws IOException {
+        this.clock.stop();
+        delete(this.folder);
+    }
+
+    @Benchmark
+    public DataSource saveAll() throws IOException {
+        this.populated.getAdapter().saveAll();
+        return this.populated;
+    }
+
+    @Benchmark
+    public DataSource compact() throws IOException {
+        ((FFStorageAdapter) this.populated.getAdapter()).compact();
+        return this.populated;
+    }
+
+    @Benchmark
+    public DataSource loadAll() throws IOException {
+        DataSource back = this.open(this.loadFolder);
+        back.initialize();
+        return back;
+    }
+
+    @Benchmark
+    public int parseBooks() {
+        return BookParser.parseBooks(this.empty, new ByteArrayInputStream(this.catalog)).size();
+    }
+
+    @Benchmark
+    public BookCatalog openCatalog() throws IOException {
+        return BookCatalog.open(this.indexFile, this.catalogFile.toURI().toURL());
+    }
+
+    private DataSource open(File folder) {
+        return new LibraryData(source -> new FFStorageAdapter(source, this.storageType, folder));
+    }
+
+    private static void delete(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    //a library stored in an empty folder, filled with books, visitors and checkouts
+    private DataSource populate(File folder) throws IOException {
+        DataSource back = this.open(folder);
+        back.initialize();
+        new SyntheticLibrary(this.books, SyntheticLibrary.DEFAULT_SEED)
+                .populate(back, this.books, Math.max(1, this.books / 10), this.clock);
+        return back;
+    }
+}
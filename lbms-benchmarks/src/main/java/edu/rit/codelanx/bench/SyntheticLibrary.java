@@ -0,0 +1,274 @@
+package edu.rit.codelanx.bench;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.LibraryData;
+import edu.rit.codelanx.data.state.types.Author;
+import edu.rit.codelanx.data.state.types.AuthorListing;
+import edu.rit.codelanx.data.state.types.Book;
+import edu.rit.codelanx.data.state.types.Checkout;
+import edu.rit.codelanx.data.state.types.Visitor;
+import edu.rit.codelanx.data.storage.MemoryStorageAdapter;
+import edu.rit.codelanx.util.Clock;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates reproducible libraries and book catalogs for benchmarking. Every
+ * value is drawn from a seeded {@link Random}, so the same size and seed
+ * always produce the same data, and catalogs follow the format of the
+ * bundled {@code books.txt}:
+ * <pre>
+ * 9780674028678,"The Race Between Education and Technology",{Claudia Dale Goldin, Lawrence F. Katz},"Harvard University Press",2008,488
+ * </pre>
+ * A catalog may be written to disk with
+ * {@code java -cp benchmarks.jar edu.rit.codelanx.bench.SyntheticLibrary <file> <books> [seed]}
+ */
+public class SyntheticLibrary {
+
+    public static final long DEFAULT_SEED = 262;
+
+    private static final String[] WORDS = {
+            "Education", "Technology", "History", "Modern", "Guide", "Science",
+            "Art", "Programming", "Introduction", "Theory", "Practice", "World",
+            "Life", "Design", "Systems", "Language", "Nature", "Economics",
+            "Principles", "Mind", "Music", "Philosophy", "Data", "Patterns",
+            "Garden", "Ocean", "Mountain", "Empire", "Revolution", "Machine",
+    };
+    private static final String[] FIRST_NAMES = {
+            "Claudia", "Lawrence", "Trisha", "Robert", "Mary", "James", "Linda",
+            "Michael", "Barbara", "David", "Susan", "Richard", "Karen", "Joseph",
+            "Nancy", "Thomas", "Lisa", "Charles", "Betty", "Daniel", "Amy",
+            "Spencer", "Connor", "Helen", "Paul", "Sandra", "Mark", "Donna",
+    };
+    private static final String[] LAST_NAMES = {
+            "Goldin", "Katz", "Callella", "Smith", "Johnson", "Williams",
+            "Brown", "Jones", "Garcia", "Miller", "Davis", "Rodriguez",
+            "Martinez", "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson",
+            "Thomas", "Taylor", "Moore", "Jackson", "Martin", "Lee", "Perez",
+    };
+    private static final String[] PUBLISHER_SUFFIXES = {
+            "Press", "University Press", "Publishing", "Books", "& Sons", "House",
+    };
+
+    private final Random random;
+    private final int authorPool; //distinct authors, grows with the catalog
+    private final int publisherPool;
+
+    /**
+     * Prepares a generator for a catalog of the given size
+     *
+     * @param books The number of books which will be generated
+     * @param seed The seed for all generated values
+     */
+    public SyntheticLibrary(int books, long seed) {
+        this.random = new Random(seed);
+        this.authorPool = Math.max(10, books / 3);
+        this.publisherPool = Math.max(5, (int) Math.sqrt(books));
+    }
+
+    /**
+     * Creates an empty, in-memory library ready for states to be inserted
+     *
+     * @return The initialized {@link DataSource}
+     */
+    public static DataSource newLibrary() {
+        DataSource back = new LibraryData(MemoryStorageAdapter::new);
+        try {
+            back.initialize();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return back;
+    }
+
+    /**
+     * Writes {@code books} catalog lines to {@code out}
+     *
+     * @param out Where to write the catalog
+     * @param books The number of books to write
+     * @throws IOException If {@code out} fails to write
+     */
+    public void writeCatalog(Appendable out, int books) throws IOException {
+        for (int i = 0; i < books; i++) {
+            out.append(this.isbn(i)).append(",\"").append(this.title()).append("\",{");
+            int authors = 1 + this.random.nextInt(3);
+            for (int a = 0; a < authors; a++) {
+                if (a > 0) {
+                    out.append(", ");
+                }
+                out.append(this.authorName(this.random.nextInt(this.authorPool)));
+            }
+            out.append("},\"").append(this.publisher()).append("\",")
+                    .append(this.publishDate()).append(',')
+                    .append(Integer.toString(this.pageCount())).append('\n');
+        }
+    }
+
+    /**
+     * Generates an entire catalog in memory
+     *
+     * @param books The number of books to write
+     * @param seed The seed for all generated values
+     * @return The catalog, one book per line
+     */
+    public static String catalog(int books, long seed) {
+        StringBuilder back = new StringBuilder(books * 128);
+        try {
+            new SyntheticLibrary(books, seed).writeCatalog(back, books);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex); //StringBuilder does not throw
+        }
+        return back.toString();
+    }
+
+    /**
+     * Fills a library with books (and their authors), registered visitors,
+     * and a history of checkouts, a fifth of which are still outstanding
+     *
+     * @param library The {@link DataSource} to insert into
+     * @param books The number of books to insert
+     * @param visitors The number of visitors to register
+     * @param clock The {@link Clock} to date the checkout history against
+     * @return The ids of everything which was inserted
+     */
+    public Population populate(DataSource library, int books, int visitors, Clock clock) {
+        Population back = new Population();
+        Instant now = clock.getCurrentTime();
+        Author[] authors = new Author[this.authorPool];
+        for (int i = 0; i < books; i++) {
+            int copies = 1 + this.random.nextInt(4);
+            Book book = Book.create()
+                    .setValue(Book.Field.ISBN, this.isbn(i))
+                    .setValue(Book.Field.TITLE, this.title())
+                    .setValue(Book.Field.PUBLISHER, this.publisher())
+                    .setValue(Book.Field.PUBLISH_DATE, now.minus(Duration.ofDays(this.random.nextInt(365 * 80))))
+                    .setValue(Book.Field.PAGE_COUNT, this.pageCount())
+                    .setValue(Book.Field.TOTAL_COPIES, copies)
+                    .setValue(Book.Field.CHECKED_OUT, 0)
+                    .build(library);
+            back.books.add(book.getID());
+            back.isbns.add(book.getISBN());
+            int id = this.random.nextInt(this.authorPool);
+            if (authors[id] == null) {
+                authors[id] = Author.create()
+                        .setValue(Author.Field.NAME, this.authorName(id))
+                        .build(library);
+            }
+            AuthorListing.create()
+                    .setValue(AuthorListing.Field.AUTHOR, authors[id])
+                    .setValue(AuthorListing.Field.BOOK, book)
+                    .build(library);
+        }
+        for (int i = 0; i < visitors; i++) {
+            Visitor visitor = Visitor.create()
+                    .setValue(Visitor.Field.FIRST, FIRST_NAMES[this.random.nextInt(FIRST_NAMES.length)])
+                    .setValue(Visitor.Field.LAST, LAST_NAMES[this.random.nextInt(LAST_NAMES.length)])
+                    .setValue(Visitor.Field.ADDRESS, (i + 1) + " Lomb Memorial Dr")
+                    .setValue(Visitor.Field.PHONE, String.format("585%07d", i))
+                    .setValue(Visitor.Field.REGISTRATION_DATE, now.minus(Duration.ofDays(this.random.nextInt(365 * 5))))
+                    .setValue(Visitor.Field.MONEY, BigDecimal.ZERO)
+                    .build(library);
+            back.visitors.add(visitor.getID());
+        }
+        int checkouts = Math.min(books, visitors);
+        for (int i = 0; i < checkouts; i++) {
+            Checkout.create()
+                    .setValue(Checkout.Field.VISITOR, library.getRelativeStorage().getStateStorage(Visitor.class)
+                            .getByID(back.visitors.get(this.random.nextInt(visitors))))
+                    .setValue(Checkout.Field.BOOK, library.getRelativeStorage().getStateStorage(Book.class)
+                            .getByID(back.books.get(this.random.nextInt(books))))
+                    .setValue(Checkout.Field.AT, now.minus(Duration.ofHours(this.random.nextInt(24 * 365))))
+                    .setValue(Checkout.Field.RETURNED, i % 5 != 0)
+                    .build(library);
+        }
+        return back;
+    }
+
+    private String isbn(int index) {
+        return String.format("978%010d", index);
+    }
+
+    private String title() {
+        int words = 1 + this.random.nextInt(5);
+        StringBuilder back = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                back.append(' ');
+            }
+            back.append(WORDS[this.random.nextInt(WORDS.length)]);
+        }
+        return back.toString();
+    }
+
+    //stable per id, so repeated authors share a name
+    private String authorName(int id) {
+        return FIRST_NAMES[id % FIRST_NAMES.length] + ' '
+                + LAST_NAMES[(id / FIRST_NAMES.length) % LAST_NAMES.length]
+                + (id >= FIRST_NAMES.length * LAST_NAMES.length ? " " + id : "");
+    }
+
+    private String publisher() {
+        int id = this.random.nextInt(this.publisherPool);
+        return LAST_NAMES[id % LAST_NAMES.length] + ' '
+                + PUBLISHER_SUFFIXES[id % PUBLISHER_SUFFIXES.length]
+                + (id >= LAST_NAMES.length ? " " + id : "");
+    }
+
+    //years, year-months and full dates all appear in books.txt
+    private String publishDate() {
+        int year = 1920 + this.random.nextInt(100);
+        switch (this.random.nextInt(3)) {
+            case 0:
+                return Integer.toString(year);
+            case 1:
+                return String.format("%d-%02d", year, 1 + this.random.nextInt(12));
+            default:
+                return String.format("%d-%02d-%02d", year, 1 + this.random.nextInt(12), 1 + this.random.nextInt(28));
+        }
+    }
+
+    private int pageCount() {
+        return 24 + this.random.nextInt(1200);
+    }
+
+    /**
+     * The ids of states inserted by {@link #populate}, for benchmarks to
+     * draw arguments from
+     */
+    public static class Population {
+
+        public final List<Long> books = new ArrayList<>();
+        public final List<String> isbns = new ArrayList<>();
+        public final List<Long> visitors = new ArrayList<>();
+    }
+
+    /**
+     * Writes a catalog to disk
+     *
+     * @param args {@code <file> <books> [seed]}
+     * @throws IOException If the file cannot be written
+     */
+    public static void main(String... args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: SyntheticLibrary <file> <books> [seed]");
+            return;
+        }
+        int books = Integer.parseInt(args[1]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_SEED;
+        try (Writer out = new BufferedWriter(Files.newBufferedWriter(Paths.get(args[0]), StandardCharsets.UTF_8))) {
+            new SyntheticLibrary(books, seed).writeCatalog(out, books);
+        }
+    }
+}
@@ -5,7 +5,9 @@ import com.codelanx.commons.config.DataHolder;
 import com.codelanx.commons.config.RelativePath;
 import com.codelanx.commons.data.types.Json;
 import com.codelanx.commons.data.types.MySQL;
-import com.codelanx.commons.util.cache.Cache;
+import edu.rit.codelanx.data.storage.ConnectionPool;
+
+import java.sql.SQLException;
 
 /**
  * Represents a list of possible configuration values available to our system
@@ -17,9 +19,32 @@ public enum ConfigKey implements ConfigFile {
     LIBRARY_OPEN_TIME("library.open-time-seconds", 28800), //08:00
     LIBRARY_CLOSE_TIME("library.close-time-seconds", 68400), //19:00
     UI_TYPE("ui-type", "gui"), //gui, text otherwise
-    STORAGE_TYPE("storage-type", "json"), //sql, yml, or json
+    STORAGE_TYPE("storage-type", "json"), //sql, yml, json, or binary
     MAX_BACKUP_FILES("max-backup-files", 100), //maximum backups of bad data files
-    SQL_KEEPALIVE_MS("sql.keep-alive-ms", 1000 * 60 * 10), //10 minutes
+    FIELD_STORAGE("field-storage", "map"), //map, or columnar for dense per-type arrays
+    JOURNAL_SYNC_MS("journal.sync-interval-ms", 200), //how often flatfile changes are forced to disk
+    JOURNAL_COMPACT_BYTES("journal.compact-bytes", 1024 * 1024 * 8), //journal size which triggers a snapshot
+    BOOKSTORE_CATALOG("bookstore.catalog", ""), //catalog file to sell from, the bundled books.txt if empty
+    BOOKSTORE_INDEX("bookstore.index", "data/bookstore.idx"), //compiled index of the catalog
+    SQL_KEEPALIVE_MS("sql.keep-alive-ms", 1000 * 60 * 10), //10 minutes, before an idle connection is closed
+    SQL_URL("sql.url", ""), //jdbc url, built from the auth details below if empty
+    SQL_POOL_MIN("sql.pool.min", 2), //connections kept open while idle
+    SQL_POOL_MAX("sql.pool.max", 8), //most connections open at once
+    SQL_POOL_TIMEOUT_MS("sql.pool.timeout-ms", 5000), //how long to wait for a free connection
+    SQL_POOL_VALIDATE_MS("sql.pool.validate-after-ms", 1000 * 30), //idle time before a connection is checked on borrow
+    SQL_POOL_LEAK_MS("sql.pool.leak-ms", 0), //borrow time before a connection is reported as leaked, 0 to never
+    SQL_BATCH_SIZE("sql.batch.size", 256), //waiting changes which trigger a flush
+    SQL_FLUSH_MS("sql.batch.flush-interval-ms", 100), //how often waiting changes are flushed regardless
+    SQL_CACHE_ROW_VALUES("sql.cache.row-values", 1 << 20), //column values of rows kept in memory, 0 to disable
+    SQL_CACHE_QUERY_IDS("sql.cache.query-ids", 1 << 18), //ids of query results kept in memory, 0 to disable
+    NETWORK_ADDRESS("network.address", ""), //address socket clients connect to, every local address if empty
+    NETWORK_PORT("network.port", 2620), //port socket clients connect to
+    NETWORK_MAX_COMMAND_CHARS("network.max-command-chars", 1 << 16), //longest command before a client is dropped
+    NETWORK_MAX_PENDING_COMMANDS("network.max-pending-commands", 64), //commands waiting per client before reading pauses
+    NETWORK_COMMAND_THREADS("network.command-threads", 0), //threads running client commands, 0 for one per processor
+    ROLLUP_RETENTION_DAYS("rollup.raw-retention-days", 0), //days raw visits and transactions are kept, 0 for forever
+    CLOCK_MODE("clock.mode", "real"), //real, or simulated to only pass time when advanced
+    CLOCK_STATE("clock.state", "data/clock.dat"), //where the time advanced to is kept across restarts
     //the remaining details are for retrieving sql preferences
     SQL_USER("sql.auth.username", "swen-262"),
     SQL_PASS("sql.auth.password", "nopermsanyhow"),
@@ -76,14 +101,34 @@ public enum ConfigKey implements ConfigFile {
     }
 
     /**
-     * Builds a new {@link Cache Cache&lt;MySQL&gt;} from settings specified in the
+     * Gets the JDBC url of the database, which is {@link #SQL_URL} if set,
+     * such as an embedded database for testing, or otherwise the MySQL
+     * database named by the auth details
+     *
+     * @return The url to connect to the database with
+     */
+    public static String getDBUrl() {
+        return ConfigKey.getDBUrl(SQL_URL.as(String.class), SQL_ADDR.as(String.class), SQL_PORT.as(int.class), SQL_BASE.as(String.class));
+    }
+
+    static String getDBUrl(String url, String address, int port, String database) {
+        if (url == null || url.isEmpty()) {
+            return "jdbc:mysql://" + address + ":" + port + "/" + database;
+        }
+        return url;
+    }
+
+    /**
+     * Opens a new {@link ConnectionPool} from settings specified in the
      * configuration file for this enum
      *
-     * @return A pre-configured and ready-to-use {@link MySQL} cache
-     * @see Cache
-     * @see MySQL
+     * @return A pre-configured and ready-to-use {@link ConnectionPool}
+     * @throws SQLException If the pool's first connections could not be opened
+     * @see ConnectionPool
      */
-    public static Cache<MySQL> newDBCache() {
-        return MySQL.newCache(ConfigKey.getSQLPreferences(), SQL_KEEPALIVE_MS.as(Long.class));
+    public static ConnectionPool newDBPool() throws SQLException {
+        return new ConnectionPool(ConfigKey.getDBUrl(), SQL_USER.as(String.class), SQL_PASS.as(String.class),
+                SQL_POOL_MIN.as(int.class), SQL_POOL_MAX.as(int.class), SQL_POOL_TIMEOUT_MS.as(int.class),
+                SQL_POOL_VALIDATE_MS.as(int.class), SQL_KEEPALIVE_MS.as(int.class), SQL_POOL_LEAK_MS.as(int.class));
     }
 }
@@ -1,14 +1,19 @@
 package edu.rit.codelanx;
 
+import edu.rit.codelanx.cmd.CommandEngine;
 import edu.rit.codelanx.data.state.types.Library;
+import edu.rit.codelanx.data.state.types.Rollup;
+import edu.rit.codelanx.data.state.types.Rollups;
 import edu.rit.codelanx.data.storage.Query;
 import edu.rit.codelanx.network.client.Client;
 import edu.rit.codelanx.network.io.TextMessage;
 import edu.rit.codelanx.network.server.Server;
+import edu.rit.codelanx.network.server.SocketServer;
 import edu.rit.codelanx.network.server.TextServer;
 import edu.rit.codelanx.util.Clock;
 
 import java.io.IOException;
+import java.time.Duration;
 
 /**
  * Implementation of the LBMS system requirements
@@ -27,7 +32,7 @@ public class LBMS {
      */
     public static void main(String... args) { //just runs a server
         try {
-            LBMS.startServer();
+            LBMS.listen(LBMS.startServer());
         } catch (Throwable e) { //print em all
             e.printStackTrace();
             try {
@@ -43,8 +48,18 @@ public class LBMS {
         int open = PREPRODUCTION_DEBUG ? 1 : ConfigKey.LIBRARY_OPEN_TIME.as(int.class);
         int close = PREPRODUCTION_DEBUG ? 86399 : ConfigKey.LIBRARY_CLOSE_TIME.as(int.class);
         Query<? extends Library> libs = server.getLibraryData().query(Library.class);
-        clock.registerTask(open, () -> libs.results().forEach(Library::open)); //Free stress test!
-        clock.registerTask(close, () -> libs.results().forEach(Library::close));
+        CommandEngine engine = server.getCommandEngine(); //no command may see the library half-closed
+        clock.registerTask(open, () -> engine.exclusive(() -> libs.results().forEach(Library::open))); //Free stress test!
+        clock.registerTask(close, () -> engine.exclusive(() -> libs.results().forEach(Library::close)));
+    }
+
+    //compacts expired raw rows once now, to catch up, then at the start of every day
+    private static void registerMaintenanceTasks(Server<?> server) {
+        Clock clock = server.getClock();
+        Rollups rollups = server.getLibraryData().getLibrary().getRollups();
+        CommandEngine engine = server.getCommandEngine(); //removes rows commands may be reading
+        clock.registerTask(Rollup.Period.DAY.truncate(clock.getCurrentTime()), Duration.ofDays(1),
+                () -> engine.exclusive(() -> rollups.compactExpired(clock.getCurrentTime())));
     }
 
     public static Server<TextMessage> startServer() throws IOException {
@@ -52,7 +67,9 @@ public class LBMS {
         try {
             back.getLibraryData().initialize();
             back.getLibraryData().getLibrary().setClock(back.getClock());
+            back.getLibraryData().getLibrary().getRollups(); //built now, rather than by a reading command
             registerOpenCloseTasks(back);
+            registerMaintenanceTasks(back);
             back.getBookStore().initialize();
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
                 try {
@@ -70,6 +87,24 @@ public class LBMS {
         return back;
     }
 
+    /**
+     * Accepts socket clients for a started server on the configured address
+     *
+     * @param server The {@link Server} to run client commands on
+     * @return The started {@link SocketServer}
+     * @throws IOException If the configured address cannot be bound
+     */
+    public static SocketServer listen(Server<TextMessage> server) throws IOException {
+        SocketServer back = new SocketServer(server);
+        try {
+            back.start();
+        } catch (IOException e) {
+            throw new IOException("Fatal error while accepting LBMS clients", e);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(back::close, "LBMS-socket-shutdown"));
+        return back;
+    }
+
     public static void connect(Client<TextMessage> client, Server<TextMessage> server) {
 
     }
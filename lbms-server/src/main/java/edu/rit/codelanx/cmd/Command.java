@@ -35,4 +35,34 @@ public interface Command {
      *         this command
      */
     public ResponseFlag onExecute(CommandExecutor executor, String... args);
+
+    /**
+     * Declares how this command uses the library's data, which decides what
+     * else may run alongside it
+     *
+     * @return The {@link Access} this command needs
+     * @see CommandEngine
+     */
+    public Access getAccess();
+
+    /**
+     * Whether this command uses the book store's data, which is only ever
+     * used by one command at a time
+     *
+     * @return {@code true} if the book store is used
+     * @see CommandEngine
+     */
+    default public boolean usesBookStore() {
+        return false;
+    }
+
+    /**
+     * How a {@link Command} uses the library's data
+     */
+    public enum Access {
+        /** Only reads data, and may run alongside other reading commands */
+        READ,
+        /** Changes data, and runs alone */
+        WRITE,
+    }
 }
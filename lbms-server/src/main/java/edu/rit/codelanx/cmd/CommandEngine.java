@@ -0,0 +1,103 @@
+package edu.rit.codelanx.cmd;
+
+import edu.rit.codelanx.data.storage.FFStorageAdapter;
+import edu.rit.codelanx.data.storage.StorageAdapter;
+import edu.rit.codelanx.network.server.Server;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Runs {@link Command Commands} from many threads at once against a single
+ * {@link Server}. Commands which only {@link Command.Access#READ read} the
+ * library's data run alongside each other, while those which
+ * {@link Command.Access#WRITE write} to it run alone. Anything else which
+ * changes the library's data, such as the clock opening and closing the
+ * library, must do so {@link #exclusive(Runnable) exclusively} as well.
+ * <p>
+ * Reads only run alongside each other while the library's data is fully
+ * {@link edu.rit.codelanx.data.storage.StorageAdapter#isCached() cached},
+ * as otherwise reading may load states into the cache. Anything read along
+ * the way, such as field values, loaded states and text indexes, must then
+ * be safe to read from many threads at once, even where reading it also
+ * tidies it up, as reading field values expunges collected states. The book store is
+ * lazily loaded as it is read, so commands which
+ * {@link Command#usesBookStore() use it} take turns regardless
+ */
+public class CommandEngine {
+
+    private final Server<?> server;
+    //always acquired before the book store's lock
+    private final ReentrantReadWriteLock library = new ReentrantReadWriteLock();
+    private final Lock bookStore = new ReentrantLock();
+
+    /**
+     * Prepares to run commands against the given server
+     *
+     * @param server The {@link Server} holding the data commands use
+     */
+    public CommandEngine(Server<?> server) {
+        this.server = server;
+        StorageAdapter adapter = server.getLibraryData().getAdapter();
+        if (adapter instanceof FFStorageAdapter) {
+            //snapshots are copied between commands, never part way through one
+            ((FFStorageAdapter) adapter).setSnapshotLock(this.library.readLock());
+        }
+        if (server.getClock() != null) {
+            //its events change the library exclusively, and advancing is itself a command
+            server.getClock().setFiringLock(this.library.writeLock());
+        }
+    }
+
+    /**
+     * Runs a command once it is safe to do so alongside the commands already
+     * running, blocking until it has finished
+     *
+     * @param command The {@link Command} to run
+     * @param executor The {@link CommandExecutor} running the command
+     * @param args The arguments to pass to the command
+     * @return The {@link ResponseFlag} of the command
+     * @see Command#onExecute(CommandExecutor, String...)
+     */
+    public ResponseFlag execute(Command command, CommandExecutor executor, String... args) {
+        Lock data = this.isShared(command)
+                ? this.library.readLock()
+                : this.library.writeLock();
+        data.lock();
+        try {
+            if (!command.usesBookStore()) {
+                return command.onExecute(executor, args);
+            }
+            this.bookStore.lock();
+            try {
+                return command.onExecute(executor, args);
+            } finally {
+                this.bookStore.unlock();
+            }
+        } finally {
+            data.unlock();
+        }
+    }
+
+    /**
+     * Runs a change to the library's data while no command is running. This
+     * may be called from within a running command which writes
+     *
+     * @param task The change to make
+     */
+    public void exclusive(Runnable task) {
+        Lock data = this.library.writeLock();
+        data.lock();
+        try {
+            task.run();
+        } finally {
+            data.unlock();
+        }
+    }
+
+    private boolean isShared(Command command) {
+        return command.getAccess() == Command.Access.READ
+                && this.server.getLibraryData().getAdapter().isCached();
+    }
+}
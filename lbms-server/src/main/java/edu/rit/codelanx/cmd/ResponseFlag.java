@@ -64,5 +64,10 @@ public enum ResponseFlag implements Message<String> {
         public ResponseFlag onExecute(CommandExecutor executor, String... args) {
             return ResponseFlag.this;
         }
+
+        @Override
+        public Access getAccess() {
+            return Access.READ; //touches nothing
+        }
     }
 }
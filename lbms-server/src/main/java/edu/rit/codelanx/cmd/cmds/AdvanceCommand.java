@@ -15,6 +15,8 @@ import edu.rit.codelanx.cmd.text.TextCommand;
  * library ahead by a specified number of days and/or hours. The total number
  * of days/hours advanced must be tracked by the system and added to the
  * current date as appropriate (e.g. to determine if books are overdue).
+ * Everything the library does in the time skipped over, such as opening and
+ * closing, happens in order before the response is sent.
  * <p>
  * Request Format: advance,number-of-days[,number-of-hours];
  * number-of-days is the number of days to move the library's calendar
@@ -53,6 +55,15 @@ public class AdvanceCommand extends TextCommand {
         return "advance";
     }
 
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Access getAccess() {
+        return Access.WRITE;
+    }
+
     /**
      * {@inheritDoc}
      * @param executor  {@inheritDoc}
@@ -45,6 +45,15 @@ public class ArriveCommand extends TextCommand {
         return "arrive";
     }
 
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Access getAccess() {
+        return Access.WRITE;
+    }
+
     /**
      * {@inheritDoc}
      * @param executor  {@inheritDoc}
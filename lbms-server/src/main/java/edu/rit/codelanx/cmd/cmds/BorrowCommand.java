@@ -57,6 +57,15 @@ public class BorrowCommand extends TextCommand {
         return "borrow";
     }
 
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Access getAccess() {
+        return Access.WRITE;
+    }
+
     @Override
     public TextParam.Builder buildParams() {
         return TextParam.create()
@@ -177,12 +186,14 @@ public class BorrowCommand extends TextCommand {
 
     /**
      * getCheckedOut is a helper method for {@link #onExecute} that gets the number of checkouts of a visitor
+     * which have not been returned yet, as only those count towards the borrowing limit
      * @param v the {@link Visitor} to search checkouts for
-     * @return the amount of checkouts the visitor has
+     * @return the amount of books the visitor still has checked out
      */
     protected long getCheckedOut(Visitor v){
         return server.getLibraryData().query(Checkout.class)
                 .isEqual(Checkout.Field.VISITOR, v)
+                .isEqual(Checkout.Field.RETURNED, false)
                 .results().count();
     }
 
@@ -48,6 +48,15 @@ public class BorrowedCommand extends TextCommand {
         return "borrowed";
     }
 
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Access getAccess() {
+        return Access.READ;
+    }
+
     /**
      * {@inheritDoc}
      * @param executor  {@inheritDoc}
@@ -59,6 +59,24 @@ public class BuyCommand extends TextCommand {
         return "buy";
     }
 
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Access getAccess() {
+        return Access.WRITE;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public boolean usesBookStore() {
+        return true;
+    }
+
     /**
      * {@inheritDoc}
      * @param executor  {@inheritDoc}
@@ -180,6 +198,10 @@ public class BuyCommand extends TextCommand {
         StateBuilder<Book> bookStateBuilder = new ProxiedStateBuilder<>(newBook);
         bookStateBuilder.setValue(Book.Field.TOTAL_COPIES, copies);
         bookStateBuilder.setValue(Book.Field.CHECKED_OUT, 0);
-        return this.server.getLibraryData().insert(bookStateBuilder);
+        Book back = this.server.getLibraryData().insert(bookStateBuilder);
+        //copies of books already held are recorded by Book#addCopy
+        this.server.getLibraryData().getLibrary().getRollups()
+                .recordPurchase(this.server.getClock().getCurrentTime(), copies);
+        return back;
     }
 }
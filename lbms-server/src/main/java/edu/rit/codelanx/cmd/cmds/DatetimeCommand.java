@@ -41,6 +41,15 @@ public class DatetimeCommand extends TextCommand {
         return "datetime";
     }
 
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Access getAccess() {
+        return Access.READ;
+    }
+
     /**
      * {@inheritDoc}
      * @param executor  {@inheritDoc}
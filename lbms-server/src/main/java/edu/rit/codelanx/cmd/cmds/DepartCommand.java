@@ -47,6 +47,15 @@ public class DepartCommand extends TextCommand {
         return "depart";
     }
 
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Access getAccess() {
+        return Access.WRITE;
+    }
+
     /**
      * {@inheritDoc}
      * @param executor  {@inheritDoc}
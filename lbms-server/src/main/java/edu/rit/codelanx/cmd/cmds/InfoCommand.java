@@ -1,11 +1,13 @@
 package edu.rit.codelanx.cmd.cmds;
 
+import com.codelanx.commons.util.InputOutput;
 import edu.rit.codelanx.LBMS;
 import edu.rit.codelanx.cmd.CommandExecutor;
 import edu.rit.codelanx.cmd.ResponseFlag;
 import edu.rit.codelanx.cmd.text.TextInterpreter;
 import edu.rit.codelanx.cmd.text.TextParam;
 import edu.rit.codelanx.data.storage.Query;
+import edu.rit.codelanx.data.storage.TextQuery;
 import edu.rit.codelanx.data.state.types.Author;
 import edu.rit.codelanx.data.state.types.AuthorListing;
 import edu.rit.codelanx.data.state.types.Book;
@@ -15,7 +17,10 @@ import edu.rit.codelanx.cmd.text.TextCommand;
 
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -26,8 +31,8 @@ import java.util.stream.Stream;
  * Searches for books owned by the library and available for borrowing by
  * visitors.
  * <p>
- * Request Format: info,title,{authors},[isbn, [publisher,[sort order]]]
- * title is the title of the book.
+ * Request Format: info,title,{authors},[isbn, [publisher,[sort order[,limit[,after[,match]]]]]]
+ * title is the title of the book, or a full-text query if matching text.
  * authors is the comma-separated list of authors of the book.
  * isbn is the 13-digit International Standard Book NUmber (ISBN) for the book.
  * publisher is the name of the book's publisher.
@@ -35,6 +40,14 @@ import java.util.stream.Stream;
  * title will be alphanumerical from 0..1-A-Z, publish date will be newest
  * first, and book status will only show books with at least one copy
  * available for check out.
+ * limit is the most books to list at once.
+ * after is the id of the last book listed by the previous page, such that
+ * only the books which come after it in the sort order are listed.
+ * match is one of: exact, text. Exact matches the whole title, while text
+ * matches every word of the title against the titles, authors and
+ * publishers of books. A quoted phrase must match as a whole, and a word
+ * ending in * matches any word it starts. Matching text may also be sorted
+ * by relevance, which is the default when it is.
  */
 public class InfoCommand extends TextCommand {
 
@@ -56,7 +69,10 @@ public class InfoCommand extends TextCommand {
                 .listOptional("authors")
                 .argumentOptional("isbn")
                 .argumentOptional("publisher")
-                .argumentOptional("sort order");
+                .argumentOptional("sort order")
+                .argumentOptional("limit")
+                .argumentOptional("after")
+                .argumentOptional("match");
     }
 
     /**
@@ -69,6 +85,15 @@ public class InfoCommand extends TextCommand {
         return "info";
     }
 
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Access getAccess() {
+        return Access.READ;
+    }
+
     /**
      * {@inheritDoc}
      * @param executor  {@inheritDoc}
@@ -78,11 +103,28 @@ public class InfoCommand extends TextCommand {
      *                  args[2]: isbn
      *                  args[3]: publisher
      *                  args[4]: sortOrder
+     *                  args[5]: limit
+     *                  args[6]: after
+     *                  args[7]: match
      * @return {@inheritDoc}
      */
     @Override
     public ResponseFlag onExecute(CommandExecutor executor, String... args) {
-        return this.execute(executor, args[0], args[2], args[3], args[4], TextInterpreter.splitInput(args[1]));
+        String limitArg = args.length > 5 ? args[5] : "";
+        String afterArg = args.length > 6 ? args[6] : "";
+        String matchArg = args.length > 7 ? args[7].toLowerCase() : "";
+        if (!matchArg.isEmpty() && !matchArg.equals("exact") && !matchArg.equals("text")) {
+            executor.sendMessage(this.buildResponse(this.getName(), "invalid-match"));
+            return ResponseFlag.SUCCESS;
+        }
+        int limit = limitArg.isEmpty() ? -1 : InputOutput.parseInt(limitArg).filter(l -> l >= 0).orElse(-2);
+        if (limit < -1) {
+            executor.sendMessage(this.buildResponse(this.getName(), "invalid-limit"));
+            return ResponseFlag.SUCCESS;
+        }
+        Long after = afterArg.isEmpty() ? null : InputOutput.parseLong(afterArg).orElse(-1L);
+        return this.execute(executor, args[0], args[2], args[3], args[4], limit, after,
+                matchArg.equals("text"), TextInterpreter.splitInput(args[1]));
     }
 
     /**
@@ -101,6 +143,112 @@ public class InfoCommand extends TextCommand {
      */
     public ResponseFlag execute(CommandExecutor executor, String title, String isbn,
                                 String publisher, String sortOrder, String... authors) {
+        return this.execute(executor, title, isbn, publisher, sortOrder, -1, null, authors);
+    }
+
+    /**
+     * Searches the database for books that are available to be borrowed and
+     * owned by the library, listing a single page of them. Sorting and
+     * paging are left to the query, so only the books on the page are ever
+     * found, except when sorting by book status which is not stored
+     *
+     * @param executor the client that is calling the command
+     * @param title: title of the book to be searched
+     * @param isbn: the ISBN number for the book
+     * @param publisher: the publisher of the book
+     * @param sortOrder: way to sort the result of searching the database
+     * @param limit: the most books to list, or {@code -1} to list them all
+     * @param after: the id of the last book of the previous page, or
+     *               {@code null} to start from the first book
+     * @param authors: the comma-separated list of authors of the book
+     * @return a responseflag that says whether or not the command was
+     * executed correctly
+     */
+    public ResponseFlag execute(CommandExecutor executor, String title, String isbn,
+                                String publisher, String sortOrder, int limit, Long after, String... authors) {
+        return this.execute(executor, title, isbn, publisher, sortOrder, limit, after, false, authors);
+    }
+
+    /**
+     * Searches the database for books that are available to be borrowed and
+     * owned by the library, listing a single page of them. The title may be
+     * matched exactly, or as a full-text query over the titles, authors and
+     * publishers of books, whose matches can be ranked by relevance. Only
+     * the books on a page of relevant matches are found, unless they are
+     * also filtered by isbn, publisher or author
+     *
+     * @param executor the client that is calling the command
+     * @param title: title of the book to be searched, or the text to match
+     * @param isbn: the ISBN number for the book
+     * @param publisher: the publisher of the book
+     * @param sortOrder: way to sort the result of searching the database
+     * @param limit: the most books to list, or {@code -1} to list them all
+     * @param after: the id of the last book of the previous page, or
+     *               {@code null} to start from the first book
+     * @param text: {@code true} to match the title as full text
+     * @param authors: the comma-separated list of authors of the book
+     * @return a responseflag that says whether or not the command was
+     * executed correctly
+     */
+    public ResponseFlag execute(CommandExecutor executor, String title, String isbn,
+                                String publisher, String sortOrder, int limit, Long after, boolean text, String... authors) {
+        Book last = null;
+        if (after != null) {
+            last = this.findBook(after);
+            if (last == null) {
+                executor.sendMessage(buildResponse(this.getName(), "invalid-after"));
+                return ResponseFlag.SUCCESS;
+            }
+        }
+        Book cursor = last;
+        boolean fullText = text && !title.isEmpty();
+        List<Long> ranked = fullText ? this.findText(title) : null;
+        Map<Long, Integer> rank = new HashMap<>();
+        if (ranked != null) {
+            for (int i = 0; i < ranked.size(); i++) {
+                rank.put(ranked.get(i), i);
+            }
+        }
+        Consumer<Query<Book>> page;
+        //neither available copies nor relevance are stored, so are sorted here
+        Comparator<Book> inMemory = null;
+        boolean availableOnly = false;
+        switch (sortOrder.isEmpty() && fullText ? "relevance" : sortOrder.toLowerCase()) { //sort-order
+            case "":
+            case "title":
+                page = query -> query.orderBy(Book.Field.TITLE, Query.Direction.ASCENDING);
+                break;
+            case "publish-date":
+                page = query -> query.orderBy(Book.Field.PUBLISH_DATE, Query.Direction.DESCENDING);
+                break;
+            case "book-status":
+                page = query -> {};
+                inMemory = Comparator.comparing(Book::getAvailableCopies).thenComparing(Book::getID);
+                availableOnly = true;
+                break;
+            case "relevance":
+                if (!fullText) {
+                    executor.sendMessage(buildResponse(this.getName(), "invalid-sort-order"));
+                    return ResponseFlag.SUCCESS;
+                }
+                page = query -> {};
+                inMemory = Comparator.comparing(book -> rank.getOrDefault(book.getID(), Integer.MAX_VALUE));
+                break;
+            default:
+                executor.sendMessage(buildResponse(this.getName(), "invalid-sort-order"));
+                return ResponseFlag.SUCCESS;
+        }
+        if (inMemory == null) {
+            page = page.andThen(query -> {
+                if (limit >= 0) {
+                    query.limit(limit);
+                }
+                if (cursor != null) {
+                    query.after(cursor);
+                }
+                query.include(Book.AUTHORS); //listed with every book
+            });
+        }
         //if the String author is empty=> string list is empty " "
         if (Arrays.stream(authors).anyMatch(String::isEmpty)) {
             authors = AUTHOR_WILDCARD;
@@ -119,28 +267,41 @@ public class InfoCommand extends TextCommand {
                 filterIDs = getIDs(found);
             }
         }
+        if (ranked != null) {
+            if (inMemory != null && !availableOnly && filterIDs == null && isbn.isEmpty() && publisher.isEmpty()) {
+                //only the page of matches needs finding, as nothing else filters them
+                int from = cursor == null ? 0 : rank.getOrDefault(cursor.getID(), ranked.size() - 1) + 1;
+                int to = limit < 0 ? ranked.size() : (int) Math.min(ranked.size(), (long) from + limit);
+                filterIDs = new HashSet<>(ranked.subList(Math.min(from, to), to));
+            } else {
+                Set<Long> matched = new HashSet<>(ranked);
+                if (filterIDs != null) {
+                    matched.retainAll(filterIDs);
+                }
+                filterIDs = matched;
+            }
+        }
 
         Set<Long> idFilter = filterIDs;
-        Stream<Book> res = getBookStream(title,isbn,publisher,filterIDs,idFilter);
-
-        switch (sortOrder.toLowerCase()) { //sort-order
-            case "":
-            case "title":
-                res = res.sorted(Comparator.comparing(Book::getTitle));
-                break;
-            case "publish-date":
-                res = res.sorted(Comparator.comparing(Book::getPublishDate).reversed());
-                break;
-            case "book-status":
-                res = res.filter(book -> book.getAvailableCopies() > 0)
-                        .sorted(Comparator.comparing(Book::getAvailableCopies));
-                break;
-            default:
-                executor.sendMessage(buildResponse(this.getName(), "invalid-sort-order"));
-                return ResponseFlag.SUCCESS;
+        Stream<Book> res = getBookStream(fullText ? "" : title, isbn, publisher, filterIDs, idFilter, page);
+        if (inMemory != null) {
+            Comparator<Book> order = inMemory;
+            if (availableOnly) {
+                res = res.filter(book -> book.getAvailableCopies() > 0);
+            }
+            res = res.sorted(order);
+            if (cursor != null) {
+                res = res.filter(book -> order.compare(book, cursor) > 0);
+            }
+            if (limit >= 0) {
+                res = res.limit(limit);
+            }
         }
 
         List<Book> bookList = res.collect(Collectors.toList());
+        if (inMemory != null) {
+            Book.AUTHORS.prefetch(bookList); //only for the page, rather than every match
+        }
         executor.sendMessage(this.buildResponse(this.getName(), bookList.size()));
         if (bookList.isEmpty()) {
             return ResponseFlag.SUCCESS;
@@ -163,6 +324,27 @@ public class InfoCommand extends TextCommand {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * findText is a helper method for {@link #onExecute} that finds books by their text
+     * @param text the full-text query to match
+     * @return the ids of the matching books, most relevant first
+     */
+    protected List<Long> findText(String text) {
+        return this.server.getLibraryData().getAdapter().getTextIndex().search(TextQuery.parse(text));
+    }
+
+    /**
+     * findBook is a helper method for {@link #onExecute} that finds a book in the database by its id
+     * @param id the id of the book
+     * @return the {@link Book} found, or {@code null} if there is none
+     */
+    protected Book findBook(long id) {
+        return this.server.getLibraryData().query(Book.class)
+                .isEqual(Book.Field.ID, id)
+                .results()
+                .findFirst().orElse(null);
+    }
+
     /**
      * getIDs is a helper method for {@link #onExecute} that finds book ids based on the author
      * @param found the authors to search for
@@ -213,8 +395,7 @@ public class InfoCommand extends TextCommand {
     protected Stream<Book> findBookByAuthor(Set<Long> filterIDs, Query<Book> query, Set<Long> idFilter) {
         return filterIDs.isEmpty()
                 ? Stream.empty() //no possible results now
-                : query.results()
-                .filter(b -> !idFilter.contains(b.getID()));
+                : query.isAny(Book.Field.ID, idFilter).results(); //filtered by the query, so pages stay full
     }
 
     /**
@@ -224,9 +405,11 @@ public class InfoCommand extends TextCommand {
      * @param publisher the publisher input by the user to search for
      * @param filterIDs the author id to filter by
      * @param idFilter the book id to filter by
+     * @param page applies the sort order, paging and prefetching to the query
      * @return a stream of the {@link Book Books} filtered
      */
-    protected Stream<Book> getBookStream(String title, String isbn, String publisher, Set<Long> filterIDs, Set<Long> idFilter){
+    protected Stream<Book> getBookStream(String title, String isbn, String publisher, Set<Long> filterIDs, Set<Long> idFilter,
+                                         Consumer<Query<Book>> page) {
         Query<Book> query = bookQuery();
         //REFACTOR: DRY these blocks of code
         //Going through the query fields and adding them if they are there
@@ -239,6 +422,7 @@ public class InfoCommand extends TextCommand {
         if (!publisher.isEmpty()) {
             query = query.isEqual(Book.Field.PUBLISHER, publisher);
         }
+        page.accept(query);
         Stream<Book> res;
         if (filterIDs != null) { //if filtering by authors...
             res = findBookByAuthor(filterIDs, query, idFilter);
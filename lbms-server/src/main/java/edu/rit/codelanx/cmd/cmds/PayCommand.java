@@ -50,6 +50,15 @@ public class PayCommand extends TextCommand {
         return "pay";
     }
 
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Access getAccess() {
+        return Access.WRITE;
+    }
+
     /**
      * Whenever this command is called, it will pay the amount towards the
      * specific visitor's negative balance.
@@ -49,6 +49,15 @@ public class RegisterCommand extends TextCommand {
         return "register";
     }
 
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Access getAccess() {
+        return Access.WRITE;
+    }
+
     /**
      * {@inheritDoc}
      * @param executor  {@inheritDoc}
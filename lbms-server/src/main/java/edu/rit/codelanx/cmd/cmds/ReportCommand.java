@@ -6,16 +6,16 @@ import edu.rit.codelanx.cmd.CommandExecutor;
 import edu.rit.codelanx.cmd.ResponseFlag;
 import edu.rit.codelanx.cmd.text.TextParam;
 import edu.rit.codelanx.data.state.types.Book;
+import edu.rit.codelanx.data.state.types.Rollups;
 import edu.rit.codelanx.data.state.types.Transaction;
-import edu.rit.codelanx.data.state.types.Visit;
 import edu.rit.codelanx.data.state.types.Visitor;
+import edu.rit.codelanx.data.storage.Query;
 import edu.rit.codelanx.network.io.TextMessage;
 import edu.rit.codelanx.network.server.Server;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Reports various statistics about library usage for a period covering a
@@ -54,6 +54,15 @@ public class ReportCommand extends TextCommand {
         return "report";
     }
 
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Access getAccess() {
+        return Access.READ;
+    }
+
     /**
      * {@inheritDoc}
      * @param executor  {@inheritDoc}
@@ -64,10 +73,13 @@ public class ReportCommand extends TextCommand {
     @Override
     public ResponseFlag onExecute(CommandExecutor executor, String... args) {
 
-        // TODO: Days can be obmitted, you just use all the data collected since the start of the sim
+        if (args[0].isEmpty()) {
+            //no days given, report on everything since the start of the sim
+            return this.report(executor, this.server.getClock().getCurrentTime(), null);
+        }
         Optional<Long> days = InputOutput.parseLong(args[0]);
 
-        if (!days.isPresent()) {
+        if (!days.isPresent() || days.get() < 0) {
             executor.sendMessage("report,invalid-argument");
             return ResponseFlag.SUCCESS;
         }
@@ -87,16 +99,20 @@ public class ReportCommand extends TextCommand {
     public ResponseFlag execute(CommandExecutor executor, int days) {
         //Gets the date
         Instant curDate = this.server.getClock().getCurrentTime();
+        return this.report(executor, curDate, curDate.minus(Duration.ofDays(days)));
+    }
 
+    //reports on activity from since (or everything, if null) up to curDate
+    private ResponseFlag report(CommandExecutor executor, Instant curDate, Instant since) {
         //Finds all the books
         long books = getBookCount();
 
         // Gathers the number of visitors registered
-        long numVisitors = getNewVisitorCount();
+        long numVisitors = getNewVisitorCount(since);
 
 
         //Uses summary statistics to get the average time of visits
-        double average = getAverageVisitLength(); //average duration of a visit
+        double average = getAverageVisitLength(since); //average duration of a visit
         Duration avg = Duration.ofSeconds((long)average);
         String avgOutput = this.formatDuration(avg);
 
@@ -104,13 +120,11 @@ public class ReportCommand extends TextCommand {
         // Counts the number of books purchased
         long numPurchased = getBooksPurchasedAmount();
 
-        Map<String, Set<Transaction>> map = getTransactions();
+        Map<String, Long> map = getTransactionCounts(since);
 
-        int amountLateFees =
-                map.getOrDefault(Transaction.Reason.CHARGING_LATE_FEE.getReason(), Collections.emptySet()).size();
-        int amountPaidFees =
-                map.getOrDefault(Transaction.Reason.PAYING_LATE_FEE.getReason(), Collections.emptySet()).size();
-        int outstandingFines = amountLateFees - amountPaidFees;
+        long amountLateFees = map.getOrDefault(Transaction.Reason.CHARGING_LATE_FEE.getReason(), 0L);
+        long amountPaidFees = map.getOrDefault(Transaction.Reason.PAYING_LATE_FEE.getReason(), 0L);
+        long outstandingFines = amountLateFees - amountPaidFees;
 
         executor.sendMessage(getName()
                 + "Date Generated: " + DATE_FORMAT.format(curDate)
@@ -131,32 +145,29 @@ public class ReportCommand extends TextCommand {
      * @return the amount of books as a long
      */
     protected Long getBookCount(){
-        return this.server.getLibraryData().query(Book.class)
-                .results()
-                .count();
+        return this.server.getLibraryData().query(Book.class).count();
     }
 
     /**
      * getNewVisitorCount is a helper method for {@link #onExecute} that gets the amount of new visitors registered
+     * @param since the earliest registration to count, or {@code null} for all
      * @return the amount of visitors
      */
-    protected Long getNewVisitorCount(){
-        return this.server.getLibraryData().query(Visitor.class)
-                .results()
-                .count();
+    protected Long getNewVisitorCount(Instant since){
+        Query<Visitor> query = this.server.getLibraryData().query(Visitor.class);
+        if (since != null) {
+            query.isGreaterThanOrEq(Visitor.Field.REGISTRATION_DATE, since);
+        }
+        return query.count();
     }
 
     /**
      * getAverageVisitLength is a helper method for {@link #onExecute} that gets the average of the length of the visits
-     * @return the average visit length as a double
+     * @param since the earliest visit start to include, or {@code null} for all
+     * @return the average visit length in seconds as a double, or 0 if there were no visits
      */
-    protected Double getAverageVisitLength(){
-        return this.server.getLibraryData().query(Visit.class) //Query<Visit>
-                        .results() //Stream<Visit>
-                        .map(visit -> Duration.between(visit.getStart(),
-                                visit.getEnd())) //Stream<Duration>
-                        .mapToLong(Duration::getSeconds)//Stream<Long>
-                        .summaryStatistics().getAverage();
+    protected Double getAverageVisitLength(Instant since){
+        return this.summarize(since).getAverageVisitSeconds().orElse(0);
     }
 
     /**
@@ -165,19 +176,25 @@ public class ReportCommand extends TextCommand {
      */
     protected long getBooksPurchasedAmount(){
         return this.server.getLibraryData().query(Book.class)
-                .results()
-                .map(Book::getTotalCopies)
-                .reduce(0, Integer::sum);
+                .sum(Book.Field.TOTAL_COPIES)
+                .longValue();
     }
 
     /**
-     * getTransactions is a helper method for {@link #onExecute} that gets the transactions that are in the database
-     * @return the transactions as a map of the reason and the transaction object
+     * getTransactionCounts is a helper method for {@link #onExecute} that counts the late fees charged and paid
+     * @param since the earliest transaction to include, or {@code null} for all
+     * @return the number of transactions for each late fee {@link Transaction.Reason}
      */
-    protected Map<String, Set<Transaction>> getTransactions(){
-        return this.server.getLibraryData()
-                .query(Transaction.class)
-                .results()
-                .collect(Collectors.groupingBy(Transaction::getReason, Collectors.toSet()));
+    protected Map<String, Long> getTransactionCounts(Instant since){
+        Rollups.Summary summary = this.summarize(since);
+        Map<String, Long> back = new HashMap<>();
+        back.put(Transaction.Reason.CHARGING_LATE_FEE.getReason(), summary.getFinesCharged());
+        back.put(Transaction.Reason.PAYING_LATE_FEE.getReason(), summary.getFinesPaid());
+        return back;
+    }
+
+    //visits and transactions are read from the library's rollups, which outlive their raw rows
+    private Rollups.Summary summarize(Instant since) {
+        return this.server.getLibraryData().getLibrary().getRollups().summarize(since);
     }
 }
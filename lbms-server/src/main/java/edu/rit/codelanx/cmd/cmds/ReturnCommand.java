@@ -61,6 +61,15 @@ public class ReturnCommand extends TextCommand {
         return "return";
     }
 
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Access getAccess() {
+        return Access.WRITE;
+    }
+
     /**
      * {@inheritDoc}
      * @param executor  {@inheritDoc}
@@ -1,12 +1,13 @@
 package edu.rit.codelanx.cmd.cmds;
 
+import com.codelanx.commons.util.InputOutput;
 import edu.rit.codelanx.cmd.CommandExecutor;
 import edu.rit.codelanx.cmd.ResponseFlag;
 import edu.rit.codelanx.cmd.text.TextInterpreter;
 import edu.rit.codelanx.cmd.text.TextParam;
 import edu.rit.codelanx.data.storage.Query;
+import edu.rit.codelanx.data.storage.TextQuery;
 import edu.rit.codelanx.data.state.types.Author;
-import edu.rit.codelanx.data.state.types.AuthorListing;
 import edu.rit.codelanx.data.state.types.Book;
 import edu.rit.codelanx.network.io.TextMessage;
 import edu.rit.codelanx.network.server.Server;
@@ -14,8 +15,12 @@ import edu.rit.codelanx.cmd.text.TextCommand;
 
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -23,13 +28,21 @@ import java.util.stream.Stream;
  * Searches for books that may be purchased by the library and added to its
  * collection.
  * <p>
- * Request Format: search,title,[{authors},isbn[,publisher[,sort order]]]
- * title is the title of the book.
+ * Request Format: search,title,[{authors},isbn[,publisher[,sort order[,limit[,after[,match]]]]]]
+ * title is the title of the book, or a full-text query if matching text.
  * authors is the comma-separated list of authors of the book.
  * isbn is the 13-digit International Standard Book NUmber (ISBN) for the book.
  * publisher is the name of the book's publisher.
  * sort order is one of: title, publish-date. Sorting of the title will be
  * alphanumerical from 0..1-A-Z, publish date will be newest first.
+ * limit is the most books to list at once.
+ * after is the id of the last book listed by the previous page, such that
+ * only the books which come after it in the sort order are listed.
+ * match is one of: exact, text. Exact matches the whole title, while text
+ * matches every word of the title against the titles, authors and
+ * publishers of books. A quoted phrase must match as a whole, and a word
+ * ending in * matches any word it starts. Matching text may also be sorted
+ * by relevance, which is the default when it is.
  */
 public class SearchCommand extends TextCommand {
 
@@ -51,7 +64,10 @@ public class SearchCommand extends TextCommand {
                 .listOptional("authors")
                 .argumentOptional("isbn")
                 .argumentOptional("publisher")
-                .argumentOptional("sort-order");
+                .argumentOptional("sort-order")
+                .argumentOptional("limit")
+                .argumentOptional("after")
+                .argumentOptional("match");
     }
 
     /**
@@ -63,6 +79,24 @@ public class SearchCommand extends TextCommand {
         return "search";
     }
 
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Access getAccess() {
+        return Access.READ;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public boolean usesBookStore() {
+        return true;
+    }
+
     /**
      * {@inheritDoc}
      * @param executor  {@inheritDoc}
@@ -72,12 +106,28 @@ public class SearchCommand extends TextCommand {
      *                  args[2]: isbn
      *                  args[3]: publisher
      *                  args[4]: sortOrder
+     *                  args[5]: limit
+     *                  args[6]: after
+     *                  args[7]: match
      * @return {@inheritDoc}
      */
     @Override
     public ResponseFlag onExecute(CommandExecutor executor, String... args) {
-        return  this.execute(executor, args[0], args[2], args[3], args[4], TextInterpreter.splitInput(args[1]));
-
+        String limitArg = args.length > 5 ? args[5] : "";
+        String afterArg = args.length > 6 ? args[6] : "";
+        String matchArg = args.length > 7 ? args[7].toLowerCase() : "";
+        if (!matchArg.isEmpty() && !matchArg.equals("exact") && !matchArg.equals("text")) {
+            executor.sendMessage(this.buildResponse(this.getName(), "invalid-match"));
+            return ResponseFlag.SUCCESS;
+        }
+        int limit = limitArg.isEmpty() ? -1 : InputOutput.parseInt(limitArg).filter(l -> l >= 0).orElse(-2);
+        if (limit < -1) {
+            executor.sendMessage(this.buildResponse(this.getName(), "invalid-limit"));
+            return ResponseFlag.SUCCESS;
+        }
+        Long after = afterArg.isEmpty() ? null : InputOutput.parseLong(afterArg).orElse(-1L);
+        return this.execute(executor, args[0], args[2], args[3], args[4], limit, after,
+                matchArg.equals("text"), TextInterpreter.splitInput(args[1]));
     }
 
     /**
@@ -95,29 +145,122 @@ public class SearchCommand extends TextCommand {
      */
     public ResponseFlag execute(CommandExecutor executor, String title, String isbn,
                                 String publisher, String sortOrder, String... authors) {
+        return this.execute(executor, title, isbn, publisher, sortOrder, -1, null, authors);
+    }
+
+    /**
+     * Searches the books that can be purchased by the library, listing a
+     * single page of them. Sorting and paging are left to the query, so a
+     * large catalog is never sorted as a whole
+     *
+     * @param executor the client that is calling the command
+     * @param title: title of the book
+     * @param isbn: International Standard Book NUmber for the book
+     * @param publisher: name of the book's publisher
+     * @param sortOrder: way to sort the results of the search
+     * @param limit: the most books to list, or {@code -1} to list them all
+     * @param after: the id of the last book of the previous page, or
+     *               {@code null} to start from the first book
+     * @param authors: comma-separated list of authors of the book
+     * @return a responseflag that says whether or not the command was
+     * executed correctly
+     */
+    public ResponseFlag execute(CommandExecutor executor, String title, String isbn,
+                                String publisher, String sortOrder, int limit, Long after, String... authors) {
+        return this.execute(executor, title, isbn, publisher, sortOrder, limit, after, false, authors);
+    }
+
+    /**
+     * Searches the books that can be purchased by the library, listing a
+     * single page of them. The title may be matched exactly, or as a
+     * full-text query over the titles, authors and publishers of books,
+     * whose matches can be ranked by relevance. Only the books on a page of
+     * relevant matches are found, unless they are also filtered by isbn,
+     * publisher or author
+     *
+     * @param executor the client that is calling the command
+     * @param title: title of the book, or the text to match
+     * @param isbn: International Standard Book NUmber for the book
+     * @param publisher: name of the book's publisher
+     * @param sortOrder: way to sort the results of the search
+     * @param limit: the most books to list, or {@code -1} to list them all
+     * @param after: the id of the last book of the previous page, or
+     *               {@code null} to start from the first book
+     * @param text: {@code true} to match the title as full text
+     * @param authors: comma-separated list of authors of the book
+     * @return a responseflag that says whether or not the command was
+     * executed correctly
+     */
+    public ResponseFlag execute(CommandExecutor executor, String title, String isbn,
+                                String publisher, String sortOrder, int limit, Long after, boolean text, String... authors) {
+        Book last = null;
+        if (after != null) {
+            last = this.findBook(after);
+            if (last == null) {
+                executor.sendMessage(buildResponse(this.getName(), "invalid-after"));
+                return ResponseFlag.SUCCESS;
+            }
+        }
+        boolean fullText = text && !title.isEmpty();
+        Consumer<Query<Book>> order;
+        Comparator<Book> byRank = null; //relevance is not stored, so is sorted here
+        switch (sortOrder.isEmpty() && fullText ? "relevance" : sortOrder.toLowerCase()) { //sort-order
+            case "":
+            case "title":
+                order = query -> query.orderBy(Book.Field.TITLE, Query.Direction.ASCENDING);
+                break;
+            case "publish-date":
+                order = query -> query.orderBy(Book.Field.PUBLISH_DATE, Query.Direction.DESCENDING);
+                break;
+            case "relevance":
+                if (fullText) {
+                    order = query -> {};
+                    byRank = Comparator.comparing(Book::getID); //replaced once ranked
+                    break;
+                }
+                //fall through
+            default:
+                executor.sendMessage(buildResponse(this.getName(),"invalid-sort-order"));
+                return ResponseFlag.SUCCESS;
+        }
         if (Arrays.stream(authors).anyMatch(String::isEmpty)) {
             authors = AUTHOR_WILDCARD;
         }
+        Query<Author> byAuthor = null;
+        if (authors != AUTHOR_WILDCARD && !findAuthors(authors).isEmpty()) {
+            //books by any of the authors are joined through their listings by the query itself
+            byAuthor = this.authorQuery(authors);
+        }
         Set<Long> filterIDs = null;
-        if (authors != AUTHOR_WILDCARD) {
-            List<Author> found = findAuthors(authors);
-            if (!found.isEmpty()) {
-                //no results can possibly be found otherwise
-                filterIDs = getFilterIDs(found);
-                if (filterIDs.isEmpty()) {
-                    executor.sendMessage(this.buildResponse(this.getName(), 0));
-                    return ResponseFlag.SUCCESS;
-                }
+        List<Long> ranked = fullText ? this.findText(title) : null;
+        Map<Long, Integer> rank = new HashMap<>();
+        if (ranked != null) {
+            for (int i = 0; i < ranked.size(); i++) {
+                rank.put(ranked.get(i), i);
+            }
+            if (byRank != null) {
+                byRank = Comparator.comparing(book -> rank.getOrDefault(book.getID(), Integer.MAX_VALUE));
+            }
+            if (byRank != null && byAuthor == null && isbn.isEmpty() && publisher.isEmpty()) {
+                //only the page of matches needs finding, as nothing else filters them
+                int from = last == null ? 0 : rank.getOrDefault(last.getID(), ranked.size() - 1) + 1;
+                int to = limit < 0 ? ranked.size() : (int) Math.min(ranked.size(), (long) from + limit);
+                filterIDs = new HashSet<>(ranked.subList(Math.min(from, to), to));
+            } else {
+                filterIDs = new HashSet<>(ranked);
+            }
+            if (filterIDs.isEmpty()) {
+                executor.sendMessage(this.buildResponse(this.getName(), 0));
+                return ResponseFlag.SUCCESS;
             }
         }
         Set<Long> idFilter = filterIDs;
-        //at this point, if filterIDs is null, no authors were searched
-        //if filterIDs is empty, no listings were found for the authors
+        //at this point, if filterIDs is null, no text was matched
         //otherwise, our books are restricted to the contents of filterIDs
         Query<Book> query = this.server.getBookStore().query(Book.class);
         //REFACTOR: DRY these blocks of code
         //Going through the query fields and adding them if they are there
-        if (!title.isEmpty()) {
+        if (!title.isEmpty() && !fullText) {
             query = query.isEqual(Book.Field.TITLE, title);
         }
         if (!isbn.isEmpty()) {
@@ -129,21 +272,35 @@ public class SearchCommand extends TextCommand {
         if (idFilter != null) {
             query = query.isAny(Book.Field.ID, idFilter);
         }
-        Stream<Book> res = query.results();
-        switch (sortOrder.toLowerCase()) { //sort-order
-            case "":
-            case "title":
-                res = res.sorted(Comparator.comparing(Book::getTitle));
-                break;
-            case "publish-date":
-                res = res.sorted(Comparator.comparing(Book::getPublishDate).reversed());
-                break;
-            default:
-                executor.sendMessage(buildResponse(this.getName(),"invalid-sort-order"));
-                return ResponseFlag.SUCCESS;
+        if (byAuthor != null) {
+            query = query.join(Book.AUTHORS, byAuthor);
+        }
+        order.accept(query);
+        Stream<Book> res;
+        if (byRank == null) {
+            if (limit >= 0) {
+                query = query.limit(limit);
+            }
+            if (last != null) {
+                query = query.after(last);
+            }
+            res = query.include(Book.AUTHORS).results(); //listed with every book
+        } else {
+            Comparator<Book> ranking = byRank;
+            Book cursor = last;
+            res = query.results().sorted(ranking);
+            if (cursor != null) {
+                res = res.filter(book -> ranking.compare(book, cursor) > 0);
+            }
+            if (limit >= 0) {
+                res = res.limit(limit);
+            }
         }
 
         List<Book> bookList = res.collect(Collectors.toList());
+        if (byRank != null) {
+            Book.AUTHORS.prefetch(bookList); //only for the page, rather than every match
+        }
         executor.sendMessage(this.buildResponse(this.getName(), bookList.size()));
         if (bookList.isEmpty()) {
             return ResponseFlag.SUCCESS;
@@ -165,18 +322,34 @@ public class SearchCommand extends TextCommand {
     }
 
     /**
-     * getFilterIDs is a helper method for {@link #onExecute} that finds book ids based on the author
-     * @param found the authors to search for
-     * @return a list of the book ids found in the search
+     * findText is a helper method for {@link #onExecute} that finds books by their text
+     * @param text the full-text query to match
+     * @return the ids of the matching books, most relevant first
+     */
+    protected List<Long> findText(String text) {
+        return this.server.getBookStore().getAdapter().getTextIndex().search(TextQuery.parse(text));
+    }
+
+    /**
+     * findBook is a helper method for {@link #onExecute} that finds a book in the book store by its id
+     * @param id the id of the book
+     * @return the {@link Book} found, or {@code null} if there is none
      */
-    protected Set<Long> getFilterIDs(List<Author> found){
-        return this.server.getBookStore()
-                .query(AuthorListing.class)
-                .isAny(AuthorListing.Field.AUTHOR, found)
+    protected Book findBook(long id) {
+        return this.server.getBookStore().query(Book.class)
+                .isEqual(Book.Field.ID, id)
                 .results()
-                .map(AuthorListing::getBook)
-                .map(Book::getID)
-                .collect(Collectors.toSet());
+                .findFirst().orElse(null);
+    }
+
+    /**
+     * authorQuery is a helper method for {@link #onExecute} that creates a query for authors in the book store
+     * @param authors the names of the authors to query for
+     * @return the {@link Query} for the authors, which is yet to be run
+     */
+    protected Query<Author> authorQuery(String... authors) {
+        return this.server.getBookStore().query(Author.class)
+                .isAny(Author.Field.NAME, authors);
     }
 
     /**
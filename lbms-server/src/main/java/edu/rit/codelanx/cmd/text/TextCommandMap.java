@@ -21,6 +21,7 @@ import edu.rit.codelanx.network.io.TextMessage;
 import edu.rit.codelanx.network.server.Server;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Optional;
 import java.util.WeakHashMap;
@@ -46,25 +47,29 @@ public enum TextCommandMap {
     ;
 
     private static final TextCommandMap[] VALUES = TextCommandMap.values();
-    private final Map<Server<TextMessage>, Command> serverCmd = new WeakHashMap<>();
+    //looked up from every thread running commands
+    private final Map<Server<TextMessage>, Command> serverCmd = Collections.synchronizedMap(new WeakHashMap<>());
     private final Function<Server<TextMessage>, Command> initializer;
+    private volatile String name; //the lowercase name, once any command is made
 
     private TextCommandMap(Function<Server<TextMessage>, Command> initializer) {
         this.initializer = initializer;
     }
 
     private Command toCommand(Server<TextMessage> server) {
-        return this.serverCmd.computeIfAbsent(server, this.initializer);
+        Command back = this.serverCmd.computeIfAbsent(server, this.initializer);
+        if (this.name == null) {
+            this.name = back.getName().toLowerCase();
+        }
+        return back;
     }
 
     private static Optional<TextCommandMap> getMappingFor(String name) {
         Validate.nonNull(name, "Cannot map from null to a Command");
         String fname = name.toLowerCase();
         return Arrays.stream(VALUES)
-                .filter(v -> {
-                    if (v.serverCmd.isEmpty()) return false;
-                    return v.serverCmd.values().iterator().next().getName().toLowerCase().equals(fname);
-                }).findAny();
+                .filter(v -> fname.equals(v.name))
+                .findAny();
     }
 
     public static Command getCommand(Server<TextMessage> server, String cmdName) {
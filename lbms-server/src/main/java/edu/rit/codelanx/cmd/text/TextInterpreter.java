@@ -10,6 +10,7 @@ import edu.rit.codelanx.network.server.Server;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -33,9 +34,9 @@ public class TextInterpreter implements Interpreter {
     public static final String OUTPUT_WILDCARD = "";
     //the server the commands run on
     private final Server<TextMessage> server;
-    //buffers per connected executor
+    //buffers per connected executor, which may be received from at once
     private final Map<CommandExecutor, StringBuilder> buffers =
-            new WeakHashMap<>();
+            Collections.synchronizedMap(new WeakHashMap<>());
 
     /**
      * Initializes the command map, making the commands available for general
@@ -132,7 +133,7 @@ public class TextInterpreter implements Interpreter {
             }
             passedArgs = this.preprocessArguments(tcmd, passedArgs);
         }
-        ResponseFlag r = cmd.onExecute(executor, passedArgs);
+        ResponseFlag r = this.server.getCommandEngine().execute(cmd, executor, passedArgs);
         if (LBMS.PREPRODUCTION_DEBUG) {
             executor.sendMessage(r.getDescription()); //TODO: Remove in production
         }
@@ -145,8 +146,8 @@ public class TextInterpreter implements Interpreter {
         if (command.params == null) {
             throw new UnsupportedOperationException("Command did not implement #buildParams correctly");
         }
-        if (command.params.length > 0 && args.length <= 0) { //if we need
-            // args, and there are none
+        if (args.length <= 0 && Arrays.stream(command.params).anyMatch(TextParam::isRequired)) {
+            //if we need args, and there are none
             return command.buildResponse(command.getName(), "missing-params",
                     command.getUsage()); //example of an error string
         }
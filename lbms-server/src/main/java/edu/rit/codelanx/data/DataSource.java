@@ -1,6 +1,7 @@
 package edu.rit.codelanx.data;
 
 import edu.rit.codelanx.data.cache.RelativeStorage;
+import edu.rit.codelanx.data.field.DataFieldLoader;
 import edu.rit.codelanx.data.storage.Query;
 import edu.rit.codelanx.data.storage.StateBuilder;
 import edu.rit.codelanx.data.storage.StorageAdapter;
@@ -102,4 +103,15 @@ public interface DataSource {
      */
     public RelativeStorage getRelativeStorage();
 
+    /**
+     * Gets the form in which the fields of this source's states hold their
+     * values. This is fixed for the lifetime of the source, as its states
+     * are given slots (or not) as they are constructed
+     *
+     * @return The {@link DataFieldLoader.Backend} of this source's fields
+     */
+    default public DataFieldLoader.Backend getFieldBackend() {
+        return DataFieldLoader.Backend.MAP;
+    }
+
 }
@@ -1,6 +1,7 @@
 package edu.rit.codelanx.data;
 
 import edu.rit.codelanx.ConfigKey;
+import edu.rit.codelanx.data.field.DataFieldLoader;
 import edu.rit.codelanx.data.storage.FFStorageAdapter;
 import edu.rit.codelanx.data.storage.SQLStorageAdapter;
 import edu.rit.codelanx.data.storage.StorageAdapter;
@@ -28,6 +29,8 @@ public class LibraryData implements DataSource {
     private final StorageAdapter adapter;
     //our indexed storage
     private final RelativeStorage relative;
+    //how our states' fields hold their values
+    private final DataFieldLoader.Backend backend;
 
     /**
      * Selects an appropriate {@link StorageAdapter} for general LBMS data,
@@ -50,6 +53,20 @@ public class LibraryData implements DataSource {
      * @param adapter The {@link StorageAdapter} to load from
      */
     public LibraryData(Function<DataSource, StorageAdapter> adapter) {
+        this(adapter, DataFieldLoader.Backend.fromConfig());
+    }
+
+    /**
+     * Constructs a source of LBMS-related data using a {@link StorageAdapter}
+     * that is provided to this concrete {@link DataSource}, whose fields
+     * hold their values in the given form rather than the configured one
+     *
+     * @param adapter The {@link StorageAdapter} to load from
+     * @param backend The {@link DataFieldLoader.Backend} of this source's fields
+     */
+    public LibraryData(Function<DataSource, StorageAdapter> adapter, DataFieldLoader.Backend backend) {
+        //known before the adapter is made, as it may construct states right away
+        this.backend = backend;
         this.adapter = adapter.apply(this);
         this.relative = new RelativeStorage(this);
     }
@@ -92,6 +109,15 @@ public class LibraryData implements DataSource {
         return this.relative;
     }
 
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public DataFieldLoader.Backend getFieldBackend() {
+        return this.backend;
+    }
+
     /**
      * {@inheritDoc}
      * @param type {@inheritDoc}
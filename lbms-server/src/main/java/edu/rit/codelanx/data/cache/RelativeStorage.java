@@ -4,14 +4,14 @@ import edu.rit.codelanx.data.state.State;
 import edu.rit.codelanx.data.DataSource;
 import edu.rit.codelanx.data.state.types.StateType;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 //TODO: Remove in future release, was an unintended leave-in
 @Deprecated
 public class RelativeStorage {
 
-    private final Map<Class<?>, StateStorage<?>> states = new HashMap<>();
+    private final Map<Class<?>, StateStorage<?>> states = new ConcurrentHashMap<>();
     private final DataSource storage;
 
     public RelativeStorage(DataSource storage) {
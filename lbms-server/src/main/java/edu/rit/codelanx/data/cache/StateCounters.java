@@ -0,0 +1,355 @@
+package edu.rit.codelanx.data.cache;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.field.DataField;
+import edu.rit.codelanx.data.state.State;
+import edu.rit.codelanx.data.storage.Measure;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.OptionalDouble;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Aggregates over the loaded states of a single type, kept up to date as
+ * states are added, updated and removed rather than recomputed per request.
+ * <p>
+ * States are bucketed by the day (in UTC) of their first ordered
+ * {@link Instant} field, such as the start of a visit, and each bucket holds
+ * the number of states in it along with the sums of every materialized
+ * {@link Measure} and the counts of every materialized grouping. A range over
+ * that field is answered from the buckets of the days it fully covers, and
+ * only the states of the days at either end of it are looked at one by one,
+ * through the field's ordered index. Measures and groupings are materialized
+ * the first time they are asked for, which counts every loaded state once
+ *
+ * @param <T> The type of {@link State} being counted
+ */
+public class StateCounters<T extends State> {
+
+    private static final long DAY_SECONDS = Duration.ofDays(1).getSeconds();
+
+    private final DataSource storage;
+    private final DataField<Instant> day; //null if the type has no ordered time field
+    private final Supplier<Stream<T>> loaded;
+    private final List<Measure> measures = new ArrayList<>();
+    private final List<DataField<?>> groups = new ArrayList<>();
+    private final NavigableMap<Long, Bucket> days = new TreeMap<>();
+    private final Map<Long, Entry> entries = new HashMap<>(); //id -> what the state last added
+    private Bucket undated = new Bucket(0, 0); //states with no day
+
+    StateCounters(DataSource storage, State.Type type, Supplier<Stream<T>> loaded) {
+        this.storage = storage;
+        this.day = StateCounters.findDayField(type);
+        this.loaded = loaded;
+    }
+
+    /**
+     * Gets the field states are bucketed by, ranges over which are answered
+     * in time proportional to the days they cover
+     *
+     * @return The bucketing {@link DataField}, or {@code null} if states of
+     *         this type are all held in one bucket
+     */
+    public DataField<Instant> getDayField() {
+        return this.day;
+    }
+
+    /**
+     * Counts the states within a range of the {@link #getDayField() day
+     * field}, where a {@code null} bound is unbounded. States with no value
+     * for the field are only counted if both bounds are {@code null}
+     *
+     * @param from The lower bound
+     * @param fromInclusive Whether the lower bound may be matched
+     * @param to The upper bound
+     * @param toInclusive Whether the upper bound may be matched
+     * @return The number of states within the range
+     */
+    public synchronized long count(Instant from, boolean fromInclusive, Instant to, boolean toInclusive) {
+        long[] back = {0};
+        this.visit(from, fromInclusive, to, toInclusive, b -> back[0] += b.count, e -> back[0]++);
+        return back[0];
+    }
+
+    /**
+     * Sums a measure over the states within a range, as in
+     * {@link #count(Instant, boolean, Instant, boolean)}
+     *
+     * @param measure The {@link Measure} to sum
+     * @param from The lower bound
+     * @param fromInclusive Whether the lower bound may be matched
+     * @param to The upper bound
+     * @param toInclusive Whether the upper bound may be matched
+     * @return The sum, or zero if no state had a value
+     */
+    public synchronized BigDecimal sum(Measure measure, Instant from, boolean fromInclusive, Instant to, boolean toInclusive) {
+        int i = this.materialize(measure);
+        BigDecimal[] back = {BigDecimal.ZERO};
+        this.visit(from, fromInclusive, to, toInclusive, b -> back[0] = back[0].add(b.sums[i]), e -> {
+            if (e.values[i] != null) {
+                back[0] = back[0].add(e.values[i]);
+            }
+        });
+        return back[0];
+    }
+
+    /**
+     * Averages a measure over the states within a range which have a value
+     * for it, as in {@link #count(Instant, boolean, Instant, boolean)}
+     *
+     * @param measure The {@link Measure} to average
+     * @param from The lower bound
+     * @param fromInclusive Whether the lower bound may be matched
+     * @param to The upper bound
+     * @param toInclusive Whether the upper bound may be matched
+     * @return The average, or {@link OptionalDouble#empty()} if no state
+     *         had a value
+     */
+    public synchronized OptionalDouble average(Measure measure, Instant from, boolean fromInclusive, Instant to, boolean toInclusive) {
+        int i = this.materialize(measure);
+        BigDecimal[] sum = {BigDecimal.ZERO};
+        long[] count = {0};
+        this.visit(from, fromInclusive, to, toInclusive, b -> {
+            sum[0] = sum[0].add(b.sums[i]);
+            count[0] += b.present[i];
+        }, e -> {
+            if (e.values[i] != null) {
+                sum[0] = sum[0].add(e.values[i]);
+                count[0]++;
+            }
+        });
+        return count[0] == 0 ? OptionalDouble.empty() : OptionalDouble.of(sum[0].doubleValue() / count[0]);
+    }
+
+    /**
+     * Counts the states within a range by their value of a field, as in
+     * {@link #count(Instant, boolean, Instant, boolean)}. States with no
+     * value for the field are not counted
+     *
+     * @param field The {@link DataField} to group by
+     * @param from The lower bound
+     * @param fromInclusive Whether the lower bound may be matched
+     * @param to The upper bound
+     * @param toInclusive Whether the upper bound may be matched
+     * @return A new map of each value to its number of states
+     */
+    public synchronized Map<Object, Long> countBy(DataField<?> field, Instant from, boolean fromInclusive, Instant to, boolean toInclusive) {
+        int i = this.materialize(field);
+        Map<Object, Long> back = new HashMap<>();
+        this.visit(from, fromInclusive, to, toInclusive, b -> b.groups[i].forEach((k, v) -> back.merge(k, v, Long::sum)), e -> {
+            if (e.keys[i] != null) {
+                back.merge(e.keys[i], 1L, Long::sum);
+            }
+        });
+        return back;
+    }
+
+    //adding a state which is already counted replaces it
+    synchronized void add(T state) {
+        this.count(state, this.toEntry(state));
+    }
+
+    synchronized void update(State state) {
+        if (this.entries.containsKey(state.getID())) {
+            this.count(state, this.toEntry(state));
+        }
+    }
+
+    synchronized void remove(State state) {
+        this.count(state, null);
+    }
+
+    //swaps what a state adds to the counters, holds the lock
+    private void count(State state, Entry next) {
+        Entry old = next == null ? this.entries.remove(state.getID()) : this.entries.put(state.getID(), next);
+        if (old != null) {
+            this.bucketOf(old).apply(old, -1);
+            if (old.day != null && this.days.get(old.day).count == 0) {
+                this.days.remove(old.day);
+            }
+        }
+        if (next != null) {
+            this.bucketOf(next).apply(next, 1);
+        }
+    }
+
+    private Bucket bucketOf(Entry entry) {
+        if (entry.day == null) {
+            return this.undated;
+        }
+        return this.days.computeIfAbsent(entry.day, k -> new Bucket(this.measures.size(), this.groups.size()));
+    }
+
+    private Entry toEntry(State state) {
+        Instant at = this.day == null ? null : this.day.getOrNull(state);
+        BigDecimal[] values = new BigDecimal[this.measures.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = this.measures.get(i).valueOf(state);
+        }
+        Object[] keys = new Object[this.groups.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = this.groups.get(i).getOrNull(state);
+        }
+        return new Entry(at == null ? null : StateCounters.toDay(at), values, keys);
+    }
+
+    private int materialize(Measure measure) {
+        int i = this.measures.indexOf(measure);
+        if (i < 0) {
+            this.measures.add(measure);
+            this.recount();
+            i = this.measures.size() - 1;
+        }
+        return i;
+    }
+
+    private int materialize(DataField<?> field) {
+        int i = this.groups.indexOf(field);
+        if (i < 0) {
+            this.groups.add(field);
+            this.recount();
+            i = this.groups.size() - 1;
+        }
+        return i;
+    }
+
+    //every bucket is sized to what is materialized, so they are all rebuilt
+    private void recount() {
+        this.days.clear();
+        this.entries.clear();
+        this.undated = new Bucket(this.measures.size(), this.groups.size());
+        this.loaded.get().forEach(s -> this.count(s, this.toEntry(s)));
+    }
+
+    /**
+     * Walks what lies within a range: the bucket of every day it fully
+     * covers, and the entry of every state on a day it only partly covers
+     */
+    private void visit(Instant from, boolean fromInclusive, Instant to, boolean toInclusive,
+                       Consumer<Bucket> full, Consumer<Entry> partial) {
+        if (from == null && to == null) {
+            full.accept(this.undated);
+            this.days.values().forEach(full);
+            return;
+        }
+        if (this.day == null) {
+            return; //nothing is bucketed by a day, so nothing can lie within one
+        }
+        long first = Long.MIN_VALUE;
+        long last = Long.MAX_VALUE;
+        boolean fromWhole = true;
+        boolean toWhole = true;
+        if (from != null) {
+            long d = StateCounters.toDay(from);
+            fromWhole = fromInclusive && from.equals(StateCounters.startOf(d));
+            first = fromWhole ? d : d + 1;
+        }
+        if (to != null) {
+            long d = StateCounters.toDay(to);
+            toWhole = !toInclusive && to.equals(StateCounters.startOf(d));
+            last = d - 1;
+        }
+        if (first > last) {
+            //within a day or two, every state is looked at
+            this.visitStates(from, fromInclusive, to, toInclusive, partial);
+            return;
+        }
+        this.days.subMap(first, true, last, true).values().forEach(full);
+        if (!fromWhole) {
+            this.visitStates(from, fromInclusive, StateCounters.startOf(first), false, partial);
+        }
+        if (!toWhole) {
+            this.visitStates(StateCounters.startOf(last + 1), true, to, toInclusive, partial);
+        }
+    }
+
+    private void visitStates(Instant from, boolean fromInclusive, Instant to, boolean toInclusive, Consumer<Entry> partial) {
+        this.day.findStatesInRange(this.storage, from, fromInclusive, to, toInclusive)
+                .map(s -> this.entries.get(s.getID()))
+                .filter(Objects::nonNull)
+                .forEach(partial);
+    }
+
+    //the first ordered point in time of a type's fields
+    @SuppressWarnings("unchecked")
+    private static DataField<Instant> findDayField(State.Type type) {
+        for (DataField<?> field : type.getFields()) {
+            if (field.getType() == Instant.class && field.isOrdered()) {
+                return (DataField<Instant>) field;
+            }
+        }
+        return null;
+    }
+
+    private static long toDay(Instant at) {
+        return Math.floorDiv(at.getEpochSecond(), DAY_SECONDS);
+    }
+
+    private static Instant startOf(long day) {
+        return Instant.ofEpochSecond(day * DAY_SECONDS);
+    }
+
+    //what a single state adds to its bucket
+    private static final class Entry {
+
+        private final Long day; //null if undated
+        private final BigDecimal[] values;
+        private final Object[] keys;
+
+        private Entry(Long day, BigDecimal[] values, Object[] keys) {
+            this.day = day;
+            this.values = values;
+            this.keys = keys;
+        }
+    }
+
+    private static final class Bucket {
+
+        private long count;
+        private final BigDecimal[] sums;
+        private final long[] present; //states with a value per measure, for averages
+        private final Map<Object, Long>[] groups;
+
+        @SuppressWarnings("unchecked")
+        private Bucket(int measures, int groups) {
+            this.sums = new BigDecimal[measures];
+            Arrays.fill(this.sums, BigDecimal.ZERO);
+            this.present = new long[measures];
+            this.groups = new Map[groups];
+            for (int i = 0; i < groups; i++) {
+                this.groups[i] = new HashMap<>();
+            }
+        }
+
+        private void apply(Entry entry, int sign) {
+            this.count += sign;
+            for (int i = 0; i < this.sums.length; i++) {
+                BigDecimal v = entry.values[i];
+                if (v != null) {
+                    this.sums[i] = sign > 0 ? this.sums[i].add(v) : this.sums[i].subtract(v);
+                    this.present[i] += sign;
+                }
+            }
+            for (int i = 0; i < this.groups.length; i++) {
+                if (entry.keys[i] != null) {
+                    this.groups[i].compute(entry.keys[i], (k, n) -> {
+                        long next = (n == null ? 0 : n) + sign;
+                        return next == 0 ? null : next;
+                    });
+                }
+            }
+        }
+    }
+}
@@ -3,11 +3,11 @@ package edu.rit.codelanx.data.cache;
 import edu.rit.codelanx.data.state.State;
 import edu.rit.codelanx.data.DataSource;
 import edu.rit.codelanx.data.field.DataField;
+import edu.rit.codelanx.data.storage.StorageAdapter;
 
-import java.util.Arrays;
 import java.util.Map;
 import java.util.Objects;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
@@ -15,28 +15,40 @@ import java.util.stream.Stream;
 
 //TODO: Remove in future release, was an unintended leave-in
 //stores hard references for states, where they won't go out of scope (unless we want them to)
+//a loaded state stays until it is released or removed, it is never evicted by the garbage collector
 @Deprecated
 public class StateStorage<T extends State> {
 
-    private final Map<Long, T> loaded = new WeakHashMap<>();
+    //read by commands running alongside each other
+    private final Map<Long, T> loaded = new ConcurrentHashMap<>();
     private final State.Type type;
     private final Class<T> concreteType;
     private final DataSource storage;
+    private final StateCounters<T> counters;
 
     public StateStorage(State.Type type, DataSource storage) {
         this.type = type;
         this.concreteType = this.type.getConcreteType();
         this.storage = storage;
+        this.counters = new StateCounters<>(storage, type, this::streamLoaded);
     }
 
     public T getByID(long id) {
-        return this.loaded.computeIfAbsent(id, k -> {
-            return this.storage.getAdapter().loadState(k, this.concreteType);
-        });
+        return this.computeIfAbsent(id, () -> this.storage.getAdapter().loadState(id, this.concreteType));
     }
 
+    //loaded outside of the map, as loading a state may load the states it refers to
     public T computeIfAbsent(long id, Supplier<T> state) {
-        return this.loaded.computeIfAbsent(id, k -> state.get());
+        T back = this.loaded.get(id);
+        if (back != null) {
+            return back;
+        }
+        back = state.get();
+        if (back == null) {
+            return null;
+        }
+        T raced = this.loaded.putIfAbsent(id, back);
+        return raced == null ? back : raced;
     }
 
     // We quite literally do a check for T
@@ -82,6 +94,32 @@ public class StateStorage<T extends State> {
 
     public void addState(T state) {
         this.loaded.put(state.getID(), state);
+        if (this.isCounted()) {
+            this.counters.add(state);
+        }
+    }
+
+    //called by fields as they are set, after the adapter is notified
+    public void notifyUpdate(State state) {
+        if (this.isCounted()) {
+            this.counters.update(state);
+        }
+    }
+
+    /**
+     * Gets the aggregates kept over every state of this type. They are only
+     * kept up to date if the adapter is {@link StorageAdapter#isCached()
+     * cached}, as otherwise not every state is ever loaded
+     *
+     * @return The {@link StateCounters} for this type
+     */
+    public StateCounters<T> getCounters() {
+        return this.counters;
+    }
+
+    //only an adapter which loads everything sees every state to count
+    private boolean isCounted() {
+        return this.storage.getAdapter().isCached();
     }
 
     public void release(T state) {
@@ -93,11 +131,12 @@ public class StateStorage<T extends State> {
 
     private void doRelease(T state) {
         this.loaded.remove(state.getID());
-        Arrays.stream(state.getFields()).forEach(d -> d.forget(state));
+        state.unload(); //forgets every field, and frees any slot
     }
 
     public void remove(T state) {
         this.storage.getAdapter().remove(state);
+        this.counters.remove(state);
         this.doRelease(state); //REFACTOR: potential race condition
     }
 
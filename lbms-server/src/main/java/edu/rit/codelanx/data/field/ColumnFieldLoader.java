@@ -0,0 +1,126 @@
+package edu.rit.codelanx.data.field;
+
+import edu.rit.codelanx.data.field.column.Column;
+import edu.rit.codelanx.data.field.column.SlotTable;
+import edu.rit.codelanx.data.state.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * A {@link DataFieldLoader} which keeps its values in a {@link Column}
+ * addressed by each state's {@link State#getSlot() slot}, rather than a map
+ * keyed by the state. Reading a value becomes an array load, and numeric
+ * fields are held as primitives. It is the field of any {@link
+ * edu.rit.codelanx.data.DataSource} whose {@link
+ * edu.rit.codelanx.data.DataSource#getFieldBackend() backend} is {@link
+ * DataFieldLoader.Backend#COLUMNAR columnar}.
+ * <p>
+ * A state gives up its slot when it is {@link State#unload() unloaded}, or
+ * once it has been collected, after which its values are cleared from the
+ * column
+ *
+ * @param <T> field type
+ */
+public class ColumnFieldLoader<T> extends DataFieldLoader<T> {
+
+    private final Column<T> column;
+    private volatile SlotTable slots; //known once the first state is initialized
+
+    public ColumnFieldLoader(FieldInitializer<T> initializer) {
+        this(null, initializer);
+    }
+
+    public ColumnFieldLoader(DataField<?> proxied, FieldInitializer<T> initializer) {
+        super(proxied, initializer);
+        this.column = Column.forType(initializer.getType());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A column holds {@code null} as an absent slot, which reads back as the
+     * default of the {@link FieldInitializer}. As an absent slot cannot be
+     * told apart from one never initialized, it may be initialized again
+     *
+     * @param state {@inheritDoc}
+     * @param value {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked") //in this case, (T) will fast fail
+    public void initialize(State state, Object value) {
+        if (this.slots == null) {
+            this.bind(state);
+        }
+        if (value != null && value.getClass() != this.getType()) {
+            throw new ClassCastException("Unsupported type: " + value.getClass());
+        }
+        int slot = state.getSlot();
+        if (this.column.isPresent(slot)) {
+            throw new UnsupportedOperationException("Cannot re-initialize a value");
+        }
+        this.column.set(slot, (T) value);
+    }
+
+    //registers the column with the slots of the first state's type, once
+    private synchronized void bind(State state) {
+        if (this.slots == null) {
+            SlotTable slots = SlotTable.of(state.getLoader(), state.getType());
+            slots.register(this.column);
+            this.slots = slots;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param state {@link State} to be cleared out.
+     */
+    @Override
+    public void forget(State state) {
+        this.column.clear(state.getSlot());
+    }
+
+    @Override
+    public T mutate(State state, UnaryOperator<T> updater) {
+        //absent values are updated from the default, as get would read them
+        T next = updater.apply(this.get(state));
+        this.column.set(state.getSlot(), next);
+        this.notify(state, next);
+        return next;
+    }
+
+    @Override
+    public T get(State state) {
+        T back = this.column.get(state.getSlot());
+        if (back == null) {
+            back = this.getInitializer().getDefaultValue();
+        }
+        return back;
+    }
+
+    @Override
+    public T set(State state, T value) {
+        T old = this.column.set(state.getSlot(), value);
+        this.notify(state, value);
+        return old;
+    }
+
+    @Override
+    public Stream<? extends State> findStatesByValue(T key) {
+        SlotTable slots = this.slots;
+        if (slots == null || key == null) {
+            return Stream.empty(); //absent values are not tracked per state
+        }
+        //Do a slow search, columns are not indexed
+        List<State> back = new ArrayList<>();
+        for (int i = this.column.nextPresent(0); i >= 0; i = this.column.nextPresent(i + 1)) {
+            State owner = slots.getOwner(i);
+            if (owner != null && key.equals(this.column.get(i))) {
+                back.add(owner); //a collected owner's slot is cleared on its next reuse
+            }
+        }
+        return back.stream();
+    }
+}
@@ -4,6 +4,7 @@ import edu.rit.codelanx.data.state.State;
 import edu.rit.codelanx.data.DataSource;
 import edu.rit.codelanx.data.state.types.StateType;
 
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
 import java.util.stream.Stream;
@@ -75,6 +76,21 @@ public interface DataField<T> {
      */
     public T get(State state);
 
+    /**
+     * retrieves the data in a specified state, or {@code null} if it was
+     * never given a value and the field has no default, as with a NULL column
+     *
+     * @param state {@link State} to retrieve data from
+     * @return data {@link T}, or {@code null}
+     */
+    default public T getOrNull(State state) {
+        try {
+            return this.get(state);
+        } catch (UnsupportedOperationException ex) {
+            return null;
+        }
+    }
+
     /**
      * sets the field of this state to a certain value
      *
@@ -110,6 +126,165 @@ public interface DataField<T> {
      */
     public Stream<? extends State> findStatesByValue(T key);
 
+    /**
+     * counts the states holding the specified value, without retrieving them
+     *
+     * @param source The {@link DataSource} to search through
+     * @param key {@link T} used to search up the states
+     * @return the number of matching states, or {@code -1} if the field has
+     *         no index to count from
+     */
+    default public long countStatesByValue(DataSource source, T key) {
+        return -1;
+    }
+
+    /**
+     * Counts the states holding a provided {@code key}, with the assumption
+     * that the {@link DataField} is appropriately isolated per
+     * {@link DataSource}
+     *
+     * @param key {@link T} used to search up the states
+     * @return the number of matching states, or {@code -1} if the field has
+     *         no index to count from
+     * @see #countStatesByValue(DataSource, Object)
+     */
+    default public long countStatesByValue(T key) {
+        return -1;
+    }
+
+    /**
+     * finds the states whose value lies within a range. Either bound may be
+     * {@code null} to leave that side of the range open
+     *
+     * @param source The {@link DataSource} to search through
+     * @param from The lower bound of the range, or {@code null}
+     * @param fromInclusive {@code true} if {@code from} itself is in range
+     * @param to The upper bound of the range, or {@code null}
+     * @param toInclusive {@code true} if {@code to} itself is in range
+     * @return {@link Stream} of type {@link State}
+     * @throws UnsupportedOperationException if the field is not ordered
+     * @see #isOrdered()
+     */
+    default public Stream<? extends State> findStatesInRange(DataSource source, T from, boolean fromInclusive, T to, boolean toInclusive) {
+        throw new UnsupportedOperationException("Field " + this.getName() + " is not ordered");
+    }
+
+    /**
+     * Finds the states whose value lies within a range, with the assumption
+     * that the {@link DataField} is appropriately isolated per
+     * {@link DataSource}
+     *
+     * @param from The lower bound of the range, or {@code null}
+     * @param fromInclusive {@code true} if {@code from} itself is in range
+     * @param to The upper bound of the range, or {@code null}
+     * @param toInclusive {@code true} if {@code to} itself is in range
+     * @return {@link Stream} of type {@link State}
+     * @throws UnsupportedOperationException if the field is not ordered
+     * @see #findStatesInRange(DataSource, Object, boolean, Object, boolean)
+     */
+    default public Stream<? extends State> findStatesInRange(T from, boolean fromInclusive, T to, boolean toInclusive) {
+        throw new UnsupportedOperationException("Field " + this.getName() + " is not ordered");
+    }
+
+    /**
+     * finds the states whose value lies within a range, in the order of
+     * their values. States holding the same value are found in order of
+     * their id, and states holding {@code null} are never found. The states
+     * are found as the stream is consumed, so a limited stream stops early
+     *
+     * @param source The {@link DataSource} to search through
+     * @param from The lower bound of the range, or {@code null}
+     * @param fromInclusive {@code true} if {@code from} itself is in range
+     * @param to The upper bound of the range, or {@code null}
+     * @param toInclusive {@code true} if {@code to} itself is in range
+     * @param descending {@code true} to find the highest values first
+     * @return {@link Stream} of type {@link State}
+     * @throws UnsupportedOperationException if the field is not ordered
+     * @see #isOrdered()
+     */
+    default public Stream<? extends State> findStatesInOrder(DataSource source, T from, boolean fromInclusive, T to, boolean toInclusive, boolean descending) {
+        throw new UnsupportedOperationException("Field " + this.getName() + " is not ordered");
+    }
+
+    /**
+     * Finds the states whose value lies within a range, in the order of
+     * their values, with the assumption that the {@link DataField} is
+     * appropriately isolated per {@link DataSource}
+     *
+     * @param from The lower bound of the range, or {@code null}
+     * @param fromInclusive {@code true} if {@code from} itself is in range
+     * @param to The upper bound of the range, or {@code null}
+     * @param toInclusive {@code true} if {@code to} itself is in range
+     * @param descending {@code true} to find the highest values first
+     * @return {@link Stream} of type {@link State}
+     * @throws UnsupportedOperationException if the field is not ordered
+     * @see #findStatesInOrder(DataSource, Object, boolean, Object, boolean, boolean)
+     */
+    default public Stream<? extends State> findStatesInOrder(T from, boolean fromInclusive, T to, boolean toInclusive, boolean descending) {
+        throw new UnsupportedOperationException("Field " + this.getName() + " is not ordered");
+    }
+
+    /**
+     * counts the states whose value lies within a range
+     *
+     * @param source The {@link DataSource} to search through
+     * @param from The lower bound of the range, or {@code null}
+     * @param fromInclusive {@code true} if {@code from} itself is in range
+     * @param to The upper bound of the range, or {@code null}
+     * @param toInclusive {@code true} if {@code to} itself is in range
+     * @return the number of matching states, or {@code -1} if the field is
+     *         not ordered
+     */
+    default public long countStatesInRange(DataSource source, T from, boolean fromInclusive, T to, boolean toInclusive) {
+        return -1;
+    }
+
+    /**
+     * Counts the states whose value lies within a range, with the assumption
+     * that the {@link DataField} is appropriately isolated per
+     * {@link DataSource}
+     *
+     * @param from The lower bound of the range, or {@code null}
+     * @param fromInclusive {@code true} if {@code from} itself is in range
+     * @param to The upper bound of the range, or {@code null}
+     * @param toInclusive {@code true} if {@code to} itself is in range
+     * @return the number of matching states, or {@code -1} if the field is
+     *         not ordered
+     * @see #countStatesInRange(DataSource, Object, boolean, Object, boolean)
+     */
+    default public long countStatesInRange(T from, boolean fromInclusive, T to, boolean toInclusive) {
+        return -1;
+    }
+
+    /**
+     * finds the states whose value contains a term, once broken into terms
+     * as {@link edu.rit.codelanx.data.storage.TextQuery#tokenize} does
+     *
+     * @param source The {@link DataSource} to search through
+     * @param term The term to find, already tokenized
+     * @param prefix {@code true} to also find every term starting with it
+     * @return {@link Stream} of type {@link State}, each found once
+     * @throws UnsupportedOperationException if the field has no text index
+     * @see FieldIndicies#FM_TEXT
+     */
+    default public Stream<? extends State> findStatesByTerm(DataSource source, String term, boolean prefix) {
+        throw new UnsupportedOperationException("Field " + this.getName() + " is not text indexed");
+    }
+
+    /**
+     * Finds the states whose value contains a term, with the assumption that
+     * the {@link DataField} is appropriately isolated per {@link DataSource}
+     *
+     * @param term The term to find, already tokenized
+     * @param prefix {@code true} to also find every term starting with it
+     * @return {@link Stream} of type {@link State}, each found once
+     * @throws UnsupportedOperationException if the field has no text index
+     * @see #findStatesByTerm(DataSource, String, boolean)
+     */
+    default public Stream<? extends State> findStatesByTerm(String term, boolean prefix) {
+        throw new UnsupportedOperationException("Field " + this.getName() + " is not text indexed");
+    }
+
     /**
      * checks for data field index
      *
@@ -147,6 +322,15 @@ public interface DataField<T> {
         return false;
     }
 
+    /**
+     * checks if the data field can be searched by a range of values
+     *
+     * @return {@code false} since it cannot
+     */
+    default public boolean isOrdered() {
+        return false;
+    }
+
 
 
     public static <R> Builder<R> builder(Class<R> type) {
@@ -241,8 +425,8 @@ public interface DataField<T> {
 
         public DataField<R> build() {
             FieldInitializer<R> init = new FieldInitializer<>(this.name, this.type, this.defaultValue);
-            Supplier<? extends DataField<R>> builder = () -> {
-                DataField<R> back = new DataFieldLoader<>(init);
+            Function<DataSource, ? extends DataField<R>> builder = source -> {
+                DataField<R> back = DataFieldLoader.create(source, null, init);
                 for (FieldIndicies fm : modifiers) {
                     back = fm.map(back);
                 }
@@ -288,8 +472,8 @@ public interface DataField<T> {
         @Override
         public DataField<T> build() {
             FieldInitializer<T> init = new FieldInitializer<>(this.from.name, this.from.type, this.from.defaultValue);
-            Supplier<? extends DataField<T>> builder = () -> {
-                DataField<T> back = new DataFieldLoader<>(this.to, init);
+            Function<DataSource, ? extends DataField<T>> builder = source -> {
+                DataField<T> back = DataFieldLoader.create(source, this.to, init);
                 for (FieldIndicies fm : this.from.modifiers) {
                     back = fm.map(back);
                 }
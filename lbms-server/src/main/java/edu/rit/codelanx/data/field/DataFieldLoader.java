@@ -1,13 +1,17 @@
 package edu.rit.codelanx.data.field;
 
+import edu.rit.codelanx.ConfigKey;
 import edu.rit.codelanx.data.storage.InputMapper;
 import edu.rit.codelanx.data.state.State;
 import com.codelanx.commons.util.Lambdas;
 import edu.rit.codelanx.data.DataSource;
 
-import java.util.Map;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.Objects;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Predicate;
 import java.util.function.UnaryOperator;
 import java.util.stream.Stream;
@@ -15,7 +19,11 @@ import java.util.stream.Stream;
 
 public class DataFieldLoader<T> implements DataField<T> {
 
-    protected final Map<State, T> values = new WeakHashMap<>();
+    //a stored null, which a ConcurrentHashMap cannot hold
+    private static final Object NULL = new Object();
+    //weakly keyed by state, read without locking by commands running alongside each other
+    private final ConcurrentMap<StateKey, Object> values = new ConcurrentHashMap<>();
+    private final ReferenceQueue<State> collected = new ReferenceQueue<>(); //expunged on writes
     private final DataField<?> proxied;
     private final FieldInitializer<T> initializer;
 
@@ -23,6 +31,23 @@ public class DataFieldLoader<T> implements DataField<T> {
         this(null, initializer);
     }
 
+    /**
+     * Creates the loader of a field for one {@link DataSource}, in whichever
+     * form its {@link DataSource#getFieldBackend() backend} selects
+     *
+     * @param source The {@link DataSource} the field holds values for, or
+     *               {@code null} for a field which holds none
+     * @param proxied The field of the mapped state, or {@code null}
+     * @param initializer The {@link FieldInitializer} for the field
+     * @param <T> field type
+     * @return A new {@link DataFieldLoader}
+     */
+    public static <T> DataFieldLoader<T> create(DataSource source, DataField<?> proxied, FieldInitializer<T> initializer) {
+        return source != null && source.getFieldBackend() == Backend.COLUMNAR
+                ? new ColumnFieldLoader<>(proxied, initializer)
+                : new DataFieldLoader<>(proxied, initializer);
+    }
+
     public DataFieldLoader(DataField<?> proxied, FieldInitializer<T> initializer) {
         if (proxied != null && !InputMapper.isStateClass(initializer.getType())) {
             throw new IllegalArgumentException("Cannot map a concrete field");
@@ -48,14 +73,24 @@ public class DataFieldLoader<T> implements DataField<T> {
                 : this.get(state);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A {@code null} value is held as absent, reading back as the default of
+     * the {@link FieldInitializer}, but still counts as the state's value
+     * such that it cannot be initialized again
+     *
+     * @param state {@inheritDoc}
+     * @param value {@inheritDoc}
+     */
     @Override
     @SuppressWarnings("unchecked") //in this case, (T) will fast fail
     public void initialize(State state, Object value) {
-        if (value.getClass() != this.getType()) {
+        if (value != null && value.getClass() != this.getType()) {
             throw new ClassCastException("Unsupported type: " + value.getClass());
         }
-        T val = (T) value;
-        if (this.values.putIfAbsent(state, val) != null) {
+        this.expunge();
+        if (this.values.putIfAbsent(new Held(state, this.collected), DataFieldLoader.wrap(value)) != null) {
             throw new UnsupportedOperationException("Cannot re-initialize a value");
         }
     }
@@ -66,20 +101,22 @@ public class DataFieldLoader<T> implements DataField<T> {
      */
     @Override
     public void forget(State state) {
-        this.values.remove(state);
+        this.values.remove(new Lookup(state));
     }
 
     @Override
     public T mutate(State state, UnaryOperator<T> updater) {
-        T next = this.values.compute(state, (k, old) -> updater.apply(old));
+        this.expunge();
+        T next = DataFieldLoader.unwrap(this.values.compute(new Held(state, this.collected),
+                (k, old) -> DataFieldLoader.wrap(updater.apply(DataFieldLoader.unwrap(old)))));
         this.notify(state, next);
         return next;
     }
 
     @Override
     public T get(State state) {
-        T back = this.values.get(state);
-        if (back == null) { //TODO: Need to allow nulls and checking if defaults for states
+        T back = DataFieldLoader.unwrap(this.values.get(new Lookup(state)));
+        if (back == null) { //absent, whether stored as null or never initialized
             back = this.getInitializer().getDefaultValue();
         }
         return back;
@@ -87,13 +124,17 @@ public class DataFieldLoader<T> implements DataField<T> {
 
     @Override
     public T set(State state, T value) {
-        T old = this.values.put(state, value);
+        this.expunge();
+        T old = DataFieldLoader.unwrap(this.values.put(new Held(state, this.collected), DataFieldLoader.wrap(value)));
         this.notify(state, value);
         return old;
     }
 
     protected void notify(State state, T newValue) {
-        state.getLoader().getAdapter().notifyUpdate(state, this, newValue);
+        DataSource source = state.getLoader();
+        source.getAdapter().notifyUpdate(state, this, newValue);
+        //keeps any aggregates counting the state's old value current
+        source.getRelativeStorage().getStateStorage(state.getType()).notifyUpdate(state);
     }
 
     /**
@@ -116,8 +157,113 @@ public class DataFieldLoader<T> implements DataField<T> {
         //ignore: source, only knows of "one" data source
         //Do a slow search if we can't do by key
         Predicate<T> check = key == null ? Objects::isNull : key::equals;
+        //weakly consistent, so iterating needs no lock or copy
         return this.values.entrySet().stream()
-                .filter(Lambdas.mapToPredicate(Map.Entry::getValue, check))
-                .map(Map.Entry::getKey);
+                .filter(Lambdas.mapToPredicate(e -> DataFieldLoader.<T>unwrap(e.getValue()), check))
+                .map(e -> e.getKey().getState())
+                .filter(Objects::nonNull); //collected, but not yet expunged
+    }
+
+    //drops the values of every state collected since the last write
+    private void expunge() {
+        for (Reference<? extends State> ref; (ref = this.collected.poll()) != null; ) {
+            this.values.remove(ref);
+        }
+    }
+
+    private static Object wrap(Object value) {
+        return value == null ? NULL : value;
+    }
+
+    @SuppressWarnings("unchecked") //only values of T are ever stored
+    private static <T> T unwrap(Object value) {
+        return value == NULL ? null : (T) value;
+    }
+
+    //a state as a key of the values, equal to any other key for an equal state
+    private interface StateKey {
+
+        State getState();
+
+        static boolean equals(StateKey key, Object o) {
+            if (key == o) {
+                return true;
+            }
+            State state = key.getState();
+            return state != null && o instanceof StateKey && state.equals(((StateKey) o).getState());
+        }
+    }
+
+    //the stored key, which lets its state be collected
+    private static final class Held extends WeakReference<State> implements StateKey {
+
+        private final int hash; //kept, so the entry can be removed once the state is gone
+
+        private Held(State state, ReferenceQueue<State> queue) {
+            super(state, queue);
+            this.hash = state.hashCode();
+        }
+
+        @Override
+        public State getState() {
+            return this.get();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return StateKey.equals(this, o);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
+    //a key for reading, which is never stored
+    private static final class Lookup implements StateKey {
+
+        private final State state;
+
+        private Lookup(State state) {
+            this.state = state;
+        }
+
+        @Override
+        public State getState() {
+            return this.state;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return StateKey.equals(this, o);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.state.hashCode();
+        }
+    }
+
+    /**
+     * The forms in which a {@link DataSource} may hold the values of its
+     * states' fields, as selected by {@link ConfigKey#FIELD_STORAGE}
+     */
+    public enum Backend {
+        /** values held in a map keyed by each state */
+        MAP,
+        /** values held in dense per-type arrays, addressed by each state's slot */
+        COLUMNAR,
+        ;
+
+        /**
+         * reads the backend selected by {@link ConfigKey#FIELD_STORAGE}
+         *
+         * @return The configured {@link Backend}, {@link #MAP} unless
+         *         "columnar" is given
+         */
+        public static Backend fromConfig() {
+            return "columnar".equalsIgnoreCase(ConfigKey.FIELD_STORAGE.as(String.class)) ? COLUMNAR : MAP;
+        }
     }
 }
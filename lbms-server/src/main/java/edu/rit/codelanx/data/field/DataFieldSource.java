@@ -3,9 +3,11 @@ package edu.rit.codelanx.data.field;
 import edu.rit.codelanx.data.state.State;
 import edu.rit.codelanx.data.DataSource;
 
+import java.lang.ref.WeakReference;
+import java.util.Collections;
 import java.util.Map;
 import java.util.WeakHashMap;
-import java.util.function.Supplier;
+import java.util.function.Function;
 import java.util.function.UnaryOperator;
 import java.util.stream.Stream;
 
@@ -13,13 +15,18 @@ import java.util.stream.Stream;
 //datasource
 public class DataFieldSource<T> implements DataField<T> {
 
-    private final Map<DataSource, DataField<T>> fields = new WeakHashMap<>();
+    private final Map<DataSource, DataField<T>> fields = Collections.synchronizedMap(new WeakHashMap<>());
+    //the field last used, as nearly every call is for the same source
+    private volatile Last<T> last;
     private final FieldInitializer<T> init;
-    private final Supplier<? extends DataField<T>> builder;
+    private final Function<DataSource, ? extends DataField<T>> builder; //makes the field of one source
+    //an unused instance of the field, only referenced for describing indicies
+    private final DataField<T> template;
 
-    public DataFieldSource(FieldInitializer<T> init, Supplier<? extends DataField<T>> builder) {
+    public DataFieldSource(FieldInitializer<T> init, Function<DataSource, ? extends DataField<T>> builder) {
         this.init = init;
         this.builder = builder;
+        this.template = builder.apply(null);
     }
 
     private DataField<T> getField(State state) {
@@ -27,7 +34,22 @@ public class DataFieldSource<T> implements DataField<T> {
     }
 
     private DataField<T> getField(DataSource source) {
-        return this.fields.computeIfAbsent(source, load -> builder.get());
+        Last<T> last = this.last;
+        if (last != null && last.source.get() == source) {
+            return last.field; //skips locking the map for concurrent readers
+        }
+        DataField<T> back = this.fields.computeIfAbsent(source, this.builder);
+        this.last = new Last<>(source, back);
+        return back;
+    }
+
+    //the field of a source, or null if none has been made yet
+    private DataField<T> findField(DataSource source) {
+        Last<T> last = this.last;
+        if (last != null && last.source.get() == source) {
+            return last.field;
+        }
+        return this.fields.get(source);
     }
 
     @Override
@@ -65,9 +87,34 @@ public class DataFieldSource<T> implements DataField<T> {
         return this.init;
     }
 
+    @Override
+    public boolean hasIndex(FieldIndicies modifier) {
+        return this.template.hasIndex(modifier);
+    }
+
+    @Override
+    public boolean isImmutable() {
+        return this.template.isImmutable();
+    }
+
+    @Override
+    public boolean isKey() {
+        return this.template.isKey();
+    }
+
+    @Override
+    public boolean isUnique() {
+        return this.template.isUnique();
+    }
+
+    @Override
+    public boolean isOrdered() {
+        return this.template.isOrdered();
+    }
+
     @Override
     public Stream<? extends State> findStatesByValue(DataSource source, T key) {
-        DataField<T> back = this.fields.get(source);
+        DataField<T> back = this.findField(source);
         if (back == null) {
             return Stream.empty(); //no data loaded for this source
         }
@@ -81,4 +128,86 @@ public class DataFieldSource<T> implements DataField<T> {
         throw new UnsupportedOperationException("Must specify a DataSource to find states on");
     }
 
+    @Override
+    public long countStatesByValue(DataSource source, T key) {
+        DataField<T> back = this.findField(source);
+        if (back == null) {
+            //no data loaded for this source, the template is equally empty
+            return this.template.countStatesByValue(key);
+        }
+        return back.countStatesByValue(key);
+    }
+
+    @Override
+    public long countStatesByValue(T key) {
+        throw new UnsupportedOperationException("Must specify a DataSource to count states on");
+    }
+
+    @Override
+    public Stream<? extends State> findStatesInRange(DataSource source, T from, boolean fromInclusive, T to, boolean toInclusive) {
+        DataField<T> back = this.findField(source);
+        if (back == null) {
+            return this.template.findStatesInRange(from, fromInclusive, to, toInclusive);
+        }
+        return back.findStatesInRange(from, fromInclusive, to, toInclusive);
+    }
+
+    @Override
+    public Stream<? extends State> findStatesInRange(T from, boolean fromInclusive, T to, boolean toInclusive) {
+        throw new UnsupportedOperationException("Must specify a DataSource to find states on");
+    }
+
+    @Override
+    public Stream<? extends State> findStatesInOrder(DataSource source, T from, boolean fromInclusive, T to, boolean toInclusive, boolean descending) {
+        DataField<T> back = this.findField(source);
+        if (back == null) {
+            return this.template.findStatesInOrder(from, fromInclusive, to, toInclusive, descending);
+        }
+        return back.findStatesInOrder(from, fromInclusive, to, toInclusive, descending);
+    }
+
+    @Override
+    public Stream<? extends State> findStatesInOrder(T from, boolean fromInclusive, T to, boolean toInclusive, boolean descending) {
+        throw new UnsupportedOperationException("Must specify a DataSource to find states on");
+    }
+
+    @Override
+    public Stream<? extends State> findStatesByTerm(DataSource source, String term, boolean prefix) {
+        DataField<T> back = this.findField(source);
+        if (back == null) {
+            return this.template.findStatesByTerm(term, prefix);
+        }
+        return back.findStatesByTerm(term, prefix);
+    }
+
+    @Override
+    public Stream<? extends State> findStatesByTerm(String term, boolean prefix) {
+        throw new UnsupportedOperationException("Must specify a DataSource to find states on");
+    }
+
+    @Override
+    public long countStatesInRange(DataSource source, T from, boolean fromInclusive, T to, boolean toInclusive) {
+        DataField<T> back = this.findField(source);
+        if (back == null) {
+            return this.template.countStatesInRange(from, fromInclusive, to, toInclusive);
+        }
+        return back.countStatesInRange(from, fromInclusive, to, toInclusive);
+    }
+
+    @Override
+    public long countStatesInRange(T from, boolean fromInclusive, T to, boolean toInclusive) {
+        throw new UnsupportedOperationException("Must specify a DataSource to count states on");
+    }
+
+    //weakly holds the source, as the map of fields does
+    private static final class Last<T> {
+
+        private final WeakReference<DataSource> source;
+        private final DataField<T> field;
+
+        private Last(DataSource source, DataField<T> field) {
+            this.source = new WeakReference<>(source);
+            this.field = field;
+        }
+    }
 }
@@ -3,6 +3,8 @@ package edu.rit.codelanx.data.field;
 import edu.rit.codelanx.data.field.index.IndexCompositeKey;
 import edu.rit.codelanx.data.field.index.IndexImmutable;
 import edu.rit.codelanx.data.field.index.IndexKey;
+import edu.rit.codelanx.data.field.index.IndexOrdered;
+import edu.rit.codelanx.data.field.index.IndexText;
 import edu.rit.codelanx.data.field.index.IndexUnique;
 import edu.rit.codelanx.data.field.index.FieldIndex;
 
@@ -13,6 +15,8 @@ public enum FieldIndicies {
     FM_KEY(IndexKey::new), //key that is used for object lookups
     FM_UNIQUE(IndexUnique::new), //only one value per state
     FM_COMPOSITE(IndexCompositeKey::new), //cannot add if every ALL_UNIQUE field matches
+    FM_ORDERED(IndexOrdered::new), //sorted values for range lookups, Comparable types only
+    FM_TEXT(IndexText::new), //tokenized values for full-text lookups, String types only
     ;
 
     private final Function<DataField<?>, FieldIndex<?>> mapper;
@@ -0,0 +1,123 @@
+package edu.rit.codelanx.data.field.column;
+
+import java.util.BitSet;
+
+/**
+ * A dense, slot-addressed store of values for a single field, where each
+ * slot belongs to one {@link edu.rit.codelanx.data.state.State} as assigned
+ * by a {@link SlotTable}. A slot which was never given a value (or was given
+ * {@code null}) is absent, and reads back as {@code null}.
+ * <p>
+ * Every access is synchronized on the column, so that growing the backing
+ * array or the set of present slots is never seen half done by a reader
+ *
+ * @param <T> The type of value held
+ */
+public abstract class Column<T> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final BitSet present = new BitSet();
+
+    /**
+     * Selects the most compact column for the type of a field, which keeps
+     * {@link Integer} and {@link Long} fields as primitive arrays
+     *
+     * @param type The type of the field being stored
+     * @param <T> The type of the field being stored
+     * @return A new, empty {@link Column}
+     */
+    @SuppressWarnings("unchecked") //the type is checked right here
+    public static <T> Column<T> forType(Class<T> type) {
+        if (type == Integer.class) {
+            return (Column<T>) new IntColumn(INITIAL_CAPACITY);
+        }
+        if (type == Long.class) {
+            return (Column<T>) new LongColumn(INITIAL_CAPACITY);
+        }
+        return new ObjectColumn<>(INITIAL_CAPACITY);
+    }
+
+    /**
+     * gets the value held in a slot
+     *
+     * @param slot The slot to read
+     * @return The held value, or {@code null} if the slot is absent
+     */
+    public synchronized T get(int slot) {
+        return this.isPresent(slot) ? this.read(slot) : null;
+    }
+
+    /**
+     * sets the value held in a slot
+     *
+     * @param slot The slot to write
+     * @param value The value to hold, or {@code null} to clear the slot
+     * @return The previously held value, or {@code null} if absent
+     * @throws IllegalStateException If the slot is negative, as it is for
+     *                               an unloaded state
+     */
+    public synchronized T set(int slot, T value) {
+        if (slot < 0) {
+            throw new IllegalStateException("Cannot write to a state without a slot, it may have been unloaded");
+        }
+        T old = this.get(slot);
+        if (value == null) {
+            this.clear(slot);
+        } else {
+            this.ensureCapacity(slot + 1);
+            this.write(slot, value);
+            this.present.set(slot);
+        }
+        return old;
+    }
+
+    /**
+     * empties a slot, such that it can be handed to another state
+     *
+     * @param slot The slot to clear
+     */
+    public synchronized void clear(int slot) {
+        if (this.isPresent(slot)) {
+            this.present.clear(slot);
+            this.erase(slot);
+        }
+    }
+
+    /**
+     * checks whether a slot holds a value
+     *
+     * @param slot The slot to check
+     * @return {@code true} if a value is held
+     */
+    public synchronized boolean isPresent(int slot) {
+        return slot >= 0 && this.present.get(slot);
+    }
+
+    /**
+     * gets the next slot holding a value, at or after the given slot
+     *
+     * @param from The slot to begin searching from
+     * @return The next present slot, or {@code -1} if there are none
+     */
+    public synchronized int nextPresent(int from) {
+        return this.present.nextSetBit(from);
+    }
+
+    //reads a slot known to be present
+    protected abstract T read(int slot);
+
+    //writes a non-null value, capacity is already ensured
+    protected abstract void write(int slot, T value);
+
+    //drops any reference held by a slot which is no longer present
+    protected abstract void erase(int slot);
+
+    //grows the backing array to hold at least the given number of slots
+    protected abstract void ensureCapacity(int slots);
+
+    //the capacity to grow to when more than current slots are needed
+    protected static int grow(int current, int needed) {
+        return Math.max(needed, current + (current >> 1));
+    }
+}
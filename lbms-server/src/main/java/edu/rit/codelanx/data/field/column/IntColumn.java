@@ -0,0 +1,53 @@
+package edu.rit.codelanx.data.field.column;
+
+import java.util.Arrays;
+
+/**
+ * A {@link Column} of {@link Integer} values, held as a primitive array
+ */
+public class IntColumn extends Column<Integer> {
+
+    private int[] values;
+
+    /**
+     * constructs an empty column
+     *
+     * @param capacity The number of slots to allocate up front
+     */
+    public IntColumn(int capacity) {
+        this.values = new int[capacity];
+    }
+
+    /**
+     * gets the value held in a slot without boxing
+     *
+     * @param slot The slot to read
+     * @param absent The value to return if the slot is absent
+     * @return The held value, or {@code absent}
+     */
+    public synchronized int getInt(int slot, int absent) {
+        return this.isPresent(slot) ? this.values[slot] : absent;
+    }
+
+    @Override
+    protected Integer read(int slot) {
+        return this.values[slot];
+    }
+
+    @Override
+    protected void write(int slot, Integer value) {
+        this.values[slot] = value;
+    }
+
+    @Override
+    protected void erase(int slot) {
+        //primitive, nothing is retained
+    }
+
+    @Override
+    protected void ensureCapacity(int slots) {
+        if (slots > this.values.length) {
+            this.values = Arrays.copyOf(this.values, Column.grow(this.values.length, slots));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package edu.rit.codelanx.data.field.column;
+
+import java.util.Arrays;
+
+/**
+ * A {@link Column} of {@link Long} values, held as a primitive array
+ */
+public class LongColumn extends Column<Long> {
+
+    private long[] values;
+
+    /**
+     * constructs an empty column
+     *
+     * @param capacity The number of slots to allocate up front
+     */
+    public LongColumn(int capacity) {
+        this.values = new long[capacity];
+    }
+
+    /**
+     * gets the value held in a slot without boxing
+     *
+     * @param slot The slot to read
+     * @param absent The value to return if the slot is absent
+     * @return The held value, or {@code absent}
+     */
+    public synchronized long getLong(int slot, long absent) {
+        return this.isPresent(slot) ? this.values[slot] : absent;
+    }
+
+    @Override
+    protected Long read(int slot) {
+        return this.values[slot];
+    }
+
+    @Override
+    protected void write(int slot, Long value) {
+        this.values[slot] = value;
+    }
+
+    @Override
+    protected void erase(int slot) {
+        //primitive, nothing is retained
+    }
+
+    @Override
+    protected void ensureCapacity(int slots) {
+        if (slots > this.values.length) {
+            this.values = Arrays.copyOf(this.values, Column.grow(this.values.length, slots));
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package edu.rit.codelanx.data.field.column;
+
+import java.util.Arrays;
+
+/**
+ * A {@link Column} of arbitrary values, held as an object array
+ *
+ * @param <T> The type of value held
+ */
+public class ObjectColumn<T> extends Column<T> {
+
+    private Object[] values;
+
+    /**
+     * constructs an empty column
+     *
+     * @param capacity The number of slots to allocate up front
+     */
+    public ObjectColumn(int capacity) {
+        this.values = new Object[capacity];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked") //only T is ever written
+    protected T read(int slot) {
+        return (T) this.values[slot];
+    }
+
+    @Override
+    protected void write(int slot, T value) {
+        this.values[slot] = value;
+    }
+
+    @Override
+    protected void erase(int slot) {
+        this.values[slot] = null; //let the value be collected
+    }
+
+    @Override
+    protected void ensureCapacity(int slots) {
+        if (slots > this.values.length) {
+            this.values = Arrays.copyOf(this.values, Column.grow(this.values.length, slots));
+        }
+    }
+}
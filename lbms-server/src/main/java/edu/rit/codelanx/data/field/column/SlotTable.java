@@ -0,0 +1,157 @@
+package edu.rit.codelanx.data.field.column;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.state.State;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Hands out dense slot numbers to the states of a single {@link State.Type}
+ * within a {@link DataSource}, so that every {@link Column} of that type can
+ * address a state's values by array index. Released slots are reused before
+ * new ones are allocated, keeping the columns as short as the number of
+ * states loaded at once.
+ * <p>
+ * Owners are only weakly referenced. A slot is released when its state is
+ * {@link State#unload() unloaded}, or otherwise once the state has been
+ * collected, at which point every registered {@link Column} is cleared at
+ * that slot before it is handed out again
+ */
+public class SlotTable {
+
+    private static final Map<DataSource, Map<State.Type, SlotTable>> TABLES = new WeakHashMap<>();
+
+    private final ReferenceQueue<State> collected = new ReferenceQueue<>();
+    //weakly held, so a table does not keep the fields of a discarded source alive
+    private final List<WeakReference<Column<?>>> columns = new CopyOnWriteArrayList<>();
+    private Owner[] owners = new Owner[16];
+    private int[] free = new int[16]; //stack of released slots
+    private int freeCount = 0;
+    private int size = 0; //one past the highest slot ever handed out
+
+    SlotTable() {
+    }
+
+    /**
+     * gets the table of slots for one type of state
+     *
+     * @param source The {@link DataSource} the states are loaded from
+     * @param type The {@link State.Type} of the states
+     * @return The shared {@link SlotTable}
+     */
+    public static SlotTable of(DataSource source, State.Type type) {
+        synchronized (TABLES) {
+            return TABLES.computeIfAbsent(source, k -> new HashMap<>())
+                    .computeIfAbsent(type, k -> new SlotTable());
+        }
+    }
+
+    /**
+     * registers a column addressed by this table's slots, so that the values
+     * of collected states are cleared from it
+     *
+     * @param column The {@link Column} to clear as slots are reclaimed
+     */
+    public void register(Column<?> column) {
+        this.columns.add(new WeakReference<>(column));
+    }
+
+    /**
+     * assigns a slot to a state
+     *
+     * @param owner The {@link State} to give a slot to
+     * @return The assigned slot
+     */
+    public synchronized int acquire(State owner) {
+        this.expunge();
+        int slot = this.freeCount > 0 ? this.free[--this.freeCount] : this.size++;
+        if (slot >= this.owners.length) {
+            this.owners = Arrays.copyOf(this.owners, Column.grow(this.owners.length, slot + 1));
+        }
+        this.owners[slot] = new Owner(owner, slot, this.collected);
+        return slot;
+    }
+
+    /**
+     * returns a slot for reuse. Every {@link Column} should have cleared the
+     * slot already
+     *
+     * @param slot The slot to release
+     */
+    public synchronized void release(int slot) {
+        if (slot < 0 || slot >= this.size || this.owners[slot] == null) {
+            return; //never assigned, or already released
+        }
+        this.owners[slot].clear(); //no longer enqueued once collected
+        this.free(slot);
+    }
+
+    /**
+     * gets the state a slot is assigned to
+     *
+     * @param slot The slot to look up
+     * @return The owning {@link State}, or {@code null} if unassigned or
+     *         already collected
+     */
+    public synchronized State getOwner(int slot) {
+        Owner owner = slot >= 0 && slot < this.size ? this.owners[slot] : null;
+        return owner == null ? null : owner.get();
+    }
+
+    /**
+     * gets the number of slots currently assigned
+     *
+     * @return The number of slots held by a state which has neither been
+     *         unloaded nor found to be collected
+     */
+    public synchronized int getAssigned() {
+        this.expunge();
+        return this.size - this.freeCount;
+    }
+
+    //reclaims the slots of every owner collected since the last call
+    private void expunge() {
+        for (Reference<? extends State> ref; (ref = this.collected.poll()) != null; ) {
+            int slot = ((Owner) ref).slot;
+            if (this.owners[slot] != ref) {
+                continue; //released by unload before it was collected
+            }
+            for (WeakReference<Column<?>> held : this.columns) {
+                Column<?> column = held.get();
+                if (column == null) {
+                    this.columns.remove(held);
+                } else {
+                    column.clear(slot);
+                }
+            }
+            this.free(slot);
+        }
+    }
+
+    private void free(int slot) {
+        this.owners[slot] = null;
+        if (this.freeCount == this.free.length) {
+            this.free = Arrays.copyOf(this.free, this.free.length * 2);
+        }
+        this.free[this.freeCount++] = slot;
+    }
+
+    //remembers its slot, for when it is polled after the state is collected
+    private static final class Owner extends WeakReference<State> {
+
+        private final int slot;
+
+        private Owner(State owner, int slot, ReferenceQueue<State> queue) {
+            super(owner, queue);
+            this.slot = slot;
+        }
+    }
+}
@@ -67,6 +67,15 @@ public abstract class FieldIndex<T> implements DataField<T> {
         return this.parent.isImmutable();
     }
 
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public boolean isOrdered() {
+        return this.parent.isOrdered();
+    }
+
     /**
      * {@inheritDoc}
      * @return {@inheritDoc}
@@ -158,4 +167,54 @@ public abstract class FieldIndex<T> implements DataField<T> {
     public Stream<? extends State> findStatesByValue(DataSource source, T key) {
         return this.parent.findStatesByValue(source, key);
     }
+
+    @Override
+    public long countStatesByValue(T key) {
+        return this.parent.countStatesByValue(key);
+    }
+
+    @Override
+    public long countStatesByValue(DataSource source, T key) {
+        return this.parent.countStatesByValue(source, key);
+    }
+
+    @Override
+    public Stream<? extends State> findStatesInRange(T from, boolean fromInclusive, T to, boolean toInclusive) {
+        return this.parent.findStatesInRange(from, fromInclusive, to, toInclusive);
+    }
+
+    @Override
+    public Stream<? extends State> findStatesInRange(DataSource source, T from, boolean fromInclusive, T to, boolean toInclusive) {
+        return this.parent.findStatesInRange(source, from, fromInclusive, to, toInclusive);
+    }
+
+    @Override
+    public Stream<? extends State> findStatesInOrder(T from, boolean fromInclusive, T to, boolean toInclusive, boolean descending) {
+        return this.parent.findStatesInOrder(from, fromInclusive, to, toInclusive, descending);
+    }
+
+    @Override
+    public Stream<? extends State> findStatesInOrder(DataSource source, T from, boolean fromInclusive, T to, boolean toInclusive, boolean descending) {
+        return this.parent.findStatesInOrder(source, from, fromInclusive, to, toInclusive, descending);
+    }
+
+    @Override
+    public Stream<? extends State> findStatesByTerm(String term, boolean prefix) {
+        return this.parent.findStatesByTerm(term, prefix);
+    }
+
+    @Override
+    public Stream<? extends State> findStatesByTerm(DataSource source, String term, boolean prefix) {
+        return this.parent.findStatesByTerm(source, term, prefix);
+    }
+
+    @Override
+    public long countStatesInRange(T from, boolean fromInclusive, T to, boolean toInclusive) {
+        return this.parent.countStatesInRange(from, fromInclusive, to, toInclusive);
+    }
+
+    @Override
+    public long countStatesInRange(DataSource source, T from, boolean fromInclusive, T to, boolean toInclusive) {
+        return this.parent.countStatesInRange(source, from, fromInclusive, to, toInclusive);
+    }
 }
@@ -4,15 +4,18 @@ import edu.rit.codelanx.data.field.DataField;
 import edu.rit.codelanx.data.field.FieldIndicies;
 import edu.rit.codelanx.data.state.State;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
+import java.util.function.UnaryOperator;
 import java.util.stream.Stream;
 
 /**
- * a {@link FieldIndex} used for object lookup.
+ * a {@link FieldIndex} used for object lookup. Maintains a mapping of each
+ * held value to every {@link State} which currently holds that value, so that
+ * equality lookups do not need to scan every loaded state
  * @param <T> of type {@link FieldIndex}
  */
 public class IndexKey<T> extends FieldIndex<T> {
@@ -32,7 +35,7 @@ public class IndexKey<T> extends FieldIndex<T> {
     @Override
     public void initialize(State state, T value) {
         super.initialize(state, value);
-        this.getStates((T) value).add(state);
+        this.getStates(value).add(state);
     }
     /**
      * {@inheritDoc}
@@ -40,12 +43,32 @@ public class IndexKey<T> extends FieldIndex<T> {
      */
     @Override
     public Stream<? extends State> findStatesByValue(T key) {
-        return Optional.ofNullable(this.states.get(key)).map(Set::stream).orElse(Stream.empty());
+        Set<State> found = this.states.get(key);
+        //copied, so callers may mutate the states they find while streaming
+        return found == null ? Stream.empty() : new ArrayList<>(found).stream();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public long countStatesByValue(T key) {
+        Set<State> found = this.states.get(key);
+        return found == null ? 0 : found.size();
     }
 
     private Set<State> getStates(T value) {
         return this.states.computeIfAbsent(value, k -> new HashSet<>());
     }
+
+    //removes the state from the bucket for value, dropping empty buckets
+    private void unindex(State state, T value) {
+        this.states.computeIfPresent(value, (k, set) -> {
+            return set.remove(state) && set.isEmpty() ? null : set;
+        });
+    }
+
     /**
      * {@inheritDoc}
      * @return {@inheritDoc}
@@ -53,23 +76,28 @@ public class IndexKey<T> extends FieldIndex<T> {
     @Override
     public T set(State state, T value) {
         T old = super.set(state, value);
-        this.states.computeIfPresent(old, (k, set) -> {
-            set.remove(state);
-            return set;
-        });
+        this.unindex(state, old);
         this.getStates(value).add(state);
         return old;
     }
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public T mutate(State state, UnaryOperator<T> updater) {
+        T old = this.get(state);
+        T next = super.mutate(state, updater);
+        this.unindex(state, old);
+        this.getStates(next).add(state);
+        return next;
+    }
     /**
      * {@inheritDoc}
      */
     @Override
     public void forget(State state) {
-        this.states.compute(this.get(state), (k, old) -> {
-            return old != null && old.remove(state) && old.isEmpty()
-                    ? null
-                    : old;
-        });
+        this.unindex(state, this.get(state));
         super.forget(state);
     }
     /**
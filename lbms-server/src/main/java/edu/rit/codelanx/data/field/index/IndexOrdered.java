@@ -0,0 +1,178 @@
+package edu.rit.codelanx.data.field.index;
+
+import edu.rit.codelanx.data.field.DataField;
+import edu.rit.codelanx.data.field.FieldIndicies;
+import edu.rit.codelanx.data.state.State;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * A type of {@link FieldIndex} which keeps every held value in sorted order,
+ * so that range comparisons (such as every checkout before a cutoff) resolve
+ * as a view over the matching values rather than a scan of every state.
+ * Only usable on fields of a {@link Comparable} type, {@code null} values
+ * are not indexed
+ *
+ * @param <T> specified Type
+ */
+public class IndexOrdered<T> extends FieldIndex<T> {
+
+    private final NavigableMap<T, Set<State>> states = new ConcurrentSkipListMap<>();
+
+    /**
+     * constructs the ordered index for a field
+     *
+     * @param parent {@link DataField} to be indexed
+     */
+    public IndexOrdered(DataField<T> parent) {
+        super(parent);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void initialize(State state, T value) {
+        super.initialize(state, value);
+        this.index(state, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public T set(State state, T value) {
+        T old = super.set(state, value);
+        this.unindex(state, old);
+        this.index(state, value);
+        return old;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public T mutate(State state, UnaryOperator<T> updater) {
+        T old = this.get(state);
+        T next = super.mutate(state, updater);
+        this.unindex(state, old);
+        this.index(state, next);
+        return next;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void forget(State state) {
+        this.unindex(state, this.get(state));
+        super.forget(state);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Stream<? extends State> findStatesInRange(T from, boolean fromInclusive, T to, boolean toInclusive) {
+        List<State> back = new ArrayList<>();
+        //copied, so callers may mutate the states they find while streaming
+        this.range(from, fromInclusive, to, toInclusive).values().forEach(back::addAll);
+        return back.stream();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Values are walked lazily, while each bucket of states holding the same
+     * value is copied and sorted by id as it is reached
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Stream<? extends State> findStatesInOrder(T from, boolean fromInclusive, T to, boolean toInclusive, boolean descending) {
+        NavigableMap<T, Set<State>> range = this.range(from, fromInclusive, to, toInclusive);
+        return (descending ? range.descendingMap() : range).values().stream()
+                .flatMap(bucket -> bucket.stream().sorted(Comparator.comparingLong(State::getID)));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Counting walks the matching values, so this is linear in the size of
+     * the range rather than the number of states overall
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public long countStatesInRange(T from, boolean fromInclusive, T to, boolean toInclusive) {
+        return this.range(from, fromInclusive, to, toInclusive).values().stream()
+                .mapToLong(Collection::size)
+                .sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@code true} since values are held in order
+     */
+    @Override
+    public boolean isOrdered() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@link FieldIndicies#FM_ORDERED}
+     */
+    @Override
+    public FieldIndicies getIndexType() {
+        return FieldIndicies.FM_ORDERED;
+    }
+
+    //a live view of the values between the bounds, where null is unbounded
+    @SuppressWarnings("unchecked") //only Comparable types may be ordered
+    private NavigableMap<T, Set<State>> range(T from, boolean fromInclusive, T to, boolean toInclusive) {
+        if (from != null && to != null) {
+            int cmp = ((Comparable<? super T>) from).compareTo(to);
+            if (cmp > 0 || (cmp == 0 && !(fromInclusive && toInclusive))) {
+                return new ConcurrentSkipListMap<>(); //nothing can lie between
+            }
+            return this.states.subMap(from, fromInclusive, to, toInclusive);
+        }
+        if (from != null) {
+            return this.states.tailMap(from, fromInclusive);
+        }
+        if (to != null) {
+            return this.states.headMap(to, toInclusive);
+        }
+        return this.states;
+    }
+
+    private void index(State state, T value) {
+        if (value == null) {
+            return;
+        }
+        this.states.computeIfAbsent(value, k -> ConcurrentHashMap.newKeySet()).add(state);
+    }
+
+    //removes the state from the bucket for value, dropping empty buckets
+    private void unindex(State state, T value) {
+        if (value == null) {
+            return;
+        }
+        this.states.computeIfPresent(value, (k, set) -> {
+            return set.remove(state) && set.isEmpty() ? null : set;
+        });
+    }
+}
@@ -0,0 +1,129 @@
+package edu.rit.codelanx.data.field.index;
+
+import edu.rit.codelanx.data.field.DataField;
+import edu.rit.codelanx.data.field.FieldIndicies;
+import edu.rit.codelanx.data.state.State;
+import edu.rit.codelanx.data.storage.TextQuery;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * A {@link FieldIndex} for full-text lookups, which maps every
+ * {@link TextQuery#tokenize term} within the held values to each
+ * {@link State} holding it. Terms are kept in sorted order so that every term
+ * starting with a prefix is found as a view. Both the terms and their states
+ * are concurrent, as commands which read search alongside each other. Only
+ * usable on fields of {@link String} type, {@code null} values are not
+ * indexed
+ *
+ * @param <T> specified Type
+ */
+public class IndexText<T> extends FieldIndex<T> {
+
+    private final NavigableMap<String, Set<State>> terms = new ConcurrentSkipListMap<>();
+
+    /**
+     * constructs the text index for a field
+     *
+     * @param parent {@link DataField} to be indexed
+     */
+    public IndexText(DataField<T> parent) {
+        super(parent);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void initialize(State state, T value) {
+        super.initialize(state, value);
+        this.index(state, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public T set(State state, T value) {
+        T old = super.set(state, value);
+        this.unindex(state, old);
+        this.index(state, value);
+        return old;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public T mutate(State state, UnaryOperator<T> updater) {
+        T old = this.get(state);
+        T next = super.mutate(state, updater);
+        this.unindex(state, old);
+        this.index(state, next);
+        return next;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void forget(State state) {
+        this.unindex(state, this.get(state));
+        super.forget(state);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Stream<? extends State> findStatesByTerm(String term, boolean prefix) {
+        if (!prefix) {
+            Set<State> found = this.terms.get(term);
+            //copied, so callers may mutate the states they find while streaming
+            return found == null ? Stream.empty() : new ArrayList<>(found).stream();
+        }
+        Set<State> back = new HashSet<>(); //a state may hold many terms with the prefix
+        this.terms.subMap(term, true, term + Character.MAX_VALUE, false).values().forEach(back::addAll);
+        return back.stream();
+    }
+
+    private void index(State state, T value) {
+        if (value == null) {
+            return;
+        }
+        for (String term : TextQuery.tokenize(value.toString())) {
+            this.terms.computeIfAbsent(term, k -> ConcurrentHashMap.newKeySet()).add(state);
+        }
+    }
+
+    //removes the state from the bucket of each term, dropping empty buckets
+    private void unindex(State state, T value) {
+        if (value == null) {
+            return;
+        }
+        for (String term : TextQuery.tokenize(value.toString())) {
+            this.terms.computeIfPresent(term, (k, set) -> {
+                return set.remove(state) && set.isEmpty() ? null : set;
+            });
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@link IndexText} type
+     */
+    @Override
+    public FieldIndicies getIndexType() {
+        return FieldIndicies.FM_TEXT;
+    }
+}
@@ -7,6 +7,7 @@ import edu.rit.codelanx.data.state.State;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.UnaryOperator;
 import java.util.stream.Stream;
 
 /**
@@ -39,6 +40,17 @@ public class IndexUnique<T> extends FieldIndex<T> {
         return Optional.ofNullable(this.uniqueMap.get(key)).map(Stream::of).orElseGet(Stream::empty);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @param key {@inheritDoc}
+     * @return {@code 1} if a state holds the {@code key}, {@code 0} otherwise
+     */
+    @Override
+    public long countStatesByValue(T key) {
+        return this.uniqueMap.containsKey(key) ? 1 : 0;
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -100,6 +112,22 @@ public class IndexUnique<T> extends FieldIndex<T> {
         return old;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @param state {@inheritDoc}
+     * @param updater {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public T mutate(State state, UnaryOperator<T> updater) {
+        T old = this.get(state);
+        T next = super.mutate(state, updater);
+        this.uniqueMap.remove(old, state);
+        this.uniqueMap.put(next, state);
+        return next;
+    }
+
     /**
      * {@inheritDoc}
      *
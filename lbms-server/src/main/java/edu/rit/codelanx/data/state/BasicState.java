@@ -5,12 +5,13 @@ import edu.rit.codelanx.data.DataSource;
 import edu.rit.codelanx.data.storage.InputMapper;
 import edu.rit.codelanx.data.storage.StateBuilder;
 import edu.rit.codelanx.data.field.DataField;
+import edu.rit.codelanx.data.field.DataFieldLoader;
+import edu.rit.codelanx.data.field.column.SlotTable;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Objects;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 
@@ -24,7 +25,9 @@ public abstract class BasicState implements State {
 
     private final AtomicBoolean valid = new AtomicBoolean(false);
     private final long id;
+    private final int hash; //precomputed, states are hashed on every map-backed field access
     private final DataSource loader;
+    private volatile int slot; //assigned on construction, before any field is set, -1 if never needed
 
     /**
      * construct the state from State buil
@@ -36,6 +39,8 @@ public abstract class BasicState implements State {
     public <T extends State> BasicState(DataSource loader, long id, StateBuilder<T> builder) {
         this.loader = loader;
         this.id = id;
+        this.hash = this.computeHash();
+        this.slot = this.acquireSlot();
         DataField<? super Long> idField = this.getIDField();
         idField.initialize(this, id);
         //id field should be the first indexed field
@@ -54,7 +59,10 @@ public abstract class BasicState implements State {
      */
     public BasicState(DataSource loader, Map<String, Object> file) {
         this.loader = loader;
-        this.id = this.init(loader, f -> InputMapper.getObject(file, f.getName()));
+        this.id = BasicState.toID(InputMapper.getObject(file, this.getIDField().getName()));
+        this.hash = this.computeHash();
+        this.slot = this.acquireSlot();
+        this.init(loader, f -> InputMapper.getObject(file, f.getName()));
     }
 
     /**
@@ -65,30 +73,54 @@ public abstract class BasicState implements State {
      */
     public BasicState(DataSource loader, ResultSet sql) throws SQLException {
         this.loader = loader;
-        this.id = this.initSQL(loader, f -> InputMapper.getObject(f.getType(), sql, f.getName()));
+        this.id = BasicState.toID(InputMapper.getObject(Long.class, sql, this.getIDField().getName()));
+        this.hash = this.computeHash();
+        this.slot = this.acquireSlot();
+        this.initSQL(loader, f -> InputMapper.getObject(f.getType(), sql, f.getName()));
     }
 
-    //helper method to initialize the id/data fields
-    private long initSQL(DataSource loader, SQLFunction<DataField<?>, Object> mapper) throws SQLException {
-        long id = InputMapper.toType(Long.class, mapper.apply(this.getIDField()));
+    //only columnar fields address values by slot, a map-backed source never holds one
+    private int acquireSlot() {
+        return this.loader.getFieldBackend() == DataFieldLoader.Backend.COLUMNAR
+                ? SlotTable.of(this.loader, this.getType()).acquire(this)
+                : -1;
+    }
+
+    //helper method to initialize the id/data fields, once the id is known
+    private void initSQL(DataSource loader, SQLFunction<DataField<?>, Object> mapper) throws SQLException {
+        //indexes (and the state's hash) need the id before any field is set
+        this.getIDField().initialize(this, this.id);
+        this.getType().reserveID(this.id);
         for (DataField<? super Object> f : this.getFieldsUnsafe()) {
             if (f == (DataField<?>) this.getIDField()) continue;
             Object o = mapper.apply(f);
             f.initialize(this, InputMapper.toTypeOrState(loader, f.getType(), o));
         }
         this.valid.set(true);
-        return id;
     }
 
     //same as #initSQL without the SQLException
-    private long init(DataSource loader, Function<DataField<?>, Object> mapper) {
+    private void init(DataSource loader, Function<DataField<?>, Object> mapper) {
         try {
-            return this.initSQL(loader, mapper::apply);
+            this.initSQL(loader, mapper::apply);
         } catch (SQLException ex) { //Should never happen - mapper::apply does not produce SQLException
             throw new RuntimeException("Failed to initialize state", ex);
         }
     }
 
+    //ids may be read back as any width of number
+    private static long toID(Object raw) {
+        if (!(raw instanceof Number)) {
+            throw new IllegalArgumentException("Cannot interpret state ID: " + raw);
+        }
+        return ((Number) raw).longValue();
+    }
+
+    //ids are only unique within a type, so the type is mixed in
+    private int computeHash() {
+        return 31 * this.getType().getName().hashCode() + Long.hashCode(this.id);
+    }
+
     /**
      * {@inheritDoc}
      * @return {@inheritDoc}
@@ -131,28 +163,44 @@ public abstract class BasicState implements State {
         for (DataField<?> f : this.getFieldsUnsafe()) {
             f.forget(this);
         }
+        int slot = this.slot;
+        if (slot >= 0) {
+            this.slot = -1; //reads now see the defaults, rather than the slot's next owner
+            SlotTable.of(this.loader, this.getType()).release(slot);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public int getSlot() {
+        return this.slot;
     }
 
     /**
      * comapares two state object
      * @param o-object to be compared to
-     * @return true if both equals.Otherwise, false.
+     * @return true if both are the same type with the same id. Otherwise, false.
      */
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof BasicState)) return false;
         BasicState that = (BasicState) o;
-        return this.getID() == that.getID();
+        return this.id == that.id
+                && this.hash == that.hash
+                && this.getType() == that.getType();
     }
 
     /**
-     * generates the hashcode based on state ID
-     * @return hashcode integer.
+     * generates the hashcode based on state type and ID
+     * @return hashcode integer, computed once on construction.
      */
     @Override
     public int hashCode() {
-        return Objects.hash(this.getID());
+        return this.hash;
     }
 
     /**
@@ -177,7 +225,7 @@ public abstract class BasicState implements State {
     public String toString() {
         return "State{"
                 + "id:" + this.getID()
-                + ",type:" + this.getType().getNextID()
+                + ",type:" + this.getType().getName()
                 + "}";
     }
 }
@@ -53,6 +53,14 @@ public interface State extends FileSerializable, Comparable<State> {
      */
     public void unload();
 
+    /**
+     * gets the slot this state's values are held at by columnar fields
+     * @return slot number, unique among loaded states of the same type and
+     *         {@link DataSource}, or {@code -1} once unloaded or if the
+     *         source does not keep its values in columns
+     */
+    public int getSlot();
+
     /**
      * returns id for the relevant state
      * @return id of type long
@@ -113,6 +121,21 @@ public interface State extends FileSerializable, Comparable<State> {
          */
         public <T extends State> StateFileConstructor<T> getFileConstructor();
 
+        /**
+         * Gets every field held by states of this type, as would
+         * {@link State#getFields()} on any one of them
+         *
+         * @return A new array of the type's {@link DataField DataFields}
+         */
+        public DataField<? super Object>[] getFields();
+
+        /**
+         * ensures the next ID handed out will be above an ID already in use,
+         * such as one loaded back from storage
+         * @param id An ID in use by a state of this type
+         */
+        public void reserveID(long id);
+
         /**
          * increments to get the next ID
          * @return next ID of type long
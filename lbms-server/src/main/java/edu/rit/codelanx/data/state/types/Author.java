@@ -31,7 +31,7 @@ public class Author extends BasicState {
 
         static {
             ID = DataField.makeIDField(Author.class);
-            NAME = DataField.buildSimple(String.class, "name", FieldIndicies.FM_IMMUTABLE, FieldIndicies.FM_UNIQUE, FieldIndicies.FM_KEY);
+            NAME = DataField.buildSimple(String.class, "name", FieldIndicies.FM_IMMUTABLE, FieldIndicies.FM_UNIQUE, FieldIndicies.FM_KEY, FieldIndicies.FM_TEXT);
             VALUES = Field.values();
         }
     }
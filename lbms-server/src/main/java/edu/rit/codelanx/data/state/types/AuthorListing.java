@@ -51,6 +51,7 @@ public class AuthorListing extends BasicState {
      */
     AuthorListing(DataSource storage, long id, StateBuilder<AuthorListing> builder) {
         super(storage, id, builder);
+        Book.AUTHORS.forget(this.getBook()); //a new listing changes the book's authors
     }
 
     /**
@@ -2,6 +2,7 @@ package edu.rit.codelanx.data.state.types;
 
 import edu.rit.codelanx.data.field.DataField;
 import edu.rit.codelanx.data.field.FieldIndicies;
+import edu.rit.codelanx.data.storage.Relation;
 import edu.rit.codelanx.data.storage.StateBuilder;
 import edu.rit.codelanx.data.state.BasicState;
 import edu.rit.codelanx.data.state.StorageContainer;
@@ -43,10 +44,10 @@ public class Book extends BasicState {
 
         static {
             ID = DataField.makeIDField(Book.class);
-            TITLE = DataField.buildSimple(String.class, "title", FieldIndicies.FM_IMMUTABLE, FieldIndicies.FM_KEY);
+            TITLE = DataField.buildSimple(String.class, "title", FieldIndicies.FM_IMMUTABLE, FieldIndicies.FM_KEY, FieldIndicies.FM_ORDERED, FieldIndicies.FM_TEXT);
             ISBN = DataField.buildSimple(String.class, "isbn", FieldIndicies.FM_IMMUTABLE, FieldIndicies.FM_KEY);
-            PUBLISHER = DataField.buildSimple(String.class, "publisher", FieldIndicies.FM_IMMUTABLE, FieldIndicies.FM_KEY);
-            PUBLISH_DATE = DataField.buildSimple(Instant.class, "publish_date", FieldIndicies.FM_IMMUTABLE, FieldIndicies.FM_KEY);
+            PUBLISHER = DataField.buildSimple(String.class, "publisher", FieldIndicies.FM_IMMUTABLE, FieldIndicies.FM_KEY, FieldIndicies.FM_TEXT);
+            PUBLISH_DATE = DataField.buildSimple(Instant.class, "publish_date", FieldIndicies.FM_IMMUTABLE, FieldIndicies.FM_KEY, FieldIndicies.FM_ORDERED);
             PAGE_COUNT = DataField.buildSimple(Integer.class, "page_count", FieldIndicies.FM_IMMUTABLE);
             TOTAL_COPIES = DataField.builder(Integer.class)
                     .name("total_copies")
@@ -60,6 +61,11 @@ public class Book extends BasicState {
         }
     }
 
+    /**
+     * The authors of a book, through their {@link AuthorListing listings}
+     */
+    public static final Relation<Book, Author> AUTHORS = Relation.through(AuthorListing.class, AuthorListing.Field.BOOK, AuthorListing.Field.AUTHOR);
+
     /**
      * {@inheritDoc}
      * @param storage {@inheritDoc}
@@ -110,17 +116,24 @@ public class Book extends BasicState {
         return Checkout.create()
                 .setValue(Checkout.Field.BOOK, this)
                 .setValue(Checkout.Field.VISITOR, taker)
-                .setValue(Checkout.Field.AT, Instant.now())
+                .setValue(Checkout.Field.AT, clock.getCurrentTime())
                 .setValue(Checkout.Field.RETURNED, false)
                 .build(this.getLoader());
     }
 
+    //frees up a copy taken by #checkout
+    void returnCopy() {
+        Field.CHECKED_OUT.mutate(this, old -> old - 1);
+    }
+
     /**
      *  creates a new copy of the book and adds it to the database
      * @param count of how many books to add
      */
     public void addCopy(int count) {
         Field.TOTAL_COPIES.mutate(this, old -> old + count);
+        Library library = this.getLoader().getLibrary();
+        library.getRollups().recordPurchase(library.getClock().getCurrentTime(), count);
     }
 
     /**
@@ -164,13 +177,12 @@ public class Book extends BasicState {
     }
 
     /**
-     * gets the book's authors
+     * gets the book's authors, which are only looked up if they were not
+     * already {@link Relation#prefetch prefetched}
      * @return stream of {@link Author}
      */
     public Stream<Author> getAuthors() {
-        return this.getLoader().query(AuthorListing.class)
-                .isEqual(AuthorListing.Field.BOOK, this)
-                .results().map(AuthorListing::getAuthor);
+        return AUTHORS.get(this);
     }
 
     /**
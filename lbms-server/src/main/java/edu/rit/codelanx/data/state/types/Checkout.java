@@ -45,7 +45,7 @@ public class Checkout extends BasicState {
             ID = DataField.makeIDField(Checkout.class);
             VISITOR = DataField.buildFromState(Visitor.class, "visitor", Visitor.Field.ID, FieldIndicies.FM_IMMUTABLE, FieldIndicies.FM_KEY);
             BOOK = DataField.buildFromState(Book.class, "book", Book.Field.ID, FieldIndicies.FM_IMMUTABLE, FieldIndicies.FM_KEY);
-            AT = DataField.buildSimple(Instant.class, "at");
+            AT = DataField.buildSimple(Instant.class, "at", FieldIndicies.FM_ORDERED);
             RETURNED = DataField.buildSimple(Boolean.class, "returned");
             VALUES = Field.values();
         }
@@ -135,7 +135,8 @@ public class Checkout extends BasicState {
         if (this.wasReturned()) {
             throw new IllegalStateException("Book already returned");
         }
-        this.getBook().addCopy(1);
+        this.getBook().returnCopy();
+        Field.RETURNED.set(this, true);
         Duration d = Duration.between(this.getBorrowedAt(), clock.getCurrentTime());
         //Due 7 days after checkout (if checked out on monday, not late until next tuesday)
         //Initial Late fee - $10 ($10 owed that tuesday)
@@ -150,7 +151,6 @@ public class Checkout extends BasicState {
             this.getLoader().getLibrary().updateMoney(amount);
             return Transaction.perform(this.getVisitor(), amount.negate(), Transaction.Reason.CHARGING_LATE_FEE);
         }
-        Field.RETURNED.set(this, true);
         return null;
     }
 
@@ -1,5 +1,6 @@
 package edu.rit.codelanx.data.state.types;
 
+import edu.rit.codelanx.ConfigKey;
 import edu.rit.codelanx.data.field.DataField;
 import edu.rit.codelanx.data.field.FieldIndicies;
 import edu.rit.codelanx.data.storage.StateBuilder;
@@ -44,6 +45,7 @@ public class Library extends BasicState {
     //If the library is open to run commands / transactions / etc
     private final AtomicBoolean open = new AtomicBoolean(false);
     private volatile Clock clock;
+    private Rollups rollups; //loaded on first use, after every other state
 
     /**
      * {@inheritDoc}
@@ -141,6 +143,18 @@ public class Library extends BasicState {
         return this.clock;
     }
 
+    /**
+     * gets the hourly and daily summaries of this library's activity,
+     * loading (or first building) them if they have not been yet
+     * @return {@link Rollups} of this library
+     */
+    public synchronized Rollups getRollups() {
+        if (this.rollups == null) {
+            this.rollups = new Rollups(this.getLoader(), ConfigKey.ROLLUP_RETENTION_DAYS.as(int.class));
+        }
+        return this.rollups;
+    }
+
     public boolean isOpen() {
         return this.open.get();
     }
@@ -0,0 +1,278 @@
+package edu.rit.codelanx.data.state.types;
+
+import edu.rit.codelanx.data.field.DataField;
+import edu.rit.codelanx.data.field.FieldIndicies;
+import edu.rit.codelanx.data.storage.StateBuilder;
+import edu.rit.codelanx.data.state.BasicState;
+import edu.rit.codelanx.data.state.StorageContainer;
+import edu.rit.codelanx.data.DataSource;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.OptionalDouble;
+
+/**
+ * A {@link BasicState} which summarizes the library's activity over a single
+ * hour or day, kept up to date by {@link Rollups} as that activity occurs
+ *
+ * @see BasicState
+ * @see Rollups
+ */
+@StorageContainer("rollups")
+public class Rollup extends BasicState {
+
+    /**
+     * The length of time a {@link Rollup} covers, always aligned to UTC
+     */
+    public enum Period {
+        HOUR("hour", ChronoUnit.HOURS),
+        DAY("day", ChronoUnit.DAYS),
+        ;
+
+        private final String name;
+        private final ChronoUnit unit;
+
+        private Period(String name, ChronoUnit unit) {
+            this.name = name;
+            this.unit = unit;
+        }
+
+        /**
+         * gets the name this period is stored as
+         * @return the period's name
+         */
+        public String getName() {
+            return this.name;
+        }
+
+        /**
+         * gets the start of the period containing a point in time
+         * @param at the point in time
+         * @return the start of the containing period
+         */
+        public Instant truncate(Instant at) {
+            return at.truncatedTo(this.unit);
+        }
+
+        /**
+         * gets the start of the first period which begins at or after a
+         * point in time
+         * @param at the point in time
+         * @return {@code at} if a period begins there, otherwise the start of
+         *         the next period
+         */
+        public Instant ceil(Instant at) {
+            Instant start = this.truncate(at);
+            return start.equals(at) ? start : start.plus(1, this.unit);
+        }
+    }
+
+    public static class Field {
+        public static final DataField<Long> ID;
+        public static final DataField<String> PERIOD;
+        public static final DataField<Instant> START;
+        public static final DataField<Long> VISITS;
+        public static final DataField<Long> VISIT_SECONDS;
+        public static final DataField<Long> FINES_CHARGED;
+        public static final DataField<BigDecimal> FINES_CHARGED_AMOUNT;
+        public static final DataField<Long> FINES_PAID;
+        public static final DataField<BigDecimal> FINES_PAID_AMOUNT;
+        public static final DataField<Long> BOOKS_PURCHASED;
+        private static final DataField<? super Object>[] VALUES;
+
+        public static DataField<? super Object>[] values() {
+            return new DataField[] { ID, PERIOD, START, VISITS, VISIT_SECONDS, FINES_CHARGED,
+                    FINES_CHARGED_AMOUNT, FINES_PAID, FINES_PAID_AMOUNT, BOOKS_PURCHASED };
+        }
+
+        static {
+            ID = DataField.makeIDField(Rollup.class);
+            PERIOD = DataField.buildSimple(String.class, "period", FieldIndicies.FM_IMMUTABLE, FieldIndicies.FM_KEY);
+            START = DataField.buildSimple(Instant.class, "start", FieldIndicies.FM_IMMUTABLE, FieldIndicies.FM_KEY, FieldIndicies.FM_ORDERED);
+            VISITS = DataField.buildSimple(Long.class, "visits");
+            VISIT_SECONDS = DataField.buildSimple(Long.class, "visit_seconds");
+            FINES_CHARGED = DataField.buildSimple(Long.class, "fines_charged");
+            FINES_CHARGED_AMOUNT = DataField.buildSimple(BigDecimal.class, "fines_charged_amount");
+            FINES_PAID = DataField.buildSimple(Long.class, "fines_paid");
+            FINES_PAID_AMOUNT = DataField.buildSimple(BigDecimal.class, "fines_paid_amount");
+            BOOKS_PURCHASED = DataField.buildSimple(Long.class, "books_purchased");
+            VALUES = Field.values();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param storage {@inheritDoc}
+     * @param id {@inheritDoc}
+     * @param builder {@inheritDoc}
+     * @see BasicState#BasicState(DataSource, long, StateBuilder)
+     */
+    Rollup(DataSource storage, long id, StateBuilder<Rollup> builder) {
+        super(storage, id, builder);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param storage {@inheritDoc}
+     * @param sql {@inheritDoc}
+     * @throws SQLException {@inheritDoc}
+     * @see BasicState#BasicState(DataSource, ResultSet)
+     */
+    public Rollup(DataSource storage, ResultSet sql) throws SQLException {
+        super(storage, sql);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param storage {@inheritDoc}
+     * @param file {@inheritDoc}
+     * @see BasicState#BasicState(DataSource, Map)
+     */
+    public Rollup(DataSource storage, Map<String, Object> file) {
+        super(storage, file);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    protected DataField<? super Object>[] getFieldsUnsafe() {
+        return Field.VALUES;
+    }
+
+    /**
+     * gets the length of time this rollup covers
+     * @return the {@link Period}, or {@code null} if it is not one known
+     */
+    public Period getPeriod() {
+        String name = Field.PERIOD.get(this);
+        for (Period p : Period.values()) {
+            if (p.getName().equals(name)) {
+                return p;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * gets the start of the time this rollup covers
+     * @return start time {@link Instant}
+     */
+    public Instant getStart() {
+        return Field.START.get(this);
+    }
+
+    /**
+     * gets the number of visits which began in this period
+     * @return number of visits
+     */
+    public long getVisits() {
+        return Field.VISITS.get(this);
+    }
+
+    /**
+     * gets the total length of the visits which began in this period
+     * @return total visit length in seconds
+     */
+    public long getVisitSeconds() {
+        return Field.VISIT_SECONDS.get(this);
+    }
+
+    /**
+     * gets the average length of the visits which began in this period
+     * @return average visit length in seconds, or empty if there were none
+     */
+    public OptionalDouble getAverageVisitSeconds() {
+        long visits = this.getVisits();
+        return visits == 0 ? OptionalDouble.empty() : OptionalDouble.of((double) this.getVisitSeconds() / visits);
+    }
+
+    /**
+     * gets the number of late fees charged in this period
+     * @return number of fines charged
+     */
+    public long getFinesCharged() {
+        return Field.FINES_CHARGED.get(this);
+    }
+
+    /**
+     * gets the total amount of the late fees charged in this period
+     * @return the amount charged, which is never negative
+     */
+    public BigDecimal getFinesChargedAmount() {
+        return Field.FINES_CHARGED_AMOUNT.get(this);
+    }
+
+    /**
+     * gets the number of late fees paid in this period
+     * @return number of fines paid
+     */
+    public long getFinesPaid() {
+        return Field.FINES_PAID.get(this);
+    }
+
+    /**
+     * gets the total amount of the late fees paid in this period
+     * @return the amount paid, which is never negative
+     */
+    public BigDecimal getFinesPaidAmount() {
+        return Field.FINES_PAID_AMOUNT.get(this);
+    }
+
+    /**
+     * gets the number of book copies purchased in this period
+     * @return number of copies purchased
+     */
+    public long getBooksPurchased() {
+        return Field.BOOKS_PURCHASED.get(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public DataField<Long> getIDField() {
+        return Field.ID;
+    }
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public DataField<? super Object>[] getFields() {
+        return Field.values();
+    }
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Type getType() {
+        return StateType.ROLLUP;
+    }
+
+    /**
+     * creates an empty rollup, with every total at zero
+     * @param period the {@link Period} covered
+     * @param start the start of the time covered, aligned to the period
+     * @return {@link StateBuilder} of Rollup
+     */
+    public static StateBuilder<Rollup> create(Period period, Instant start) {
+        StateBuilder<Rollup> back = StateBuilder.of(Rollup::new, StateType.ROLLUP, Field.ID, Field.VALUES);
+        return back.setValue(Field.PERIOD, period.getName())
+                .setValue(Field.START, period.truncate(start))
+                .setValue(Field.VISITS, 0L)
+                .setValue(Field.VISIT_SECONDS, 0L)
+                .setValue(Field.FINES_CHARGED, 0L)
+                .setValue(Field.FINES_CHARGED_AMOUNT, BigDecimal.ZERO)
+                .setValue(Field.FINES_PAID, 0L)
+                .setValue(Field.FINES_PAID_AMOUNT, BigDecimal.ZERO)
+                .setValue(Field.BOOKS_PURCHASED, 0L);
+    }
+}
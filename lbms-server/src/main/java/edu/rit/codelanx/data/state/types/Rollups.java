@@ -0,0 +1,347 @@
+package edu.rit.codelanx.data.state.types;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.cache.StateStorage;
+import edu.rit.codelanx.data.state.State;
+import edu.rit.codelanx.data.storage.Query;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the hourly and daily {@link Rollup Rollups} of a library up to date
+ * as visits end, late fees are charged and paid, and books are purchased, so
+ * that reports over long periods read a handful of summaries rather than
+ * every visit and transaction.
+ * <p>
+ * If a retention is set, raw visits and transactions older than that many
+ * days are compacted away by {@link #compactExpired(Instant)}, along with the
+ * hourly rollups of those days. Only the daily rollups are kept forever.
+ * Compacting removes many states at once, so it is left to a maintenance task
+ * on the clock rather than done by whichever command records activity
+ *
+ * @see Library#getRollups()
+ */
+public class Rollups {
+
+    private final DataSource storage;
+    private final int retentionDays;
+    //the latest rollup of each period, which nearly every event falls within
+    private final Map<Rollup.Period, Rollup> current = new EnumMap<>(Rollup.Period.class);
+    private Instant compactedBefore; //raw rows and hourly rollups before this are gone, null if none are
+
+    /**
+     * Loads the rollups of a library, or builds them from every visit and
+     * transaction if there are none yet
+     *
+     * @param storage The {@link DataSource} holding the library
+     * @param retentionDays The number of days raw rows are kept for, or
+     *                      {@code 0} to keep them forever
+     */
+    public Rollups(DataSource storage, int retentionDays) {
+        this.storage = storage;
+        this.retentionDays = retentionDays;
+        Rollup firstHour = storage.query(Rollup.class)
+                .isEqual(Rollup.Field.PERIOD, Rollup.Period.HOUR.getName())
+                .orderBy(Rollup.Field.START, Query.Direction.ASCENDING)
+                .limit(1)
+                .results().findFirst().orElse(null);
+        if (firstHour == null) {
+            this.backfill();
+        } else if (retentionDays > 0) {
+            //nothing from before the first hour is left to compact
+            this.compactedBefore = firstHour.getStart();
+        }
+    }
+
+    /**
+     * Records a visit which has ended, within the period it began in
+     *
+     * @param visit The {@link Visit} to record
+     */
+    public synchronized void recordVisit(Visit visit) {
+        long seconds = Duration.between(visit.getStart(), visit.getEnd()).getSeconds();
+        this.record(visit.getStart(), r -> {
+            Rollup.Field.VISITS.mutate(r, n -> n + 1);
+            Rollup.Field.VISIT_SECONDS.mutate(r, n -> n + seconds);
+        });
+    }
+
+    /**
+     * Records a transaction, if it is one which is rolled up
+     *
+     * @param transaction The {@link Transaction} to record
+     */
+    public synchronized void recordTransaction(Transaction transaction) {
+        String reason = transaction.getReason();
+        BigDecimal amount = transaction.getAmount().abs();
+        if (Transaction.Reason.CHARGING_LATE_FEE.getReason().equals(reason)) {
+            this.record(transaction.getTime(), r -> {
+                Rollup.Field.FINES_CHARGED.mutate(r, n -> n + 1);
+                Rollup.Field.FINES_CHARGED_AMOUNT.mutate(r, amount::add);
+            });
+        } else if (Transaction.Reason.PAYING_LATE_FEE.getReason().equals(reason)) {
+            this.record(transaction.getTime(), r -> {
+                Rollup.Field.FINES_PAID.mutate(r, n -> n + 1);
+                Rollup.Field.FINES_PAID_AMOUNT.mutate(r, amount::add);
+            });
+        }
+    }
+
+    /**
+     * Records copies of a book being purchased for the library
+     *
+     * @param at The time of the purchase
+     * @param copies The number of copies purchased
+     */
+    public synchronized void recordPurchase(Instant at, int copies) {
+        this.record(at, r -> Rollup.Field.BOOKS_PURCHASED.mutate(r, n -> n + copies));
+    }
+
+    /**
+     * Summarizes the library's activity since a point in time. Visits and
+     * transactions in the hour {@code since} falls within are counted from
+     * their raw rows, while purchases, which leave none, are counted for
+     * that entire hour. If the raw rows have been compacted away, everything
+     * is counted for the entire day {@code since} falls within instead
+     *
+     * @param since The earliest activity to include, or {@code null} for all
+     * @return A new {@link Summary} of the activity
+     */
+    public synchronized Summary summarize(Instant since) {
+        Summary back = new Summary();
+        if (since == null) {
+            this.rollups(Rollup.Period.DAY, null, null).forEach(back::add);
+            return back;
+        }
+        if (this.compactedBefore != null && since.isBefore(this.compactedBefore)) {
+            this.rollups(Rollup.Period.DAY, Rollup.Period.DAY.truncate(since), null).forEach(back::add);
+            return back;
+        }
+        Instant hour = Rollup.Period.HOUR.ceil(since);
+        Instant day = Rollup.Period.DAY.ceil(since);
+        if (!hour.equals(since)) {
+            this.storage.query(Visit.class)
+                    .isGreaterThanOrEq(Visit.Field.START, since)
+                    .isLessThan(Visit.Field.START, hour)
+                    .results().forEach(back::add);
+            this.storage.query(Transaction.class)
+                    .isGreaterThanOrEq(Transaction.Field.AT, since)
+                    .isLessThan(Transaction.Field.AT, hour)
+                    .results().forEach(back::add);
+            this.rollups(Rollup.Period.HOUR, Rollup.Period.HOUR.truncate(since), hour)
+                    .forEach(r -> back.booksPurchased += r.getBooksPurchased());
+        }
+        if (hour.isBefore(day)) {
+            this.rollups(Rollup.Period.HOUR, hour, day).forEach(back::add);
+        }
+        this.rollups(Rollup.Period.DAY, day, null).forEach(back::add);
+        return back;
+    }
+
+    /**
+     * Compacts the raw rows which have outlived the retention as of a point
+     * in time, which is everything from before the day {@code retentionDays}
+     * days before it. Does nothing if raw rows are kept forever, or were
+     * already compacted that far
+     *
+     * @param now The current time
+     * @see #compact(Instant)
+     */
+    public synchronized void compactExpired(Instant now) {
+        if (this.retentionDays <= 0) {
+            return;
+        }
+        Instant cutoff = Rollup.Period.DAY.truncate(now).minus(this.retentionDays, ChronoUnit.DAYS);
+        if (this.compactedBefore == null || cutoff.isAfter(this.compactedBefore)) {
+            this.compact(cutoff);
+        }
+    }
+
+    /**
+     * Removes every raw visit and transaction from before a point in time,
+     * along with the hourly rollups of that time. Their activity remains
+     * in the daily rollups
+     *
+     * @param cutoff The earliest point in time to keep raw rows for, which
+     *               should be the start of a day
+     */
+    public synchronized void compact(Instant cutoff) {
+        Rollups.removeAll(this.storage.query(Visit.class)
+                .isLessThan(Visit.Field.START, cutoff), this.storage, Visit.class);
+        Rollups.removeAll(this.storage.query(Transaction.class)
+                .isLessThan(Transaction.Field.AT, cutoff), this.storage, Transaction.class);
+        Rollups.removeAll(this.storage.query(Rollup.class)
+                .isEqual(Rollup.Field.PERIOD, Rollup.Period.HOUR.getName())
+                .isLessThan(Rollup.Field.START, cutoff), this.storage, Rollup.class);
+        this.current.values().removeIf(r -> r.getStart().isBefore(cutoff) && r.getPeriod() == Rollup.Period.HOUR);
+        this.compactedBefore = cutoff;
+    }
+
+    //adds to the rollup of every period the point in time falls within, holds the lock
+    private void record(Instant at, Consumer<Rollup> change) {
+        for (Rollup.Period period : Rollup.Period.values()) {
+            change.accept(this.getRollup(period, at));
+        }
+    }
+
+    private Rollup getRollup(Rollup.Period period, Instant at) {
+        Instant start = period.truncate(at);
+        Rollup back = this.current.get(period);
+        if (back != null && back.getStart().equals(start)) {
+            return back;
+        }
+        back = this.storage.query(Rollup.class)
+                .isEqual(Rollup.Field.PERIOD, period.getName())
+                .isEqual(Rollup.Field.START, start)
+                .results().findFirst()
+                .orElseGet(() -> Rollup.create(period, start).build(this.storage));
+        if (this.current.get(period) == null || !back.getStart().isBefore(this.current.get(period).getStart())) {
+            this.current.put(period, back); //late events for older periods don't displace the latest
+        }
+        return back;
+    }
+
+    //the rollups of a period starting within [from, to), where null is unbounded
+    private List<Rollup> rollups(Rollup.Period period, Instant from, Instant to) {
+        Query<Rollup> query = this.storage.query(Rollup.class)
+                .isEqual(Rollup.Field.PERIOD, period.getName());
+        if (from != null) {
+            query.isGreaterThanOrEq(Rollup.Field.START, from);
+        }
+        if (to != null) {
+            query.isLessThan(Rollup.Field.START, to);
+        }
+        return query.results().collect(Collectors.toList());
+    }
+
+    //rolls up everything recorded before rollups were kept
+    private void backfill() {
+        this.storage.query(Visit.class).results()
+                .collect(Collectors.toList())
+                .forEach(this::recordVisit);
+        this.storage.query(Transaction.class).results()
+                .collect(Collectors.toList())
+                .forEach(this::recordTransaction);
+    }
+
+    //results are collected first, as removing them changes what is being queried
+    private static <T extends State> void removeAll(Query<T> query, DataSource storage, Class<T> type) {
+        StateStorage<T> states = storage.getRelativeStorage().getStateStorage(type);
+        query.results().collect(Collectors.toList()).forEach(states::remove);
+    }
+
+    /**
+     * The library's activity over a span of time, summed from its rollups
+     */
+    public static final class Summary {
+
+        private long visits;
+        private long visitSeconds;
+        private long finesCharged;
+        private BigDecimal finesChargedAmount = BigDecimal.ZERO;
+        private long finesPaid;
+        private BigDecimal finesPaidAmount = BigDecimal.ZERO;
+        private long booksPurchased;
+
+        private Summary() {}
+
+        private void add(Rollup rollup) {
+            this.visits += rollup.getVisits();
+            this.visitSeconds += rollup.getVisitSeconds();
+            this.finesCharged += rollup.getFinesCharged();
+            this.finesChargedAmount = this.finesChargedAmount.add(rollup.getFinesChargedAmount());
+            this.finesPaid += rollup.getFinesPaid();
+            this.finesPaidAmount = this.finesPaidAmount.add(rollup.getFinesPaidAmount());
+            this.booksPurchased += rollup.getBooksPurchased();
+        }
+
+        private void add(Visit visit) {
+            this.visits++;
+            this.visitSeconds += Duration.between(visit.getStart(), visit.getEnd()).getSeconds();
+        }
+
+        private void add(Transaction transaction) {
+            String reason = transaction.getReason();
+            if (Transaction.Reason.CHARGING_LATE_FEE.getReason().equals(reason)) {
+                this.finesCharged++;
+                this.finesChargedAmount = this.finesChargedAmount.add(transaction.getAmount().abs());
+            } else if (Transaction.Reason.PAYING_LATE_FEE.getReason().equals(reason)) {
+                this.finesPaid++;
+                this.finesPaidAmount = this.finesPaidAmount.add(transaction.getAmount().abs());
+            }
+        }
+
+        /**
+         * gets the number of visits
+         * @return number of visits
+         */
+        public long getVisits() {
+            return this.visits;
+        }
+
+        /**
+         * gets the total length of every visit
+         * @return total visit length in seconds
+         */
+        public long getVisitSeconds() {
+            return this.visitSeconds;
+        }
+
+        /**
+         * gets the average length of a visit
+         * @return average visit length in seconds, or empty if there were none
+         */
+        public OptionalDouble getAverageVisitSeconds() {
+            return this.visits == 0 ? OptionalDouble.empty() : OptionalDouble.of((double) this.visitSeconds / this.visits);
+        }
+
+        /**
+         * gets the number of late fees charged
+         * @return number of fines charged
+         */
+        public long getFinesCharged() {
+            return this.finesCharged;
+        }
+
+        /**
+         * gets the total amount of the late fees charged
+         * @return the amount charged
+         */
+        public BigDecimal getFinesChargedAmount() {
+            return this.finesChargedAmount;
+        }
+
+        /**
+         * gets the number of late fees paid
+         * @return number of fines paid
+         */
+        public long getFinesPaid() {
+            return this.finesPaid;
+        }
+
+        /**
+         * gets the total amount of the late fees paid
+         * @return the amount paid
+         */
+        public BigDecimal getFinesPaidAmount() {
+            return this.finesPaidAmount;
+        }
+
+        /**
+         * gets the number of book copies purchased
+         * @return number of copies purchased
+         */
+        public long getBooksPurchased() {
+            return this.booksPurchased;
+        }
+    }
+}
@@ -2,19 +2,22 @@ package edu.rit.codelanx.data.state.types;
 
 import edu.rit.codelanx.data.state.State;
 import edu.rit.codelanx.LBMS;
+import edu.rit.codelanx.data.field.DataField;
 
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 public enum StateType implements State.Type {
 
-    BOOK(Book.class, Book::new, Book::new, Book::new),
-    CHECKOUT(Checkout.class, Checkout::new, Checkout::new, Checkout::new),
-    LIBRARY(Library.class, Library::new, Library::new, Library::new),
-    TRANSACTION(Transaction.class, Transaction::new, Transaction::new, Transaction::new),
-    VISIT(Visit.class, Visit::new, Visit::new, Visit::new),
-    VISITOR(Visitor.class, Visitor::new, Visitor::new, Visitor::new),
-    AUTHOR(Author.class, Author::new, Author::new, Author::new),
-    AUTHOR_LISTING(AuthorListing.class, AuthorListing::new, AuthorListing::new, AuthorListing::new),
+    BOOK(Book.class, Book::new, Book::new, Book::new, Book.Field::values),
+    CHECKOUT(Checkout.class, Checkout::new, Checkout::new, Checkout::new, Checkout.Field::values),
+    LIBRARY(Library.class, Library::new, Library::new, Library::new, Library.Field::values),
+    TRANSACTION(Transaction.class, Transaction::new, Transaction::new, Transaction::new, Transaction.Field::values),
+    VISIT(Visit.class, Visit::new, Visit::new, Visit::new, Visit.Field::values),
+    VISITOR(Visitor.class, Visitor::new, Visitor::new, Visitor::new, Visitor.Field::values),
+    AUTHOR(Author.class, Author::new, Author::new, Author::new, Author.Field::values),
+    AUTHOR_LISTING(AuthorListing.class, AuthorListing::new, AuthorListing::new, AuthorListing::new, AuthorListing.Field::values),
+    ROLLUP(Rollup.class, Rollup::new, Rollup::new, Rollup::new, Rollup.Field::values),
     //UNKNOWN is unimplemented
     ;
 
@@ -24,15 +27,18 @@ public enum StateType implements State.Type {
     private final State.StateBuildConstructor<? extends State> builderBlueprint;
     private final State.StateSQLConstructor<? extends State> sqlBuild;
     private final State.StateFileConstructor<? extends State> fileBuild;
+    private final Supplier<DataField<? super Object>[]> fields; //a supplier, fields initialize with their class
 
     private <T extends State> StateType(Class<T> type,
                  State.StateBuildConstructor<T> blueprint,
                  State.StateSQLConstructor<T> sqlBuild,
-                 State.StateFileConstructor<T> fileBuild) {
+                 State.StateFileConstructor<T> fileBuild,
+                 Supplier<DataField<? super Object>[]> fields) {
         this.type = type;
         this.builderBlueprint = blueprint;
         this.sqlBuild = sqlBuild;
         this.fileBuild = fileBuild;
+        this.fields = fields;
     }
 
     /**
@@ -42,6 +48,15 @@ public enum StateType implements State.Type {
     public void setAutoIncrementID(long value) {
         this.autoID.set(value);
     }
+    /**
+     * {@inheritDoc}
+     * @param id {@inheritDoc}
+     */
+    @Override
+    public void reserveID(long id) {
+        this.autoID.accumulateAndGet(id + 1, Math::max);
+    }
+
     /**
      * {@inheritDoc}
      * @return {@inheritDoc}
@@ -107,6 +122,15 @@ public enum StateType implements State.Type {
     public <T extends State> State.StateFileConstructor<T> getFileConstructor() {
         return (State.StateFileConstructor<T>) this.fileBuild;
     }
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public DataField<? super Object>[] getFields() {
+        return this.fields.get();
+    }
+
     public static State.Type fromClassNullable(Class<? extends State> stateType) {
         for (StateType t : VALUES) {
             if (t.type == stateType) {
@@ -10,6 +10,7 @@ import edu.rit.codelanx.data.DataSource;
 import java.math.BigDecimal;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Instant;
 import java.util.Map;
 
 @StorageContainer("transactions")
@@ -28,17 +29,19 @@ public class Transaction extends BasicState {
         public static final DataField<Visitor> VISITOR;
         public static final DataField<String> REASON;
         public static final DataField<BigDecimal> MONEY;
+        public static final DataField<Instant> AT;
         private static final DataField<? super Object>[] VALUES;
 
         public static DataField<? super Object>[] values() {
-            return new DataField[] { ID, VISITOR, MONEY };
+            return new DataField[] { ID, VISITOR, REASON, MONEY, AT };
         }
 
         static {
-            ID = DataField.makeIDField(Checkout.class);
+            ID = DataField.makeIDField(Transaction.class);
             VISITOR = DataField.buildFromState(Visitor.class, "visitor", Visitor.Field.ID, FieldIndicies.FM_IMMUTABLE, FieldIndicies.FM_KEY);
             REASON = DataField.buildSimple(String.class, "reason", FieldIndicies.FM_IMMUTABLE, FieldIndicies.FM_KEY);
             MONEY = DataField.buildSimple(BigDecimal.class, "money", FieldIndicies.FM_IMMUTABLE);
+            AT = DataField.buildSimple(Instant.class, "at", FieldIndicies.FM_IMMUTABLE, FieldIndicies.FM_ORDERED);
             VALUES = Field.values();
         }
     }
@@ -108,6 +111,14 @@ public class Transaction extends BasicState {
         return Field.REASON.get(this);
     }
 
+    /**
+     * gets the time this transaction was made
+     * @return time of type {@link Instant}
+     */
+    public Instant getTime() {
+        return Field.AT.get(this);
+    }
+
     /**
      * {@inheritDoc}
      * @return {@inheritDoc}
@@ -2,6 +2,7 @@ package edu.rit.codelanx.data.state.types;
 
 import edu.rit.codelanx.data.field.DataField;
 import edu.rit.codelanx.data.field.FieldIndicies;
+import edu.rit.codelanx.data.storage.Measure;
 import edu.rit.codelanx.data.storage.StateBuilder;
 import edu.rit.codelanx.data.state.BasicState;
 import edu.rit.codelanx.data.state.StorageContainer;
@@ -26,6 +27,9 @@ import java.util.Map;
 @StorageContainer("visits")
 public class Visit extends BasicState {
 
+    /** The length of a visit in seconds, for averaging over many visits */
+    public static final Measure DURATION = Measure.between(Field.START, Field.END);
+
     /**
      * gets the visit duration
      * @return Duration
@@ -62,9 +66,9 @@ public class Visit extends BasicState {
         }
 
         static {
-            ID = DataField.makeIDField(Checkout.class);
+            ID = DataField.makeIDField(Visit.class);
             VISITOR = DataField.buildFromState(Visitor.class, "visitor", Visitor.Field.ID, FieldIndicies.FM_IMMUTABLE, FieldIndicies.FM_KEY);
-            START = DataField.buildSimple(Instant.class, "start", FieldIndicies.FM_IMMUTABLE);
+            START = DataField.buildSimple(Instant.class, "start", FieldIndicies.FM_IMMUTABLE, FieldIndicies.FM_ORDERED);
             END = DataField.buildSimple(Instant.class, "end", FieldIndicies.FM_IMMUTABLE);
             VALUES = Field.values();
         }
@@ -47,12 +47,12 @@ public class Visitor extends BasicState {
         }
 
         static {
-            ID = DataField.makeIDField(Book.class);
+            ID = DataField.makeIDField(Visitor.class);
             FIRST = DataField.buildSimple(String.class, "first", FieldIndicies.FM_IMMUTABLE, FieldIndicies.FM_KEY, FieldIndicies.FM_COMPOSITE);
             LAST = DataField.buildSimple(String.class, "last", FieldIndicies.FM_IMMUTABLE, FieldIndicies.FM_KEY, FieldIndicies.FM_COMPOSITE);
             ADDRESS = DataField.buildSimple(String.class, "address", FieldIndicies.FM_IMMUTABLE, FieldIndicies.FM_COMPOSITE);
             PHONE = DataField.buildSimple(String.class, "phone", FieldIndicies.FM_IMMUTABLE, FieldIndicies.FM_KEY, FieldIndicies.FM_COMPOSITE);
-            REGISTRATION_DATE = DataField.buildSimple(Instant.class, "registration_date", FieldIndicies.FM_IMMUTABLE);
+            REGISTRATION_DATE = DataField.buildSimple(Instant.class, "registration_date", FieldIndicies.FM_IMMUTABLE, FieldIndicies.FM_ORDERED);
             MONEY = DataField.buildSimple(BigDecimal.class, "money");
             VALUES = Field.values();
         }
@@ -154,11 +154,15 @@ public class Visitor extends BasicState {
     public Visit endVisit(Instant endTime) {
         Instant start = this.visitStart.getAndUpdate(k -> null);
         if (start == null) return null;
-        return Visit.create()
+        //loaded first, so that building them never counts this visit twice
+        Rollups rollups = this.getLoader().getLibrary().getRollups();
+        Visit visit = Visit.create()
                 .setValue(Visit.Field.VISITOR, this)
                 .setValue(Visit.Field.START, start)
                 .setValue(Visit.Field.END, endTime)
                 .build(this.getLoader());
+        rollups.recordVisit(visit);
+        return visit;
     }
 
     /**
@@ -199,11 +203,15 @@ public class Visitor extends BasicState {
      * @return visitor's new balance
      */
     public BigDecimal updateMoney(BigDecimal amount, String reason) {
-        Transaction.create()
+        Library library = this.getLoader().getLibrary();
+        Rollups rollups = library.getRollups(); //loaded first, as in #endVisit
+        Transaction transaction = Transaction.create()
                 .setValue(Transaction.Field.VISITOR, this)
                 .setValue(Transaction.Field.MONEY, amount)
                 .setValue(Transaction.Field.REASON, reason)
+                .setValue(Transaction.Field.AT, library.getClock().getCurrentTime())
                 .build(this.getLoader());
+        rollups.recordTransaction(transaction);
         return Field.MONEY.mutate(this, amount::add);
     }
 
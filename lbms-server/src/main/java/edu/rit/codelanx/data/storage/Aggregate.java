@@ -0,0 +1,226 @@
+package edu.rit.codelanx.data.storage;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.cache.StateCounters;
+import edu.rit.codelanx.data.field.DataField;
+import edu.rit.codelanx.data.state.State;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalDouble;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A single value computed over every result of a {@link Query}, such as
+ * their number or the sum of a {@link Measure} of them. An aggregate can be
+ * computed three ways, and a {@link StorageAdapter} picks the cheapest one it
+ * can: from the results themselves, from the {@link StateCounters} kept over
+ * loaded states, or by the database
+ *
+ * @param <A> The type of the computed value
+ */
+public abstract class Aggregate<A> {
+
+    private Aggregate() {}
+
+    /**
+     * Counts the results
+     *
+     * @return An aggregate of the number of results
+     */
+    public static Aggregate<Long> count() {
+        return new Count();
+    }
+
+    /**
+     * Sums a measure of the results, skipping those with no value
+     *
+     * @param measure The {@link Measure} to sum
+     * @return An aggregate of the sum, which is zero if nothing had a value
+     */
+    public static Aggregate<BigDecimal> sum(Measure measure) {
+        return new Sum(measure);
+    }
+
+    /**
+     * Averages a measure of the results, skipping those with no value
+     *
+     * @param measure The {@link Measure} to average
+     * @return An aggregate of the average, which is empty if nothing had a
+     *         value
+     */
+    public static Aggregate<OptionalDouble> average(Measure measure) {
+        return new Average(measure);
+    }
+
+    /**
+     * Counts the results by their value of a field, skipping those with no
+     * value
+     *
+     * @param field The {@link DataField} to group by
+     * @param <E> The type of the field
+     * @return An aggregate of the number of results per value
+     */
+    public static <E> Aggregate<Map<E, Long>> countBy(DataField<E> field) {
+        return new CountBy<>(field);
+    }
+
+    //computed from the results, which is always possible
+    abstract A fromResults(Stream<? extends State> results);
+
+    //computed from the counters of states within a range of their day field
+    abstract A fromCounters(StateCounters<?> counters, Instant from, boolean fromInclusive, Instant to, boolean toInclusive);
+
+    //the expression selected from the matching rows
+    abstract String toSQL();
+
+    //the column grouped by, or null if every matching row is aggregated together
+    DataField<?> getGroup() {
+        return null;
+    }
+
+    //read back from the rows selected by #toSQL
+    abstract A fromSQL(DataSource source, ResultSet rs) throws SQLException;
+
+    private static final class Count extends Aggregate<Long> {
+
+        @Override
+        Long fromResults(Stream<? extends State> results) {
+            return results.count();
+        }
+
+        @Override
+        Long fromCounters(StateCounters<?> counters, Instant from, boolean fromInclusive, Instant to, boolean toInclusive) {
+            return counters.count(from, fromInclusive, to, toInclusive);
+        }
+
+        @Override
+        String toSQL() {
+            return "COUNT(*)";
+        }
+
+        @Override
+        Long fromSQL(DataSource source, ResultSet rs) throws SQLException {
+            return rs.next() ? rs.getLong(1) : 0L;
+        }
+    }
+
+    private static final class Sum extends Aggregate<BigDecimal> {
+
+        private final Measure measure;
+
+        private Sum(Measure measure) {
+            this.measure = measure;
+        }
+
+        @Override
+        BigDecimal fromResults(Stream<? extends State> results) {
+            return results.map(this.measure::valueOf)
+                    .filter(Objects::nonNull)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+        }
+
+        @Override
+        BigDecimal fromCounters(StateCounters<?> counters, Instant from, boolean fromInclusive, Instant to, boolean toInclusive) {
+            return counters.sum(this.measure, from, fromInclusive, to, toInclusive);
+        }
+
+        @Override
+        String toSQL() {
+            return "SUM(" + this.measure.toSQL() + ")";
+        }
+
+        @Override
+        BigDecimal fromSQL(DataSource source, ResultSet rs) throws SQLException {
+            BigDecimal back = rs.next() ? rs.getBigDecimal(1) : null;
+            return back == null ? BigDecimal.ZERO : back; //SUM of no rows is NULL
+        }
+    }
+
+    private static final class Average extends Aggregate<OptionalDouble> {
+
+        private final Measure measure;
+
+        private Average(Measure measure) {
+            this.measure = measure;
+        }
+
+        @Override
+        OptionalDouble fromResults(Stream<? extends State> results) {
+            return results.map(this.measure::valueOf)
+                    .filter(Objects::nonNull)
+                    .mapToDouble(BigDecimal::doubleValue)
+                    .average();
+        }
+
+        @Override
+        OptionalDouble fromCounters(StateCounters<?> counters, Instant from, boolean fromInclusive, Instant to, boolean toInclusive) {
+            return counters.average(this.measure, from, fromInclusive, to, toInclusive);
+        }
+
+        @Override
+        String toSQL() {
+            return "AVG(" + this.measure.toSQL() + ")";
+        }
+
+        @Override
+        OptionalDouble fromSQL(DataSource source, ResultSet rs) throws SQLException {
+            if (!rs.next()) {
+                return OptionalDouble.empty();
+            }
+            double back = rs.getDouble(1);
+            return rs.wasNull() ? OptionalDouble.empty() : OptionalDouble.of(back);
+        }
+    }
+
+    private static final class CountBy<E> extends Aggregate<Map<E, Long>> {
+
+        private final DataField<E> field;
+
+        private CountBy(DataField<E> field) {
+            this.field = field;
+        }
+
+        @Override
+        Map<E, Long> fromResults(Stream<? extends State> results) {
+            return results.map(this.field::getOrNull)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.groupingBy(Function.identity(), HashMap::new, Collectors.counting()));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked") //the counters hold the field's own values
+        Map<E, Long> fromCounters(StateCounters<?> counters, Instant from, boolean fromInclusive, Instant to, boolean toInclusive) {
+            return (Map<E, Long>) (Map<?, Long>) counters.countBy(this.field, from, fromInclusive, to, toInclusive);
+        }
+
+        @Override
+        String toSQL() {
+            return this.field.getName() + ", COUNT(*)";
+        }
+
+        @Override
+        DataField<?> getGroup() {
+            return this.field;
+        }
+
+        @Override
+        Map<E, Long> fromSQL(DataSource source, ResultSet rs) throws SQLException {
+            Map<E, Long> back = new HashMap<>();
+            while (rs.next()) {
+                Object raw = InputMapper.getObject(this.field.getType(), rs, this.field.getName());
+                if (raw != null) { //NULL is grouped too, but skipped as it is elsewhere
+                    back.put(InputMapper.toTypeOrState(source, this.field.getType(), raw), rs.getLong(2));
+                }
+            }
+            return back;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package edu.rit.codelanx.data.storage;
+
+import edu.rit.codelanx.data.state.State;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reads a binary container of states written by {@link BinaryStateWriter},
+ * handing each record's fields to the caller as it is decoded. The file is
+ * memory-mapped rather than read through a stream, so loading does not copy
+ * the container onto the heap first.
+ * <p>
+ * Records are keyed by the field names in the container's own schema, so a
+ * field added since the container was written is simply missing, and one
+ * since removed is ignored by the {@link State.Type#getFileConstructor()
+ * file constructor}, just as with json. Values are left as their schema tag
+ * describes them; converting them is left to {@link InputMapper}
+ *
+ * @see BinaryStateWriter
+ */
+class BinaryStateReader implements Closeable {
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final List<String> strings = new ArrayList<>();
+
+    /**
+     * Opens and maps a container for reading
+     *
+     * @param file The file to read from
+     * @throws IOException If the file cannot be opened or mapped
+     */
+    BinaryStateReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, this.channel.size());
+    }
+
+    /**
+     * Decodes every record in the container
+     *
+     * @param type The {@link State.Type} the container is expected to hold
+     * @param record Receives the fields of each record, in order. The map is
+     *               not reused, and may be kept
+     * @throws IOException If the container is truncated, or not a container
+     *                     of {@code type}
+     */
+    void forEach(State.Type type, Consumer<Map<String, Object>> record) throws IOException {
+        try {
+            byte[] magic = new byte[BinaryStateWriter.MAGIC.length];
+            this.buffer.get(magic);
+            if (!Arrays.equals(magic, BinaryStateWriter.MAGIC)) {
+                throw this.malformed("not a binary container");
+            }
+            long version = this.varint();
+            if (version != BinaryStateWriter.VERSION) {
+                throw this.malformed("unsupported version " + version);
+            }
+            String name = this.utf();
+            if (!name.equals(type.getConcreteType().getSimpleName())) {
+                throw this.malformed("holds " + name + ", not " + type.getConcreteType().getSimpleName());
+            }
+            long count = this.varint();
+            if (count < 0 || count > this.buffer.remaining()) {
+                throw this.malformed("bad field count " + count);
+            }
+            String[] names = new String[(int) count];
+            int[] tags = new int[names.length];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = this.utf();
+                tags[i] = this.buffer.get();
+            }
+            byte[] nulls = new byte[(names.length + 7) / 8];
+            for (long length = this.varint(); length != 0; length = this.varint()) {
+                if (length < 0 || length > this.buffer.remaining()) {
+                    throw this.malformed("bad record length " + length);
+                }
+                int end = this.buffer.position() + (int) length;
+                this.buffer.get(nulls);
+                Map<String, Object> back = new LinkedHashMap<>();
+                for (int i = 0; i < names.length; i++) {
+                    boolean isNull = (nulls[i / 8] & (1 << (i % 8))) != 0;
+                    back.put(names[i], isNull ? null : this.readValue(tags[i]));
+                }
+                if (this.buffer.position() != end) {
+                    throw this.malformed("record length mismatch");
+                }
+                record.accept(back);
+            }
+        } catch (BufferUnderflowException ex) {
+            throw this.malformed("unexpected end of file");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws IOException {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close(); //the mapping is released once unreachable
+    }
+
+    private Object readValue(int tag) throws IOException {
+        switch (tag) {
+            case BinaryStateWriter.TAG_STATE:
+            case BinaryStateWriter.TAG_LONG:
+                return BinaryStateReader.unzigzag(this.varint());
+            case BinaryStateWriter.TAG_INT:
+                return (int) BinaryStateReader.unzigzag(this.varint());
+            case BinaryStateWriter.TAG_STRING:
+                int ref = (int) this.varint();
+                if (ref != 0) {
+                    if (ref > this.strings.size()) {
+                        throw this.malformed("unknown string " + ref);
+                    }
+                    return this.strings.get(ref - 1);
+                }
+                String value = this.utf();
+                this.strings.add(value);
+                return value;
+            case BinaryStateWriter.TAG_BOOLEAN:
+                return this.buffer.get() != 0;
+            case BinaryStateWriter.TAG_DECIMAL:
+                int scale = (int) BinaryStateReader.unzigzag(this.varint());
+                return new BigDecimal(new BigInteger(this.bytes()), scale);
+            case BinaryStateWriter.TAG_INSTANT:
+                long seconds = BinaryStateReader.unzigzag(this.varint());
+                return Instant.ofEpochSecond(seconds, this.varint());
+            case BinaryStateWriter.TAG_DOUBLE:
+                long bits = 0;
+                for (int i = 0; i < 8; i++) {
+                    bits |= (this.buffer.get() & 0xFFL) << (8 * i);
+                }
+                return Double.longBitsToDouble(bits);
+            default:
+                throw this.malformed("unknown value tag " + tag);
+        }
+    }
+
+    private long varint() throws IOException {
+        long back = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = this.buffer.get();
+            back |= (b & 0x7FL) << shift;
+            if ((b & 0x80) == 0) {
+                return back;
+            }
+        }
+        throw this.malformed("varint too long");
+    }
+
+    private String utf() throws IOException {
+        return new String(this.bytes(), StandardCharsets.UTF_8);
+    }
+
+    //a length-prefixed run of bytes
+    private byte[] bytes() throws IOException {
+        long length = this.varint();
+        if (length < 0 || length > this.buffer.remaining()) {
+            throw this.malformed("bad length " + length);
+        }
+        byte[] back = new byte[(int) length];
+        this.buffer.get(back);
+        return back;
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private IOException malformed(String reason) {
+        return new MalformedContainerException("Bad binary container (" + reason + ") at byte " + this.buffer.position());
+    }
+}
@@ -0,0 +1,234 @@
+package edu.rit.codelanx.data.storage;
+
+import edu.rit.codelanx.data.field.DataField;
+import edu.rit.codelanx.data.state.State;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes a binary container of states one at a time. A container is laid out
+ * as:
+ * <pre>
+ * "LBMS" version:varint type:string fieldCount:varint (name:string tag:byte)*
+ * (length:varint nulls:byte[(fieldCount + 7) / 8] value*)* 0
+ * </pre>
+ * where the schema is taken from {@link State.Type#getFields()}, so that
+ * records need only carry their values. Integral values and state ids are
+ * zig-zag varints, instants are epoch-second varints (with a trailing
+ * nanosecond varint, zero for every instant LBMS makes), and strings are
+ * deduplicated: each is either {@code 0} followed by its length and UTF-8
+ * bytes, or {@code n} for the n-th distinct string in the container
+ *
+ * @see BinaryStateReader
+ */
+class BinaryStateWriter implements Closeable {
+
+    static final byte[] MAGIC = {'L', 'B', 'M', 'S'};
+    static final int VERSION = 1;
+    //value tags, as written in the schema
+    static final int TAG_LONG = 1;
+    static final int TAG_INT = 2;
+    static final int TAG_STRING = 3;
+    static final int TAG_BOOLEAN = 4;
+    static final int TAG_DECIMAL = 5;
+    static final int TAG_INSTANT = 6;
+    static final int TAG_DOUBLE = 7;
+    static final int TAG_STATE = 8;
+
+    private final OutputStream out;
+    private final DataField<? super Object>[] fields;
+    private final int[] tags;
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final Record record = new Record();
+
+    /**
+     * Begins writing a new container, replacing any existing file
+     *
+     * @param file The file to write to
+     * @param type The {@link State.Type} of every state to be written
+     * @throws IOException If the file cannot be opened
+     */
+    BinaryStateWriter(Path file, State.Type type) throws IOException {
+        this.fields = type.getFields();
+        this.tags = new int[this.fields.length];
+        for (int i = 0; i < this.fields.length; i++) {
+            this.tags[i] = BinaryStateWriter.tagOf(this.fields[i].getType());
+        }
+        this.out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16);
+        this.out.write(MAGIC);
+        this.record.varint(VERSION);
+        this.record.utf(type.getConcreteType().getSimpleName());
+        this.record.varint(this.fields.length);
+        for (int i = 0; i < this.fields.length; i++) {
+            this.record.utf(this.fields[i].getName());
+            this.record.write(this.tags[i]);
+        }
+        this.record.writeTo(this.out);
+    }
+
+    /**
+     * Appends a single state to the container
+     *
+     * @param state The {@link State} to write
+     * @throws IOException If the state cannot be written
+     */
+    void write(State state) throws IOException {
+        Object[] values = new Object[this.fields.length];
+        for (int i = 0; i < this.fields.length; i++) {
+            values[i] = this.fields[i].serialize(state);
+        }
+        this.write(values);
+    }
+
+    /**
+     * Appends a single state to the container, from values it was
+     * serialized to earlier
+     *
+     * @param serialized The {@link State#serialize()} map of the state
+     * @throws IOException If the state cannot be written
+     */
+    void write(Map<String, Object> serialized) throws IOException {
+        Object[] values = new Object[this.fields.length];
+        for (int i = 0; i < this.fields.length; i++) {
+            values[i] = serialized.get(this.fields[i].getName());
+        }
+        this.write(values);
+    }
+
+    //values are in schema order, null where absent
+    private void write(Object[] values) throws IOException {
+        this.record.reset();
+        byte[] nulls = new byte[(this.fields.length + 7) / 8];
+        for (int i = 0; i < this.fields.length; i++) {
+            if (values[i] == null) {
+                nulls[i / 8] |= 1 << (i % 8);
+            }
+        }
+        this.record.write(nulls, 0, nulls.length);
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                this.writeValue(this.tags[i], values[i]);
+            }
+        }
+        Record.varint(this.out, this.record.size());
+        this.record.writeTo(this.out);
+    }
+
+    /**
+     * Writes the end marker, and flushes the container to disk
+     *
+     * @throws IOException {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            this.out.write(0); //no record is empty, as it has a null bitmap
+        } finally {
+            this.out.close();
+        }
+    }
+
+    //the tag a field's values are written with
+    static int tagOf(Class<?> type) {
+        if (State.class.isAssignableFrom(type)) {
+            return TAG_STATE; //serialized as the id
+        } else if (type == Long.class) {
+            return TAG_LONG;
+        } else if (type == Integer.class) {
+            return TAG_INT;
+        } else if (type == String.class) {
+            return TAG_STRING;
+        } else if (type == Boolean.class) {
+            return TAG_BOOLEAN;
+        } else if (type == BigDecimal.class) {
+            return TAG_DECIMAL;
+        } else if (type == Instant.class) {
+            return TAG_INSTANT;
+        } else if (type == Double.class) {
+            return TAG_DOUBLE;
+        }
+        throw new IllegalArgumentException("Cannot write fields of type " + type.getName());
+    }
+
+    private void writeValue(int tag, Object value) {
+        switch (tag) {
+            case TAG_STATE:
+            case TAG_LONG:
+            case TAG_INT:
+                this.record.varint(zigzag(((Number) value).longValue()));
+                break;
+            case TAG_STRING:
+                Integer ref = this.strings.get(value);
+                if (ref != null) {
+                    this.record.varint(ref);
+                    break;
+                }
+                this.strings.put((String) value, this.strings.size() + 1);
+                this.record.varint(0);
+                this.record.utf((String) value);
+                break;
+            case TAG_BOOLEAN:
+                this.record.write((Boolean) value ? 1 : 0);
+                break;
+            case TAG_DECIMAL:
+                BigDecimal dec = (BigDecimal) value;
+                byte[] unscaled = dec.unscaledValue().toByteArray();
+                this.record.varint(zigzag(dec.scale()));
+                this.record.varint(unscaled.length);
+                this.record.write(unscaled, 0, unscaled.length);
+                break;
+            case TAG_INSTANT:
+                Instant at = InputMapper.toInstant(value);
+                this.record.varint(zigzag(at.getEpochSecond()));
+                this.record.varint(at.getNano());
+                break;
+            case TAG_DOUBLE:
+                long bits = Double.doubleToLongBits(((Number) value).doubleValue());
+                for (int i = 0; i < 8; i++) {
+                    this.record.write((int) (bits >>> (8 * i)));
+                }
+                break;
+        }
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    //a reusable record buffer, so each record can be length-prefixed
+    private static class Record extends ByteArrayOutputStream {
+
+        private void varint(long value) {
+            try {
+                Record.varint(this, value);
+            } catch (IOException ex) {
+                throw new AssertionError(ex); //never thrown by ByteArrayOutputStream
+            }
+        }
+
+        private static void varint(OutputStream out, long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        private void utf(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            this.varint(bytes.length);
+            this.write(bytes, 0, bytes.length);
+        }
+    }
+}
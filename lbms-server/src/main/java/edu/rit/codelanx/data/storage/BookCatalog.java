@@ -0,0 +1,742 @@
+package edu.rit.codelanx.data.storage;
+
+import edu.rit.codelanx.util.BookParser;
+import edu.rit.codelanx.util.Errors;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * An immutable, memory-mapped index of a book store catalog. The catalog is
+ * compiled once into fixed-width book, author and listing records, sorted
+ * lookup tables for titles, isbns, publishers and author names, a sorted
+ * dictionary of the {@link TextQuery#tokenize terms} within titles,
+ * publishers and author names along with the rows holding each, and a pool
+ * of the (deduplicated) strings they point to. Opening an index only maps
+ * the file, so the cost of starting up no longer grows with the catalog;
+ * rows are decoded only when they are asked for.
+ * <p>
+ * Ids are assigned in catalog order starting from 1, just as they were when
+ * the catalog was parsed into states on every start: book {@code n} is the
+ * {@code n}th line, and authors and listings are numbered by first
+ * appearance. The index records the size and modification time of the
+ * catalog it was compiled from, and is recompiled by {@link #open} whenever
+ * they no longer match. An index may also be compiled ahead of time with
+ * {@code java -cp lbms-server.jar edu.rit.codelanx.data.storage.BookCatalog <catalog> <index>}
+ * <p>
+ * Positions within the index are {@code long}, and the file is mapped in
+ * segments of at most {@link #SEGMENT_BYTES}, so an index is not limited to
+ * the 2 GB a single mapping can hold. Strings are referred to by their
+ * {@code long} offset within the pool, or {@code -1} for {@code null}
+ *
+ * @see BookStoreAdapter
+ */
+public class BookCatalog {
+
+    static final int SEGMENT_BYTES = 1 << 30;
+    private static final int MAGIC = 0x4C424D43; //LBMC
+    private static final int VERSION = 3;
+    private static final int HEADER_BYTES = 40;
+    //[isbn:long][title:long][publisher:long][pages][published:long][first listing][listings]
+    private static final int BOOK_BYTES = 44;
+    //[name:long][first in by-author][listings]
+    private static final int AUTHOR_BYTES = 16;
+    //[author row][book row], ordered by book
+    private static final int LISTING_BYTES = 8;
+    //[term:long][first][count] for the rows of each TextIndex.Source, in order
+    private static final int TERM_BYTES = 8 + TextIndex.Source.values().length * 8;
+
+    private final Mapping buffer;
+    private final int books;
+    private final int authors;
+    private final int listings;
+    private final int terms;
+    private final long bookStart;
+    private final long authorStart;
+    private final long listingStart;
+    private final long byAuthorStart;
+    private final long titleStart;
+    private final long isbnStart;
+    private final long publisherStart;
+    private final long nameStart;
+    private final long termStart;
+    private final long postingStart;
+    private final long poolStart;
+
+    private BookCatalog(Mapping buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.size() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new MalformedContainerException("Not a book catalog index");
+        }
+        this.books = buffer.getInt(24);
+        this.authors = buffer.getInt(28);
+        this.listings = buffer.getInt(32);
+        this.terms = buffer.getInt(36);
+        if (this.books < 0 || this.authors < 0 || this.listings < 0 || this.terms < 0) {
+            throw new MalformedContainerException("Not a book catalog index");
+        }
+        this.bookStart = HEADER_BYTES;
+        this.authorStart = this.bookStart + (long) this.books * BOOK_BYTES;
+        this.listingStart = this.authorStart + (long) this.authors * AUTHOR_BYTES;
+        this.byAuthorStart = this.listingStart + (long) this.listings * LISTING_BYTES;
+        this.titleStart = this.byAuthorStart + this.listings * 4L;
+        this.isbnStart = this.titleStart + this.books * 4L;
+        this.publisherStart = this.isbnStart + this.books * 4L;
+        this.nameStart = this.publisherStart + this.books * 4L;
+        this.termStart = this.nameStart + this.authors * 4L;
+        long postingCount = this.termStart + (long) this.terms * TERM_BYTES;
+        if (postingCount + 4 > buffer.size()) {
+            throw new MalformedContainerException("Truncated book catalog index");
+        }
+        this.postingStart = postingCount + 4;
+        this.poolStart = this.postingStart + (buffer.getInt(postingCount) & 0xFFFFFFFFL) * 4;
+        if (this.poolStart > buffer.size()) {
+            throw new MalformedContainerException("Truncated book catalog index");
+        }
+    }
+
+    /**
+     * Maps the index for a catalog, compiling it first if it is missing or
+     * was compiled from a different version of the catalog
+     *
+     * @param index The index file
+     * @param catalog The catalog, in the format of books.txt
+     * @return The opened {@link BookCatalog}
+     * @throws IOException If the catalog could not be read, or the index
+     *                     could not be written or mapped
+     */
+    public static BookCatalog open(File index, URL catalog) throws IOException {
+        URLConnection conn = catalog.openConnection();
+        long length = conn.getContentLengthLong();
+        long modified = conn.getLastModified();
+        if (index.exists()) {
+            try {
+                BookCatalog back = BookCatalog.map(index);
+                if (back.buffer.getLong(8) == length && back.buffer.getLong(16) == modified) {
+                    return back;
+                }
+            } catch (MalformedContainerException ex) {
+                Errors.report(ex); //recompiled below
+            }
+        }
+        File parent = index.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        File next = new File(index.getPath() + ".tmp");
+        try (InputStream in = conn.getInputStream()) {
+            BookCatalog.compile(in, length, modified, next);
+        }
+        Files.move(next.toPath(), index.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return BookCatalog.map(index);
+    }
+
+    private static BookCatalog map(File index) throws IOException {
+        return BookCatalog.map(index, SEGMENT_BYTES);
+    }
+
+    /**
+     * Maps a compiled index
+     *
+     * @param index The index file
+     * @param segmentBytes The most bytes to map at once
+     * @return The opened {@link BookCatalog}
+     * @throws IOException If the index could not be mapped, or
+     *                     {@link MalformedContainerException} if it is not
+     *                     an index
+     */
+    static BookCatalog map(File index, int segmentBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(index.toPath(), StandardOpenOption.READ)) {
+            //the mapping outlives the channel
+            return new BookCatalog(new Mapping(channel, segmentBytes));
+        }
+    }
+
+    /**
+     * Gets the number of books within the catalog, which are given the ids
+     * {@code 1} through {@code getBookCount()}
+     *
+     * @return The number of books
+     */
+    public int getBookCount() {
+        return this.books;
+    }
+
+    /**
+     * Gets the number of distinct authors within the catalog
+     *
+     * @return The number of authors
+     */
+    public int getAuthorCount() {
+        return this.authors;
+    }
+
+    /**
+     * Gets the number of author listings within the catalog
+     *
+     * @return The number of listings
+     */
+    public int getListingCount() {
+        return this.listings;
+    }
+
+    /**
+     * Decodes a book's isbn
+     *
+     * @param row The zero-based row of the book, one less than its id
+     * @return The isbn
+     */
+    public String getISBN(int row) {
+        return this.string(this.buffer.getLong(this.book(row)));
+    }
+
+    /**
+     * Decodes a book's title
+     *
+     * @param row The zero-based row of the book
+     * @return The title
+     */
+    public String getTitle(int row) {
+        return this.string(this.buffer.getLong(this.book(row) + 8));
+    }
+
+    /**
+     * Decodes a book's publisher
+     *
+     * @param row The zero-based row of the book
+     * @return The publisher
+     */
+    public String getPublisher(int row) {
+        return this.string(this.buffer.getLong(this.book(row) + 16));
+    }
+
+    /**
+     * Gets a book's page count
+     *
+     * @param row The zero-based row of the book
+     * @return The number of pages
+     */
+    public int getPageCount(int row) {
+        return this.buffer.getInt(this.book(row) + 24);
+    }
+
+    /**
+     * Gets when a book was published
+     *
+     * @param row The zero-based row of the book
+     * @return The publish date, in epoch seconds
+     */
+    public long getPublishDate(int row) {
+        return this.buffer.getLong(this.book(row) + 28);
+    }
+
+    /**
+     * Decodes an author's name
+     *
+     * @param row The zero-based row of the author, one less than its id
+     * @return The name
+     */
+    public String getAuthorName(int row) {
+        return this.string(this.buffer.getLong(this.author(row)));
+    }
+
+    /**
+     * Gets the author of a listing
+     *
+     * @param row The zero-based row of the listing, one less than its id
+     * @return The row of the listed author
+     */
+    public int getListingAuthor(int row) {
+        return this.buffer.getInt(this.listingStart + (long) row * LISTING_BYTES);
+    }
+
+    /**
+     * Gets the book of a listing
+     *
+     * @param row The zero-based row of the listing
+     * @return The row of the listed book
+     */
+    public int getListingBook(int row) {
+        return this.buffer.getInt(this.listingStart + (long) row * LISTING_BYTES + 4);
+    }
+
+    /**
+     * Finds the listings of a single book, which are stored contiguously
+     *
+     * @param book The zero-based row of the book
+     * @return The rows of the book's listings
+     */
+    public IntStream findListingsByBook(int book) {
+        long at = this.book(book) + 36;
+        int first = this.buffer.getInt(at);
+        return IntStream.range(first, first + this.buffer.getInt(at + 4));
+    }
+
+    /**
+     * Finds the listings of a single author
+     *
+     * @param author The zero-based row of the author
+     * @return The rows of the author's listings, in order
+     */
+    public IntStream findListingsByAuthor(int author) {
+        long at = this.author(author) + 8;
+        int first = this.buffer.getInt(at);
+        return IntStream.range(first, first + this.buffer.getInt(at + 4))
+                .map(i -> this.buffer.getInt(this.byAuthorStart + i * 4L));
+    }
+
+    /**
+     * Finds every book with exactly the given title
+     *
+     * @param title The title to search for
+     * @return The rows of the matching books, in order
+     */
+    public IntStream findBooksByTitle(String title) {
+        return this.find(this.titleStart, this.books, title, row -> this.book(row) + 8);
+    }
+
+    /**
+     * Finds every book with the given isbn
+     *
+     * @param isbn The isbn to search for
+     * @return The rows of the matching books, in order
+     */
+    public IntStream findBooksByISBN(String isbn) {
+        return this.find(this.isbnStart, this.books, isbn, this::book);
+    }
+
+    /**
+     * Finds every book from the given publisher
+     *
+     * @param publisher The publisher to search for
+     * @return The rows of the matching books, in order
+     */
+    public IntStream findBooksByPublisher(String publisher) {
+        return this.find(this.publisherStart, this.books, publisher, row -> this.book(row) + 16);
+    }
+
+    /**
+     * Finds the author with the given name
+     *
+     * @param name The name to search for
+     * @return The row of the matching author, if any
+     */
+    public IntStream findAuthorsByName(String name) {
+        return this.find(this.nameStart, this.authors, name, this::author);
+    }
+
+    /**
+     * Finds the rows whose text holds a term, as {@link TextQuery#tokenize}
+     * breaks it up. A book's title and publisher find its own row, while an
+     * author's name finds the author's row
+     *
+     * @param source The {@link TextIndex.Source} to search
+     * @param term The term to search for
+     * @param prefix {@code true} to also find every term starting with it
+     * @return The rows holding the term, ascending for a single term and
+     *         possibly repeated for a prefix
+     */
+    public IntStream findByTerm(TextIndex.Source source, String term, boolean prefix) {
+        byte[] key = term.getBytes(StandardCharsets.UTF_8);
+        int low = 0, high = this.terms; //first term not below key
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.compare(this.buffer.getLong(this.term(mid)), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int end = low;
+        while (end < this.terms && (prefix
+                ? this.startsWith(this.buffer.getLong(this.term(end)), key)
+                : this.compare(this.buffer.getLong(this.term(end)), key) == 0)) {
+            end++;
+        }
+        int column = 8 + source.ordinal() * 8;
+        return IntStream.range(low, end).flatMap(i -> {
+            long at = this.term(i) + column;
+            int first = this.buffer.getInt(at);
+            return IntStream.range(first, first + this.buffer.getInt(at + 4))
+                    .map(p -> this.buffer.getInt(this.postingStart + p * 4L));
+        });
+    }
+
+    private long book(int row) {
+        return this.bookStart + (long) row * BOOK_BYTES;
+    }
+
+    private long author(int row) {
+        return this.authorStart + (long) row * AUTHOR_BYTES;
+    }
+
+    private long term(int row) {
+        return this.termStart + (long) row * TERM_BYTES;
+    }
+
+    //binary searches a lookup table for the rows whose string equals key
+    private IntStream find(long table, int size, String key, IntToLongFunction refAt) {
+        if (key == null) {
+            return IntStream.empty();
+        }
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        IntUnaryOperator compare = i -> this.compare(this.buffer.getLong(refAt.applyAsLong(this.buffer.getInt(table + i * 4L))), bytes);
+        int low = 0, high = size; //first row not below key
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare.applyAsInt(mid) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int end = low;
+        while (end < size && compare.applyAsInt(end) == 0) {
+            end++;
+        }
+        return IntStream.range(low, end).map(i -> this.buffer.getInt(table + i * 4L));
+    }
+
+    private String string(long ref) {
+        if (ref < 0) {
+            return null;
+        }
+        long at = this.poolStart + ref;
+        byte[] bytes = new byte[this.buffer.getInt(at)];
+        this.buffer.get(at + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    //compares a pooled string to key, in the order the tables are sorted by
+    private int compare(long ref, byte[] key) {
+        if (ref < 0) {
+            return -1; //null sorts first, and never equals a key
+        }
+        long at = this.poolStart + ref;
+        int length = this.buffer.getInt(at);
+        for (int i = 0; i < length && i < key.length; i++) {
+            int diff = (this.buffer.get(at + 4 + i) & 0xFF) - (key[i] & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - key.length;
+    }
+
+    //whether a pooled string starts with key
+    private boolean startsWith(long ref, byte[] key) {
+        if (ref < 0) {
+            return false;
+        }
+        long at = this.poolStart + ref;
+        if (this.buffer.getInt(at) < key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (this.buffer.get(at + 4 + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compiles a catalog into an index file
+     *
+     * @param catalog The catalog, in the format of books.txt. It is not closed
+     * @param length The length of the catalog, recorded to detect changes
+     * @param modified When the catalog was modified, recorded to detect changes
+     * @param index The file to write the index to
+     * @throws IOException If the catalog could not be read or the index written
+     */
+    static void compile(InputStream catalog, long length, long modified, File index) throws IOException {
+        Pool pool = new Pool();
+        List<long[]> books = new ArrayList<>(); //isbn, title, publisher, pages, published
+        Map<String, Integer> authorRows = new LinkedHashMap<>();
+        List<int[]> listings = new ArrayList<>(); //author row, book row
+        Map<String, Postings[]> terms = new HashMap<>();
+        BookParser.parseChunks(catalog, chunk -> {
+            for (BookParser.Entry entry : chunk) {
+                int row = books.size();
+                BookCatalog.addTerms(terms, TextIndex.Source.TITLE, entry.getTitle(), row);
+                BookCatalog.addTerms(terms, TextIndex.Source.PUBLISHER, entry.getPublisher(), row);
+                books.add(new long[] {
+                        pool.intern(entry.getISBN()), pool.intern(entry.getTitle()),
+                        pool.intern(entry.getPublisher()), entry.getPageCount(),
+                        entry.getPublishDate().getEpochSecond(),
+                });
+                for (String author : entry.getAuthors()) {
+                    int authorRow = authorRows.computeIfAbsent(author, k -> {
+                        BookCatalog.addTerms(terms, TextIndex.Source.AUTHOR, k, authorRows.size());
+                        return authorRows.size();
+                    });
+                    listings.add(new int[] {authorRow, row});
+                }
+            }
+        });
+        long[] authorNames = authorRows.keySet().stream().mapToLong(pool::intern).toArray();
+        String[] termOrder = terms.keySet().toArray(new String[0]);
+        long[] termNames = Arrays.stream(termOrder).mapToLong(pool::intern).toArray();
+        Integer[] byTerm = BookCatalog.rows(termOrder.length);
+        Arrays.sort(byTerm, (one, two) -> Pool.compare(pool.bytes(termNames[one]), pool.bytes(termNames[two])));
+        //listings are already grouped by book, and need grouping by author
+        Integer[] byAuthor = BookCatalog.rows(listings.size());
+        Arrays.sort(byAuthor, Comparator.comparingInt(i -> listings.get(i)[0]));
+        int[] authorFirst = new int[authorNames.length];
+        int[] authorCount = new int[authorNames.length];
+        for (int i = byAuthor.length - 1; i >= 0; i--) {
+            int author = listings.get(byAuthor[i])[0];
+            authorFirst[author] = i;
+            authorCount[author]++;
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(index.toPath()), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(length);
+            out.writeLong(modified);
+            out.writeInt(books.size());
+            out.writeInt(authorNames.length);
+            out.writeInt(listings.size());
+            out.writeInt(termOrder.length);
+            int listing = 0;
+            for (int row = 0; row < books.size(); row++) {
+                long[] book = books.get(row);
+                out.writeLong(book[0]);
+                out.writeLong(book[1]);
+                out.writeLong(book[2]);
+                out.writeInt((int) book[3]);
+                out.writeLong(book[4]);
+                int first = listing;
+                while (listing < listings.size() && listings.get(listing)[1] == row) {
+                    listing++;
+                }
+                out.writeInt(first);
+                out.writeInt(listing - first);
+            }
+            for (int i = 0; i < authorNames.length; i++) {
+                out.writeLong(authorNames[i]);
+                out.writeInt(authorFirst[i]);
+                out.writeInt(authorCount[i]);
+            }
+            for (int[] ent : listings) {
+                out.writeInt(ent[0]);
+                out.writeInt(ent[1]);
+            }
+            for (Integer i : byAuthor) {
+                out.writeInt(i);
+            }
+            //by title, isbn, then publisher
+            for (int column : new int[] {1, 0, 2}) {
+                BookCatalog.writeTable(out, pool, books.size(), row -> books.get(row)[column]);
+            }
+            BookCatalog.writeTable(out, pool, authorNames.length, row -> authorNames[row]);
+            int posting = 0;
+            for (Integer term : byTerm) {
+                out.writeLong(termNames[term]);
+                for (Postings rows : terms.get(termOrder[term])) {
+                    int size = rows == null ? 0 : rows.size;
+                    out.writeInt(posting);
+                    out.writeInt(size);
+                    posting += size;
+                }
+            }
+            out.writeInt(posting);
+            for (Integer term : byTerm) {
+                for (Postings rows : terms.get(termOrder[term])) {
+                    for (int i = 0; rows != null && i < rows.size; i++) {
+                        out.writeInt(rows.rows[i]);
+                    }
+                }
+            }
+            pool.writeTo(out);
+        }
+    }
+
+    //adds a row under each term of its text, once per term
+    private static void addTerms(Map<String, Postings[]> terms, TextIndex.Source source, String text, int row) {
+        for (String term : TextQuery.tokenize(text)) {
+            Postings[] all = terms.computeIfAbsent(term, k -> new Postings[TextIndex.Source.values().length]);
+            if (all[source.ordinal()] == null) {
+                all[source.ordinal()] = new Postings();
+            }
+            all[source.ordinal()].add(row);
+        }
+    }
+
+    //writes rows sorted by the string each one refers to, ties by row
+    private static void writeTable(DataOutputStream out, Pool pool, int size, IntToLongFunction ref) throws IOException {
+        Integer[] rows = BookCatalog.rows(size);
+        Arrays.sort(rows, (one, two) -> Pool.compare(pool.bytes(ref.applyAsLong(one)), pool.bytes(ref.applyAsLong(two))));
+        for (Integer row : rows) {
+            out.writeInt(row);
+        }
+    }
+
+    private static Integer[] rows(int size) {
+        Integer[] back = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            back[i] = i;
+        }
+        return back;
+    }
+
+    /**
+     * Compiles a catalog ahead of time
+     *
+     * @param args {@code <catalog> <index>}
+     * @throws IOException If the catalog could not be read or the index written
+     */
+    public static void main(String... args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BookCatalog <catalog> <index>");
+            return;
+        }
+        BookCatalog back = BookCatalog.open(new File(args[1]), new File(args[0]).toURI().toURL());
+        System.out.println("Indexed " + back.getBookCount() + " books by " + back.getAuthorCount() + " authors");
+    }
+
+    //the ascending rows holding a term, as they are compiled
+    private static class Postings {
+
+        private int[] rows = new int[2];
+        private int size = 0;
+
+        private void add(int row) {
+            if (this.size > 0 && this.rows[this.size - 1] == row) {
+                return; //the term repeats within the same text
+            }
+            if (this.size == this.rows.length) {
+                this.rows = Arrays.copyOf(this.rows, this.size * 2);
+            }
+            this.rows[this.size++] = row;
+        }
+    }
+
+    //the deduplicated strings of an index being compiled, by offset
+    private static class Pool {
+
+        private final Map<String, Long> offsets = new HashMap<>();
+        private final Map<Long, byte[]> bytes = new LinkedHashMap<>();
+        private long size = 0;
+
+        //-1 for null, which is not pooled
+        private long intern(String value) {
+            if (value == null) {
+                return -1;
+            }
+            return this.offsets.computeIfAbsent(value, k -> {
+                byte[] raw = k.getBytes(StandardCharsets.UTF_8);
+                long back = this.size;
+                this.bytes.put(back, raw);
+                this.size += 4 + raw.length;
+                return back;
+            });
+        }
+
+        private byte[] bytes(long ref) {
+            return ref < 0 ? null : this.bytes.get(ref);
+        }
+
+        private void writeTo(DataOutputStream out) throws IOException {
+            for (byte[] raw : this.bytes.values()) {
+                out.writeInt(raw.length);
+                out.write(raw);
+            }
+        }
+
+        //unsigned, with null first, so that it agrees with BookCatalog#compare
+        private static int compare(byte[] one, byte[] two) {
+            if (one == null || two == null) {
+                return one == two ? 0 : one == null ? -1 : 1;
+            }
+            for (int i = 0; i < one.length && i < two.length; i++) {
+                int diff = (one[i] & 0xFF) - (two[i] & 0xFF);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return one.length - two.length;
+        }
+    }
+    //a read-only file mapped in segments, read with absolute gets at long positions
+    private static class Mapping {
+
+        private final ByteBuffer[] segments;
+        private final int segmentBytes;
+        private final long size;
+
+        private Mapping(FileChannel channel, int segmentBytes) throws IOException {
+            this.size = channel.size();
+            this.segmentBytes = segmentBytes;
+            this.segments = new ByteBuffer[(int) ((this.size + segmentBytes - 1) / segmentBytes)];
+            for (int i = 0; i < this.segments.length; i++) {
+                long start = (long) i * segmentBytes;
+                //overlapping the next segment, so an int or long never straddles two
+                long length = Math.min(segmentBytes + (long) Long.BYTES, this.size - start);
+                this.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            }
+        }
+
+        private long size() {
+            return this.size;
+        }
+
+        private byte get(long at) {
+            return this.segment(at).get(this.offset(at));
+        }
+
+        private int getInt(long at) {
+            return this.segment(at).getInt(this.offset(at));
+        }
+
+        private long getLong(long at) {
+            return this.segment(at).getLong(this.offset(at));
+        }
+
+        //copies bytes from a position, across segments as needed
+        private void get(long at, byte[] into) {
+            int done = 0;
+            while (done < into.length) {
+                ByteBuffer view = this.segment(at + done).duplicate();
+                int offset = this.offset(at + done);
+                int length = Math.min(into.length - done, this.segmentBytes - offset);
+                ((Buffer) view).position(offset); //Buffer's, as ByteBuffer#position(int) is not on Java 8
+                view.get(into, done, length);
+                done += length;
+            }
+        }
+
+        private ByteBuffer segment(long at) {
+            if (at < 0 || at >= this.size) {
+                throw new IndexOutOfBoundsException("Position " + at + " is outside of the index");
+            }
+            return this.segments[(int) (at / this.segmentBytes)];
+        }
+
+        private int offset(long at) {
+            return (int) (at % this.segmentBytes);
+        }
+    }
+}
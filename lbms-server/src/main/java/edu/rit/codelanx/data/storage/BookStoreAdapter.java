@@ -1,6 +1,9 @@
 package edu.rit.codelanx.data.storage;
 
+import edu.rit.codelanx.ConfigKey;
+import edu.rit.codelanx.data.cache.StateStorage;
 import edu.rit.codelanx.data.state.State;
+import edu.rit.codelanx.data.state.types.StateType;
 import edu.rit.codelanx.util.BookParser;
 import edu.rit.codelanx.data.DataSource;
 import edu.rit.codelanx.data.state.types.Author;
@@ -9,25 +12,43 @@ import edu.rit.codelanx.data.state.types.Book;
 import edu.rit.codelanx.data.state.types.Library;
 import edu.rit.codelanx.data.field.DataField;
 
+import java.io.File;
 import java.io.IOException;
+import java.net.URL;
+import java.time.Instant;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
+/**
+ * Serves the book store from a memory-mapped {@link BookCatalog}, rather than
+ * parsing the whole catalog into states on every start. Queries are answered
+ * from the catalog's lookup tables, and a {@link Book}, {@link Author} or
+ * {@link AuthorListing} is only built once a query actually returns it
+ */
 public class BookStoreAdapter extends FFStorageAdapter {
 
     private static Set<Class<? extends State>> KNOWN_TYPES;
-    private final AtomicBoolean initialized = new AtomicBoolean(false);
+    private volatile BookCatalog catalog;
 
     static {
         KNOWN_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(Author.class, AuthorListing.class, Book.class)));
     }
 
     public BookStoreAdapter(DataSource storage) {
-        super(storage, "json"); //TODO: this is invalid, needs a proper value / fix for the parent
+        super(storage);
     }
 
     @Override
@@ -37,15 +58,28 @@ public class BookStoreAdapter extends FFStorageAdapter {
 
     @Override
     public <R extends State> R insert(StateBuilder<R> builder) {
-        if (this.initialized.get()) {
-            throw new UnsupportedOperationException("Book store does not support adding new states");
-        }
-        return super.insert(builder);
+        throw new UnsupportedOperationException("Book store does not support adding new states");
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Maps the catalog's index, compiling it first if the catalog is new or
+     * has changed
+     *
+     * @throws IOException {@inheritDoc}
+     */
     @Override
     public void loadAll() throws IOException {
-        BookParser.parseBooks(this.getAdaptee());
+        String source = ConfigKey.BOOKSTORE_CATALOG.as(String.class);
+        URL catalog = source == null || source.isEmpty()
+                ? BookParser.getBundledCatalog()
+                : new File(source).toURI().toURL();
+        this.catalog = BookCatalog.open(new File(ConfigKey.BOOKSTORE_INDEX.as(String.class)), catalog);
+        //new ids follow the catalog's, as when every book was built on load
+        StateType.BOOK.reserveID(this.catalog.getBookCount());
+        StateType.AUTHOR.reserveID(this.catalog.getAuthorCount());
+        StateType.AUTHOR_LISTING.reserveID(this.catalog.getListingCount());
     }
 
     @Override
@@ -53,28 +87,153 @@ public class BookStoreAdapter extends FFStorageAdapter {
         //no-op: file is always available
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The most selective comparison the catalog holds a lookup table for
+     * picks out the candidate rows, and only those are built into states
+     * and tested against the remaining comparisons
+     *
+     * @param query {@inheritDoc}
+     * @param <R> {@inheritDoc}
+     * @return {@inheritDoc}
+     */
     @Override
     public <R extends State> Stream<R> handleQuery(StateQuery<R> query) {
-        if (!KNOWN_TYPES.contains(query.getType())) {
-            throw new IllegalArgumentException("Book Store knows nothings about " + query.getType());
+        Class<R> type = query.getType();
+        this.checkType(type);
+        long[] candidates = null;
+        StateQuery<R>.Comparison<?> driver = null;
+        for (StateQuery<R>.Comparison<?> comp : query.getComparisons()) {
+            long[] found = this.find(comp);
+            if (found != null && (candidates == null || found.length < candidates.length)) {
+                candidates = found;
+                driver = comp;
+            }
         }
-        return super.handleQuery(query);
+        StateQuery<R>.Comparison<?> answered = driver;
+        List<StateQuery<R>.Comparison<?>> residual = query.getComparisons().stream()
+                .filter(c -> c != answered)
+                .collect(Collectors.toList());
+        LongStream ids = candidates == null ? LongStream.rangeClosed(1, this.count(type)) : Arrays.stream(candidates);
+        StateStorage<R> data = this.getAdaptee().getRelativeStorage().getStateStorage(type);
+        //candidate ids are ascending, which is already the order of a query ordered by nothing else
+        return query.finish(ids.mapToObj(data::getByID)
+                .filter(Objects::nonNull)
+                .filter(s -> residual.stream().allMatch(c -> c.test(s))), query.getOrderings().isEmpty());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Books are built from the catalog as they are found rather than loaded
+     * up front, so they are always aggregated from the query's results
+     *
+     * @param query {@inheritDoc}
+     * @param aggregate {@inheritDoc}
+     * @param <R> {@inheritDoc}
+     * @param <A> {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public <R extends State, A> A handleAggregate(StateQuery<R> query, Aggregate<A> aggregate) {
+        return aggregate.fromResults(this.handleQuery(query));
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Builds the state from its row in the catalog
+     *
+     * @param id {@inheritDoc}
+     * @param type {@inheritDoc}
+     * @param <R> {@inheritDoc}
+     * @return {@inheritDoc}
+     */
     @Override
     public <R extends State> R loadState(long id, Class<R> type) {
-        if (!KNOWN_TYPES.contains(type)) {
-            throw new IllegalArgumentException("Book Store knows nothings about " + type);
+        this.checkType(type);
+        BookCatalog catalog = this.catalog;
+        if (catalog == null || id < 1 || id > this.count(type)) {
+            return null;
+        }
+        int row = (int) (id - 1);
+        Map<String, Object> fields = new HashMap<>();
+        if (type == Book.class) {
+            fields.put(Book.Field.ID.getName(), id);
+            fields.put(Book.Field.ISBN.getName(), catalog.getISBN(row));
+            fields.put(Book.Field.TITLE.getName(), catalog.getTitle(row));
+            fields.put(Book.Field.PUBLISHER.getName(), catalog.getPublisher(row));
+            fields.put(Book.Field.PUBLISH_DATE.getName(), Instant.ofEpochSecond(catalog.getPublishDate(row)));
+            fields.put(Book.Field.PAGE_COUNT.getName(), catalog.getPageCount(row));
+            fields.put(Book.Field.TOTAL_COPIES.getName(), -1);
+            fields.put(Book.Field.CHECKED_OUT.getName(), -1);
+        } else if (type == Author.class) {
+            fields.put(Author.Field.ID.getName(), id);
+            fields.put(Author.Field.NAME.getName(), catalog.getAuthorName(row));
+        } else {
+            fields.put(AuthorListing.Field.ID.getName(), id);
+            fields.put(AuthorListing.Field.AUTHOR.getName(), catalog.getListingAuthor(row) + 1L);
+            fields.put(AuthorListing.Field.BOOK.getName(), catalog.getListingBook(row) + 1L);
         }
-        return super.loadState(id, type);
+        return StateType.fromClass(type).<R>getFileConstructor().create(this.getAdaptee(), fields);
     }
 
     @Override
     public <R extends State, E> Stream<R> loadState(Class<R> type, DataField<E> field, E value) {
-        if (!KNOWN_TYPES.contains(type)) {
-            throw new IllegalArgumentException("Book Store knows nothings about " + type);
+        this.checkType(type);
+        long[] found = this.find(field, Collections.singleton(value));
+        StateStorage<R> data = this.getAdaptee().getRelativeStorage().getStateStorage(type);
+        if (found == null) {
+            return LongStream.rangeClosed(1, this.count(type))
+                    .mapToObj(data::getByID)
+                    .filter(s -> Objects.equals(field.get(s), value));
         }
-        return super.loadState(type, field, value);
+        return Arrays.stream(found).mapToObj(data::getByID);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The authors of books are read straight from the catalog's listings of
+     * each book, so no listing is built to find them
+     *
+     * @param relation {@inheritDoc}
+     * @param states {@inheritDoc}
+     * @param <S> {@inheritDoc}
+     * @param <R> {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked") //the relation is checked to be the authors of books
+    public <S extends State, R extends State> Map<S, List<R>> findRelated(Relation<S, R> relation, Collection<S> states) {
+        BookCatalog catalog = this.catalog;
+        if (relation != (Relation<?, ?>) Book.AUTHORS || catalog == null) {
+            return relation.findByLinks(this.getAdaptee(), states);
+        }
+        StateStorage<Author> authors = this.getAdaptee().getRelativeStorage().getStateStorage(Author.class);
+        Map<S, List<R>> back = new HashMap<>();
+        for (S book : states) {
+            List<Author> found = this.byState(book, catalog::findListingsByBook)
+                    .map(catalog::getListingAuthor)
+                    .mapToObj(row -> authors.getByID(row + 1L))
+                    .collect(Collectors.toList());
+            back.put(book, (List<R>) Collections.unmodifiableList(found));
+        }
+        return back;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Answered from the catalog's dictionary of terms, so no book is built
+     * until it is returned by a query
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public TextIndex getTextIndex() {
+        return new CatalogTextIndex();
     }
 
     @Override
@@ -87,4 +246,135 @@ public class BookStoreAdapter extends FFStorageAdapter {
         throw new UnsupportedOperationException("Cannot update values in a remote service (The book store)");
     }
 
+    private void checkType(Class<? extends State> type) {
+        if (!KNOWN_TYPES.contains(type)) {
+            throw new IllegalArgumentException("Book Store knows nothings about " + type);
+        }
+    }
+
+    private long count(Class<? extends State> type) {
+        BookCatalog catalog = this.catalog;
+        if (catalog == null) {
+            return 0;
+        }
+        return type == Book.class ? catalog.getBookCount()
+                : type == Author.class ? catalog.getAuthorCount()
+                : catalog.getListingCount();
+    }
+
+    //the ids satisfying a comparison, or null if the catalog cannot look them up
+    private long[] find(StateQuery<?>.Comparison<?> comp) {
+        if (comp instanceof StateQuery.JoinComparison) {
+            return this.findJoined((StateQuery<?>.JoinComparison<?>) comp);
+        } else if (comp instanceof StateQuery.MultiComparison) {
+            return this.find(comp.getDataField(), ((StateQuery<?>.MultiComparison<?>) comp).getValues());
+        } else if (comp.getType() == StateQuery.ComparisonType.EQUALITY) {
+            return this.find(comp.getDataField(), Collections.singleton(comp.getValue()));
+        }
+        return null;
+    }
+
+    //the states linked to the join's related results, found through the catalog's table of links
+    private long[] findJoined(StateQuery<?>.JoinComparison<?> join) {
+        Relation<?, ?> relation = join.getRelation();
+        long[] links = this.find(relation.getTo(), join.getMatched());
+        if (links == null) {
+            return null;
+        }
+        StateStorage<? extends State> data = this.getAdaptee().getRelativeStorage().getStateStorage(relation.getLink());
+        DataField<?> from = relation.getFrom();
+        return Arrays.stream(links)
+                .mapToObj(data::getByID)
+                .mapToLong(link -> ((State) from.get(link)).getID())
+                .distinct()
+                .sorted()
+                .toArray();
+    }
+
+    private long[] find(DataField<?> field, Collection<?> values) {
+        Function<Object, IntStream> rows = this.getLookup(field);
+        if (rows == null || this.catalog == null) {
+            return null;
+        }
+        return values.stream().flatMapToInt(rows).distinct().sorted().mapToLong(row -> row + 1L).toArray();
+    }
+
+    //finds the rows holding a value of the field, null for unindexed fields
+    private Function<Object, IntStream> getLookup(DataField<?> field) {
+        BookCatalog catalog = this.catalog;
+        if (field == Book.Field.ID) {
+            return id -> this.byID(id, catalog.getBookCount());
+        } else if (field == Book.Field.TITLE) {
+            return title -> catalog.findBooksByTitle((String) title);
+        } else if (field == Book.Field.ISBN) {
+            return isbn -> catalog.findBooksByISBN((String) isbn);
+        } else if (field == Book.Field.PUBLISHER) {
+            return publisher -> catalog.findBooksByPublisher((String) publisher);
+        } else if (field == Author.Field.ID) {
+            return id -> this.byID(id, catalog.getAuthorCount());
+        } else if (field == Author.Field.NAME) {
+            return name -> catalog.findAuthorsByName((String) name);
+        } else if (field == AuthorListing.Field.ID) {
+            return id -> this.byID(id, catalog.getListingCount());
+        } else if (field == AuthorListing.Field.BOOK) {
+            return book -> this.byState(book, catalog::findListingsByBook);
+        } else if (field == AuthorListing.Field.AUTHOR) {
+            return author -> this.byState(author, catalog::findListingsByAuthor);
+        }
+        return null;
+    }
+
+    private IntStream byID(Object id, int count) {
+        if (!(id instanceof Number)) {
+            return IntStream.empty();
+        }
+        long value = ((Number) id).longValue();
+        return value < 1 || value > count ? IntStream.empty() : IntStream.of((int) (value - 1));
+    }
+
+    //states of another source are never in the catalog, even with a matching id
+    private IntStream byState(Object state, IntFunction<IntStream> rows) {
+        if (!(state instanceof State) || ((State) state).getLoader() != this.getAdaptee()) {
+            return IntStream.empty();
+        }
+        return rows.apply((int) (((State) state).getID() - 1));
+    }
+
+    //searches the terms compiled into the catalog
+    private final class CatalogTextIndex extends TextIndex {
+
+        @Override
+        protected long[] find(Source source, String term, boolean prefix) {
+            BookCatalog catalog = BookStoreAdapter.this.catalog;
+            if (catalog == null) {
+                return new long[0];
+            }
+            IntStream rows = catalog.findByTerm(source, term, prefix);
+            if (source == Source.AUTHOR) {
+                rows = rows.flatMap(catalog::findListingsByAuthor).map(catalog::getListingBook);
+            }
+            return TextIndex.sorted(rows.mapToLong(row -> row + 1L).toArray());
+        }
+
+        @Override
+        protected Stream<String> getText(Source source, long book) {
+            BookCatalog catalog = BookStoreAdapter.this.catalog;
+            int row = (int) (book - 1);
+            switch (source) {
+                case TITLE:
+                    return Stream.of(catalog.getTitle(row));
+                case PUBLISHER:
+                    return Stream.of(catalog.getPublisher(row));
+                default:
+                    return catalog.findListingsByBook(row)
+                            .map(catalog::getListingAuthor)
+                            .mapToObj(catalog::getAuthorName);
+            }
+        }
+
+        @Override
+        protected long getBookCount() {
+            return BookStoreAdapter.this.count(Book.class);
+        }
+    }
 }
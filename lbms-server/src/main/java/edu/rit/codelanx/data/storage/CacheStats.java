@@ -0,0 +1,82 @@
+package edu.rit.codelanx.data.storage;
+
+/**
+ * A snapshot of the counters of one of an adapter's caches
+ */
+public final class CacheStats {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final int size;
+    private final long weight;
+
+    CacheStats(long hits, long misses, long evictions, int size, long weight) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+        this.weight = weight;
+    }
+
+    /**
+     * Gets the number of lookups answered by the cache
+     *
+     * @return The number of hits
+     */
+    public long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * Gets the number of lookups which had to go to the backing store
+     *
+     * @return The number of misses
+     */
+    public long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * Gets the fraction of lookups answered by the cache
+     *
+     * @return The hit rate, between {@code 0} and {@code 1}
+     */
+    public double getHitRate() {
+        long total = this.hits + this.misses;
+        return total == 0 ? 0 : (double) this.hits / total;
+    }
+
+    /**
+     * Gets the number of entries dropped to stay within the cache's bounds
+     *
+     * @return The number of evictions
+     */
+    public long getEvictions() {
+        return this.evictions;
+    }
+
+    /**
+     * Gets the number of entries currently cached
+     *
+     * @return The number of entries
+     */
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * Gets the total weight of the entries currently cached
+     *
+     * @return The current weight
+     */
+    public long getWeight() {
+        return this.weight;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d, misses=%d (%.1f%% hit), evictions=%d, size=%d, weight=%d",
+                this.hits, this.misses, this.getHitRate() * 100, this.evictions, this.size, this.weight);
+    }
+}
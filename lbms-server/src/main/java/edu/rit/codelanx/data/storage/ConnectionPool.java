@@ -0,0 +1,310 @@
+package edu.rit.codelanx.data.storage;
+
+import edu.rit.codelanx.util.Errors;
+
+import java.io.Closeable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded pool of JDBC connections. Connections are borrowed for a unit of
+ * work and given back by closing them, which returns the underlying
+ * connection to the pool rather than closing it.
+ * <p>
+ * At most {@code max} connections are open at once, and a borrow waits up
+ * to a timeout for one to be given back. A connection which sat idle for
+ * longer than the validation interval is checked before being handed out,
+ * and idle connections past {@code min} are closed once they outlive the
+ * keep-alive. If a leak threshold is given, a borrowed connection which is
+ * not given back within it is reported through {@link Errors#report},
+ * along with where it was borrowed
+ */
+public class ConnectionPool implements Closeable {
+
+    //a single daemon thread sweeps every pool for leaks and idle connections
+    private static final ScheduledExecutorService SWEEPER;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int min;
+    private final long timeoutMs;
+    private final long validateMs;
+    private final long keepAliveMs;
+    private final long leakMs;
+    private final Semaphore permits;
+    private final Deque<Idle> idle = new ArrayDeque<>(); //most recently returned first
+    private final Map<Connection, Lease> leased = new ConcurrentHashMap<>(); //proxy -> lease
+    private volatile boolean closed;
+
+    static {
+        SWEEPER = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r);
+            t.setName("sql-pool-sweep");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Opens a pool, along with its minimum number of connections
+     *
+     * @param url The JDBC url of the database
+     * @param user The user to connect as
+     * @param password The user's password
+     * @param min The number of connections kept open while idle
+     * @param max The most connections open at once
+     * @param timeoutMs How long a borrow waits for a free connection
+     * @param validateMs How long a connection may sit idle before it is
+     *                   validated on its next borrow
+     * @param keepAliveMs How long a connection past {@code min} may sit idle
+     *                    before it is closed
+     * @param leakMs How long a connection may be borrowed before it is
+     *               reported as leaked, or {@code 0} to never report
+     * @throws SQLException If the minimum connections could not be opened
+     */
+    public ConnectionPool(String url, String user, String password, int min, int max,
+                          long timeoutMs, long validateMs, long keepAliveMs, long leakMs) throws SQLException {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.min = Math.max(0, Math.min(min, max));
+        this.timeoutMs = timeoutMs;
+        this.validateMs = validateMs;
+        this.keepAliveMs = keepAliveMs;
+        this.leakMs = leakMs;
+        this.permits = new Semaphore(Math.max(1, max), true);
+        for (int i = 0; i < this.min; i++) {
+            this.idle.push(new Idle(this.connect()));
+        }
+        long sweepMs = Math.max(1000, Math.min(keepAliveMs, leakMs > 0 ? leakMs : keepAliveMs) / 2);
+        SWEEPER.scheduleWithFixedDelay(this::sweep, sweepMs, sweepMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, to be given back by closing it
+     *
+     * @return A connection from the pool
+     * @throws SQLException If no connection was free within the timeout, or
+     *                      a new connection could not be opened
+     */
+    public Connection borrow() throws SQLException {
+        return this.borrow(true);
+    }
+
+    /**
+     * Borrows a connection for the life of its user, such as a writer which
+     * keeps prepared statements on it. It still counts towards the maximum,
+     * but is never reported as leaked
+     *
+     * @return A connection from the pool
+     * @throws SQLException If no connection was free within the timeout, or
+     *                      a new connection could not be opened
+     */
+    public Connection borrowDedicated() throws SQLException {
+        return this.borrow(false);
+    }
+
+    /**
+     * Gets the number of connections currently borrowed
+     *
+     * @return The number of borrowed connections
+     */
+    public int getBorrowed() {
+        return this.leased.size();
+    }
+
+    /**
+     * Closes every idle connection, and every borrowed one as it is given
+     * back
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        synchronized (this.idle) {
+            while (!this.idle.isEmpty()) {
+                ConnectionPool.closeQuietly(this.idle.pop().connection);
+            }
+        }
+    }
+
+    private Connection borrow(boolean tracked) throws SQLException {
+        if (this.closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        try {
+            if (!this.permits.tryAcquire(this.timeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("No connection became free within " + this.timeoutMs + "ms ("
+                        + this.leased.size() + " borrowed)");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", ex);
+        }
+        try {
+            Connection raw = this.takeIdle();
+            if (raw == null) {
+                raw = this.connect();
+            }
+            //only traced while leaks are reported, as filling in a stack trace is not free
+            Lease lease = new Lease(raw, tracked && this.leakMs > 0 ? new Throwable("Connection borrowed here") : null);
+            Connection back = lease.proxy();
+            this.leased.put(back, lease);
+            return back;
+        } catch (SQLException | RuntimeException ex) {
+            this.permits.release();
+            throw ex;
+        }
+    }
+
+    //an idle connection which is still usable, or null if there are none
+    private Connection takeIdle() {
+        while (true) {
+            Idle next;
+            synchronized (this.idle) {
+                next = this.idle.poll();
+            }
+            if (next == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() - next.since < this.validateMs || this.isValid(next.connection)) {
+                return next.connection;
+            }
+            ConnectionPool.closeQuietly(next.connection);
+        }
+    }
+
+    private void giveBack(Lease lease) {
+        if (this.leased.remove(lease.proxy) == null) {
+            return; //already given back
+        }
+        try {
+            if (this.closed || lease.raw.isClosed()) {
+                ConnectionPool.closeQuietly(lease.raw);
+                return;
+            }
+            if (!lease.raw.getAutoCommit()) {
+                lease.raw.rollback(); //never leak a half-done transaction to the next borrower
+                lease.raw.setAutoCommit(true);
+            }
+            synchronized (this.idle) {
+                this.idle.push(new Idle(lease.raw));
+            }
+        } catch (SQLException ex) {
+            ConnectionPool.closeQuietly(lease.raw);
+        } finally {
+            this.permits.release();
+        }
+    }
+
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        if (this.leakMs > 0) {
+            for (Lease lease : this.leased.values()) {
+                if (lease.origin != null && !lease.reported && now - lease.since > this.leakMs) {
+                    lease.reported = true;
+                    //the origin is the cause, so the report traces back to the borrower
+                    Errors.report(new IllegalStateException("Possible connection leak, borrowed "
+                            + (now - lease.since) + "ms ago", lease.origin));
+                }
+            }
+        }
+        //least recently used connections are at the tail
+        synchronized (this.idle) {
+            while (this.idle.size() > this.min && now - this.idle.peekLast().since > this.keepAliveMs) {
+                ConnectionPool.closeQuietly(this.idle.pollLast().connection);
+            }
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(this.url, this.user, this.password);
+    }
+
+    private boolean isValid(Connection conn) {
+        try {
+            return conn.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException ex) {
+            //nothing more can be done with it
+        }
+    }
+
+    private static final class Idle {
+
+        private final Connection connection;
+        private final long since = System.currentTimeMillis();
+
+        private Idle(Connection connection) {
+            this.connection = connection;
+        }
+    }
+
+    //a single borrow of a connection, handed out as a proxy which gives it back on close
+    private final class Lease {
+
+        private final Connection raw;
+        private final Throwable origin; //null if never reported as leaked
+        private final long since = System.currentTimeMillis();
+        private final Connection proxy;
+        private volatile boolean returned;
+        private volatile boolean reported;
+
+        private Lease(Connection raw, Throwable origin) {
+            this.raw = raw;
+            this.origin = origin;
+            this.proxy = (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, (p, method, args) -> {
+                switch (method.getName()) {
+                    case "close":
+                        if (!this.returned) {
+                            this.returned = true;
+                            ConnectionPool.this.giveBack(this);
+                        }
+                        return null;
+                    case "isClosed":
+                        return this.returned || this.raw.isClosed();
+                    case "equals":
+                        return p == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(p);
+                    case "toString":
+                        return "Pooled" + this.raw;
+                    default:
+                        if (this.returned) {
+                            throw new SQLException("Connection was already given back to the pool");
+                        }
+                        try {
+                            return method.invoke(this.raw, args);
+                        } catch (InvocationTargetException ex) {
+                            throw ex.getCause();
+                        }
+                }
+            });
+        }
+
+        private Connection proxy() {
+            return this.proxy;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package edu.rit.codelanx.data.storage;
+
+import com.codelanx.commons.data.FileDataType;
+import com.codelanx.commons.data.types.Json;
+import com.codelanx.commons.data.types.XML;
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.state.State;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * The file formats a {@link FFStorageAdapter} can keep each
+ * {@link edu.rit.codelanx.data.state.StorageContainer} in, selected by the
+ * {@code storage-type} config option
+ */
+enum ContainerFormat {
+
+    JSON(".json") {
+        @Override
+        void read(File file, State.Type type, DataSource storage, Consumer<State> states) throws IOException {
+            try (JsonStateReader in = new JsonStateReader(file.toPath())) {
+                in.forEach(fields -> states.accept(type.getFileConstructor().create(storage, fields)));
+            }
+        }
+
+        @Override
+        void write(File file, State.Type type, Iterator<? extends Map<String, Object>> states) throws IOException {
+            try (JsonStateWriter out = new JsonStateWriter(file.toPath())) {
+                while (states.hasNext()) {
+                    out.write(states.next());
+                }
+            }
+        }
+    },
+    YAML(".yml") {
+        @Override
+        void read(File file, State.Type type, DataSource storage, Consumer<State> states) throws IOException {
+            try (JsonStateReader in = new JsonStateReader(file.toPath())) {
+                if (in.forEachYaml(fields -> states.accept(type.getFileConstructor().create(storage, fields)))) {
+                    return;
+                }
+            }
+            //written by an older version as a tree of states, which must be loaded whole
+            FileDataType data = FileDataType.newInstance(FileDataType.fromString("yml"), file);
+            List<?> read = data.getMutable("data").as(List.class);
+            if (read == null || read.stream().anyMatch(o -> !(o instanceof State))) {
+                throw new MalformedContainerException("Expected a list of states");
+            }
+            read.forEach(o -> states.accept((State) o));
+        }
+
+        @Override
+        void write(File file, State.Type type, Iterator<? extends Map<String, Object>> states) throws IOException {
+            try (JsonStateWriter out = new JsonStateWriter(file.toPath(), true)) {
+                while (states.hasNext()) {
+                    out.write(states.next());
+                }
+            }
+        }
+    },
+    BINARY(".bin") {
+        @Override
+        void read(File file, State.Type type, DataSource storage, Consumer<State> states) throws IOException {
+            try (BinaryStateReader in = new BinaryStateReader(file.toPath())) {
+                in.forEach(type, fields -> states.accept(type.getFileConstructor().create(storage, fields)));
+            }
+        }
+
+        @Override
+        void write(File file, State.Type type, Iterator<? extends Map<String, Object>> states) throws IOException {
+            try (BinaryStateWriter out = new BinaryStateWriter(file.toPath(), type)) {
+                while (states.hasNext()) {
+                    out.write(states.next());
+                }
+            }
+        }
+    },
+    ;
+
+    private final String extension;
+
+    private ContainerFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Gets the file extension of containers in this format
+     *
+     * @return The extension, including the leading {@code .}
+     */
+    String getExtension() {
+        return this.extension;
+    }
+
+    /**
+     * Reads every state within a container
+     *
+     * @param file The container to read
+     * @param type The {@link State.Type} held by the container
+     * @param storage The {@link DataSource} the states will belong to
+     * @param states Receives each state as it is read
+     * @throws IOException If the file cannot be read, or
+     *                     {@link MalformedContainerException} if it is not a
+     *                     container in this format
+     */
+    abstract void read(File file, State.Type type, DataSource storage, Consumer<State> states) throws IOException;
+
+    /**
+     * Writes a container of states, replacing any existing file
+     *
+     * @param file The container to write
+     * @param type The {@link State.Type} of every state being written
+     * @param states The {@link State#serialize()} maps of the states to write
+     * @throws IOException If the file cannot be written
+     */
+    abstract void write(File file, State.Type type, Iterator<? extends Map<String, Object>> states) throws IOException;
+
+    /**
+     * Finds the format named by a {@code storage-type}
+     *
+     * @param type The storage-type, e.g. {@code json}, {@code yml} or
+     *             {@code binary}
+     * @return The {@link ContainerFormat}, or {@code null} if there is none
+     * @throws UnsupportedOperationException If the type is {@code xml}
+     */
+    static ContainerFormat fromString(String type) {
+        if ("binary".equalsIgnoreCase(type) || "bin".equalsIgnoreCase(type)) {
+            return BINARY;
+        }
+        Class<? extends FileDataType> data = FileDataType.fromString(type);
+        if (data == null) {
+            return null;
+        } else if (data == XML.class) {
+            throw new UnsupportedOperationException("Sorry! We don't support XML"); //Why? because the parser is broken
+        }
+        return data == Json.class ? JSON : YAML;
+    }
+}
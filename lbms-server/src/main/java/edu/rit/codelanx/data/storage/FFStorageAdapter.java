@@ -2,9 +2,6 @@ package edu.rit.codelanx.data.storage;
 
 import edu.rit.codelanx.data.cache.StateStorage;
 import edu.rit.codelanx.data.state.State;
-import com.codelanx.commons.data.FileDataType;
-import com.codelanx.commons.data.types.Json;
-import com.codelanx.commons.data.types.XML;
 import edu.rit.codelanx.ConfigKey;
 import edu.rit.codelanx.data.DataSource;
 import edu.rit.codelanx.data.state.StorageContainer;
@@ -15,14 +12,20 @@ import edu.rit.codelanx.data.state.types.Visitor;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -32,25 +35,48 @@ public class FFStorageAdapter implements StorageAdapter {
 
     private static final File BACKUP_FOLDER = new File("backup");
     private static final File DATA_FOLDER = new File("data");
-    private static final Pattern FF_DATA_SEARCH = Pattern.compile("(.*)\\d*\\.(json|yml)");
-    private final Class<? extends FileDataType> type;
+    private static final Pattern FF_DATA_SEARCH = Pattern.compile("(.*)\\d*\\.(json|yml|bin)");
+    private static final String JOURNAL_FILE = "journal.dat";
+    //referenced types load before the types which refer to them
+    private static final StateType[] LOAD_ORDER = {
+            StateType.LIBRARY, StateType.BOOK, StateType.AUTHOR, StateType.VISITOR,
+            StateType.AUTHOR_LISTING, StateType.CHECKOUT, StateType.VISIT, StateType.TRANSACTION,
+            StateType.ROLLUP,
+    };
+    private final ContainerFormat format;
+    private final File folder;
     private final DataSource storage;
     private final Set<Class<? extends State>> loadedFromFile = new HashSet<>();
     private volatile Library library;
-    private final AtomicBoolean modified = new AtomicBoolean(false);
+    private volatile Journal journal; //null until loaded, and for subclasses which never load
+    private volatile boolean replaying; //changes from the journal are not journaled again
+    private volatile Lock snapshotLock = new ReentrantLock(); //uncontended until a guard is given
 
     protected FFStorageAdapter(DataSource storage) {
         this.storage = storage;
-        this.type = null;
+        this.format = null;
+        this.folder = DATA_FOLDER;
     }
 
     public FFStorageAdapter(DataSource storage, String type) {
-        this.type = FileDataType.fromString(type);
+        this(storage, type, DATA_FOLDER);
+    }
+
+    /**
+     * Stores data files within the given folder, rather than the default
+     * {@code data} folder of the working directory
+     *
+     * @param storage The {@link DataSource} being adapted
+     * @param type The storage-type to save as, {@code json}, {@code yml} or
+     *             {@code binary}
+     * @param folder The folder to load and save data files in
+     */
+    public FFStorageAdapter(DataSource storage, String type, File folder) {
+        this.format = ContainerFormat.fromString(type);
+        this.folder = folder;
         this.storage = storage;
-        if (this.type == null) {
+        if (this.format == null) {
             throw new IllegalStateException("Cannot interpret config's storage-type: " + type);
-        } else if (this.type == XML.class) {
-            throw new UnsupportedOperationException("Sorry! We don't support XML"); //Why? because the parser is broken
         }
     }
 
@@ -91,91 +117,225 @@ public class FFStorageAdapter implements StorageAdapter {
             }
         }
         R back = builder.buildObj(this.storage, builder.getType().getNextID());
-        this.modified.set(true);
         this.getAdaptee().getRelativeStorage().addState(back);
+        Journal journal = this.journal;
+        if (journal != null) {
+            journal.insert(back);
+        }
         return back;
     }
     /**
      * {@inheritDoc}
+     * <p>
+     * Loads the snapshot files, then replays the journal of changes made
+     * since they were written
      */
     @Override
     public void loadAll() throws IOException {
         if (this.library != null) {
             throw new IllegalStateException("File contents already loaded");
         }
-        if (!DATA_FOLDER.exists()) {
-            //nothing to load
+        if (this.folder.exists()) {
+            this.loadSnapshot(); //a bad data file is backed up, and its states start out empty
+        }
+        this.folder.mkdirs();
+        Journal journal = new Journal(new File(this.folder, JOURNAL_FILE),
+                ConfigKey.JOURNAL_COMPACT_BYTES.as(int.class), this::compactQuietly);
+        this.replaying = true;
+        try {
+            journal.replay(this::apply);
+        } finally {
+            this.replaying = false;
+        }
+        this.journal = journal;
+        journal.start(ConfigKey.JOURNAL_SYNC_MS.as(int.class));
+        this.library = this.getAdaptee().getRelativeStorage().getStateStorage(Library.class)
+                .streamLoaded().findAny().orElse(null);
+        if (this.library == null) {
+            //create initial library, journaled like any other insert
             this.library = Library.create()
                     .setValue(Library.Field.MONEY, BigDecimal.ZERO)
                     .build(this.storage);
-            return;
         }
-        String ext = (this.type == Json.class ? ".json" : ".yml");
-        //TODO: Rewrite to use individual data files
-        for (State.Type type : StateType.values()) {
-            StorageContainer container = type.getConcreteType().getAnnotation(StorageContainer.class);
-            if (container == null) {
-                throw new IllegalStateException(type.getConcreteType() + " is missing @StorageContainer annotation");
-            }
-            File ref = new File(container.value() + ext);
+    }
+
+    //loads each snapshot file which exists, moving aside any which are unreadable
+    private void loadSnapshot() throws IOException {
+        String ext = this.format.getExtension();
+        for (State.Type type : LOAD_ORDER) {
+            File ref = new File(this.folder, FFStorageAdapter.getContainerName(type) + ext);
             if (!ref.exists()) {
-                if (type == StateType.LIBRARY) {
-                    //create initial library
-                    this.library = Library.create()
-                            .setValue(Library.Field.MONEY, BigDecimal.ZERO)
-                            .build(this.storage);
-                }
                 continue; //nothing to load
             }
-            FileDataType data = FileDataType.newInstance(this.type, ref);
-            List<?> read = data.getMutable("data").as(List.class);
-            if (read == null || read.stream().anyMatch(o -> !(o instanceof State))) {
+            StateStorage<State> loaded = this.getAdaptee().getRelativeStorage()
+                    .getStateStorage(type.<State>getConcreteType());
+            List<State> read = new ArrayList<>(); //added once the whole file is known to be good
+            try {
+                this.format.read(ref, type, this.storage, read::add);
+            } catch (MalformedContainerException | RuntimeException ex) {
                 //TODO: actual stderr here?
-                System.err.println("Bad value while parsing input file: " + container.value());
+                System.err.println("Bad value while parsing input file: " + ref.getName() + ": " + ex.getMessage());
                 this.errorRecovery(ref, ext);
-                return;
+                continue; //the rest may still load, or be backed up in turn
             }
-            read.stream()
-                    .map(o -> (State) o)
-                    .forEach(this.getAdaptee().getRelativeStorage()::addState);
+            read.forEach(loaded::addState);
             this.loadedFromFile.add(type.getConcreteType());
-            if (type == StateType.LIBRARY) {
-                this.library = this.getAdaptee().getRelativeStorage().getStateStorage(Library.class)
-                        .streamLoaded().findAny().orElse(null);
-            }
         }
     }
+
+    //re-applies a journaled change, skipping any already in the snapshot
+    private void apply(Journal.Record record) {
+        StateStorage<State> loaded = this.getAdaptee().getRelativeStorage()
+                .getStateStorage(record.getType().<State>getConcreteType());
+        State state = loaded.getByID(record.getID());
+        switch (record.getOp()) {
+            case INSERT:
+                if (state == null) {
+                    loaded.addState(record.getType().getFileConstructor().create(this.storage, record.getValues()));
+                }
+                break;
+            case UPDATE:
+                if (state == null) {
+                    break; //removed later on, and compacted away
+                }
+                for (Map.Entry<String, Object> ent : record.getValues().entrySet()) {
+                    Arrays.stream(state.getFields())
+                            .filter(f -> f.getName().equals(ent.getKey()))
+                            .findAny()
+                            .ifPresent(f -> f.set(state, InputMapper.toTypeOrState(this.storage, f.getType(), ent.getValue())));
+                }
+                break;
+            case REMOVE:
+                if (state != null) {
+                    loaded.remove(state);
+                }
+                break;
+        }
+    }
+
     /**
      * {@inheritDoc}
-     * @return {@inheritDoc}
+     * <p>
+     * Changes are already journaled as they happen, so this only forces
+     * any buffered changes to disk. The snapshot files are rewritten once
+     * the journal has grown large
+     *
+     * @throws IOException {@inheritDoc}
      */
     @Override
     public void saveAll() throws IOException {
-        if (!this.modified.get()) {
-            return; //If never modified, do not save
-        }
         if (this.library == null) {
             throw new IllegalStateException("Adapter was never initialized");
         }
-        DATA_FOLDER.mkdir();
-        String ext = (this.type == Json.class ? ".json" : ".yml");
+        Journal journal = this.journal;
+        journal.sync();
+        if (journal.size() >= ConfigKey.JOURNAL_COMPACT_BYTES.as(int.class)) {
+            this.compact();
+        }
+    }
+
+    /**
+     * Sets the lock which keeps every loaded state from changing while the
+     * states are copied for a snapshot, so that a snapshot never holds a
+     * change which was only partly made
+     *
+     * @param lock The {@link Lock} to hold, such as the read lock of the
+     *             {@link edu.rit.codelanx.cmd.CommandEngine} which changes
+     *             the states
+     */
+    public void setSnapshotLock(Lock lock) {
+        this.snapshotLock = Objects.requireNonNull(lock);
+    }
+
+    /**
+     * Rewrites every snapshot file from the loaded states, then empties the
+     * journal
+     *
+     * @throws IOException If the snapshot could not be written
+     */
+    public void compact() throws IOException {
+        if (this.journal == null) {
+            throw new IllegalStateException("Adapter was never initialized");
+        }
+        this.journal.compact(this.snapshotLock, () -> {
+            Map<State.Type, List<Map<String, Object>>> copy = this.copyLoaded();
+            return () -> this.writeSnapshot(this.format, copy);
+        });
+    }
+
+    /**
+     * Rewrites every snapshot file from the loaded states in another format,
+     * then empties the journal. The snapshot in this adapter's own format is
+     * rewritten as well, so that either may be loaded afterwards
+     *
+     * @param type The storage-type to convert to, e.g. {@code binary}
+     * @throws IOException If either snapshot could not be written
+     */
+    public void convert(String type) throws IOException {
+        ContainerFormat target = ContainerFormat.fromString(type);
+        if (target == null) {
+            throw new IllegalArgumentException("Cannot interpret storage-type: " + type);
+        } else if (this.journal == null) {
+            throw new IllegalStateException("Adapter was never initialized");
+        }
+        this.journal.compact(this.snapshotLock, () -> {
+            Map<State.Type, List<Map<String, Object>>> copy = this.copyLoaded();
+            return () -> {
+                this.writeSnapshot(target, copy);
+                this.writeSnapshot(this.format, copy);
+            };
+        });
+    }
+
+    //run by the journal once it grows past the compaction threshold
+    private void compactQuietly() {
+        try {
+            this.compact();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    //the serialized values of every loaded state, taken under the snapshot lock
+    private Map<State.Type, List<Map<String, Object>>> copyLoaded() {
+        Map<State.Type, List<Map<String, Object>>> back = new LinkedHashMap<>();
         for (State.Type type : StateType.values()) {
-            StorageContainer container = type.getConcreteType().getAnnotation(StorageContainer.class);
-            if (container == null) {
-                throw new IllegalStateException(type.getConcreteType() + " is missing @StorageContainer annotation");
-            }
-            File ref = new File(DATA_FOLDER, container.value() + ext);
-            if (ref.exists() && !this.loadedFromFile.contains(type.getConcreteType())) {
+            back.put(type, this.storage.ofLoaded(type.<State>getConcreteType())
+                    .map(State::serialize)
+                    .collect(Collectors.toList()));
+        }
+        return back;
+    }
+
+    //writes each snapshot file beside the old one, then swaps them
+    private void writeSnapshot(ContainerFormat format, Map<State.Type, List<Map<String, Object>>> copy) throws IOException {
+        this.folder.mkdirs();
+        String ext = format.getExtension();
+        for (Map.Entry<State.Type, List<Map<String, Object>>> ent : copy.entrySet()) {
+            State.Type type = ent.getKey();
+            String name = FFStorageAdapter.getContainerName(type);
+            File ref = new File(this.folder, name + ext);
+            if (ref.exists() && (format != this.format || !this.loadedFromFile.contains(type.getConcreteType()))) {
                 //File exists but was not what we loaded
                 this.errorRecovery(ref, ext);
             }
-            //fresh file refence
-            FileDataType data = FileDataType.newInstance(this.type, "{}");
-            data.set("data", this.storage.ofLoaded(type.getConcreteType()).collect(Collectors.toList()));
-            data.save(ref);
+            File next = new File(this.folder, name + ext + ".tmp");
+            format.write(next, type, ent.getValue().iterator());
+            Files.move(next.toPath(), ref.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (format == this.format) {
+                this.loadedFromFile.add(type.getConcreteType());
+            }
         }
     }
 
+    private static String getContainerName(State.Type type) {
+        StorageContainer container = type.getConcreteType().getAnnotation(StorageContainer.class);
+        if (container == null) {
+            throw new IllegalStateException(type.getConcreteType() + " is missing @StorageContainer annotation");
+        }
+        return container.value();
+    }
+
     private void errorRecovery(File ref, String ext) throws IOException {
         System.err.println("Bad data file provided, backing up and starting fresh");
         if (!ref.isAbsolute()) {
@@ -222,8 +382,9 @@ public class FFStorageAdapter implements StorageAdapter {
      */
     @Override
     public <R extends State> R loadState(long id, Class<R> type) {
-        //flatfile storage is preloaded, no on-demand loading necessary
-        return this.getAdaptee().getRelativeStorage().getStateStorage(type).getByID(id);
+        //flatfile storage is preloaded, so anything not loaded does not exist
+        //(asking the StateStorage again would only recurse back here)
+        return null;
     }
     /**
      * {@inheritDoc}
@@ -245,7 +406,10 @@ public class FFStorageAdapter implements StorageAdapter {
      */
     @Override
     public <E> void notifyUpdate(State state, DataField<E> field, E value) {
-        this.modified.set(true);
+        Journal journal = this.journal;
+        if (journal != null && !this.replaying) {
+            journal.update(state, field.getName(), value);
+        }
     }
 
     /**
@@ -254,8 +418,11 @@ public class FFStorageAdapter implements StorageAdapter {
      */
     @Override
     public void remove(State state) {
-        //TODO: Actually remove the state
-        this.modified.set(true);
+        //the state leaves the loaded states, and so the next snapshot
+        Journal journal = this.journal;
+        if (journal != null && !this.replaying) {
+            journal.remove(state);
+        }
     }
 
     /**
@@ -35,11 +35,13 @@ public enum InputMapper {;
         handles.put(BigDecimal.class, ResultSet::getBigDecimal);
         HANDLES = Collections.unmodifiableMap(handles);
 
+        //flat files only know of strings, booleans, and (any width of) number
         Map<Class<?>, Function<Object, ?>> mapper = new HashMap<>();
-        mapper.put(Instant.class, o -> {
-            //TODO: Read instant from string
-            return null;
-        });
+        mapper.put(Instant.class, o -> o instanceof String ? Instant.parse((String) o) : InputMapper.toInstant(o));
+        mapper.put(Integer.class, o -> o instanceof Number ? ((Number) o).intValue() : o);
+        mapper.put(Long.class, o -> o instanceof Number ? ((Number) o).longValue() : o);
+        mapper.put(Double.class, o -> o instanceof Number ? ((Number) o).doubleValue() : o);
+        mapper.put(BigDecimal.class, o -> o instanceof Number && !(o instanceof BigDecimal) ? new BigDecimal(o.toString()) : o);
         MAPPER = Collections.unmodifiableMap(mapper);
     }
 
@@ -60,12 +62,25 @@ public enum InputMapper {;
     }
 
     public static Instant toInstant(Object value) {
+        if (value instanceof Instant) {
+            return (Instant) value; //already read back as one, e.g. from the journal
+        }
         if (!(value instanceof Timestamp)) {
             throw new IllegalArgumentException("Cannot convert a non-timestamp to an Instant");
         }
         return ((Timestamp) value).toInstant();
     }
 
+    //states are referred to by id, and JDBC has no mapping for an Instant
+    public static Object toSQL(Object value) {
+        if (value instanceof State) {
+            return ((State) value).getID();
+        } else if (value instanceof Instant) {
+            return Timestamp.from((Instant) value);
+        }
+        return value;
+    }
+
     public static <T extends State> T toState(DataSource storage, Class<T> type, long id) {
         return storage.getRelativeStorage().getStateStorage(type).getByID(id);
     }
@@ -82,10 +97,11 @@ public enum InputMapper {;
     }
 
     public static <T> T toType(Class<T> type, Object value) {
-        if (type.isAssignableFrom(Instant.class)) {
-            return (T) InputMapper.toInstant(value); //in this case, T == Instant
+        if (value == null) {
+            return null;
         }
-        return (T) value; //will CCE if mismatched at this point
+        Function<Object, ?> mapper = MAPPER.get(type);
+        return (T) (mapper == null ? value : mapper.apply(value)); //will CCE if mismatched at this point
     }
 
     public static <T> T toTypeOrState(DataSource storage, Class<T> type, Object value) {
@@ -0,0 +1,506 @@
+package edu.rit.codelanx.data.storage;
+
+import edu.rit.codelanx.data.state.State;
+import edu.rit.codelanx.data.state.types.StateType;
+import edu.rit.codelanx.util.Errors;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of every change made to the states of a
+ * {@link FFStorageAdapter}, so that a save only costs as much as what
+ * changed since the last one. Changes are buffered as they happen and
+ * written (and forced to disk) together on a fixed interval, so a crash
+ * loses at most one interval of work. Once the log grows past a threshold,
+ * the adapter rewrites its snapshot files and the log starts over.
+ * <p>
+ * Each record is framed as {@code length, payload, crc32}; a torn or corrupt
+ * record at the end of the log (from a crash mid-write) ends the replay and
+ * is cut off. Replaying is idempotent, so records which are already part of
+ * the snapshot (such as when a crash interrupts a compaction) do no harm.
+ * A change which cannot be recorded is reported, and the next sync rewrites
+ * the snapshot in its place
+ */
+class Journal implements Closeable {
+
+    //a single daemon thread syncs every journal, the shutdown save covers the rest
+    private static final ScheduledExecutorService SYNCER;
+    //value tags, anything a DataField may serialize to
+    private static final byte NULL = 0;
+    private static final byte LONG = 1;
+    private static final byte INT = 2;
+    private static final byte STRING = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte DECIMAL = 5;
+    private static final byte INSTANT = 6;
+    private static final byte DOUBLE = 7;
+    private static final byte TEXT = 8; //length-prefixed utf-8, STRING is only read from older journals
+
+    private final File file;
+    private final FileChannel channel;
+    private final long compactBytes;
+    private final Runnable compactor;
+    private final Object io = new Object(); //guards the channel, taken before lock
+    private final Object lock = new Object(); //guards the pending buffer
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private volatile boolean dropped; //a record could not be written, so only a snapshot holds the change
+    private ScheduledFuture<?> syncTask;
+
+    static {
+        SYNCER = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r);
+            t.setName("journal-sync");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Opens (or creates) the journal file. Nothing is written until the
+     * journal is {@link #start started}
+     *
+     * @param file The file to append to
+     * @param compactBytes The size past which {@code compactor} is run
+     * @param compactor Calls {@link #compact} to rewrite the snapshot
+     * @throws IOException If the file cannot be opened
+     */
+    Journal(File file, long compactBytes, Runnable compactor) throws IOException {
+        this.file = file;
+        this.compactBytes = compactBytes;
+        this.compactor = compactor;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Reads back every intact record, in the order they were written, and
+     * truncates anything after the last intact record
+     *
+     * @param apply Applies a single record to the loaded states
+     * @throws IOException If the file cannot be read
+     */
+    void replay(Consumer<Record> apply) throws IOException {
+        synchronized (this.io) {
+            long good = 0;
+            this.channel.position(0);
+            InputStream raw = Channels.newInputStream(this.channel);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(raw));
+            CRC32 crc = new CRC32();
+            while (true) {
+                byte[] payload;
+                try {
+                    int length = in.readInt();
+                    if (length <= 0 || good + length + 8 > this.channel.size()) {
+                        break; //torn length, or a record cut short
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    crc.reset();
+                    crc.update(payload, 0, length);
+                    if ((int) crc.getValue() != in.readInt()) {
+                        break;
+                    }
+                } catch (EOFException ex) {
+                    break;
+                }
+                apply.accept(Record.read(new DataInputStream(new ByteArrayInputStream(payload))));
+                good += payload.length + 8;
+            }
+            if (good < this.channel.size()) {
+                Errors.report(new IOException("Discarding " + (this.channel.size() - good) + " torn bytes from " + this.file));
+                this.channel.truncate(good);
+            }
+            this.channel.position(good);
+        }
+    }
+
+    /**
+     * Begins syncing buffered records to disk on a fixed interval
+     *
+     * @param intervalMs How often to sync, in milliseconds
+     */
+    void start(long intervalMs) {
+        this.syncTask = SYNCER.scheduleWithFixedDelay(this::syncAndCompact, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records a newly inserted state
+     *
+     * @param state The {@link State} which was inserted
+     */
+    void insert(State state) {
+        this.append(Op.INSERT, state, out -> {
+            Map<String, Object> values = state.serialize();
+            out.writeShort(values.size());
+            for (Map.Entry<String, Object> ent : values.entrySet()) {
+                out.writeUTF(ent.getKey());
+                Journal.writeValue(out, ent.getValue());
+            }
+        });
+    }
+
+    /**
+     * Records a new value for one field of a state
+     *
+     * @param state The {@link State} which was updated
+     * @param field The name of the updated field
+     * @param value The new value, where states are referred to by ID
+     */
+    void update(State state, String field, Object value) {
+        this.append(Op.UPDATE, state, out -> {
+            out.writeUTF(field);
+            Journal.writeValue(out, value instanceof State ? ((State) value).getID() : value);
+        });
+    }
+
+    /**
+     * Records the removal of a state
+     *
+     * @param state The {@link State} which was removed
+     */
+    void remove(State state) {
+        this.append(Op.REMOVE, state, out -> {});
+    }
+
+    /**
+     * Writes out every buffered record and forces it to disk
+     *
+     * @throws IOException If the journal cannot be written
+     */
+    void sync() throws IOException {
+        //held throughout, so concurrent syncs cannot reorder their writes
+        synchronized (this.io) {
+            byte[] out;
+            synchronized (this.lock) {
+                if (this.pending.size() == 0) {
+                    return;
+                }
+                out = this.pending.toByteArray();
+                this.pending = new ByteArrayOutputStream(Math.max(32, out.length));
+            }
+            this.write(out);
+            this.channel.force(false);
+        }
+    }
+
+    /**
+     * Writes a snapshot of every state and then empties the journal. The
+     * states are copied while {@code guard} is held, which must keep any
+     * state from changing, and at the same moment the records buffered so
+     * far are set aside: the copy includes exactly those records and the
+     * ones already written. The copy is then written out with no lock
+     * held, so changes keep being recorded meanwhile, and only the records
+     * the snapshot includes are dropped from the journal
+     *
+     * @param guard Held while the states are copied, such as the read lock
+     *              of a {@link edu.rit.codelanx.cmd.CommandEngine}
+     * @param snapshot Copies the states, returning what writes the copy out
+     * @throws IOException If the snapshot or journal cannot be written
+     */
+    void compact(Lock guard, Snapshot snapshot) throws IOException {
+        //taken before io, as a sync never waits on the guard
+        guard.lock();
+        boolean guarded = true;
+        try {
+            //held until the log is rotated, a sync would write newer records before it
+            synchronized (this.io) {
+                byte[] copied;
+                synchronized (this.lock) {
+                    copied = this.pending.toByteArray();
+                    this.pending = new ByteArrayOutputStream(Math.max(32, copied.length));
+                }
+                IOAction write;
+                boolean dropped = this.dropped;
+                try {
+                    this.dropped = false; //the copy holds any change a dropped record missed
+                    write = snapshot.copy();
+                } finally {
+                    guarded = false;
+                    guard.unlock();
+                    //kept until the snapshot replaces them, in case it is never written
+                    this.write(copied);
+                }
+                boolean written = false;
+                try {
+                    write.run();
+                    written = true;
+                } finally {
+                    if (!written && dropped) {
+                        this.dropped = true; //still only the next snapshot can hold those changes
+                    }
+                }
+                this.channel.truncate(0);
+                this.channel.force(true);
+            }
+        } finally {
+            if (guarded) {
+                guard.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return The size of the journal, including buffered records
+     * @throws IOException If the size cannot be read
+     */
+    long size() throws IOException {
+        synchronized (this.lock) {
+            return this.channel.size() + this.pending.size();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws IOException {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.syncTask != null) {
+            this.syncTask.cancel(false);
+        }
+        this.sync();
+        this.channel.close();
+    }
+
+    //the scheduled sync, compacting once the journal is large enough
+    private void syncAndCompact() {
+        try {
+            this.sync();
+            if (this.dropped || this.channel.size() >= this.compactBytes) {
+                this.compactor.run();
+            }
+        } catch (IOException | UncheckedIOException ex) {
+            //keep buffering, the next sync or the shutdown save will retry
+            Errors.report(ex);
+        }
+    }
+
+    //appends framed records to the end of the file, io must be held
+    private void write(byte[] records) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(records);
+        while (buf.hasRemaining()) {
+            this.channel.write(buf, this.channel.size());
+        }
+    }
+
+    //frames a record and buffers it for the next sync
+    private void append(Op op, State state, IOConsumer<DataOutput> body) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try {
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(op.ordinal());
+            out.writeUTF(state.getType().getName());
+            out.writeLong(state.getID());
+            body.accept(out);
+            out.flush();
+        } catch (IOException | IllegalArgumentException ex) {
+            //the change itself is already made, so the next sync snapshots it instead
+            Errors.report(ex);
+            this.dropped = true;
+            return;
+        }
+        byte[] payload = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        synchronized (this.lock) {
+            DataOutputStream out = new DataOutputStream(this.pending);
+            try {
+                out.writeInt(payload.length);
+                out.write(payload);
+                out.writeInt((int) crc.getValue());
+            } catch (IOException ex) { //in-memory stream, should not happen
+                Errors.report(ex);
+                this.dropped = true;
+            }
+        }
+    }
+
+    private static void writeValue(DataOutput out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof String) {
+            //writeUTF cannot hold more than 64KB of encoded text
+            byte[] text = ((String) value).getBytes(StandardCharsets.UTF_8);
+            out.writeByte(TEXT);
+            out.writeInt(text.length);
+            out.write(text);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(DECIMAL);
+            out.writeUTF(value.toString());
+        } else if (value instanceof Instant) {
+            out.writeByte(INSTANT);
+            out.writeLong(((Instant) value).getEpochSecond());
+            out.writeInt(((Instant) value).getNano());
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else {
+            throw new IllegalArgumentException("Cannot journal a value of " + value.getClass());
+        }
+    }
+
+    private static Object readValue(DataInput in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case LONG:
+                return in.readLong();
+            case INT:
+                return in.readInt();
+            case STRING:
+                return in.readUTF();
+            case TEXT:
+                int length = in.readInt();
+                if (length < 0) {
+                    throw new IOException("Bad text length: " + length);
+                }
+                byte[] text = new byte[length];
+                in.readFully(text);
+                return new String(text, StandardCharsets.UTF_8);
+            case BOOLEAN:
+                return in.readBoolean();
+            case DECIMAL:
+                return new BigDecimal(in.readUTF());
+            case INSTANT:
+                return Instant.ofEpochSecond(in.readLong(), in.readInt());
+            case DOUBLE:
+                return in.readDouble();
+            default:
+                throw new IOException("Unknown value tag: " + tag);
+        }
+    }
+
+    /**
+     * The kinds of change a journal records
+     */
+    enum Op {
+        INSERT,
+        UPDATE,
+        REMOVE,
+    }
+
+    /**
+     * A single change, read back from the journal
+     */
+    static class Record {
+
+        private final Op op;
+        private final State.Type type;
+        private final long id;
+        private final Map<String, Object> values; //every field, or just the updated one
+
+        private Record(Op op, State.Type type, long id, Map<String, Object> values) {
+            this.op = op;
+            this.type = type;
+            this.id = id;
+            this.values = values;
+        }
+
+        private static Record read(DataInput in) throws IOException {
+            Op op = Op.values()[in.readByte()];
+            State.Type type = StateType.valueOf(in.readUTF().toUpperCase());
+            long id = in.readLong();
+            Map<String, Object> values;
+            switch (op) {
+                case INSERT:
+                    int size = in.readShort();
+                    values = new LinkedHashMap<>();
+                    for (int i = 0; i < size; i++) {
+                        values.put(in.readUTF(), Journal.readValue(in));
+                    }
+                    break;
+                case UPDATE:
+                    values = Collections.singletonMap(in.readUTF(), Journal.readValue(in));
+                    break;
+                default:
+                    values = Collections.emptyMap();
+                    break;
+            }
+            return new Record(op, type, id, values);
+        }
+
+        Op getOp() {
+            return this.op;
+        }
+
+        State.Type getType() {
+            return this.type;
+        }
+
+        long getID() {
+            return this.id;
+        }
+
+        /**
+         * @return Field names to their serialized values, as given by
+         *         {@link State#serialize()}
+         */
+        Map<String, Object> getValues() {
+            return this.values;
+        }
+    }
+
+    //writes out a snapshot copied by a Snapshot
+    @FunctionalInterface
+    interface IOAction {
+        void run() throws IOException;
+    }
+
+    /**
+     * Takes the copy of every state a {@link #compact compaction} writes
+     */
+    @FunctionalInterface
+    interface Snapshot {
+
+        /**
+         * Copies every state, while nothing may change them
+         *
+         * @return Writes the copy to the snapshot files
+         */
+        IOAction copy();
+    }
+
+    @FunctionalInterface
+    private interface IOConsumer<T> {
+        void accept(T t) throws IOException;
+    }
+}
@@ -0,0 +1,303 @@
+package edu.rit.codelanx.data.storage;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reads a flat-file container of states one record at a time, handing each
+ * record's fields to the caller before the next is parsed. Only the
+ * {@code "data"} array of the container is read, any other keys (and any
+ * unknown keys within a record) are skipped.
+ * <p>
+ * Values are left as read: strings, {@link Long} (or {@link BigDecimal} for
+ * any other number), booleans and {@code null}. Converting them to the
+ * type of each field is left to {@link InputMapper}
+ *
+ * @see JsonStateWriter
+ */
+class JsonStateReader implements Closeable {
+
+    private final Reader in;
+    private int peeked = -2; //-2 when nothing has been peeked
+    private long offset = 0; //characters read, for error messages
+
+    /**
+     * Opens a container for reading
+     *
+     * @param file The file to read from
+     * @throws IOException If the file cannot be opened
+     */
+    JsonStateReader(Path file) throws IOException {
+        this.in = new BufferedReader(Files.newBufferedReader(file, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    /**
+     * Parses every record in the container
+     *
+     * @param record Receives the fields of each record, in order. The map is
+     *               not reused, and may be kept
+     * @throws IOException If the file cannot be read, or is not a container
+     */
+    void forEach(Consumer<Map<String, Object>> record) throws IOException {
+        this.expect('{');
+        if (this.consume('}')) {
+            return; //empty container
+        }
+        do {
+            String key = this.readString();
+            this.expect(':');
+            if (!key.equals("data")) {
+                this.readValue(); //not ours, skip it
+                continue;
+            }
+            this.expect('[');
+            if (this.consume(']')) {
+                continue;
+            }
+            do {
+                this.expect('{');
+                record.accept(this.readObject());
+            } while (this.consume(','));
+            this.expect(']');
+        } while (this.consume(','));
+        this.expect('}');
+    }
+
+    /**
+     * Parses every record in a YAML container written by
+     * {@link JsonStateWriter}, which holds a {@code data} sequence of JSON
+     * objects. Containers written by older versions hold a tree of states
+     * instead, which is detected before any record is parsed
+     *
+     * @param record Receives the fields of each record, in order. The map is
+     *               not reused, and may be kept
+     * @return {@code false} if the container is not a sequence of JSON
+     *         objects, in which case nothing was parsed
+     * @throws IOException If the file cannot be read, or is not a container
+     */
+    boolean forEachYaml(Consumer<Map<String, Object>> record) throws IOException {
+        if (!this.consumeWord("data") || !this.consume(':')) {
+            return false;
+        } else if (this.consume('[')) {
+            this.expect(']');
+            return true; //empty container
+        }
+        boolean first = true;
+        while (this.consume('-')) {
+            if (first && this.peek() != '{') {
+                return false;
+            }
+            first = false;
+            this.expect('{');
+            record.accept(this.readObject());
+        }
+        if (this.peek() >= 0) {
+            throw this.malformed("'-' or the end of the container");
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws IOException {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+
+    //reads the rest of an object, once the opening brace is consumed
+    private Map<String, Object> readObject() throws IOException {
+        Map<String, Object> back = new LinkedHashMap<>();
+        if (this.consume('}')) {
+            return back;
+        }
+        do {
+            String key = this.readString();
+            this.expect(':');
+            back.put(key, this.readValue());
+        } while (this.consume(','));
+        this.expect('}');
+        return back;
+    }
+
+    private Object readValue() throws IOException {
+        int c = this.peek();
+        switch (c) {
+            case '"':
+                return this.readString();
+            case '{':
+                this.next();
+                return this.readObject();
+            case '[':
+                this.next();
+                List<Object> back = new ArrayList<>();
+                if (this.consume(']')) {
+                    return back;
+                }
+                do {
+                    back.add(this.readValue());
+                } while (this.consume(','));
+                this.expect(']');
+                return back;
+            case 't':
+                this.expectWord("true");
+                return Boolean.TRUE;
+            case 'f':
+                this.expectWord("false");
+                return Boolean.FALSE;
+            case 'n':
+                this.expectWord("null");
+                return null;
+            default:
+                return this.readNumber();
+        }
+    }
+
+    private Object readNumber() throws IOException {
+        StringBuilder buf = new StringBuilder();
+        int c = this.peek();
+        while (c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E' || (c >= '0' && c <= '9')) {
+            buf.append((char) this.next());
+            c = this.peekRaw();
+        }
+        if (buf.length() == 0) {
+            throw this.malformed("a value");
+        }
+        String num = buf.toString();
+        try {
+            if (num.indexOf('.') < 0 && num.indexOf('e') < 0 && num.indexOf('E') < 0 && num.length() < 19) {
+                return Long.parseLong(num);
+            }
+            return new BigDecimal(num);
+        } catch (NumberFormatException ex) {
+            throw this.malformed("a number");
+        }
+    }
+
+    private String readString() throws IOException {
+        this.expect('"');
+        StringBuilder buf = new StringBuilder();
+        while (true) {
+            int c = this.next();
+            if (c < 0) {
+                throw this.malformed("the end of a string");
+            } else if (c == '"') {
+                return buf.toString();
+            } else if (c != '\\') {
+                buf.append((char) c);
+                continue;
+            }
+            c = this.next();
+            switch (c) {
+                case 'n':
+                    buf.append('\n');
+                    break;
+                case 'r':
+                    buf.append('\r');
+                    break;
+                case 't':
+                    buf.append('\t');
+                    break;
+                case 'b':
+                    buf.append('\b');
+                    break;
+                case 'f':
+                    buf.append('\f');
+                    break;
+                case 'u':
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(this.next(), 16); //-1 at the end of input
+                        if (digit < 0) {
+                            throw this.malformed("a unicode escape");
+                        }
+                        code = (code << 4) | digit;
+                    }
+                    buf.append((char) code);
+                    break;
+                default:
+                    if (c < 0) {
+                        throw this.malformed("an escape");
+                    }
+                    buf.append((char) c); //quotes, slashes
+                    break;
+            }
+        }
+    }
+
+    private void expectWord(String word) throws IOException {
+        for (int i = 0; i < word.length(); i++) {
+            if (this.next() != word.charAt(i)) {
+                throw this.malformed(word);
+            }
+        }
+    }
+
+    //consumes word if it is the next token, otherwise stops where it differs
+    private boolean consumeWord(String word) throws IOException {
+        this.peek();
+        for (int i = 0; i < word.length(); i++) {
+            if (this.peekRaw() != word.charAt(i)) {
+                return false;
+            }
+            this.next();
+        }
+        return true;
+    }
+
+    private void expect(char c) throws IOException {
+        if (this.peek() != c) {
+            throw this.malformed("'" + c + "'");
+        }
+        this.next();
+    }
+
+    //consumes c if it is the next token
+    private boolean consume(char c) throws IOException {
+        if (this.peek() == c) {
+            this.next();
+            return true;
+        }
+        return false;
+    }
+
+    //peeks the next character which is not whitespace
+    private int peek() throws IOException {
+        int c = this.peekRaw();
+        while (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+            this.next();
+            c = this.peekRaw();
+        }
+        return c;
+    }
+
+    private int peekRaw() throws IOException {
+        if (this.peeked == -2) {
+            this.peeked = this.in.read();
+        }
+        return this.peeked;
+    }
+
+    private int next() throws IOException {
+        int back = this.peekRaw();
+        this.peeked = -2;
+        this.offset++;
+        return back;
+    }
+
+    private IOException malformed(String expected) {
+        return new MalformedContainerException("Expected " + expected + " at character " + this.offset);
+    }
+}
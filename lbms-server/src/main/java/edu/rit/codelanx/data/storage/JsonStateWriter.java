@@ -0,0 +1,158 @@
+package edu.rit.codelanx.data.storage;
+
+import edu.rit.codelanx.data.state.State;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Writes a flat-file container of states one at a time, in the form
+ * {@code {"data":[{...},{...}]}}, so that saving never needs the whole
+ * container in memory at once. Each state is written as its
+ * {@link State#serialize()} map; instants are written as ISO-8601 strings
+ * and decimals as plain numbers.
+ * <p>
+ * As YAML is a superset of JSON, YAML containers are written the same way,
+ * as a {@code data} sequence holding one JSON object per line
+ *
+ * @see JsonStateReader
+ */
+class JsonStateWriter implements Closeable {
+
+    private final Writer out;
+    private final boolean yaml;
+    private boolean first = true;
+
+    /**
+     * Begins writing a new container, replacing any existing file
+     *
+     * @param file The file to write to
+     * @throws IOException If the file cannot be opened
+     */
+    JsonStateWriter(Path file) throws IOException {
+        this(file, false);
+    }
+
+    /**
+     * Begins writing a new container, replacing any existing file
+     *
+     * @param file The file to write to
+     * @param yaml {@code true} to write a YAML container, read back by
+     *             {@link JsonStateReader#forEachYaml}
+     * @throws IOException If the file cannot be opened
+     */
+    JsonStateWriter(Path file, boolean yaml) throws IOException {
+        this.out = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 1 << 16);
+        this.yaml = yaml;
+        //the YAML header waits for the first state, an empty sequence is written inline
+        if (!yaml) {
+            this.out.write("{\"data\":[");
+        }
+    }
+
+    /**
+     * Appends a single state to the container
+     *
+     * @param state The {@link State} to write
+     * @throws IOException If the state cannot be written
+     */
+    void write(State state) throws IOException {
+        this.write(state.serialize());
+    }
+
+    /**
+     * Appends a single state to the container, from values it was
+     * serialized to earlier
+     *
+     * @param values The {@link State#serialize()} map of the state
+     * @throws IOException If the state cannot be written
+     */
+    void write(Map<String, Object> values) throws IOException {
+        if (this.yaml) {
+            this.out.write(this.first ? "data:\n- {" : "\n- {");
+        } else {
+            this.out.write(this.first ? "\n{" : ",\n{");
+        }
+        this.first = false;
+        boolean firstField = true;
+        for (Map.Entry<String, Object> ent : values.entrySet()) {
+            if (!firstField) {
+                this.out.write(',');
+            }
+            firstField = false;
+            this.writeString(ent.getKey());
+            this.out.write(':');
+            this.writeValue(ent.getValue());
+        }
+        this.out.write('}');
+    }
+
+    /**
+     * Closes the container and flushes it to disk
+     *
+     * @throws IOException {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!this.yaml) {
+                this.out.write("\n]}\n");
+            } else {
+                this.out.write(this.first ? "data: []\n" : "\n");
+            }
+        } finally {
+            this.out.close();
+        }
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            this.out.write("null");
+        } else if (value instanceof BigDecimal) {
+            this.out.write(((BigDecimal) value).toPlainString());
+        } else if (value instanceof Number || value instanceof Boolean) {
+            this.out.write(value.toString());
+        } else {
+            this.writeString(value.toString()); //strings, and instants as ISO-8601
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        this.out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    this.out.write("\\\"");
+                    break;
+                case '\\':
+                    this.out.write("\\\\");
+                    break;
+                case '\n':
+                    this.out.write("\\n");
+                    break;
+                case '\r':
+                    this.out.write("\\r");
+                    break;
+                case '\t':
+                    this.out.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        this.out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        this.out.write(c);
+                    }
+                    break;
+            }
+        }
+        this.out.write('"');
+    }
+}
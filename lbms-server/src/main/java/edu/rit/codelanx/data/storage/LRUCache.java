@@ -0,0 +1,119 @@
+package edu.rit.codelanx.data.storage;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * A cache bounded by the total weight of its values, which evicts the least
+ * recently used entries first. Every method is synchronized, as the cache is
+ * shared by every thread reading through an adapter
+ *
+ * @param <K> The type of key
+ * @param <V> The type of cached value
+ */
+class LRUCache<K, V> {
+
+    //access ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75F, true);
+    private final ToIntFunction<? super V> weigher;
+    private final long maxWeight;
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates an empty cache
+     *
+     * @param maxWeight The total weight of values past which entries are
+     *                  evicted, where {@code 0} disables the cache
+     * @param weigher Weighs a single value, at least {@code 1}
+     */
+    LRUCache(long maxWeight, ToIntFunction<? super V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Gets a cached value, marking it as the most recently used
+     *
+     * @param key The key of the value
+     * @return The value, or {@code null} if it is not cached
+     */
+    synchronized V get(K key) {
+        V back = this.entries.get(key);
+        if (back == null) {
+            this.misses++;
+        } else {
+            this.hits++;
+        }
+        return back;
+    }
+
+    /**
+     * Caches a value, evicting as many of the least recently used entries as
+     * needed to stay within the maximum weight
+     *
+     * @param key The key of the value
+     * @param value The value to cache
+     */
+    synchronized void put(K key, V value) {
+        long added = this.weigh(value);
+        if (added > this.maxWeight) {
+            this.remove(key); //would only evict everything else, then itself
+            return;
+        }
+        V old = this.entries.put(key, value);
+        this.weight += added - (old == null ? 0 : this.weigh(old));
+        Iterator<V> itr = this.entries.values().iterator();
+        while (this.weight > this.maxWeight && itr.hasNext()) {
+            this.weight -= this.weigh(itr.next());
+            itr.remove();
+            this.evictions++;
+        }
+    }
+
+    /**
+     * Removes a cached value
+     *
+     * @param key The key of the value
+     */
+    synchronized void remove(K key) {
+        V old = this.entries.remove(key);
+        if (old != null) {
+            this.weight -= this.weigh(old);
+        }
+    }
+
+    /**
+     * Removes every cached value whose key matches
+     *
+     * @param test Tests each key, returning {@code true} to remove it
+     */
+    synchronized void removeIf(Predicate<? super K> test) {
+        Iterator<Map.Entry<K, V>> itr = this.entries.entrySet().iterator();
+        while (itr.hasNext()) {
+            Map.Entry<K, V> ent = itr.next();
+            if (test.test(ent.getKey())) {
+                this.weight -= this.weigh(ent.getValue());
+                itr.remove();
+            }
+        }
+    }
+
+    /**
+     * Takes a snapshot of the cache's counters
+     *
+     * @return The current {@link CacheStats}
+     */
+    synchronized CacheStats getStats() {
+        return new CacheStats(this.hits, this.misses, this.evictions, this.entries.size(), this.weight);
+    }
+
+    private long weigh(V value) {
+        return Math.max(1, this.weigher.applyAsInt(value));
+    }
+}
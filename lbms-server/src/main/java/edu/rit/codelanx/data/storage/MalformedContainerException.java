@@ -0,0 +1,15 @@
+package edu.rit.codelanx.data.storage;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a flat-file container cannot be parsed, as opposed to when it
+ * cannot be read at all. A malformed container is backed up and replaced,
+ * rather than failing the load outright
+ */
+class MalformedContainerException extends IOException {
+
+    MalformedContainerException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,112 @@
+package edu.rit.codelanx.data.storage;
+
+import edu.rit.codelanx.data.field.DataField;
+import edu.rit.codelanx.data.state.State;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * A numeric value taken from each state, which a {@link Query} may sum or
+ * average. A measure is either a single numeric {@link DataField}, or a value
+ * derived from several fields, such as the time between two of them.
+ * Measures are compared by name, so that counters materialized for one are
+ * found again by an equal measure
+ */
+public final class Measure {
+
+    private final String name;
+    private final Function<State, Number> value;
+    private final String sql;
+
+    private Measure(String name, Function<State, Number> value, String sql) {
+        this.name = name;
+        this.value = value;
+        this.sql = sql;
+    }
+
+    /**
+     * Measures the value of a numeric field
+     *
+     * @param field The {@link DataField} to measure
+     * @return A {@link Measure} of the field's value
+     */
+    public static Measure of(DataField<? extends Number> field) {
+        return new Measure(field.getName(), field::get, field.getName());
+    }
+
+    /**
+     * Measures the number of seconds from one point in time to another, such
+     * as the length of a visit. States missing either point have no value
+     *
+     * @param from The {@link DataField} holding the earlier point in time
+     * @param to The {@link DataField} holding the later point in time
+     * @return A {@link Measure} of the seconds between the two fields
+     */
+    public static Measure between(DataField<Instant> from, DataField<Instant> to) {
+        return new Measure(from.getName() + ".." + to.getName(), state -> {
+            Instant start = from.getOrNull(state);
+            Instant end = to.getOrNull(state);
+            return start == null || end == null ? null : Duration.between(start, end).getSeconds();
+        }, "TIMESTAMPDIFF(SECOND, " + from.getName() + ", " + to.getName() + ")");
+    }
+
+    /**
+     * Gets the name of this measure, unique among the measures of one type
+     *
+     * @return The name of the measure
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Takes this measure of a single state
+     *
+     * @param state The {@link State} to measure
+     * @return The measured value, or {@code null} if the state has none
+     */
+    public BigDecimal valueOf(State state) {
+        return Measure.toDecimal(this.value.apply(state));
+    }
+
+    //the expression for this measure within a select
+    String toSQL() {
+        return this.sql;
+    }
+
+    //every summed value is widened exactly, so money is never rounded
+    static BigDecimal toDecimal(Number n) {
+        if (n == null || n instanceof BigDecimal) {
+            return (BigDecimal) n;
+        }
+        if (n instanceof BigInteger) {
+            return new BigDecimal((BigInteger) n);
+        }
+        if (n instanceof Double || n instanceof Float) {
+            return BigDecimal.valueOf(n.doubleValue());
+        }
+        return BigDecimal.valueOf(n.longValue());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Measure)) return false;
+        return this.name.equals(((Measure) o).name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.name);
+    }
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+}
@@ -9,20 +9,18 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
 //Stores data in-memory, starts empty
 public class MemoryStorageAdapter implements StorageAdapter {
 
-    private final Map<Class<? extends State>, Map<Long, ? extends State>> data = new HashMap<>();
+    private final Map<Class<? extends State>, Map<Long, ? extends State>> data = new ConcurrentHashMap<>();
     private final DataSource storage;
-    private final Library lib;
+    private volatile Library lib;
 
     public MemoryStorageAdapter(DataSource storage) {
         this.storage = storage;
-        this.lib = Library.create()
-                .setValue(Library.Field.MONEY, BigDecimal.ZERO)
-                .build(storage);
     }
 
     protected <R extends State> Map<Long, R> getData(Class<R> type) {
@@ -51,7 +49,12 @@ public class MemoryStorageAdapter implements StorageAdapter {
      */
     @Override
     public void loadAll() throws IOException {
-        //no-op
+        //nothing to load, but the DataSource is now ready to build the library
+        if (this.lib == null) {
+            this.lib = Library.create()
+                    .setValue(Library.Field.MONEY, BigDecimal.ZERO)
+                    .build(this.storage);
+        }
     }
     /**
      * {@inheritDoc}
@@ -82,7 +85,7 @@ public class MemoryStorageAdapter implements StorageAdapter {
      */
     @Override
     public <R extends State, E> Stream<R> loadState(Class<R> type, DataField<E> field, E value) {
-        return (Stream<R>) field.findStatesByValue(value); //TODO: Make sure this doesn't loop
+        return (Stream<R>) field.findStatesByValue(this.storage, value); //TODO: Make sure this doesn't loop
     }
     /**
      * {@inheritDoc}
@@ -1,8 +1,13 @@
 package edu.rit.codelanx.data.storage;
 
 import edu.rit.codelanx.data.field.DataField;
+import edu.rit.codelanx.data.state.State;
 
+import java.math.BigDecimal;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
@@ -23,6 +28,142 @@ public interface Query<T> {
         return this.isAny(field, Arrays.asList(value));
     }
 
+    /**
+     * Keeps only the results related to at least one result of another
+     * query, e.g. the books written by any author of a given name. The join
+     * is answered by the backing store along with every other comparison,
+     * rather than by finding the related states first
+     *
+     * @param relation The {@link Relation} the results must have
+     * @param related The query the related states must match, made on the
+     *                same data source as this one
+     * @param <R> The type of the related states
+     * @return This query
+     */
+    public <R extends State> Query<T> join(Relation<? super T, R> relation, Query<R> related);
+
+    //ordering
+    /**
+     * Orders the results by a field. Further calls order results which tie
+     * on every earlier field, and any remaining ties are broken by id
+     *
+     * @param field The {@link DataField} to order by
+     * @param direction Whether to order from the lowest or highest value
+     * @param <E> The type of the field
+     * @return This query
+     */
+    public <E extends Comparable<E>> Query<T> orderBy(DataField<E> field, Direction direction);
+
+    /**
+     * Caps the number of results, taking the first ones in the query's
+     * order
+     *
+     * @param limit The most results to return
+     * @return This query
+     */
+    public Query<T> limit(int limit);
+
+    /**
+     * Skips a number of results, counted in the query's order. Prefer
+     * {@link #after(Object)} for walking through many pages, as the skipped
+     * results must still be found
+     *
+     * @param offset The number of results to skip
+     * @return This query
+     */
+    public Query<T> offset(int offset);
+
+    /**
+     * Starts the results after a given one, as a cursor from the last result
+     * of the previous page. Only results which come later in the query's
+     * order are returned, so pages stay stable as results are added or
+     * removed before the cursor
+     *
+     * @param last The last result already seen
+     * @return This query
+     */
+    public Query<T> after(T last);
+
+    /**
+     * Resolves a relationship of every result together once they are found,
+     * rather than as each result is asked for it. Only results of a
+     * {@link StorageAdapter#isCached() cached} adapter are resolved, as
+     * nothing resolved for any other adapter is kept
+     *
+     * @param relation The {@link Relation} to resolve
+     * @return This query
+     * @see Relation#prefetch(java.util.Collection)
+     */
+    public Query<T> include(Relation<? super T, ?> relation);
+
+    //aggregates
+    /**
+     * Counts the results, which the backing store may do without finding
+     * each of them
+     *
+     * @return The number of results
+     */
+    public long count();
+
+    /**
+     * Sums a measure of the results, skipping those with no value
+     *
+     * @param measure The {@link Measure} to sum
+     * @return The sum, or zero if no result had a value
+     */
+    public BigDecimal sum(Measure measure);
+
+    /**
+     * Averages a measure of the results, skipping those with no value
+     *
+     * @param measure The {@link Measure} to average
+     * @return The average, or {@link OptionalDouble#empty()} if no result
+     *         had a value
+     */
+    public OptionalDouble average(Measure measure);
+
+    /**
+     * Counts the results by their value of a field, skipping those with no
+     * value
+     *
+     * @param field The {@link DataField} to group by
+     * @param <E> The type of the field
+     * @return The number of results holding each value
+     */
+    public <E> Map<E, Long> countBy(DataField<E> field);
+
+    default public BigDecimal sum(DataField<? extends Number> field) {
+        return this.sum(Measure.of(field));
+    }
+
+    default public OptionalDouble average(DataField<? extends Number> field) {
+        return this.average(Measure.of(field));
+    }
+
     public Stream<T> results();
 
+    /**
+     * Runs the query without waiting on the backing store, so that
+     * independent lookups can be made at once and joined afterwards
+     *
+     * @return A future completing with the same results as {@link #results()}
+     */
+    public CompletableFuture<Stream<T>> resultsAsync();
+
+    public enum Direction {
+        ASCENDING("ASC"),
+        DESCENDING("DESC"),
+        ;
+
+        private final String keyword;
+
+        private Direction(String keyword) {
+            this.keyword = keyword;
+        }
+
+        public String getKeyword() {
+            return this.keyword;
+        }
+    }
+
 }
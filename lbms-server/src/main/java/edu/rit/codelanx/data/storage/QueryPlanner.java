@@ -0,0 +1,237 @@
+package edu.rit.codelanx.data.storage;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.cache.StateStorage;
+import edu.rit.codelanx.data.field.DataField;
+import edu.rit.codelanx.data.state.State;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Decides how a {@link StateQuery} is answered from locally loaded states.
+ * Each comparison which can be answered through a field index is costed by
+ * the number of states its index holds for the value; the cheapest one
+ * drives the lookup, further indexed comparisons of a similar size are
+ * intersected into the candidates, and everything else is tested against
+ * the (hopefully few) candidates which remain. Range comparisons against an
+ * ordered field are first merged into a single window per field, so that
+ * {@code start >= a AND start < b} is one lookup rather than two.
+ * <p>
+ * A query ordered by a single ordered field is walked in the order of that
+ * field's index instead, whenever nothing more selective than its window
+ * would drive the lookup, so that a limited query stops as soon as it has
+ * enough results rather than sorting every candidate
+ *
+ * @param <S> The type of {@link State} being queried
+ */
+class QueryPlanner<S extends State> {
+
+    //an index bucket this many times larger than the current candidates is
+    //cheaper to test per-candidate than to materialize and intersect
+    private static final int INTERSECT_FACTOR = 4;
+
+    private final StateQuery<S> query;
+
+    QueryPlanner(StateQuery<S> query) {
+        this.query = query;
+    }
+
+    /**
+     * Executes the query against the loaded states in {@code storage}
+     *
+     * @param storage The {@link StateStorage} to fall back on when no index
+     *                can drive the lookup
+     * @return A {@link Stream} of the query's results
+     */
+    Stream<S> execute(StateStorage<S> storage) {
+        List<Lookup> indexed = new ArrayList<>();
+        List<StateQuery<S>.Comparison<?>> residual = new ArrayList<>();
+        Map<DataField<?>, Window<?>> windows = new LinkedHashMap<>();
+        for (StateQuery<S>.Comparison<?> comp : this.query.getComparisons()) {
+            if (comp.isRange() && comp.getDataField().isOrdered()) {
+                this.narrow(windows, comp);
+                continue;
+            }
+            long cost = comp.estimateMatches();
+            if (cost < 0) {
+                residual.add(comp);
+            } else {
+                indexed.add(new Lookup(cost, comp::findStates, Collections.singletonList(comp)));
+            }
+        }
+        DataField<?> orderField = this.getIndexOrder();
+        Lookup orderLookup = null;
+        for (Window<?> window : windows.values()) {
+            Lookup lookup = window.toLookup();
+            if (window.field == orderField) {
+                orderLookup = lookup;
+            }
+            indexed.add(lookup);
+        }
+        indexed.sort(Comparator.comparingLong(c -> c.cost));
+        if (!indexed.isEmpty() && indexed.get(0).cost == 0) {
+            return Stream.empty(); //nothing can satisfy the most selective comparison
+        }
+        if (orderField != null && (indexed.isEmpty() || indexed.get(0) == orderLookup)) {
+            //everything else is tested while walking the index, so nothing past the limit is looked at
+            for (Lookup other : indexed) {
+                if (other != orderLookup) {
+                    residual.addAll(other.covers);
+                }
+            }
+            Window<?> window = orderLookup == null ? null : windows.get(orderField);
+            return this.query.finish(filter(this.walkInOrder(storage, orderField, window), residual), true);
+        }
+        if (indexed.isEmpty()) {
+            return this.query.finish(filter(storage.streamLoaded(), residual), false);
+        }
+        //lookups are copied out by the index, so the candidates are ours to trim
+        Set<S> candidates = indexed.get(0).finder.get()
+                .collect(Collectors.toCollection(HashSet::new));
+        for (Lookup next : indexed.subList(1, indexed.size())) {
+            if (candidates.isEmpty()) {
+                return Stream.empty();
+            }
+            if (next.cost > (long) candidates.size() * INTERSECT_FACTOR) {
+                residual.addAll(next.covers);
+                continue;
+            }
+            candidates.retainAll(next.finder.get().collect(Collectors.toSet()));
+        }
+        return this.query.finish(filter(candidates.stream(), residual), false);
+    }
+
+    //the field whose index already holds the query's order, or null if it must be sorted
+    private DataField<?> getIndexOrder() {
+        List<StateQuery<S>.Ordering<?>> orderings = this.query.getOrderings();
+        if (orderings.size() != 1 || !orderings.get(0).getDataField().isOrdered()) {
+            return null; //buckets are only ordered by id, so a second ordering needs a sort anyway
+        }
+        return orderings.get(0).getDataField();
+    }
+
+    //every state within the window, or all of them, in the query's order
+    @SuppressWarnings("unchecked") //states found through a field of S are of S
+    private <E> Stream<S> walkInOrder(StateStorage<S> storage, DataField<E> field, Window<?> window) {
+        boolean descending = this.query.getOrderings().get(0).getDirection() == Query.Direction.DESCENDING;
+        Window<E> bounds = window == null ? new Window<>(field) : (Window<E>) window;
+        E from = bounds.from;
+        boolean fromInclusive = bounds.fromInclusive;
+        E to = bounds.to;
+        boolean toInclusive = bounds.toInclusive;
+        S cursor = this.query.getCursor();
+        E last = cursor == null ? null : field.getOrNull(cursor);
+        if (last != null) {
+            //start at the cursor, ties with it are dropped by the query afterwards
+            if (descending && (to == null || bounds.compare(last, to) < 0)) {
+                to = last;
+                toInclusive = true;
+            } else if (!descending && (from == null || bounds.compare(last, from) > 0)) {
+                from = last;
+                fromInclusive = true;
+            }
+        }
+        DataSource source = this.query.getSource();
+        Stream<S> back = (Stream<S>) field.findStatesInOrder(source, from, fromInclusive, to, toInclusive, descending);
+        if (window != null || (!descending && last != null)) {
+            return back; //nulls never lie within a window, and come before any ascending cursor
+        }
+        //null values are not indexed, and come first in ascending order
+        Stream<S> nulls = storage.streamLoaded()
+                .filter(s -> field.getOrNull(s) == null)
+                .sorted(Comparator.comparingLong(State::getID));
+        return descending ? Stream.concat(back, nulls) : Stream.concat(nulls, back);
+    }
+
+    private Stream<S> filter(Stream<S> candidates, List<StateQuery<S>.Comparison<?>> residual) {
+        if (residual.isEmpty()) {
+            return candidates;
+        }
+        return candidates.filter(s -> residual.stream().allMatch(c -> c.test(s)));
+    }
+
+    //folds a range comparison into the window for its field
+    @SuppressWarnings("unchecked") //windows are keyed by their own field
+    private <E> void narrow(Map<DataField<?>, Window<?>> windows, StateQuery<S>.Comparison<E> comp) {
+        Window<E> window = (Window<E>) windows.computeIfAbsent(comp.getDataField(), Window::new);
+        window.narrow(comp);
+    }
+
+    //a way of retrieving candidates, paired with the number of states it yields
+    private class Lookup {
+
+        private final long cost;
+        private final Supplier<Stream<S>> finder;
+        private final List<StateQuery<S>.Comparison<?>> covers; //answered exactly by the finder
+
+        private Lookup(long cost, Supplier<Stream<S>> finder, List<StateQuery<S>.Comparison<?>> covers) {
+            this.cost = cost;
+            this.finder = finder;
+            this.covers = covers;
+        }
+    }
+
+    //the tightest bounds given for a single ordered field
+    private class Window<E> {
+
+        private final DataField<E> field;
+        private final List<StateQuery<S>.Comparison<?>> covers = new ArrayList<>();
+        private E from;
+        private boolean fromInclusive;
+        private E to;
+        private boolean toInclusive;
+
+        @SuppressWarnings("unchecked")
+        private Window(DataField<?> field) {
+            this.field = (DataField<E>) field;
+        }
+
+        private void narrow(StateQuery<S>.Comparison<E> comp) {
+            this.covers.add(comp);
+            E value = comp.getValue();
+            switch (comp.getType()) {
+                case GREATER_THAN:
+                case GREATER_THAN_OR_EQ:
+                    boolean fromInc = comp.getType() == StateQuery.ComparisonType.GREATER_THAN_OR_EQ;
+                    int low = this.from == null ? 1 : compare(value, this.from);
+                    if (low > 0 || (low == 0 && !fromInc)) {
+                        this.from = value;
+                        this.fromInclusive = fromInc;
+                    }
+                    break;
+                case LESS_THAN:
+                case LESS_THAN_OR_EQ:
+                    boolean toInc = comp.getType() == StateQuery.ComparisonType.LESS_THAN_OR_EQ;
+                    int high = this.to == null ? -1 : compare(value, this.to);
+                    if (high < 0 || (high == 0 && !toInc)) {
+                        this.to = value;
+                        this.toInclusive = toInc;
+                    }
+                    break;
+            }
+        }
+
+        @SuppressWarnings("unchecked") //states found through a field of S are of S
+        private Lookup toLookup() {
+            DataSource source = QueryPlanner.this.query.getSource();
+            long cost = this.field.countStatesInRange(source, this.from, this.fromInclusive, this.to, this.toInclusive);
+            return new Lookup(cost, () -> (Stream<S>) this.field.findStatesInRange(source,
+                    this.from, this.fromInclusive, this.to, this.toInclusive), this.covers);
+        }
+
+        @SuppressWarnings("unchecked") //only Comparable types may be ordered
+        private int compare(E one, E two) {
+            return ((Comparable<? super E>) one).compareTo(two);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package edu.rit.codelanx.data.storage;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.field.DataField;
+import edu.rit.codelanx.data.state.State;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.stream.Stream;
+
+/**
+ * A relationship from one type of {@link State} to many of another, held by
+ * a third type of state which links one of each, e.g. a book to its authors
+ * through their listings.
+ * <p>
+ * The related states of a whole batch are {@link #prefetch(Collection)
+ * resolved at once}, by a single lookup of every link, rather than by a
+ * query per state; {@link Query#include(Relation) including} a relation in
+ * a query does so for all of its results. Links are never changed once made,
+ * so what is resolved for an adapter which is always
+ * {@link StorageAdapter#isCached() cached} is kept until a new link is
+ * {@link #forget(State) made}. For any other adapter, the related states may
+ * be unloaded, and results which are never read would be kept for nothing,
+ * so nothing is resolved ahead of time and each state's related states are
+ * found as they are read
+ *
+ * @param <S> The type of state the relationship is from
+ * @param <R> The type of state it is to
+ * @see StorageAdapter#findRelated(Relation, Collection)
+ */
+public final class Relation<S extends State, R extends State> {
+
+    private final Class<? extends State> link;
+    private final DataField<S> from;
+    private final DataField<R> to;
+    //keyed weakly, as states are only equal by their type and id
+    private final Map<S, List<R>> resolved = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private Relation(Class<? extends State> link, DataField<S> from, DataField<R> to) {
+        this.link = link;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Makes a relationship held by links of the given type
+     *
+     * @param link The type of {@link State} linking the two
+     * @param from The field of the link holding the state related from
+     * @param to The field of the link holding the related state
+     * @param <L> The type of the link
+     * @param <S> The type of state the relationship is from
+     * @param <R> The type of state it is to
+     * @return The new {@link Relation}
+     */
+    public static <L extends State, S extends State, R extends State> Relation<S, R> through(Class<L> link, DataField<S> from, DataField<R> to) {
+        return new Relation<>(link, from, to);
+    }
+
+    /**
+     * Gets the type of state linking the two
+     *
+     * @return The type of the link
+     */
+    public Class<? extends State> getLink() {
+        return this.link;
+    }
+
+    /**
+     * Gets the field of the link holding the state related from
+     *
+     * @return The {@link DataField} related from
+     */
+    public DataField<S> getFrom() {
+        return this.from;
+    }
+
+    /**
+     * Gets the field of the link holding the related state
+     *
+     * @return The {@link DataField} related to
+     */
+    public DataField<R> getTo() {
+        return this.to;
+    }
+
+    /**
+     * Gets the states related to a state, resolving them only if they have
+     * not already been
+     *
+     * @param state The {@link State} to get the related states of
+     * @return The related states, in the order they were linked
+     */
+    public Stream<R> get(S state) {
+        if (!Relation.isKept(state)) {
+            return this.find(state.getLoader(), Collections.singletonList(state)).get(state).stream();
+        }
+        List<R> back = this.resolved.get(state);
+        if (back == null) {
+            back = this.find(state.getLoader(), Collections.singletonList(state)).get(state);
+            this.resolved.put(state, back);
+        }
+        return back.stream();
+    }
+
+    /**
+     * Resolves the related states of every given state which has not already
+     * been, with a single lookup per {@link DataSource} they were loaded by.
+     * States of an adapter which is not cached are skipped, as what they
+     * resolve to would not be kept
+     *
+     * @param states The states to resolve
+     */
+    public void prefetch(Collection<? extends S> states) {
+        Map<DataSource, List<S>> bySource = new IdentityHashMap<>();
+        for (S state : states) {
+            if (Relation.isKept(state) && !this.resolved.containsKey(state)) {
+                bySource.computeIfAbsent(state.getLoader(), k -> new ArrayList<>()).add(state);
+            }
+        }
+        bySource.forEach((source, batch) -> this.resolved.putAll(this.find(source, batch)));
+    }
+
+    /**
+     * Drops whatever was resolved for a state, as it has been linked to
+     * another
+     *
+     * @param state The {@link State} which has a new link
+     */
+    public void forget(S state) {
+        this.resolved.remove(state);
+    }
+
+    /**
+     * Finds the related states of a batch of states by querying every link
+     * from any of them at once. This is how an adapter which holds no better
+     * way to find them does so
+     *
+     * @param source The {@link DataSource} holding the states
+     * @param states The states to find the related states of
+     * @return The related states of each of {@code states}, in the order they
+     *         were linked
+     */
+    public Map<S, List<R>> findByLinks(DataSource source, Collection<S> states) {
+        Map<S, List<R>> back = new HashMap<>();
+        states.forEach(state -> back.put(state, new ArrayList<>()));
+        source.query(this.link)
+                .isAny(this.from, states)
+                .results()
+                .sorted(Comparator.comparingLong(State::getID))
+                .forEach(link -> back.computeIfAbsent(this.from.get(link), k -> new ArrayList<>()).add(this.to.get(link)));
+        back.replaceAll((state, related) -> Collections.unmodifiableList(related));
+        return back;
+    }
+
+    private Map<S, List<R>> find(DataSource source, Collection<S> states) {
+        return source.getAdapter().findRelated(this, states);
+    }
+
+    private static boolean isKept(State state) {
+        return state.getLoader().getAdapter().isCached();
+    }
+}
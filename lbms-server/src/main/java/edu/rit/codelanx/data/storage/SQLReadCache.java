@@ -0,0 +1,133 @@
+package edu.rit.codelanx.data.storage;
+
+import edu.rit.codelanx.data.state.State;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps what a {@link SQLStorageAdapter} has read back from the database, so
+ * that looking up the same state or running the same query again does not
+ * need another round trip. Rows are cached by type and id, as the raw values
+ * of their columns, so a state dropped from memory can be rebuilt without
+ * the database. Queries are cached by their
+ * {@link StateQuery#getCacheKey() normalized comparisons}, as the ids they
+ * matched.
+ * <p>
+ * Both caches are bounded by weight and evict the least recently used
+ * entries first. Any change to a state of some type drops every cached query
+ * of that type, as the change may add or remove it from their results, so
+ * queries which join other types are never cached. Each type also counts its
+ * changes, so that a read which raced with a change is not cached afterwards
+ */
+class SQLReadCache {
+
+    private final LRUCache<Key, Map<String, Object>> rows;
+    private final LRUCache<Key, long[]> queries;
+    private final Map<State.Type, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    /**
+     * Creates empty caches
+     *
+     * @param maxRowValues The total number of column values to keep
+     * @param maxQueryIds The total number of query result ids to keep
+     */
+    SQLReadCache(long maxRowValues, long maxQueryIds) {
+        this.rows = new LRUCache<>(maxRowValues, Map::size);
+        this.queries = new LRUCache<>(maxQueryIds, ids -> ids.length);
+    }
+
+    /**
+     * Gets the number of changes made to states of a type, to be taken
+     * before reading from the database and passed back when caching the read
+     *
+     * @param type The {@link State.Type} about to be read
+     * @return The type's current version
+     */
+    long getVersion(State.Type type) {
+        return this.version(type).get();
+    }
+
+    Map<String, Object> getRow(State.Type type, long id) {
+        return this.rows.get(new Key(type, id));
+    }
+
+    void putRow(State.Type type, long id, Map<String, Object> row, long version) {
+        synchronized (this.version(type)) {
+            if (this.getVersion(type) == version) {
+                this.rows.put(new Key(type, id), row);
+            }
+        }
+    }
+
+    long[] getQuery(StateQuery<?> query) {
+        if (!query.isCacheable()) {
+            return null;
+        }
+        return this.queries.get(new Key(query.getStateType(), query.getCacheKey()));
+    }
+
+    void putQuery(StateQuery<?> query, long[] ids, long version) {
+        if (!query.isCacheable()) {
+            return; //only changes to the query's own type would drop it
+        }
+        synchronized (this.version(query.getStateType())) {
+            if (this.getVersion(query.getStateType()) == version) {
+                this.queries.put(new Key(query.getStateType(), query.getCacheKey()), ids);
+            }
+        }
+    }
+
+    /**
+     * Drops everything cached which a change to a state may have outdated
+     *
+     * @param state The {@link State} which was inserted, updated or removed
+     */
+    void invalidate(State state) {
+        State.Type type = state.getType();
+        AtomicLong version = this.version(type);
+        synchronized (version) {
+            version.incrementAndGet();
+            this.rows.remove(new Key(type, state.getID()));
+            this.queries.removeIf(k -> k.type == type);
+        }
+    }
+
+    CacheStats getRowStats() {
+        return this.rows.getStats();
+    }
+
+    CacheStats getQueryStats() {
+        return this.queries.getStats();
+    }
+
+    private AtomicLong version(State.Type type) {
+        return this.versions.computeIfAbsent(type, k -> new AtomicLong());
+    }
+
+    //a row id or a normalized query, within a single type
+    private static final class Key {
+
+        private final State.Type type;
+        private final Object value;
+
+        private Key(State.Type type, Object value) {
+            this.type = type;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key that = (Key) o;
+            return this.type == that.type && this.value.equals(that.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.type.hashCode() + this.value.hashCode();
+        }
+    }
+}
@@ -1,12 +1,10 @@
 package edu.rit.codelanx.data.storage;
 
+import edu.rit.codelanx.data.cache.StateStorage;
 import edu.rit.codelanx.data.state.State;
 import edu.rit.codelanx.data.state.StorageContainer;
 import edu.rit.codelanx.util.Errors;
-import com.codelanx.commons.data.ResultRow;
-import com.codelanx.commons.data.SQLDataType;
-import com.codelanx.commons.data.SQLResponse;
-import com.codelanx.commons.util.cache.Cache;
+import com.codelanx.commons.data.SQLFunction;
 import edu.rit.codelanx.ConfigKey;
 import edu.rit.codelanx.data.DataSource;
 import edu.rit.codelanx.data.state.types.StateType;
@@ -16,9 +14,19 @@ import edu.rit.codelanx.data.field.DataField;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
 /**
@@ -28,9 +36,13 @@ import java.util.stream.Stream;
  */
 public class SQLStorageAdapter implements StorageAdapter {
 
-    private final Cache<? extends SQLDataType> db;
-    private final Library lib;
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private final ConnectionPool pool;
+    private final ExecutorService readers; //runs async queries, one per pooled connection the writer leaves
     private final DataSource storage;
+    private final SQLWriter writer;
+    private final SQLReadCache cache;
+    private volatile Library lib;
 
     /**
      * Creates sql adapter for
@@ -38,24 +50,21 @@ public class SQLStorageAdapter implements StorageAdapter {
      */
     public SQLStorageAdapter(DataSource storage) {
         this.storage = storage;
-        this.db = ConfigKey.newDBCache();
-        SQLResponse<Library> resp = this.db.get().query(rs -> {
-            if (rs.next()) { //select the first available result, since we're not multi-library
-                return new Library(storage, rs);
-            }
-            return null;
-        }, StatementType.SELECT_ALL.forType(Library.class));
-        if (resp.getException() != null) {
-            Errors.reportAndExit(resp.getException());
-        }
-        Library lib = resp.getResponse();
-        if (lib == null) {
-            //No library yet, make one!
-            lib = Library.create()
-                    .setValue(Library.Field.MONEY, BigDecimal.ZERO)
-                    .build(storage);
+        ConnectionPool pool = null;
+        try {
+            pool = ConfigKey.newDBPool();
+        } catch (SQLException ex) {
+            Errors.reportAndExit(ex);
         }
-        this.lib = lib;
+        this.pool = pool;
+        this.readers = Executors.newFixedThreadPool(Math.max(1, ConfigKey.SQL_POOL_MAX.as(int.class) - 1), r -> {
+            Thread t = new Thread(r, "sql-query-" + THREAD_COUNT.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.cache = new SQLReadCache(ConfigKey.SQL_CACHE_ROW_VALUES.as(int.class), ConfigKey.SQL_CACHE_QUERY_IDS.as(int.class));
+        this.writer = new SQLWriter(this.pool, ConfigKey.SQL_BATCH_SIZE.as(int.class));
+        this.writer.start(ConfigKey.SQL_FLUSH_MS.as(int.class));
     }
 
     /**
@@ -67,39 +76,66 @@ public class SQLStorageAdapter implements StorageAdapter {
         return this.lib;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The state is given the next id of its type, and its insert is batched
+     * with any other waiting changes
+     *
+     * @param builder {@inheritDoc}
+     * @param <R> {@inheritDoc}
+     * @return {@inheritDoc}
+     */
     @Override
     public <R extends State> R insert(StateBuilder<R> builder) {
-        String stmt = StatementType.CREATE_OBJECT.forType(builder.getType().getConcreteType());
-        try {
-            PreparedStatement psql = this.db.get().getConnection().prepareStatement(stmt);
-            builder.apply(psql);
-            int done = psql.executeUpdate();
-            if (done <= 0) {
-                throw new RuntimeException("SQL failed to insert, no object created");
-            }
-            //TODO: We'll pray this is good enough for now
-            long id = this.db.get().selectFirst(ResultRow::getLong, "SELECT LAST_INSERT_ID()").getResponse();
-            return builder.buildObj(this.storage, id);
-        } catch (SQLException ex) {
-            Errors.reportAndExit(ex);
-        }
-        return null; //should not reach
+        R back = builder.buildObj(this.storage, builder.getType().getNextID());
+        this.cache.invalidate(back);
+        this.writer.insert(back);
+        return back;
     }
 
     /**
-     * Does nothing, as SQL is loaded on an as-needed basis
+     * Reserves the ids already in use and finds the library, creating it if
+     * there is none. Nothing else is preloaded, as SQL is loaded on an
+     * as-needed basis
+     *
+     * @throws IOException If the database could not be read
      */
     @Override
-    public void loadAll() {
-        //no preloading with sql, simply utilizes the backend
+    public void loadAll() throws IOException {
+        try {
+            //new states are given ids up front, so their inserts can be batched
+            for (StateType type : StateType.values()) {
+                type.reserveID(this.query(rs -> rs.next() ? rs.getLong(1) : 0L, StatementType.MAX_ID.forType(type.getConcreteType())));
+            }
+            this.lib = this.query(rs -> {
+                if (rs.next()) { //select the first available result, since we're not multi-library
+                    return new Library(this.storage, rs);
+                }
+                return null;
+            }, StatementType.SELECT_ALL.forType(Library.class));
+        } catch (SQLException ex) {
+            throw new IOException("Failed to read from the database", ex);
+        }
+        if (this.lib == null) {
+            //No library yet, make one!
+            this.lib = Library.create()
+                    .setValue(Library.Field.MONEY, BigDecimal.ZERO)
+                    .build(this.storage);
+        }
     }
     /**
-     * Does nothing, as any updates will have already been committed to the
-     * remote data source
+     * Flushes any changes still waiting to be batched
+     *
+     * @throws IOException If the changes could not be written
      */
     @Override
     public void saveAll() throws IOException {
-        //no saving needed, updates are pushed as made
+        try {
+            this.writer.flush();
+        } catch (SQLException ex) {
+            throw new IOException("Failed to write changes to the database", ex);
+        }
     }
 
     /**
@@ -113,39 +149,143 @@ public class SQLStorageAdapter implements StorageAdapter {
 
     /**
      * {@inheritDoc}
+     * <p>
+     * The state is rebuilt from its cached row if there is one, and only
+     * read from the database otherwise
+     *
+     * @param id {@inheritDoc}
+     * @param type {@inheritDoc}
+     * @param <R> {@inheritDoc}
      * @return {@inheritDoc}
      */
     @Override
     public <R extends State> R loadState(long id, Class<R> type) {
         State.Type stateType = StateType.fromClass(type);
-        return this.db.get().query(rs -> {
-            if (rs.next()) {
-                return InputMapper.toState(storage, type, id);
+        Map<String, Object> row = this.cache.getRow(stateType, id);
+        if (row == null) {
+            long version = this.cache.getVersion(stateType);
+            try {
+                row = this.query(rs -> {
+                    if (rs.next()) {
+                        return SQLStorageAdapter.readRow(stateType, rs);
+                    }
+                    return null;
+                }, StatementType.FIND_BY_ID.forType(type), id);
+            } catch (SQLException ex) {
+                Errors.report(ex); //"Silent failure"
+            }
+            if (row == null) {
+                return null;
             }
-            return null;
-        }, StatementType.FIND_BY_ID.forType(type), id).getResponse();
+            this.cache.putRow(stateType, id, row, version);
+        }
+        return stateType.<R>getFileConstructor().create(this.storage, row);
     }
 
     /**
      * {@inheritDoc}
+     * <p>
+     * The ids matched by a query are cached until a state of the same type
+     * changes, so repeating the query is answered from memory
+     *
+     * @param query {@inheritDoc}
+     * @param <R> {@inheritDoc}
      * @return {@inheritDoc}
      */
     @Override
     public <R extends State> Stream<R> handleQuery(StateQuery<R> query) {
-        //TODO: Attempt the local cache before resorting to SQL?
-        State.Type type = StateType.fromClass(query.getType());
+        return this.complete(query, this.resolve(query, this.fetch(query)));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The query runs on a connection of its own, so independent queries run
+     * concurrently with each other and with the caller. Only the rows are
+     * read ahead of time; states are built as the stream is consumed
+     *
+     * @param query {@inheritDoc}
+     * @param <R> {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public <R extends State> CompletableFuture<Stream<R>> handleQueryAsync(StateQuery<R> query) {
+        long[] cached = this.cache.getQuery(query);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(this.complete(query, this.resolve(query, new Fetched(cached, null))));
+        }
+        return CompletableFuture.supplyAsync(() -> this.fetch(query), this.readers)
+                .thenApply(fetched -> this.complete(query, this.resolve(query, fetched)));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The aggregate is computed by the database, so no row is read back
+     * other than the result. A query which is paged or filtered at runtime
+     * is aggregated from its results instead
+     *
+     * @param query {@inheritDoc}
+     * @param aggregate {@inheritDoc}
+     * @param <R> {@inheritDoc}
+     * @param <A> {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public <R extends State, A> A handleAggregate(StateQuery<R> query, Aggregate<A> aggregate) {
+        if (query.hasRuntimeFilters() || query.isPaged()) {
+            return aggregate.fromResults(this.handleQuery(query));
+        }
+        try {
+            return query.runSQLAggregate(aggregate, (stmt, args) -> this.query(rs -> aggregate.fromSQL(this.storage, rs), stmt, args));
+        } catch (SQLException ex) {
+            Errors.report(ex); //"Silent failure"
+        }
+        return aggregate.fromResults(Stream.empty());
+    }
+
+    //rows come back in order, but runtime filters may leave the offset and limit to be applied here
+    private <R extends State> Stream<R> complete(StateQuery<R> query, Stream<R> resolved) {
+        return query.isPushedDown() ? resolved : query.finish(resolved, true);
+    }
+
+    //the ids matching a query, and their rows if they were read from the database
+    private Fetched fetch(StateQuery<?> query) {
+        long[] cached = this.cache.getQuery(query);
+        if (cached != null) {
+            return new Fetched(cached, null);
+        }
+        State.Type type = query.getStateType();
+        long version = this.cache.getVersion(type);
         try {
-            return query.runSQLQuery((stmt, args) -> this.db.get().query(rs -> {
-                List<R> back = new ArrayList<>();
+            List<Map<String, Object>> rows = query.runSQLQuery((stmt, args) -> this.query(rs -> {
+                List<Map<String, Object>> back = new ArrayList<>();
                 while (rs.next()) {
-                    back.add(type.<R>getSQLConstructor().create(storage, rs));
+                    back.add(SQLStorageAdapter.readRow(type, rs));
                 }
-                return back.stream();
-            }, stmt, args).getResponse());
+                return back;
+            }, stmt, args));
+            long[] ids = rows.stream().mapToLong(SQLStorageAdapter::getRowID).toArray();
+            for (int i = 0; i < ids.length; i++) {
+                this.cache.putRow(type, ids[i], rows.get(i), version);
+            }
+            this.cache.putQuery(query, ids, version);
+            return new Fetched(ids, rows);
         } catch (SQLException ex) {
             Errors.report(ex); //"Silent failure"
         }
-        return Stream.empty();
+        return new Fetched(new long[0], Collections.emptyList());
+    }
+
+    //lazily maps fetched ids or rows onto the loaded states
+    private <R extends State> Stream<R> resolve(StateQuery<R> query, Fetched fetched) {
+        StateStorage<R> data = this.storage.getRelativeStorage().getStateStorage(query.getType());
+        if (fetched.rows == null) {
+            return Arrays.stream(fetched.ids).mapToObj(data::getByID).filter(Objects::nonNull);
+        }
+        State.Type type = query.getStateType();
+        return fetched.rows.stream().map(row -> data.computeIfAbsent(SQLStorageAdapter.getRowID(row),
+                () -> type.<R>getFileConstructor().create(this.storage, row)));
     }
 
     /**
@@ -167,7 +307,8 @@ public class SQLStorageAdapter implements StorageAdapter {
      */
     @Override
     public <E> void notifyUpdate(State state, DataField<E> field, E value) {
-        //TODO: update db
+        this.cache.invalidate(state);
+        this.writer.update(state, field.getName(), value);
     }
     /**
      * {@inheritDoc}
@@ -175,7 +316,8 @@ public class SQLStorageAdapter implements StorageAdapter {
      */
     @Override
     public void remove(State state) {
-        //TODO: update db
+        this.cache.invalidate(state);
+        this.writer.remove(state);
     }
     /**
      * {@inheritDoc}
@@ -186,11 +328,57 @@ public class SQLStorageAdapter implements StorageAdapter {
         return false;
     }
 
+    /**
+     * Takes a snapshot of the counters of the cache of rows read by id
+     *
+     * @return The row cache's {@link CacheStats}
+     */
+    public CacheStats getRowCacheStats() {
+        return this.cache.getRowStats();
+    }
+
+    /**
+     * Takes a snapshot of the counters of the cache of query results
+     *
+     * @return The query cache's {@link CacheStats}
+     */
+    public CacheStats getQueryCacheStats() {
+        return this.cache.getQueryStats();
+    }
+
+    //runs a statement which sees every change made so far, see SQLWriter#read
+    private <R> R query(SQLFunction<? super ResultSet, R> mapper, String sql, Object... params) throws SQLException {
+        return this.writer.read(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < params.length; i++) {
+                    stmt.setObject(i + 1, params[i]);
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return mapper.apply(rs);
+                }
+            }
+        });
+    }
+
+    //every container keys its rows by id, as in FIND_BY_ID
+    private static long getRowID(Map<String, Object> row) {
+        return ((Number) row.get("id")).longValue();
+    }
+
+    //the value of every column of the current row, as read for the type's fields
+    private static Map<String, Object> readRow(State.Type type, ResultSet rs) throws SQLException {
+        Map<String, Object> back = new LinkedHashMap<>();
+        for (DataField<?> field : type.getFields()) {
+            back.put(field.getName(), InputMapper.getObject(field.getType(), rs, field.getName()));
+        }
+        return Collections.unmodifiableMap(back);
+    }
+
     private enum StatementType {
-        CREATE_OBJECT,
         CREATE_CONTAINER,
         FIND_BY_ID,
         SELECT_ALL,
+        MAX_ID,
         ;
 
         public String forType(Class<? extends State> type) {
@@ -203,8 +391,8 @@ public class SQLStorageAdapter implements StorageAdapter {
                     return "SELECT * FROM " + container.value();
                 case FIND_BY_ID:
                     return "SELECT * FROM " + container.value() + " WHERE id = ?";
-                case CREATE_OBJECT:
-                    //TODO: Load .sql files from resources
+                case MAX_ID:
+                    return "SELECT MAX(id) FROM " + container.value();
                 case CREATE_CONTAINER:
                     //TODO: save .sql files from heidisql and load from resources
             }
@@ -213,4 +401,15 @@ public class SQLStorageAdapter implements StorageAdapter {
         }
     }
 
+    private static final class Fetched {
+
+        private final long[] ids;
+        private final List<Map<String, Object>> rows; //null if only the ids were cached
+
+        private Fetched(long[] ids, List<Map<String, Object>> rows) {
+            this.ids = ids;
+            this.rows = rows;
+        }
+    }
+
 }
@@ -0,0 +1,415 @@
+package edu.rit.codelanx.data.storage;
+
+import edu.rit.codelanx.data.field.DataField;
+import edu.rit.codelanx.data.state.State;
+import edu.rit.codelanx.data.state.StorageContainer;
+import edu.rit.codelanx.util.Errors;
+import com.codelanx.commons.data.SQLFunction;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Buffers the changes made to the states of a {@link SQLStorageAdapter} and
+ * writes them out together, as one JDBC batch per statement within a single
+ * transaction. A flush commits once enough changes are waiting, on a fixed
+ * interval, or when the adapter saves.
+ * <p>
+ * Within a flush, inserts run first, then updates, then removals. Repeated
+ * updates to the same field of a state only write the last value, and an
+ * insert queued after a removal runs after it, so a removed key can be
+ * reused. Reads made while changes are waiting run on the writer's own
+ * transaction, which sees them without committing, so the changes made by
+ * one command are still committed together. The writer keeps a dedicated
+ * connection from its {@link ConnectionPool}, on which every statement is
+ * prepared once per {@link StorageContainer} and kept for as long as the
+ * connection is.
+ * <p>
+ * A flush which fails while the database can still be reached is retried
+ * up to {@link #MAX_ATTEMPTS} times. After that each change is written on
+ * its own, and only those which still fail are reported and dropped, so a
+ * single bad row cannot hold back every change after it
+ */
+class SQLWriter implements Closeable {
+
+    /** The number of times a flush is tried before its changes are written one at a time */
+    static final int MAX_ATTEMPTS = 3;
+    //a single daemon thread flushes every writer, the shutdown save covers the rest
+    private static final ScheduledExecutorService FLUSHER;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final ConnectionPool pool;
+    private final int batchSize;
+    private final Object lock = new Object(); //guards the pending changes and statements
+    //every batch since the last commit, oldest first, new changes join the last
+    private final List<Batch> uncommitted = new ArrayList<>();
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+    private Connection connection; //dedicated, the cached statements belong to it
+    private int ran; //the batches already run within the open transaction
+    private int pending;
+    private int failures; //consecutive flushes which failed
+    private ScheduledFuture<?> flushTask;
+
+    static {
+        FLUSHER = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r);
+            t.setName("sql-flush");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Creates a writer. Nothing is flushed on an interval until the writer is
+     * {@link #start started}
+     *
+     * @param pool The pool to take a connection to the database from
+     * @param batchSize The number of waiting changes which triggers a flush
+     */
+    SQLWriter(ConnectionPool pool, int batchSize) {
+        this.pool = pool;
+        this.batchSize = Math.max(1, batchSize);
+        this.uncommitted.add(new Batch());
+    }
+
+    /**
+     * Begins flushing waiting changes on a fixed interval
+     *
+     * @param intervalMs How often to flush, in milliseconds
+     */
+    void start(long intervalMs) {
+        this.flushTask = FLUSHER.scheduleWithFixedDelay(() -> {
+            try {
+                this.flush();
+            } catch (SQLException ex) {
+                Errors.report(ex); //the changes are kept for the next flush
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues a newly built state to be inserted, with every one of its fields
+     *
+     * @param state The {@link State} which was built
+     */
+    void insert(State state) {
+        DataField<? super Object>[] fields = state.getFields();
+        String columns = Arrays.stream(fields).map(DataField::getName).collect(Collectors.joining(", "));
+        String values = Arrays.stream(fields).map(f -> "?").collect(Collectors.joining(", "));
+        String stmt = "INSERT INTO " + SQLWriter.getContainer(state) + " (" + columns + ") VALUES (" + values + ")";
+        Object[] params = Arrays.stream(fields).map(f -> InputMapper.toSQL(f.serialize(state))).toArray();
+        synchronized (this.lock) {
+            if (!this.current().removals.isEmpty()) {
+                //inserts run first within a batch, so a removed key is only freed by the next one
+                this.uncommitted.add(new Batch());
+            }
+            this.queue(this.current().inserts, stmt, state.getID(), params);
+        }
+    }
+
+    /**
+     * Queues a new value for one field of a state
+     *
+     * @param state The {@link State} which was updated
+     * @param field The name of the updated field
+     * @param value The new value
+     */
+    void update(State state, String field, Object value) {
+        String stmt = "UPDATE " + SQLWriter.getContainer(state) + " SET " + field + " = ? WHERE id = ?";
+        synchronized (this.lock) {
+            this.queue(this.current().updates, stmt, state.getID(), new Object[] {InputMapper.toSQL(value), state.getID()});
+        }
+    }
+
+    /**
+     * Queues the removal of a state
+     *
+     * @param state The {@link State} which was removed
+     */
+    void remove(State state) {
+        String stmt = "DELETE FROM " + SQLWriter.getContainer(state) + " WHERE id = ?";
+        synchronized (this.lock) {
+            this.queue(this.current().removals, stmt, state.getID(), new Object[] {state.getID()});
+        }
+    }
+
+    /**
+     * Runs a read which must see every change made so far. While changes are
+     * waiting they are run within the writer's open transaction, and the
+     * read is made on the writer's connection without committing them.
+     * Otherwise, or if the waiting changes could not be run, the read is
+     * made on a connection borrowed from the pool
+     *
+     * @param reader The read to make, which must not close the connection
+     * @param <R> The type of the result of the read
+     * @return The result of the read
+     * @throws SQLException If the read failed
+     */
+    <R> R read(SQLFunction<? super Connection, R> reader) throws SQLException {
+        synchronized (this.lock) {
+            if (this.pending > 0) {
+                try {
+                    this.stage();
+                } catch (SQLException ex) {
+                    Errors.report(ex); //the changes are kept, but only what was committed can be read
+                }
+                if (this.pending > 0 && this.connection != null) {
+                    return reader.apply(this.connection);
+                }
+            }
+        }
+        try (Connection conn = this.pool.borrow()) {
+            return reader.apply(conn);
+        }
+    }
+
+    /**
+     * Writes out every waiting change within a single transaction. If any
+     * statement fails the transaction is rolled back and the changes are
+     * kept, to be tried again on the next flush, unless they have already
+     * failed {@link #MAX_ATTEMPTS} times
+     *
+     * @throws SQLException If the changes could not be written, and are kept
+     */
+    void flush() throws SQLException {
+        synchronized (this.lock) {
+            if (this.pending == 0) {
+                return;
+            }
+            this.stage();
+            if (this.pending == 0) {
+                return; //written one at a time
+            }
+            Connection conn = this.connection;
+            try {
+                conn.commit();
+                conn.setAutoCommit(true);
+            } catch (SQLException ex) {
+                this.failed(conn, ex);
+                return;
+            }
+            this.committed();
+        }
+    }
+
+    /**
+     * Flushes any waiting changes, stops the interval flushes, closes every
+     * cached statement and gives back the writer's connection
+     */
+    @Override
+    public void close() {
+        if (this.flushTask != null) {
+            this.flushTask.cancel(false);
+        }
+        synchronized (this.lock) {
+            try {
+                this.flush();
+            } catch (SQLException ex) {
+                Errors.report(ex);
+            }
+            this.release();
+        }
+    }
+
+    //holds the lock
+    private Batch current() {
+        return this.uncommitted.get(this.uncommitted.size() - 1);
+    }
+
+    //holds the lock, runs every batch not yet run within the open transaction, and starts a new one
+    private void stage() throws SQLException {
+        if (this.current().isEmpty()) {
+            if (this.ran == this.uncommitted.size() - 1) {
+                return; //already run
+            }
+            this.uncommitted.remove(this.uncommitted.size() - 1);
+        }
+        Connection conn = this.getConnection();
+        try {
+            conn.setAutoCommit(false);
+            for (; this.ran < this.uncommitted.size(); this.ran++) {
+                Batch batch = this.uncommitted.get(this.ran);
+                this.executeAll(conn, batch.inserts);
+                this.executeAll(conn, batch.updates);
+                this.executeAll(conn, batch.removals);
+            }
+        } catch (SQLException ex) {
+            this.failed(conn, ex);
+            return;
+        }
+        this.uncommitted.add(new Batch());
+    }
+
+    //holds the lock, forgets every change once they are written
+    private void committed() {
+        this.uncommitted.clear();
+        this.uncommitted.add(new Batch());
+        this.ran = 0;
+        this.pending = 0;
+        this.failures = 0;
+    }
+
+    //holds the lock, rolls back the open transaction, then rethrows unless the changes are to be written alone
+    private void failed(Connection conn, SQLException ex) throws SQLException {
+        boolean reachable = SQLWriter.isValid(conn); //a lost connection says nothing of the changes
+        this.release();
+        this.ran = 0;
+        if (!reachable || ++this.failures < MAX_ATTEMPTS) {
+            throw ex;
+        }
+        this.writeAlone(ex);
+    }
+
+    //holds the lock, writes each change in its own transaction, reporting and dropping those which fail
+    private void writeAlone(SQLException cause) throws SQLException {
+        Connection conn = this.getConnection();
+        conn.setAutoCommit(true);
+        for (Batch batch : this.uncommitted) {
+            for (Map<String, Map<Long, Object[]>> changes : batch.parts()) {
+                Iterator<Map.Entry<String, Map<Long, Object[]>>> stmts = changes.entrySet().iterator();
+                while (stmts.hasNext()) {
+                    Map.Entry<String, Map<Long, Object[]>> ent = stmts.next();
+                    PreparedStatement stmt = this.prepare(conn, ent.getKey());
+                    Iterator<Object[]> rows = ent.getValue().values().iterator();
+                    while (rows.hasNext()) {
+                        Object[] params = rows.next();
+                        try {
+                            SQLWriter.bind(stmt, params);
+                            stmt.executeUpdate();
+                        } catch (SQLException ex) {
+                            if (!SQLWriter.isValid(conn)) {
+                                this.release(); //the rest are kept until the database is back
+                                throw ex;
+                            }
+                            ex.addSuppressed(cause);
+                            Errors.report(new SQLException("Dropped a change which failed "
+                                    + MAX_ATTEMPTS + " flushes: " + ent.getKey() + " " + Arrays.toString(params), ex));
+                        }
+                        rows.remove();
+                    }
+                    stmts.remove();
+                }
+            }
+        }
+        this.committed();
+    }
+
+    //holds the lock
+    private Connection getConnection() throws SQLException {
+        if (this.connection == null) {
+            this.connection = this.pool.borrowDedicated();
+        }
+        return this.connection;
+    }
+
+    //holds the lock, gives back the connection along with its statements
+    private void release() {
+        this.closeStatements();
+        if (this.connection != null) {
+            try {
+                this.connection.close(); //rolls back anything not yet committed
+            } catch (SQLException ex) {
+                //the pool discards it
+            }
+            this.connection = null;
+        }
+    }
+
+    //holds the lock, a batch size flush which fails keeps the changes for the next one
+    private void queue(Map<String, Map<Long, Object[]>> changes, String stmt, long id, Object[] params) {
+        if (changes.computeIfAbsent(stmt, k -> new LinkedHashMap<>()).put(id, params) == null
+                && ++this.pending >= this.batchSize) {
+            try {
+                this.flush();
+            } catch (SQLException ex) {
+                Errors.report(ex);
+            }
+        }
+    }
+
+    //holds the lock, runs one batch per statement
+    private void executeAll(Connection conn, Map<String, Map<Long, Object[]>> changes) throws SQLException {
+        for (Map.Entry<String, Map<Long, Object[]>> ent : changes.entrySet()) {
+            PreparedStatement stmt = this.prepare(conn, ent.getKey());
+            for (Object[] params : ent.getValue().values()) {
+                SQLWriter.bind(stmt, params);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+    //holds the lock
+    private PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+        PreparedStatement back = this.statements.get(sql);
+        if (back == null) {
+            back = conn.prepareStatement(sql);
+            this.statements.put(sql, back);
+        }
+        return back;
+    }
+
+    //holds the lock
+    private void closeStatements() {
+        List<PreparedStatement> open = new ArrayList<>(this.statements.values());
+        this.statements.clear();
+        for (PreparedStatement stmt : open) {
+            try {
+                stmt.close();
+            } catch (SQLException ex) {
+                //the connection is likely already gone
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement stmt, Object[] params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            stmt.setObject(i + 1, params[i]);
+        }
+    }
+
+    private static boolean isValid(Connection conn) {
+        try {
+            return conn.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private static String getContainer(State state) {
+        StorageContainer container = state.getClass().getAnnotation(StorageContainer.class);
+        if (container == null) {
+            throw new IllegalArgumentException("No @StorageContainer defined for state: " + state.getClass().getSimpleName());
+        }
+        return container.value();
+    }
+
+    //the changes queued between two stages, each part run in turn
+    private static final class Batch {
+
+        private final Map<String, Map<Long, Object[]>> inserts = new LinkedHashMap<>();
+        private final Map<String, Map<Long, Object[]>> updates = new LinkedHashMap<>();
+        private final Map<String, Map<Long, Object[]>> removals = new LinkedHashMap<>();
+
+        private List<Map<String, Map<Long, Object[]>>> parts() {
+            return Arrays.asList(this.inserts, this.updates, this.removals);
+        }
+
+        private boolean isEmpty() {
+            return this.inserts.isEmpty() && this.updates.isEmpty() && this.removals.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package edu.rit.codelanx.data.storage;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.LibraryData;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Converts a flat-file library between storage-types, e.g. from the
+ * existing {@code json} or {@code yml} data files to {@code binary}. The
+ * library is loaded (and its journal replayed) in the old format, then
+ * written out in both, after which the {@code storage-type} config option
+ * may be switched over:
+ * <pre>
+ * java -cp lbms-server.jar edu.rit.codelanx.data.storage.SnapshotConverter &lt;from&gt; &lt;to&gt; [folder]
+ * </pre>
+ *
+ * @see FFStorageAdapter#convert(String)
+ */
+public class SnapshotConverter {
+
+    /**
+     * Converts the data files within a folder
+     *
+     * @param folder The folder holding the data files
+     * @param from The storage-type the files are currently kept as
+     * @param to The storage-type to convert to
+     * @throws IOException If the files could not be read or written
+     */
+    public static void convert(File folder, String from, String to) throws IOException {
+        DataSource library = new LibraryData(data -> new FFStorageAdapter(data, from, folder));
+        library.initialize();
+        ((FFStorageAdapter) library.getAdapter()).convert(to);
+    }
+
+    /**
+     * Runs a conversion from the command line
+     *
+     * @param args {@code <from> <to> [folder]}
+     * @throws IOException If the files could not be read or written
+     */
+    public static void main(String... args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: SnapshotConverter <from> <to> [folder]");
+            return;
+        }
+        File folder = new File(args.length > 2 ? args[2] : "data");
+        SnapshotConverter.convert(folder, args[0], args[1]);
+        System.out.println("Converted " + folder + " from " + args[0] + " to " + args[1]);
+    }
+}
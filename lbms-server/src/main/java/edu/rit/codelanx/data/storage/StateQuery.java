@@ -1,5 +1,6 @@
 package edu.rit.codelanx.data.storage;
 
+import edu.rit.codelanx.data.cache.StateCounters;
 import edu.rit.codelanx.data.cache.StateStorage;
 import edu.rit.codelanx.data.state.State;
 import edu.rit.codelanx.data.state.StorageContainer;
@@ -8,12 +9,21 @@ import edu.rit.codelanx.data.DataSource;
 import edu.rit.codelanx.data.state.types.StateType;
 import edu.rit.codelanx.data.field.DataField;
 
+import java.math.BigDecimal;
 import java.sql.SQLException;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.OptionalDouble;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiPredicate;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -26,6 +36,11 @@ public class StateQuery<S extends State> implements Query<S> {
     private final Class<S> type;
     private final List<Comparison<?>> comparisons = new ArrayList<>();
     private final List<Predicate<S>> postFixes = new ArrayList<>();
+    private final List<Ordering<?>> orderings = new ArrayList<>();
+    private final List<Relation<? super S, ?>> includes = new ArrayList<>();
+    private int limit = -1; //no limit
+    private int offset;
+    private S cursor; //the last result of the previous page, if any
 
     public StateQuery(DataSource storage, Class<S> type) {
         this.storage = storage;
@@ -37,17 +52,246 @@ public class StateQuery<S extends State> implements Query<S> {
      */
     @Override
     public Stream<S> results() {
-        Stream<S> s = this.storage.getAdapter().handleQuery(this);
+        return this.prefetch(this.run().handleQuery(this));
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Stream<S>> resultsAsync() {
+        return this.run().handleQueryAsync(this).thenApply(this::prefetch);
+    }
+
+    //the adapter to run against, with anything found by a join when last run forgotten
+    private StorageAdapter run() {
+        for (Comparison<?> comp : this.comparisons) {
+            if (comp instanceof JoinComparison) {
+                ((JoinComparison<?>) comp).reset();
+            }
+        }
+        return this.storage.getAdapter();
+    }
+
+    //resolves the included relations of the results, which must be found to do so
+    private Stream<S> prefetch(Stream<S> results) {
+        if (this.includes.isEmpty()) {
+            return results;
+        }
+        List<S> found = results.collect(Collectors.toList());
+        for (Relation<? super S, ?> relation : this.includes) {
+            relation.prefetch(found);
+        }
+        return found.stream();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public long count() {
+        return this.run().handleAggregate(this, Aggregate.count());
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param measure {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public BigDecimal sum(Measure measure) {
+        return this.run().handleAggregate(this, Aggregate.sum(measure));
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param measure {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public OptionalDouble average(Measure measure) {
+        return this.run().handleAggregate(this, Aggregate.average(measure));
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param field {@inheritDoc}
+     * @param <E> {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public <E> Map<E, Long> countBy(DataField<E> field) {
+        return this.run().handleAggregate(this, Aggregate.countBy(field));
+    }
+
+    /**
+     * Computes an aggregate over the loaded states matching this query. If
+     * the only comparisons bound the field the type's {@link StateCounters}
+     * bucket states by, and the query is not paged, the counters answer it
+     * in time proportional to the days covered. Otherwise the matching states
+     * are found and aggregated one by one
+     *
+     * @param storage The loaded states of this query's type
+     * @param aggregate The {@link Aggregate} to compute
+     * @param <A> The type of the computed value
+     * @return The aggregate of this query's results
+     */
+    <A> A aggregateLocal(StateStorage<S> storage, Aggregate<A> aggregate) {
+        StateCounters<S> counters = storage.getCounters();
+        DataField<Instant> day = counters.getDayField();
+        if (this.hasRuntimeFilters() || this.isPaged()) {
+            return aggregate.fromResults(this.locateLocal(storage));
+        }
+        Instant from = null;
+        Instant to = null;
+        boolean fromInclusive = true;
+        boolean toInclusive = true;
+        for (Comparison<?> comp : this.comparisons) {
+            if (day == null || comp.getDataField() != day || comp.getValue() == null) {
+                return aggregate.fromResults(this.locateLocal(storage)); //narrowed by something not counted
+            }
+            Instant at = (Instant) comp.getValue();
+            ComparisonType type = comp.getType();
+            //the tightest bound on either side wins, equality bounds both
+            if (type == ComparisonType.EQUALITY || type == ComparisonType.GREATER_THAN || type == ComparisonType.GREATER_THAN_OR_EQ) {
+                boolean inclusive = type != ComparisonType.GREATER_THAN;
+                if (from == null || at.isAfter(from) || (at.equals(from) && !inclusive)) {
+                    from = at;
+                    fromInclusive = inclusive;
+                }
+            }
+            if (type == ComparisonType.EQUALITY || type == ComparisonType.LESS_THAN || type == ComparisonType.LESS_THAN_OR_EQ) {
+                boolean inclusive = type != ComparisonType.LESS_THAN;
+                if (to == null || at.isBefore(to) || (at.equals(to) && !inclusive)) {
+                    to = at;
+                    toInclusive = inclusive;
+                }
+            }
+        }
+        return aggregate.fromCounters(counters, from, fromInclusive, to, toInclusive);
+    }
+
+    /**
+     * Applies everything an adapter left to be done in memory to the states
+     * it found: the runtime filters, the cursor, the ordering, the offset and
+     * the limit. States which are not yet in order are sorted, or only the
+     * first {@code offset + limit} are kept in a bounded heap if the query
+     * is limited; states which already are in order are passed through
+     * lazily, so that nothing past the limit is ever looked at
+     *
+     * @param matched The states matching every comparison of this query
+     * @param ordered {@code true} if {@code matched} is already in the
+     *                query's order
+     * @return The results of the query
+     */
+    Stream<S> finish(Stream<S> matched, boolean ordered) {
+        Stream<S> s = matched;
         for (Predicate<S> pred : this.postFixes) {
             s = s.filter(pred);
         }
+        if (this.orderings.isEmpty() && !this.isPaged()) {
+            return s;
+        }
+        Comparator<S> order = this.getComparator();
+        if (this.cursor != null) {
+            S last = this.cursor;
+            s = s.filter(state -> order.compare(state, last) > 0);
+        }
+        if (!ordered) {
+            s = this.limit < 0 ? s.sorted(order) : StateQuery.top(s, order, (long) this.offset + this.limit);
+        }
+        if (this.offset > 0) {
+            s = s.skip(this.offset);
+        }
+        if (this.limit >= 0) {
+            s = s.limit(this.limit);
+        }
         return s;
     }
 
+    //the first k states in order, holding no more than k at once
+    private static <S> Stream<S> top(Stream<S> states, Comparator<S> order, long k) {
+        if (k <= 0) {
+            return Stream.empty();
+        }
+        PriorityQueue<S> kept = new PriorityQueue<>((int) Math.min(k, 1024), order.reversed()); //last kept on top
+        states.forEach(state -> {
+            if (kept.size() < k) {
+                kept.add(state);
+            } else if (order.compare(state, kept.peek()) < 0) {
+                kept.poll();
+                kept.add(state);
+            }
+        });
+        List<S> back = new ArrayList<>(kept);
+        back.sort(order);
+        return back.stream();
+    }
+
+    //the query's ordering, with ties broken by id
+    Comparator<S> getComparator() {
+        Comparator<S> back = null;
+        for (Ordering<?> ordering : this.orderings) {
+            back = back == null ? ordering.toComparator() : back.thenComparing(ordering.toComparator());
+        }
+        Comparator<S> byID = Comparator.comparingLong(State::getID);
+        return back == null ? byID : back.thenComparing(byID);
+    }
+
     public Class<S> getType() {
         return this.type;
     }
 
+    DataSource getSource() {
+        return this.storage;
+    }
+
+    State.Type getStateType() {
+        return StateType.fromClass(this.type);
+    }
+
+    //the comparisons in a canonical order, so equivalent queries share a key
+    String getCacheKey() {
+        StringBuilder back = new StringBuilder(this.comparisons.stream()
+                .map(Comparison::toCacheKey)
+                .sorted()
+                .collect(Collectors.joining(" AND ")));
+        if (this.cursor != null) {
+            back.append(" AFTER ").append(StateQuery.toCacheKey(this.cursor));
+        }
+        this.appendOrderAndLimit(back);
+        return back.toString();
+    }
+
+    //whether the results only depend on states of this query's type, so are outdated only by changes to them
+    boolean isCacheable() {
+        return this.comparisons.stream().noneMatch(c -> c instanceof JoinComparison);
+    }
+
+    //whether every filter on this query can be answered by the backing store
+    boolean hasRuntimeFilters() {
+        return !this.postFixes.isEmpty();
+    }
+
+    //whether only part of the results are wanted, which requires them to be in a stable order
+    boolean isPaged() {
+        return this.limit >= 0 || this.offset > 0 || this.cursor != null;
+    }
+
+    /**
+     * Checks whether running this query as compiled by
+     * {@link #runSQLQuery(SQLBiFunction)} returns exactly its results, such
+     * that nothing is left to {@link #finish(Stream, boolean)}
+     *
+     * @return {@code true} if the database answers the whole query
+     */
+    boolean isPushedDown() {
+        //SQL cannot OFFSET without a LIMIT
+        return !this.hasRuntimeFilters() && (this.offset == 0 || this.limit >= 0);
+    }
+
     public <E> Query<S> predicate(DataField<E> field, E value, ComparisonType type) {
         this.comparisons.add(new Comparison<>(field, value, type));
         return this;
@@ -56,6 +300,22 @@ public class StateQuery<S extends State> implements Query<S> {
     public List<Comparison<?>> getComparisons() {
         return Collections.unmodifiableList(this.comparisons);
     }
+
+    public List<Ordering<?>> getOrderings() {
+        return Collections.unmodifiableList(this.orderings);
+    }
+
+    public int getLimit() {
+        return this.limit;
+    }
+
+    public int getOffset() {
+        return this.offset;
+    }
+
+    public S getCursor() {
+        return this.cursor;
+    }
     /**
      * {@inheritDoc}
      * @return {@inheritDoc}
@@ -87,6 +347,18 @@ public class StateQuery<S extends State> implements Query<S> {
      * @return {@inheritDoc}
      */
     @Override
+    public <R extends State> Query<S> join(Relation<? super S, R> relation, Query<R> related) {
+        if (!(related instanceof StateQuery) || ((StateQuery<R>) related).getSource() != this.storage) {
+            throw new IllegalArgumentException("Cannot join a query of another data source");
+        }
+        this.comparisons.add(new JoinComparison<>(relation, (StateQuery<R>) related));
+        return this;
+    }
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
     public <E extends Comparable<E>> Query<S> isLessThan(DataField<E> field, E value) {
         return this.predicate(field, value, ComparisonType.LESS_THAN);
     }
@@ -115,6 +387,58 @@ public class StateQuery<S extends State> implements Query<S> {
         return this.predicate(field, value, ComparisonType.GREATER_THAN_OR_EQ);
     }
 
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public <E extends Comparable<E>> Query<S> orderBy(DataField<E> field, Direction direction) {
+        this.orderings.add(new Ordering<>(field, direction));
+        return this;
+    }
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Query<S> limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Cannot limit a query to a negative number of results");
+        }
+        this.limit = limit;
+        return this;
+    }
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Query<S> offset(int offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Cannot skip a negative number of results");
+        }
+        this.offset = offset;
+        return this;
+    }
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Query<S> after(S last) {
+        this.cursor = last;
+        return this;
+    }
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Query<S> include(Relation<? super S, ?> relation) {
+        this.includes.add(relation);
+        return this;
+    }
+
     public enum ComparisonType {
         EQUALITY("=", Objects::equals),
         LESS_THAN("<", (o1, o2) -> o1.compareTo(o2) < 0),
@@ -122,6 +446,7 @@ public class StateQuery<S extends State> implements Query<S> {
         LESS_THAN_OR_EQ("<=", (o1, o2) -> o1.compareTo(o2) <= 0),
         GREATER_THAN_OR_EQ(">=", (o1, o2) -> o1.compareTo(o2) >= 0),
         IS_ANY("IN"),
+        JOIN("IN"),
         ;
 
         private final String operator;
@@ -143,7 +468,7 @@ public class StateQuery<S extends State> implements Query<S> {
         }
 
         public <T> boolean compare(T one, T two) {
-            if (this == IS_ANY) {
+            if (this.compare == null) {
                 throw new UnsupportedOperationException("Cannot calculate comparison for a one-to-many relationship");
             }
             if (this != EQUALITY && !(one instanceof Comparable)) {
@@ -181,35 +506,70 @@ public class StateQuery<S extends State> implements Query<S> {
 
         //checks for states if it's possible to find them through our cache with 100% certainly on the result
         //otherwise, an uncertain result returns null, indicating the cache should be skipped
+        //the result matches this comparison exactly, but other comparisons must still be tested
         public Stream<S> findStates() {
-            if (this.getDataField().isKey()
-                && this.getDataField().isUnique()
-                && this.getType() == ComparisonType.EQUALITY) {
+            if (this.isIndexed()) {
                 //would fail if passed an unrelated data field
                 //TODO: We should probably find a way to define a state->field association
                 //TODO:     However, I want to avoid over-generifying
-                return (Stream<S>) this.getDataField().findStatesByValue(StateQuery.this.storage, this.getValue());
+                return this.findStatesByValue(this.getValue());
             }
-            //TODO: Basically, return anything indexed
             return null;
         }
 
+        //looks up a single value through the field's index
+        protected Stream<S> findStatesByValue(E value) {
+            return (Stream<S>) this.getDataField().findStatesByValue(StateQuery.this.storage, value);
+        }
+
+        //whether findStates can answer this comparison from an index
+        public boolean isIndexed() {
+            return this.getDataField().isKey() && this.getType() == ComparisonType.EQUALITY;
+        }
+
+        //the number of states findStates would return, or -1 if they can only be found by scanning
+        public long estimateMatches() {
+            if (!this.isIndexed()) {
+                return -1;
+            }
+            return this.countStatesByValue(this.getValue());
+        }
+
+        protected long countStatesByValue(E value) {
+            return this.getDataField().countStatesByValue(StateQuery.this.storage, value);
+        }
+
+        //whether this bounds the field on one side, such that an ordered index could answer it
+        public boolean isRange() {
+            switch (this.getType()) {
+                case LESS_THAN:
+                case LESS_THAN_OR_EQ:
+                case GREATER_THAN:
+                case GREATER_THAN_OR_EQ:
+                    return this.getValue() != null;
+                default:
+                    return false;
+            }
+        }
+
         public String valueToString() {
             return Objects.toString(this.value);
         }
 
-        public String toSQLPredicate() {
-            return this.field.getName() + ' ' + this.getType().getOperator() + ' ' + this.valueToString();
+        String toCacheKey() {
+            return this.field.getName() + ' ' + this.getType().getOperator() + ' ' + StateQuery.toCacheKey(this.value);
         }
 
-        public String toPreparedSQL() {
+        //the predicate with its value left as a parameter, which is added to params
+        String toPreparedSQL(List<Object> params) {
+            if (this.value == null) {
+                //nothing is equal to a null parameter in SQL, and nothing orders against one
+                return this.getType() == ComparisonType.EQUALITY ? this.field.getName() + " IS NULL" : "1 = 0";
+            }
+            params.add(InputMapper.toSQL(this.value));
             return this.field.getName() + ' ' + this.getType().getOperator() + " ?";
         }
 
-        public boolean isPreparable() {
-            return true;
-        }
-
     }
 
     public class MultiComparison<E> extends Comparison<E> {
@@ -221,6 +581,10 @@ public class StateQuery<S extends State> implements Query<S> {
             this.values = StreamSupport.stream(values.spliterator(), false).collect(Collectors.toSet());
         }
 
+        public Set<E> getValues() {
+            return Collections.unmodifiableSet(this.values);
+        }
+
         @Override
         public boolean test(State s) {
             E val = this.getDataField().get(s);
@@ -228,8 +592,46 @@ public class StateQuery<S extends State> implements Query<S> {
         }
 
         @Override
-        public String toPreparedSQL() {
-            return super.toSQLPredicate(); //aka don't add to prepared statement, unsupported
+        public Stream<S> findStates() {
+            if (!this.isIndexed()) {
+                return null;
+            }
+            //each state holds one value per field, so the buckets are disjoint
+            return this.values.stream().flatMap(this::findStatesByValue);
+        }
+
+        @Override
+        public boolean isIndexed() {
+            return this.getDataField().isKey();
+        }
+
+        @Override
+        public long estimateMatches() {
+            if (!this.isIndexed()) {
+                return -1;
+            }
+            long total = 0;
+            for (E value : this.values) {
+                long count = this.countStatesByValue(value);
+                if (count < 0) {
+                    return -1;
+                }
+                total += count;
+            }
+            return total;
+        }
+
+        @Override
+        String toPreparedSQL(List<Object> params) {
+            if (this.values.isEmpty()) {
+                return "1 = 0"; //IN () is not valid SQL, and could match nothing anyway
+            }
+            StringJoiner back = new StringJoiner(", ", this.getDataField().getName() + " IN (", ")");
+            for (E value : this.values) {
+                params.add(InputMapper.toSQL(value));
+                back.add("?");
+            }
+            return back.toString();
         }
 
         @Override
@@ -238,41 +640,298 @@ public class StateQuery<S extends State> implements Query<S> {
         }
 
         @Override
-        public boolean isPreparable() {
-            return false;
+        String toCacheKey() {
+            return this.getDataField().getName() + " IN (" + this.values.stream()
+                    .map(StateQuery::toCacheKey)
+                    .sorted()
+                    .collect(Collectors.joining(",")) + ")";
         }
     }
 
+    /**
+     * A semi-join, which holds for states related to at least one result of
+     * another query. When it is the most selective comparison it drives the
+     * lookup as a nested loop over indexes: the related results are found,
+     * then the links to each of them through the index of the link's field,
+     * then the state each link is from. Otherwise the related results are
+     * found once and hashed, and each candidate is tested by probing them
+     * with its own related states
+     *
+     * @param <R> The type of the related states
+     */
+    public class JoinComparison<R extends State> extends Comparison<Object> {
+
+        private final Relation<? super S, R> relation;
+        private final StateQuery<R> related;
+        private Set<R> matched; //found when first needed by each run
+
+        @SuppressWarnings("unchecked") //the field is only named, never read through
+        public JoinComparison(Relation<? super S, R> relation, StateQuery<R> related) {
+            super((DataField<Object>) (DataField<?>) relation.getFrom(), null, ComparisonType.JOIN);
+            this.relation = relation;
+            this.related = related;
+        }
+
+        public Relation<? super S, R> getRelation() {
+            return this.relation;
+        }
+
+        public StateQuery<R> getRelated() {
+            return this.related;
+        }
+
+        //the results of the related query, hashed to be probed
+        Set<R> getMatched() {
+            if (this.matched == null) {
+                this.matched = this.related.results().collect(Collectors.toCollection(HashSet::new));
+            }
+            return this.matched;
+        }
+
+        void reset() {
+            this.matched = null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked") //only states of the query's type are tested
+        public boolean test(State s) {
+            Set<R> found = this.getMatched();
+            return !found.isEmpty() && this.relation.get((S) s).anyMatch(found::contains);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked") //links hold states of the type the relationship is from
+        public Stream<S> findStates() {
+            if (!this.isIndexed()) {
+                return null;
+            }
+            DataField<R> to = this.relation.getTo();
+            DataField<? super S> from = this.relation.getFrom();
+            return this.getMatched().stream()
+                    .flatMap(r -> to.findStatesByValue(StateQuery.this.storage, r))
+                    .map(link -> (S) from.get(link))
+                    .distinct(); //a state may be linked to many related states
+        }
+
+        @Override
+        public boolean isIndexed() {
+            return this.relation.getTo().isKey();
+        }
+
+        //the number of links to the related states, which bounds the states found through them
+        @Override
+        public long estimateMatches() {
+            if (!this.isIndexed()) {
+                return -1;
+            }
+            long total = 0;
+            for (R r : this.getMatched()) {
+                long count = this.relation.getTo().countStatesByValue(StateQuery.this.storage, r);
+                if (count < 0) {
+                    return -1;
+                }
+                total += count;
+            }
+            return total;
+        }
+
+        @Override
+        public String valueToString() {
+            return "(" + this.related.getCacheKey() + ")";
+        }
+
+        @Override
+        String toCacheKey() {
+            return "id IN " + StateQuery.getContainer(this.relation.getLink()) + '.' + this.relation.getFrom().getName()
+                    + " JOIN " + this.related.getStateType().getName() + " (" + this.related.getCacheKey() + ")";
+        }
+
+        //id IN (SELECT l.from FROM link l JOIN (SELECT id FROM related WHERE ...) r ON l.to = r.id)
+        @Override
+        String toPreparedSQL(List<Object> params) {
+            String link = StateQuery.getContainer(this.relation.getLink());
+            StringBuilder back = new StringBuilder("id IN (SELECT l.").append(this.relation.getFrom().getName())
+                    .append(" FROM ").append(link).append(" l");
+            if (!this.related.isPushedDown()) {
+                //the related query is partly answered at runtime, so only its results can be given
+                Set<R> found = this.getMatched();
+                if (found.isEmpty()) {
+                    return "1 = 0";
+                }
+                StringJoiner ids = new StringJoiner(", ", " WHERE l." + this.relation.getTo().getName() + " IN (", "))");
+                for (R r : found) {
+                    params.add(r.getID());
+                    ids.add("?");
+                }
+                return back.append(ids).toString();
+            }
+            return back.append(" JOIN (").append(this.related.toSubquerySQL(params)).append(") r ON l.")
+                    .append(this.relation.getTo().getName()).append(" = r.id)").toString();
+        }
+    }
+
+    public class Ordering<E extends Comparable<E>> {
+
+        private final DataField<E> field;
+        private final Direction direction;
+
+        public Ordering(DataField<E> field, Direction direction) {
+            this.field = field;
+            this.direction = direction;
+        }
+
+        public DataField<E> getDataField() {
+            return this.field;
+        }
+
+        public Direction getDirection() {
+            return this.direction;
+        }
+
+        //nulls come first in ascending order, as they do in SQL
+        Comparator<S> toComparator() {
+            Comparator<S> back = Comparator.comparing(this.field::getOrNull, Comparator.nullsFirst(Comparator.<E>naturalOrder()));
+            return this.direction == Direction.DESCENDING ? back.reversed() : back;
+        }
+
+        String toSQL() {
+            return this.field.getName() + ' ' + this.direction.getKeyword();
+        }
+    }
+
+    //states are identified by their type and id, rather than every field
+    private static String toCacheKey(Object value) {
+        if (value instanceof State) {
+            State state = (State) value;
+            return state.getType().getName() + '#' + state.getID();
+        }
+        return value == null ? "null" : value.getClass().getSimpleName() + ':' + value;
+    }
+
     Stream<S> locateLocal(StateStorage<S> storage) {
-        Stream<S> cached = this.comparisons.stream()
-                .map(Comparison::findStates)
-                .filter(Objects::nonNull)
-                .findFirst().orElse(null);
-        if (cached != null) {
-            return cached;
-        }
-        //REFACTOR: old code below, can be made faster by using keys properly etc
-        return storage.streamLoaded()
-                .filter(s -> this.getComparisons().stream().allMatch(c -> c.test(s)));
-    }
-
-    Stream<S> runSQLQuery(SQLBiFunction<String, Object[], Stream<S>> create) throws SQLException {
-        //yada yada sql injection
-        //at the very least, we're only trusting ourselves.
-        //I suppose even that could be dangerous, but still
-        Class<? extends State> type = this.getType();
-        State.Type stateType = StateType.fromClass(type);
+        return new QueryPlanner<>(this).execute(storage);
+    }
+
+    //the ORDER BY, LIMIT and OFFSET clauses, as far as they can be answered by the backing store
+    private void appendOrderAndLimit(StringBuilder sql) {
+        if (!this.orderings.isEmpty() || this.isPaged()) {
+            sql.append(this.orderings.stream()
+                    .map(Ordering::toSQL)
+                    .collect(Collectors.joining(", ", " ORDER BY ", "")))
+                    .append(this.orderings.isEmpty() ? "id ASC" : ", id ASC");
+        }
+        //with runtime filters, rows past the limit may be needed to make up for those filtered out
+        if (this.limit >= 0 && this.isPushedDown()) {
+            sql.append(" LIMIT ").append(this.limit);
+            if (this.offset > 0) {
+                sql.append(" OFFSET ").append(this.offset);
+            }
+        }
+    }
+
+    //the rows after the cursor, as (a > ? OR (a = ? AND (... OR id > ?))) with the direction of each ordering.
+    //nulls sort first in ascending order and last in descending, as in MySQL, and only match IS NULL
+    private String toCursorSQL(List<Object> params) {
+        StringBuilder back = new StringBuilder();
+        StringBuilder close = new StringBuilder();
+        for (Ordering<?> ordering : this.orderings) {
+            String name = ordering.getDataField().getName();
+            Object value = InputMapper.toSQL(ordering.getDataField().getOrNull(this.cursor));
+            boolean ascending = ordering.getDirection() == Direction.ASCENDING;
+            if (value == null) {
+                //every value comes after a null ascending, and none do descending
+                back.append('(').append(name).append(ascending ? " IS NOT NULL OR (" : " IS NULL AND ");
+                if (ascending) {
+                    back.append(name).append(" IS NULL AND ");
+                }
+                close.append(ascending ? "))" : ")");
+                continue;
+            }
+            back.append('(').append(name).append(ascending ? " > ?" : " < ? OR " + name + " IS NULL")
+                    .append(" OR (").append(name).append(" = ? AND ");
+            params.add(value);
+            params.add(value);
+            close.append("))");
+        }
+        back.append("id > ?");
+        params.add(this.cursor.getID());
+        return back.append(close).toString();
+    }
+
+    /**
+     * Compiles this query into a single parameterized statement. Every
+     * comparison becomes part of the {@code WHERE} clause, with states
+     * compared by their id column, along with the cursor, and the ordering,
+     * offset and limit are applied by the database too. Only runtime filters
+     * are left to be applied to the rows which come back, in which case the
+     * offset and limit are held back as well
+     *
+     * @param create Runs the compiled statement with its parameters
+     * @param <T> The type of result from running the statement
+     * @return The result of {@code create}
+     * @throws SQLException If the statement could not be run
+     */
+    <T> T runSQLQuery(SQLBiFunction<String, Object[], T> create) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT * FROM ").append(this.getContainer());
+        List<Object> params = new ArrayList<>();
+        this.appendWhere(sql, params);
+        this.appendOrderAndLimit(sql);
+        return create.apply(sql.toString(), params.toArray());
+    }
+
+    //the ids of this query's results, as a statement to select from within another
+    private String toSubquerySQL(List<Object> params) {
+        StringBuilder sql = new StringBuilder("SELECT id FROM ").append(this.getContainer());
+        this.appendWhere(sql, params);
+        this.appendOrderAndLimit(sql);
+        return sql.toString();
+    }
+
+    /**
+     * Compiles an aggregate of this query into a single parameterized
+     * statement, with the same {@code WHERE} clause as
+     * {@link #runSQLQuery(SQLBiFunction)}. The ordering, offset and limit
+     * are left out, so the query must not be paged or filtered at runtime
+     *
+     * @param aggregate The {@link Aggregate} to select
+     * @param create Runs the compiled statement with its parameters
+     * @param <T> The type of result from running the statement
+     * @return The result of {@code create}
+     * @throws SQLException If the statement could not be run
+     */
+    <T> T runSQLAggregate(Aggregate<?> aggregate, SQLBiFunction<String, Object[], T> create) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT ").append(aggregate.toSQL())
+                .append(" FROM ").append(this.getContainer());
+        List<Object> params = new ArrayList<>();
+        this.appendWhere(sql, params);
+        if (aggregate.getGroup() != null) {
+            sql.append(" GROUP BY ").append(aggregate.getGroup().getName());
+        }
+        return create.apply(sql.toString(), params.toArray());
+    }
+
+    private String getContainer() {
+        return StateQuery.getContainer(this.getType());
+    }
+
+    private static String getContainer(Class<? extends State> type) {
         StorageContainer container = type.getAnnotation(StorageContainer.class);
         if (container == null) {
             throw new IllegalArgumentException("Unknown container for type: " + type.getSimpleName());
         }
-        //REFACTOR: Think of a less hacky way to build an sql query here?
-        String sqlWhere = this.getComparisons().stream()
-                .map(Comparison::toPreparedSQL)
-                .collect(Collectors.joining());
-        Object[] args = this.getComparisons().stream()
-                .filter(Comparison::isPreparable)
-                .toArray(Object[]::new);
-        return create.apply("SELECT * FROM " + container.value() + " WHERE " + sqlWhere, args);
+        return container.value();
+    }
+
+    //every comparison and the cursor, with their values added to params
+    private void appendWhere(StringBuilder sql, List<Object> params) {
+        List<String> where = this.comparisons.stream()
+                .map(c -> c.toPreparedSQL(params))
+                .collect(Collectors.toCollection(ArrayList::new));
+        if (this.cursor != null) {
+            where.add(this.toCursorSQL(params));
+        }
+        if (!where.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", where));
+        }
     }
 }
@@ -0,0 +1,88 @@
+package edu.rit.codelanx.data.storage;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.field.DataField;
+import edu.rit.codelanx.data.state.State;
+import edu.rit.codelanx.data.state.types.Author;
+import edu.rit.codelanx.data.state.types.AuthorListing;
+import edu.rit.codelanx.data.state.types.Book;
+import edu.rit.codelanx.data.field.FieldIndicies;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A {@link TextIndex} over the states of a {@link DataSource}, answered by
+ * the {@link FieldIndicies#FM_TEXT text indexes} of their fields. Those
+ * indexes only hold loaded states, so an adapter which is not
+ * {@link StorageAdapter#isCached() cached} is scanned instead
+ */
+class StateTextIndex extends TextIndex {
+
+    private final DataSource storage;
+
+    StateTextIndex(DataSource storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param source {@inheritDoc}
+     * @param term {@inheritDoc}
+     * @param prefix {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    protected long[] find(Source source, String term, boolean prefix) {
+        Stream<Book> books;
+        if (source == Source.AUTHOR) {
+            List<Author> authors = this.findByTerm(Author.class, Author.Field.NAME, term, prefix)
+                    .collect(Collectors.toList());
+            books = authors.isEmpty() ? Stream.empty() : this.storage.query(AuthorListing.class)
+                    .isAny(AuthorListing.Field.AUTHOR, authors)
+                    .results()
+                    .map(AuthorListing::getBook);
+        } else {
+            DataField<String> field = source == Source.TITLE ? Book.Field.TITLE : Book.Field.PUBLISHER;
+            books = this.findByTerm(Book.class, field, term, prefix);
+        }
+        return TextIndex.sorted(books.mapToLong(Book::getID).toArray());
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param source {@inheritDoc}
+     * @param book {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    protected Stream<String> getText(Source source, long book) {
+        return this.storage.query(Book.class)
+                .isEqual(Book.Field.ID, book)
+                .results()
+                .flatMap(b -> source == Source.TITLE ? Stream.of(b.getTitle())
+                        : source == Source.PUBLISHER ? Stream.of(b.getPublisher())
+                        : b.getAuthors().map(Author::getName));
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    protected long getBookCount() {
+        return this.storage.query(Book.class).count();
+    }
+
+    @SuppressWarnings("unchecked") //the field only holds states of its own type
+    private <S extends State> Stream<S> findByTerm(Class<S> type, DataField<String> field, String term, boolean prefix) {
+        if (this.storage.getAdapter().isCached()) {
+            return (Stream<S>) field.findStatesByTerm(this.storage, term, prefix);
+        }
+        return this.storage.query(type).results().filter(s -> {
+            return TextQuery.tokenize(field.get(s)).stream()
+                    .anyMatch(t -> prefix ? t.startsWith(term) : t.equals(term));
+        });
+    }
+}
@@ -7,6 +7,10 @@ import edu.rit.codelanx.data.state.types.Library;
 import edu.rit.codelanx.data.field.DataField;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 
 /**
@@ -76,7 +80,10 @@ public interface StorageAdapter { //MemoryStorageAdapter?
     /**
      * Loads the given states from storage if necessary, returning all valid
      * states for the given query. The default implementation will only search
-     * through local storage, but this method may block if necessary
+     * through local storage, but this method may block if necessary. Results
+     * are returned in the query's order and within its offset and limit,
+     * whatever the adapter cannot do itself being left to
+     * {@link StateQuery#finish(Stream, boolean)}
      *
      * @param query The {@link Query Query&lt;R&gt;} to execute for this adapter
      * @param <R> The type of {@link State} to query for
@@ -89,6 +96,68 @@ public interface StorageAdapter { //MemoryStorageAdapter?
         return query.locateLocal(data);
     }
 
+    /**
+     * Starts finding the states for the given query, without blocking the
+     * caller on the backing store. The default implementation simply runs
+     * {@link #handleQuery(StateQuery)}, as local storage never blocks
+     *
+     * @param query The {@link Query Query&lt;R&gt;} to execute for this adapter
+     * @param <R> The type of {@link State} to query for
+     * @return A future completing with the results of {@code query}
+     */
+    default public <R extends State> CompletableFuture<Stream<R>> handleQueryAsync(StateQuery<R> query) {
+        return CompletableFuture.completedFuture(this.handleQuery(query));
+    }
+
+    /**
+     * Computes an aggregate over the results of the given query. The default
+     * implementation answers from the {@link StateStorage#getCounters()
+     * counters} kept over local storage where the query allows, and
+     * otherwise aggregates the results of {@link #handleQuery(StateQuery)}
+     *
+     * @param query The {@link Query Query&lt;R&gt;} to aggregate the results of
+     * @param aggregate The {@link Aggregate} to compute
+     * @param <R> The type of {@link State} to query for
+     * @param <A> The type of the computed value
+     * @return The aggregate of the query's results
+     */
+    default public <R extends State, A> A handleAggregate(StateQuery<R> query, Aggregate<A> aggregate) {
+        if (!this.isCached()) {
+            return aggregate.fromResults(this.handleQuery(query)); //counters only see loaded states
+        }
+        StateStorage<R> data = this.getAdaptee().getRelativeStorage().getStateStorage(query.getType());
+        return query.aggregateLocal(data, aggregate);
+    }
+
+    /**
+     * Finds the states related to each of a batch of states at once. The
+     * default implementation queries every link from any of them in a single
+     * query, as answered by {@link #handleQuery(StateQuery)}
+     *
+     * @param relation The {@link Relation} to follow
+     * @param states The states to find the related states of, all of which
+     *               were loaded by this adapter
+     * @param <S> The type of state the relationship is from
+     * @param <R> The type of state it is to
+     * @return The related states of each of {@code states}, in the order they
+     *         were linked
+     * @see Relation#findByLinks(DataSource, Collection)
+     */
+    default public <S extends State, R extends State> Map<S, List<R>> findRelated(Relation<S, R> relation, Collection<S> states) {
+        return relation.findByLinks(this.getAdaptee(), states);
+    }
+
+    /**
+     * Gets the full-text index over the books of this adapter. The default
+     * implementation answers from the text indexes of the loaded states'
+     * fields
+     *
+     * @return The {@link TextIndex} of this adapter's books
+     */
+    default public TextIndex getTextIndex() {
+        return new StateTextIndex(this.getAdaptee());
+    }
+
     /**
      * Loads a state from a remote data source. This method will specifically
      * skip any caches within the system and go straight to the source.
@@ -0,0 +1,240 @@
+package edu.rit.codelanx.data.storage;
+
+import edu.rit.codelanx.data.state.types.Book;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * An inverted index over the titles, publishers and author names of the
+ * books held by a single {@link StorageAdapter}, from each
+ * {@link TextQuery#tokenize term} to the ids of the books it appears in.
+ * <p>
+ * A {@link TextQuery} is answered by intersecting the books of each of its
+ * clauses, starting from the rarest, and phrases are confirmed against the
+ * text of the few books left. Books are ranked by the sum, over every
+ * clause, of how rare the clause is among all books weighted by the most
+ * important {@link Source} it matched in, so a rare word in a title outranks
+ * a common word in a publisher
+ *
+ * @see StorageAdapter#getTextIndex()
+ */
+public abstract class TextIndex {
+
+    private static final long[] NONE = new long[0];
+
+    /**
+     * The text of a book which is indexed
+     */
+    public enum Source {
+        TITLE(3),
+        AUTHOR(2),
+        PUBLISHER(1),
+        ;
+
+        private final int weight;
+
+        private Source(int weight) {
+            this.weight = weight;
+        }
+
+        /**
+         * Gets how much a match in this text counts towards a book's rank
+         *
+         * @return The weight of this source
+         */
+        public int getWeight() {
+            return this.weight;
+        }
+    }
+
+    /**
+     * Finds the books holding a term within one of their texts
+     *
+     * @param source The {@link Source} to look in
+     * @param term The term, as {@link TextQuery#tokenize tokenized}
+     * @param prefix {@code true} to also find every term starting with it
+     * @return The distinct ids of the books found, in ascending order
+     */
+    protected abstract long[] find(Source source, String term, boolean prefix);
+
+    /**
+     * Gets the text of a book, to confirm phrases against
+     *
+     * @param source The {@link Source} to get
+     * @param book The id of the book
+     * @return Each value of the text, as a book may have many authors
+     */
+    protected abstract Stream<String> getText(Source source, long book);
+
+    /**
+     * Gets the number of books indexed, which every term's rarity is
+     * measured against
+     *
+     * @return The number of books
+     */
+    protected abstract long getBookCount();
+
+    /**
+     * Finds every book matching a query
+     *
+     * @param query The {@link TextQuery} to match
+     * @return The ids of every matching {@link Book}, most relevant first,
+     *         with ties in ascending order
+     */
+    public List<Long> search(TextQuery query) {
+        List<Long> back = new ArrayList<>();
+        if (query.isEmpty()) {
+            return back;
+        }
+        double books = Math.max(1, this.getBookCount());
+        List<Match> matches = new ArrayList<>();
+        for (TextQuery.Clause clause : query.getClauses()) {
+            Match match = this.match(clause);
+            if (match.ids.length == 0) {
+                return back; //every clause must match
+            }
+            matches.add(match);
+        }
+        matches.sort(Comparator.comparingInt(m -> m.ids.length));
+        Match first = matches.get(0);
+        long[] ids = first.ids;
+        double[] scores = new double[ids.length];
+        first.addTo(ids, scores, books);
+        for (Match next : matches.subList(1, matches.size())) {
+            int size = 0;
+            for (int i = 0, j = 0; i < ids.length && j < next.ids.length;) {
+                if (ids[i] < next.ids[j]) {
+                    i++;
+                } else if (ids[i] > next.ids[j]) {
+                    j++;
+                } else {
+                    ids[size] = ids[i];
+                    scores[size++] = scores[i] + next.score(j, books);
+                    i++;
+                    j++;
+                }
+            }
+            ids = Arrays.copyOf(ids, size);
+            scores = Arrays.copyOf(scores, size);
+        }
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        double[] ranked = scores;
+        Arrays.sort(order, (one, two) -> Double.compare(ranked[two], ranked[one])); //stable, so ties stay by id
+        for (Integer i : order) {
+            back.add(ids[i]);
+        }
+        return back;
+    }
+
+    //the books matching a clause in any source, with the weight of the best one
+    private Match match(TextQuery.Clause clause) {
+        long[] ids = NONE;
+        int[] weights = new int[0];
+        for (Source source : Source.values()) {
+            long[] found = this.find(source, clause);
+            if (found.length == 0) {
+                continue;
+            }
+            //merged, keeping the weight of the heaviest source, which comes first
+            long[] merged = new long[ids.length + found.length];
+            int[] mergedWeights = new int[merged.length];
+            int size = 0;
+            int i = 0, j = 0;
+            while (i < ids.length || j < found.length) {
+                if (j >= found.length || (i < ids.length && ids[i] <= found[j])) {
+                    if (j < found.length && ids[i] == found[j]) {
+                        j++;
+                    }
+                    merged[size] = ids[i];
+                    mergedWeights[size++] = weights[i++];
+                } else {
+                    merged[size] = found[j++];
+                    mergedWeights[size++] = source.getWeight();
+                }
+            }
+            ids = Arrays.copyOf(merged, size);
+            weights = Arrays.copyOf(mergedWeights, size);
+        }
+        return new Match(ids, weights);
+    }
+
+    //the books holding a clause within a single source
+    private long[] find(Source source, TextQuery.Clause clause) {
+        List<String> terms = clause.getTerms();
+        int last = terms.size() - 1;
+        long[] back = this.find(source, terms.get(last), clause.isPrefix());
+        for (int i = 0; i < last && back.length > 0; i++) {
+            back = TextIndex.intersect(back, this.find(source, terms.get(i), false));
+        }
+        if (!clause.isPhrase() || back.length == 0) {
+            return back;
+        }
+        return Arrays.stream(back)
+                .filter(id -> this.getText(source, id).anyMatch(text -> clause.matches(TextQuery.tokenize(text))))
+                .toArray();
+    }
+
+    private static long[] intersect(long[] one, long[] two) {
+        long[] back = new long[Math.min(one.length, two.length)];
+        int size = 0;
+        for (int i = 0, j = 0; i < one.length && j < two.length;) {
+            if (one[i] < two[j]) {
+                i++;
+            } else if (one[i] > two[j]) {
+                j++;
+            } else {
+                back[size++] = one[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(back, size);
+    }
+
+    /**
+     * Collects found ids into the form {@link #find} returns
+     *
+     * @param ids The ids, in any order and possibly repeated
+     * @return The distinct ids, in ascending order
+     */
+    protected static long[] sorted(long[] ids) {
+        Arrays.sort(ids);
+        int size = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (size == 0 || ids[size - 1] != ids[i]) {
+                ids[size++] = ids[i];
+            }
+        }
+        return size == ids.length ? ids : Arrays.copyOf(ids, size);
+    }
+
+    //the books matching one clause, and the weight each matched with
+    private static final class Match {
+
+        private final long[] ids;
+        private final int[] weights;
+
+        private Match(long[] ids, int[] weights) {
+            this.ids = ids;
+            this.weights = weights;
+        }
+
+        //the rarer the clause, the more a match counts
+        private double score(int index, double books) {
+            return this.weights[index] * Math.log(1 + books / this.ids.length);
+        }
+
+        private void addTo(long[] ids, double[] scores, double books) {
+            for (int i = 0; i < ids.length; i++) {
+                scores[i] += this.score(i, books);
+            }
+        }
+    }
+}
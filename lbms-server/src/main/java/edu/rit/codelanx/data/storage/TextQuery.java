@@ -0,0 +1,183 @@
+package edu.rit.codelanx.data.storage;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * A full-text query, as typed at a front desk. Every word must match, words
+ * within double quotes must match as a phrase, and a word ending in
+ * {@code *} matches any term it is a prefix of, e.g.
+ * {@code "modern art" hist*}.
+ * <p>
+ * Text is broken into terms the same way when it is indexed and when it is
+ * queried: accents are stripped, case is folded, and anything other than a
+ * letter or digit separates terms
+ *
+ * @see TextIndex
+ */
+public class TextQuery {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private final List<Clause> clauses;
+
+    private TextQuery(List<Clause> clauses) {
+        this.clauses = Collections.unmodifiableList(clauses);
+    }
+
+    /**
+     * Parses a query. Quotes which are never closed run to the end of the
+     * query
+     *
+     * @param text The query text
+     * @return The parsed {@link TextQuery}, which has no clauses if the text
+     *         has no terms
+     */
+    public static TextQuery parse(String text) {
+        List<Clause> back = new ArrayList<>();
+        String[] parts = text == null ? new String[0] : text.split("\"", -1);
+        for (int i = 0; i < parts.length; i++) {
+            if (i % 2 == 1) { //within quotes
+                TextQuery.addClause(back, parts[i]);
+                continue;
+            }
+            for (String word : parts[i].trim().split("\\s+")) {
+                List<String> terms = TextQuery.tokenize(word);
+                //only the last term of a word can be a prefix, e.g. o'ne* is o and ne*
+                for (int t = 0; t < terms.size() - 1; t++) {
+                    back.add(new Clause(Collections.singletonList(terms.get(t)), false));
+                }
+                if (!terms.isEmpty()) {
+                    TextQuery.addClause(back, terms.get(terms.size() - 1) + (word.endsWith("*") ? "*" : ""));
+                }
+            }
+        }
+        return new TextQuery(back);
+    }
+
+    //adds the terms of some text as a single clause, a prefix if it ends in *
+    private static void addClause(List<Clause> clauses, String text) {
+        List<String> terms = TextQuery.tokenize(text);
+        if (!terms.isEmpty()) {
+            clauses.add(new Clause(terms, text.trim().endsWith("*")));
+        }
+    }
+
+    /**
+     * Breaks text into its terms, in the order they appear
+     *
+     * @param text The text to break up
+     * @return The terms of the text, which may repeat
+     */
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFKD))
+                .replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        List<String> back = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean part = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (part && start < 0) {
+                start = i;
+            } else if (!part && start >= 0) {
+                back.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return back;
+    }
+
+    /**
+     * Gets the clauses of this query, every one of which must match
+     *
+     * @return The {@link Clause Clauses}, in the order they were typed
+     */
+    public List<Clause> getClauses() {
+        return this.clauses;
+    }
+
+    /**
+     * Whether this query has nothing to match
+     *
+     * @return {@code true} if there are no clauses
+     */
+    public boolean isEmpty() {
+        return this.clauses.isEmpty();
+    }
+
+    /**
+     * A single word or phrase of a {@link TextQuery}
+     */
+    public static final class Clause {
+
+        private final List<String> terms;
+        private final boolean prefix;
+
+        private Clause(List<String> terms, boolean prefix) {
+            this.terms = Collections.unmodifiableList(terms);
+            this.prefix = prefix;
+        }
+
+        /**
+         * Gets the terms which must appear, in order and next to each other
+         *
+         * @return The terms of this clause, of which there is one unless it
+         *         is a phrase
+         */
+        public List<String> getTerms() {
+            return this.terms;
+        }
+
+        /**
+         * Whether this clause is a phrase of more than one term
+         *
+         * @return {@code true} if this is a phrase
+         */
+        public boolean isPhrase() {
+            return this.terms.size() > 1;
+        }
+
+        /**
+         * Whether the last term matches any term it is a prefix of
+         *
+         * @return {@code true} if this is a prefix
+         */
+        public boolean isPrefix() {
+            return this.prefix;
+        }
+
+        /**
+         * Checks whether the terms of some text contain this clause
+         *
+         * @param text The terms of the text, as {@link TextQuery#tokenize tokenized}
+         * @return {@code true} if this clause appears within them
+         */
+        public boolean matches(List<String> text) {
+            int size = this.terms.size();
+            for (int i = 0; i + size <= text.size(); i++) {
+                int j = 0;
+                while (j < size && this.matches(j, text.get(i + j))) {
+                    j++;
+                }
+                if (j == size) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean matches(int index, String term) {
+            String expected = this.terms.get(index);
+            return this.prefix && index == this.terms.size() - 1
+                    ? term.startsWith(expected)
+                    : term.equals(expected);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package edu.rit.codelanx.network.server;
 import edu.rit.codelanx.network.io.Message;
 import edu.rit.codelanx.network.io.Messenger;
 import edu.rit.codelanx.util.Clock;
+import edu.rit.codelanx.cmd.CommandEngine;
 import edu.rit.codelanx.cmd.Interpreter;
 import edu.rit.codelanx.data.DataSource;
 
@@ -30,6 +31,15 @@ public interface Server<T extends Message<?>> extends Messenger<T> {
      */
     public Interpreter getInterpreter();
 
+    /**
+     * The {@link CommandEngine}, which decides which commands may run at the
+     * same time as one another
+     *
+     * @return The held {@link CommandEngine} for this server
+     * @see CommandEngine
+     */
+    public CommandEngine getCommandEngine();
+
     /**
      * The {@link DataSource} which holds all of the library's data, relevant
      * to customers and books owned within the library
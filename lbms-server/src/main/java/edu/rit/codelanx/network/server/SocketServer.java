@@ -0,0 +1,402 @@
+package edu.rit.codelanx.network.server;
+
+import edu.rit.codelanx.ConfigKey;
+import edu.rit.codelanx.cmd.CommandExecutor;
+import edu.rit.codelanx.cmd.Interpreter;
+import edu.rit.codelanx.network.io.TextMessage;
+import edu.rit.codelanx.util.Errors;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Accepts socket clients for a {@link Server}, so that many front-desk
+ * terminals can share one library. Clients send commands exactly as they
+ * would be typed, each ended by the {@code ;} terminator, and receive every
+ * response followed by a single {@link #RESPONSE_END} byte, as one command
+ * may respond with several lines. Whitespace around a command, such as the
+ * line breaks of a terminal, is ignored.
+ * <p>
+ * One thread selects over every connection, reading and framing input and
+ * writing responses without blocking. Each connection is its own
+ * {@link CommandExecutor}, and framed commands are run by a pool of command
+ * threads, where the {@link edu.rit.codelanx.cmd.CommandEngine} decides which
+ * may run at once. The commands of a single connection still run one at a
+ * time in the order they arrived. A connection with too many commands
+ * waiting is not read from until some have run
+ */
+public class SocketServer implements AutoCloseable {
+
+    /** Follows every response written to a client */
+    public static final byte RESPONSE_END = 0;
+    /** Sent in place of the response to a command which failed */
+    public static final String ERROR_RESPONSE = "Server encountered error while processing latest request";
+    private static final int READ_BUFFER_BYTES = 8192;
+
+    private final Server<TextMessage> server;
+    private final InetSocketAddress address;
+    private final int maxCommandChars;
+    private final int maxPendingCommands;
+    private final ExecutorService commands;
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    //connections whose interest changed off of the selecting thread
+    private final Queue<Connection> changed = new ConcurrentLinkedQueue<>();
+    private volatile Selector selector;
+    private volatile ServerSocketChannel channel;
+
+    /**
+     * Prepares to accept clients on the configured
+     * {@link ConfigKey#NETWORK_ADDRESS address} and
+     * {@link ConfigKey#NETWORK_PORT port}
+     *
+     * @param server The {@link Server} commands are run on
+     */
+    public SocketServer(Server<TextMessage> server) {
+        this(server, SocketServer.configuredAddress());
+    }
+
+    /**
+     * Prepares to accept clients on the given address, which may use port
+     * {@code 0} to be given any free port
+     *
+     * @param server The {@link Server} commands are run on
+     * @param address The {@link InetSocketAddress} to listen on
+     */
+    public SocketServer(Server<TextMessage> server, InetSocketAddress address) {
+        this.server = server;
+        this.address = address;
+        this.maxCommandChars = ConfigKey.NETWORK_MAX_COMMAND_CHARS.as(int.class);
+        this.maxPendingCommands = Math.max(1, ConfigKey.NETWORK_MAX_PENDING_COMMANDS.as(int.class));
+        int threads = ConfigKey.NETWORK_COMMAND_THREADS.as(int.class);
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        AtomicInteger made = new AtomicInteger();
+        this.commands = Executors.newFixedThreadPool(threads, r -> {
+            Thread back = new Thread(r, "LBMS-socket-commands-" + made.incrementAndGet());
+            back.setDaemon(true);
+            return back;
+        });
+    }
+
+    /**
+     * Binds to the address and begins accepting clients on a new thread
+     *
+     * @throws IOException If the address cannot be bound
+     */
+    public void start() throws IOException {
+        this.selector = Selector.open();
+        this.channel = ServerSocketChannel.open();
+        this.channel.configureBlocking(false);
+        this.channel.bind(this.address);
+        this.channel.register(this.selector, SelectionKey.OP_ACCEPT);
+        new Thread(this::select, "LBMS-socket-selector").start();
+    }
+
+    /**
+     * Gets the address clients may connect to, once {@link #start() started}
+     *
+     * @return The bound {@link InetSocketAddress}
+     * @throws IOException If the address cannot be read
+     */
+    public InetSocketAddress getAddress() throws IOException {
+        return (InetSocketAddress) this.channel.getLocalAddress();
+    }
+
+    /**
+     * Gets the number of clients currently connected
+     *
+     * @return The number of open connections
+     */
+    public int getConnectionCount() {
+        return this.connections.size();
+    }
+
+    //commands received from every client which have not finished running
+    int getPendingCommands() {
+        return this.connections.stream().mapToInt(c -> c.pending.get()).sum();
+    }
+
+    /**
+     * Stops accepting clients and disconnects every client. Commands which
+     * were already received may still finish running
+     */
+    @Override
+    public void close() {
+        Selector selector = this.selector;
+        if (selector == null) {
+            return;
+        }
+        try {
+            selector.close(); //ends the selecting thread
+            this.channel.close();
+        } catch (IOException ex) {
+            Errors.report(ex);
+        }
+        new ArrayList<>(this.connections).forEach(Connection::close);
+        this.commands.shutdown();
+    }
+
+    private void select() {
+        try {
+            while (this.selector.isOpen()) {
+                this.selector.select();
+                Connection changed;
+                while ((changed = this.changed.poll()) != null) {
+                    changed.updateInterest();
+                }
+                Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    this.handle(key);
+                }
+            }
+        } catch (ClosedSelectorException ex) {
+            //closed while selecting, we're done
+        } catch (IOException ex) {
+            Errors.report(ex);
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            this.accept();
+            return;
+        }
+        Connection conn = (Connection) key.attachment();
+        try {
+            if (key.isReadable()) {
+                conn.read();
+            }
+            if (key.isValid() && key.isWritable()) {
+                conn.write();
+            }
+        } catch (IOException ex) {
+            conn.close(); //the client went away
+        }
+    }
+
+    private void accept() {
+        try {
+            SocketChannel client;
+            while ((client = this.channel.accept()) != null) {
+                client.configureBlocking(false);
+                client.socket().setTcpNoDelay(true); //responses are small and awaited
+                Connection conn = new Connection(client);
+                conn.key = client.register(this.selector, SelectionKey.OP_READ, conn);
+                this.connections.add(conn);
+            }
+        } catch (IOException ex) {
+            Errors.report(ex);
+        }
+    }
+
+    //asks the selecting thread to update a connection's interest
+    private void requestUpdate(Connection conn) {
+        this.changed.add(conn);
+        this.selector.wakeup();
+    }
+
+    private static InetSocketAddress configuredAddress() {
+        String host = ConfigKey.NETWORK_ADDRESS.as(String.class);
+        int port = ConfigKey.NETWORK_PORT.as(int.class);
+        return host == null || host.isEmpty()
+                ? new InetSocketAddress(port)
+                : new InetSocketAddress(host, port);
+    }
+
+    /**
+     * A single client. Input is only touched by the selecting thread, and
+     * responses are only built by the one command thread running its
+     * current command
+     */
+    private final class Connection implements CommandExecutor {
+
+        private final SocketChannel channel;
+        private final ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final CharBuffer chars = CharBuffer.allocate(READ_BUFFER_BYTES);
+        private final StringBuilder frame = new StringBuilder(); //the command being read
+        private final StringBuilder response = new StringBuilder(); //the response being built
+        private final Queue<ByteBuffer> out = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger(); //commands received but not yet run
+        private final Queue<String> queued = new ArrayDeque<>(); //commands waiting on the one running
+        private boolean running; //whether a command is running or handed to the pool, guarded by queued
+        private SelectionKey key;
+        private volatile boolean closed;
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        private void read() throws IOException {
+            if (this.channel.read(this.in) < 0) {
+                this.close();
+                return;
+            }
+            //through Buffer, as ByteBuffer and CharBuffer only override these from Java 9 on
+            ((Buffer) this.in).flip();
+            this.decoder.decode(this.in, this.chars, false);
+            this.in.compact(); //keeps a character split across reads, and is ByteBuffer's own on Java 8
+            ((Buffer) this.chars).flip();
+            while (this.chars.hasRemaining()) {
+                char c = this.chars.get();
+                if (c == ';') {
+                    this.submit(this.frame.toString().trim());
+                    this.frame.setLength(0);
+                } else if (this.frame.length() < SocketServer.this.maxCommandChars) {
+                    this.frame.append(c);
+                } else {
+                    this.close(); //not a client we understand
+                    return;
+                }
+            }
+            ((Buffer) this.chars).clear();
+            this.updateInterest();
+        }
+
+        private void submit(String command) {
+            if (command.isEmpty()) {
+                return;
+            }
+            this.pending.incrementAndGet();
+            synchronized (this.queued) {
+                this.queued.add(command);
+                if (this.running) {
+                    return; //runs once those before it have
+                }
+                this.running = true;
+            }
+            SocketServer.this.commands.execute(this::runNext);
+        }
+
+        //runs the oldest queued command, then hands the next back to the pool
+        private void runNext() {
+            String command;
+            synchronized (this.queued) {
+                command = this.queued.poll();
+            }
+            boolean more;
+            try {
+                this.run(command);
+            } finally {
+                if (this.pending.decrementAndGet() == SocketServer.this.maxPendingCommands - 1) {
+                    SocketServer.this.requestUpdate(this); //resumes reading
+                }
+                synchronized (this.queued) {
+                    more = this.running = !this.queued.isEmpty();
+                }
+            }
+            if (more) {
+                //rather than looping, so that busy clients don't starve the others
+                SocketServer.this.commands.execute(this::runNext);
+            }
+        }
+
+        private void run(String command) {
+            if (this.closed) {
+                return;
+            }
+            Interpreter interpreter = SocketServer.this.server.getInterpreter();
+            try {
+                interpreter.receive(this, command + ";");
+            } catch (Throwable t) {
+                Errors.report(t);
+                this.response.setLength(0);
+                this.sendMessage(ERROR_RESPONSE);
+                this.flush();
+            }
+        }
+
+        private void write() throws IOException {
+            ByteBuffer next;
+            while ((next = this.out.peek()) != null) {
+                this.channel.write(next);
+                if (next.hasRemaining()) {
+                    return; //the socket is full, wait until it is writable
+                }
+                this.out.poll();
+            }
+            this.updateInterest();
+        }
+
+        //only called on the selecting thread
+        private void updateInterest() {
+            if (!this.key.isValid()) {
+                return;
+            }
+            int ops = 0;
+            if (this.pending.get() < SocketServer.this.maxPendingCommands) {
+                ops |= SelectionKey.OP_READ;
+            }
+            if (!this.out.isEmpty()) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+            this.key.interestOps(ops);
+        }
+
+        @Override
+        public void sendMessage(String message) {
+            if (this.response.length() > 0) {
+                this.response.append('\n');
+            }
+            this.response.append(message);
+        }
+
+        @Override
+        public boolean flush() {
+            if (this.response.length() == 0 || this.closed) {
+                this.response.setLength(0);
+                return false;
+            }
+            byte[] text = this.response.toString().getBytes(StandardCharsets.UTF_8);
+            this.response.setLength(0);
+            ByteBuffer buffer = ByteBuffer.allocate(text.length + 1);
+            buffer.put(text).put(RESPONSE_END);
+            ((Buffer) buffer).flip();
+            this.out.add(buffer);
+            SocketServer.this.requestUpdate(this);
+            return true;
+        }
+
+        private void close() {
+            this.closed = true;
+            SocketServer.this.connections.remove(this);
+            if (this.key != null) {
+                this.key.cancel();
+            }
+            try {
+                this.channel.close();
+            } catch (IOException ex) {
+                Errors.report(ex);
+            }
+        }
+    }
+}
@@ -1,15 +1,20 @@
 package edu.rit.codelanx.network.server;
 
+import edu.rit.codelanx.ConfigKey;
 import edu.rit.codelanx.cmd.text.TextInterpreter;
 import edu.rit.codelanx.data.LibraryData;
 import edu.rit.codelanx.data.storage.BookStoreAdapter;
 import edu.rit.codelanx.network.io.Messenger;
 import edu.rit.codelanx.network.io.TextMessage;
 import edu.rit.codelanx.util.Clock;
+import edu.rit.codelanx.cmd.CommandEngine;
 import edu.rit.codelanx.cmd.Interpreter;
 import edu.rit.codelanx.cmd.MessengerExecutor;
 import edu.rit.codelanx.data.DataSource;
 
+import java.io.File;
+import java.io.IOException;
+
 /**
  * Our concrete server class, which holds the relevant subsystems and receives
  * messages from {@link Messenger clients} who have connected to it
@@ -21,16 +26,45 @@ public class TextServer implements Server<TextMessage> {
     private final DataSource library; //stores the library's data
     private final DataSource bookStore; //stores the book store's data
     private final Clock clock; //passes the time
+    private final CommandEngine engine; //runs commands safely alongside each other
     private final Interpreter commands; //the command interpreter
 
     /**
      * Starts our program, loads relevant data, begins ticking server logic, etc
+     *
+     * @throws IOException If the configured clock's time cannot be read
+     */
+    public TextServer() throws IOException {
+        this(new LibraryData(), new LibraryData(BookStoreAdapter::new), new Clock(
+                new File(ConfigKey.CLOCK_STATE.as(String.class)),
+                "simulated".equalsIgnoreCase(ConfigKey.CLOCK_MODE.as(String.class))));
+    }
+
+    /**
+     * Runs a server over the provided data, rather than the configured
+     * storage. Neither {@link DataSource} is initialized here
+     *
+     * @param library The {@link DataSource} holding the library's data
+     * @param bookStore The {@link DataSource} holding the book store's data
+     */
+    public TextServer(DataSource library, DataSource bookStore) {
+        this(library, bookStore, new Clock());
+    }
+
+    /**
+     * Runs a server over the provided data and {@link Clock}, rather than the
+     * configured ones. Neither {@link DataSource} is initialized here
+     *
+     * @param library The {@link DataSource} holding the library's data
+     * @param bookStore The {@link DataSource} holding the book store's data
+     * @param clock The {@link Clock} to pass the time with
      */
-    public TextServer() {
-        this.bookStore = new LibraryData(BookStoreAdapter::new);
-        this.library = new LibraryData();
+    public TextServer(DataSource library, DataSource bookStore, Clock clock) {
+        this.bookStore = bookStore;
+        this.library = library;
+        this.clock = clock; //known to the engine
+        this.engine = new CommandEngine(this);
         this.commands = new TextInterpreter(this);
-        this.clock = new Clock();
     }
 
     /**
@@ -42,6 +76,15 @@ public class TextServer implements Server<TextMessage> {
         return this.commands;
     }
 
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public CommandEngine getCommandEngine() {
+        return this.engine;
+    }
+
     /**
      * {@inheritDoc}
      * @return {@inheritDoc}
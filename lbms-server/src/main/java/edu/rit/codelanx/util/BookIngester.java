@@ -0,0 +1,125 @@
+package edu.rit.codelanx.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Parses a catalog in stages: a reader thread splits the catalog into chunks
+ * of lines, a pool of workers parses each chunk into
+ * {@link BookParser.Entry entries}, and the calling thread receives the
+ * parsed chunks in catalog order. Only the reader and the workers run
+ * concurrently; whatever the caller does with each chunk (e.g. inserting
+ * states) happens on its own thread, one chunk at a time.
+ * <p>
+ * At most a few chunks per worker are held at once, so a catalog of any
+ * size is streamed rather than read into memory up front
+ *
+ * @see BookParser#parseChunks(InputStream, Consumer)
+ */
+class BookIngester {
+
+    private static final int CHUNK_LINES = 2048;
+    private static final int CHUNKS_PER_WORKER = 4;
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final int workers;
+    private final int chunkLines;
+
+    BookIngester(int workers) {
+        this(workers, CHUNK_LINES);
+    }
+
+    BookIngester(int workers, int chunkLines) {
+        this.workers = Math.max(1, workers);
+        this.chunkLines = Math.max(1, chunkLines);
+    }
+
+    /**
+     * Parses a catalog, closing the stream when done
+     *
+     * @param catalog The catalog to parse, in the format of books.txt
+     * @param chunk Receives each chunk of parsed entries, in order, on the
+     *              calling thread
+     * @throws IOException If the catalog cannot be read
+     */
+    void ingest(InputStream catalog, Consumer<List<BookParser.Entry>> chunk) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(this.workers + 1, r -> {
+            Thread back = new Thread(r, "book-ingest-" + THREAD_COUNT.incrementAndGet());
+            back.setDaemon(true);
+            return back;
+        });
+        //the empty future marks the end of the catalog
+        BlockingQueue<CompletableFuture<List<BookParser.Entry>>> parsed =
+                new ArrayBlockingQueue<>(this.workers * CHUNKS_PER_WORKER);
+        CompletableFuture<List<BookParser.Entry>> end = CompletableFuture.completedFuture(null);
+        CompletableFuture<Void> reader = CompletableFuture.runAsync(() -> {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(catalog, StandardCharsets.UTF_8))) {
+                List<String> lines = new ArrayList<>(this.chunkLines);
+                String line;
+                while ((line = in.readLine()) != null) {
+                    lines.add(line);
+                    if (lines.size() >= this.chunkLines) {
+                        parsed.put(BookIngester.parse(lines, pool));
+                        lines = new ArrayList<>(this.chunkLines);
+                    }
+                }
+                if (!lines.isEmpty()) {
+                    parsed.put(BookIngester.parse(lines, pool));
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            } catch (InterruptedException ex) {
+                return; //the consumer gave up, and shut the pool down
+            } finally {
+                try {
+                    parsed.put(end);
+                } catch (InterruptedException ex) {
+                    //as above, nobody is left waiting for the end
+                }
+            }
+        }, pool);
+        try {
+            for (CompletableFuture<List<BookParser.Entry>> next = parsed.take(); next != end; next = parsed.take()) {
+                chunk.accept(next.get());
+            }
+            reader.get(); //rethrows any failure to read
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing the catalog", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause; //a malformed line, as when parsed one by one
+            }
+            throw new IOException(cause);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static CompletableFuture<List<BookParser.Entry>> parse(List<String> lines, ExecutorService pool) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<BookParser.Entry> back = new ArrayList<>(lines.size());
+            for (String line : lines) {
+                back.add(BookParser.parseLine(line));
+            }
+            return back;
+        }, pool);
+    }
+}
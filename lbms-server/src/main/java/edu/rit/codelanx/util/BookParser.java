@@ -8,9 +8,9 @@ import edu.rit.codelanx.data.state.types.AuthorListing;
 import edu.rit.codelanx.data.state.types.Book;
 import edu.rit.codelanx.data.state.types.StateType;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.net.URL;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
@@ -23,6 +23,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 //TODO: Documentation
@@ -55,41 +57,63 @@ public enum BookParser {;
     //9780674028678,"The Race Between Education and Technology",{Claudia Dale Goldin, Lawrence F. Katz},"Harvard University Press",2008,488
     //9781591987628,"Build-a-Skill Instant Books: Synonyms and Antonyms, Gr. Kâ€“1, eBook",{Trisha Callella},"Creative Teaching Press",2007-01-01,32
     public static List<Book> parseBooks(DataSource storage) {
+        return BookParser.parseBooks(storage, BookParser.class.getResourceAsStream(BOOKS_FILE));
+    }
+
+    /**
+     * Locates the catalog bundled with LBMS
+     *
+     * @return The {@link URL} of books.txt
+     */
+    public static URL getBundledCatalog() {
+        return BookParser.class.getResource(BOOKS_FILE);
+    }
+
+    //parses a catalog in the format of books.txt, closing the stream when done
+    public static List<Book> parseBooks(DataSource storage, InputStream catalog) {
         List<Book> back = new ArrayList<>();
-        try (InputStreamReader isr = new InputStreamReader(BookParser.class.getResourceAsStream(BOOKS_FILE));
-             BufferedReader br = new BufferedReader(isr)) {
-            String s;
-            while ((s = br.readLine()) != null) {
-                BookParser.parseAndInsert(storage, s);
-            }
+        //authors are found once up front, rather than queried for every book
+        Map<String, Author> authors = storage.query(Author.class).results()
+                .collect(Collectors.toMap(Author::getName, Function.identity(), (a, b) -> a, HashMap::new));
+        try {
+            BookParser.parseChunks(catalog, chunk -> {
+                for (Entry entry : chunk) {
+                    back.add(BookParser.insert(storage, entry, authors));
+                }
+            });
         } catch (IOException e) {
             Errors.report(e);
         }
         return back;
     }
 
+    /**
+     * Parses a catalog in the format of books.txt across every available
+     * core, closing the stream when done. No states are created; each chunk
+     * of {@link Entry entries} is handed back on the calling thread, in
+     * catalog order, so inserting them stays single-threaded
+     *
+     * @param catalog The catalog to parse
+     * @param chunk Receives each chunk of parsed entries
+     * @throws IOException If the catalog cannot be read
+     */
+    public static void parseChunks(InputStream catalog, Consumer<List<Entry>> chunk) throws IOException {
+        new BookIngester(Runtime.getRuntime().availableProcessors()).ingest(catalog, chunk);
+    }
+
     public static Map<State.Type, List<? extends State>> parseAndInsert(DataSource insertInto, String line) {
         Map<State.Type, List<? extends State>> back = new HashMap<>();
+        Entry entry = BookParser.parseLine(line);
         StateBuilder<Book> book = Book.create();
-        int start = 0, end = line.indexOf(',');
-        book.setValue(Book.Field.ISBN, line.substring(start, end));
-        start = end+2; //skip ,"
-        end = line.indexOf('"', start);
-        book.setValue(Book.Field.TITLE, line.substring(start, end));
-        start = end+3; //skip ",{
-        end = line.indexOf('}', start);
-        List<Author> authors = Arrays.stream(line.substring(start, end).split(","))
-                                    .map(String::trim)
+        book.setValue(Book.Field.ISBN, entry.getISBN());
+        book.setValue(Book.Field.TITLE, entry.getTitle());
+        List<Author> authors = entry.getAuthors().stream()
                                     .map(s -> BookParser.findOrInsertAuthor(insertInto, s))
                                     .collect(Collectors.toList());
         back.put(StateType.AUTHOR, authors);
-        start = end+3; //skip },"
-        end = line.indexOf('"', start);
-        book.setValue(Book.Field.PUBLISHER, line.substring(start, end));
-        start = end+2; //skip ",
-        end = line.indexOf(',', start);
-        book.setValue(Book.Field.PUBLISH_DATE, BookParser.DATE_FORMAT.parse(line.substring(start, end), Instant::from));
-        book.setValue(Book.Field.PAGE_COUNT, Integer.parseInt(line.substring(end+1)));
+        book.setValue(Book.Field.PUBLISHER, entry.getPublisher());
+        book.setValue(Book.Field.PUBLISH_DATE, entry.getPublishDate());
+        book.setValue(Book.Field.PAGE_COUNT, entry.getPageCount());
         book.setValue(Book.Field.CHECKED_OUT, -1);
         book.setValue(Book.Field.TOTAL_COPIES, -1);
         Book addedBook = book.build(insertInto);
@@ -106,6 +130,54 @@ public enum BookParser {;
         return back;
     }
 
+    /**
+     * Reads the values of a single catalog line, without creating any states
+     *
+     * @param line A line in the format of books.txt
+     * @return The parsed {@link Entry}
+     */
+    public static Entry parseLine(String line) {
+        int start = 0, end = line.indexOf(',');
+        String isbn = line.substring(start, end);
+        start = end+2; //skip ,"
+        end = line.indexOf('"', start);
+        String title = line.substring(start, end);
+        start = end+3; //skip ",{
+        end = line.indexOf('}', start);
+        List<String> authors = Arrays.stream(line.substring(start, end).split(","))
+                                    .map(String::trim)
+                                    .collect(Collectors.toList());
+        start = end+3; //skip },"
+        end = line.indexOf('"', start);
+        String publisher = line.substring(start, end);
+        start = end+2; //skip ",
+        end = line.indexOf(',', start);
+        Instant published = BookParser.DATE_FORMAT.parse(line.substring(start, end), Instant::from);
+        int pages = Integer.parseInt(line.substring(end+1));
+        return new Entry(isbn, title, authors, publisher, published, pages);
+    }
+
+    //builds one entry's states, interning its authors by name
+    private static Book insert(DataSource storage, Entry entry, Map<String, Author> authors) {
+        Book book = Book.create()
+                .setValue(Book.Field.ISBN, entry.getISBN())
+                .setValue(Book.Field.TITLE, entry.getTitle())
+                .setValue(Book.Field.PUBLISHER, entry.getPublisher())
+                .setValue(Book.Field.PUBLISH_DATE, entry.getPublishDate())
+                .setValue(Book.Field.PAGE_COUNT, entry.getPageCount())
+                .setValue(Book.Field.CHECKED_OUT, -1)
+                .setValue(Book.Field.TOTAL_COPIES, -1)
+                .build(storage);
+        for (String name : entry.getAuthors()) {
+            Author author = authors.computeIfAbsent(name, n -> Author.create().setValue(Author.Field.NAME, n).build(storage));
+            AuthorListing.create()
+                    .setValue(AuthorListing.Field.AUTHOR, author)
+                    .setValue(AuthorListing.Field.BOOK, book)
+                    .build(storage);
+        }
+        return book;
+    }
+
     private static Author findOrInsertAuthor(DataSource source, String name) {
         Author back = source.query(Author.class).isEqual(Author.Field.NAME, name).results().findAny().orElse(null);
         if (back == null) {
@@ -113,4 +185,50 @@ public enum BookParser {;
         }
         return back;
     }
+
+    /**
+     * The values of a single book within a catalog
+     */
+    public static class Entry {
+
+        private final String isbn;
+        private final String title;
+        private final List<String> authors;
+        private final String publisher;
+        private final Instant publishDate;
+        private final int pageCount;
+
+        private Entry(String isbn, String title, List<String> authors, String publisher, Instant publishDate, int pageCount) {
+            this.isbn = isbn;
+            this.title = title;
+            this.authors = authors;
+            this.publisher = publisher;
+            this.publishDate = publishDate;
+            this.pageCount = pageCount;
+        }
+
+        public String getISBN() {
+            return this.isbn;
+        }
+
+        public String getTitle() {
+            return this.title;
+        }
+
+        public List<String> getAuthors() {
+            return this.authors;
+        }
+
+        public String getPublisher() {
+            return this.publisher;
+        }
+
+        public Instant getPublishDate() {
+            return this.publishDate;
+        }
+
+        public int getPageCount() {
+            return this.pageCount;
+        }
+    }
 }
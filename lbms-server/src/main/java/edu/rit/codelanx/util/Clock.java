@@ -2,26 +2,43 @@ package edu.rit.codelanx.util;
 
 import com.codelanx.commons.util.Parallel;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.time.Instant;
-import java.time.ZoneOffset;
-import java.time.temporal.ChronoField;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.Collections;
+import java.util.List;
 import java.util.PriorityQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
 
 /**
  * A utility class for timing events outside of the user's control based on the
- * current, real time (offset by a given amount if desired). As it's a clock,
- * it of course only tracks things in the duration of a day! I certainly
- * don't have any 48-hour clocks.
+ * current, real time (offset by a given amount if desired). Events may be due
+ * once at any instant, or recur daily or on a fixed period, and are held in a
+ * {@link TimingWheel} so that registering or cancelling one costs the same no
+ * matter how many are waiting. Rather than polling, the clock sleeps until
+ * the next event could be due, and fires every event due by then at once, in
+ * the order they were due.
+ * <p>
+ * Advancing the clock walks it forward event by event, running each event
+ * skipped over in order while the clock reads the time it was due. A
+ * {@link #isSimulated() simulated} clock does not follow the real time at
+ * all, and only passes time by being advanced, so simulating days of events
+ * takes only as long as the events themselves. Either way, a clock with a
+ * state file keeps how far it was advanced across restarts
  *
  * @author sja9291  Spencer Alderman
  */
@@ -29,16 +46,27 @@ public class Clock {
 
     //our thread pool for timing events
     private static final ScheduledExecutorService TICKER;
-    //how often to check the passage of time
-    private static final long CHECK_INTERVAL_MS = 500;
-    //The offset (in hours) from the current time
-    private long timeOffsetHours = 0;
-    //A task currently executing/waiting for events
+    //how precisely events are fired
+    private static final long TICK_MS = 10;
+    //the longest to sleep, in case the system time is changed meanwhile
+    private static final long MAX_WAIT_MS = 1000;
+    //The offset (in milliseconds) from the current time, or the time itself if simulated
+    private volatile long timeOffset;
+    private final boolean simulated;
+    private final File state; //where the time is kept, if anywhere
+    //the next wake-up, and when it is for
     private ScheduledFuture<?> currentTimer;
-    private final AtomicLong lastSecondTick = new AtomicLong();
-    private final Deque<RegisteredTask> expiredEvents = new ArrayDeque<>();
-    private final PriorityQueue<RegisteredTask> events = new PriorityQueue<>();
-    private final ReadWriteLock eventLock = new ReentrantReadWriteLock();
+    private long nextTick = Long.MAX_VALUE;
+    private volatile boolean running;
+    private final TimingWheel<RegisteredTask> events;
+    private int advancing; //how deeply advanceLock is held, as a fired task may advance again
+    private boolean rearm; //a wake-up was skipped while advancing, so one is due once done
+    //guards all of the above but the offset
+    private final Lock eventLock = new ReentrantLock();
+    //held while advancing or firing, so only one of them runs events at once
+    private final ReentrantLock advanceLock = new ReentrantLock();
+    //taken by the timer before firing anything, ahead of the locks above
+    private volatile Lock firingLock;
 
     static {
         TICKER = Executors.newSingleThreadScheduledExecutor(r -> {
@@ -53,6 +81,28 @@ public class Clock {
      * necessary without blocking the calling thread
      */
     public Clock() {
+        this(false, null, 0);
+    }
+
+    /**
+     * Begins the timer on a new {@link Clock}, which starts from the time kept
+     * in the given file, and keeps the time there whenever it is advanced
+     *
+     * @param state The file to keep the time in, which need not exist yet
+     * @param simulated {@code true} if the clock should only pass time when
+     *                  {@link #advanceTime advanced}
+     * @throws IOException If the file exists, but cannot be read
+     * @see #isSimulated()
+     */
+    public Clock(File state, boolean simulated) throws IOException {
+        this(simulated, state, Clock.load(state, simulated));
+    }
+
+    private Clock(boolean simulated, File state, long timeOffset) {
+        this.simulated = simulated;
+        this.state = state;
+        this.timeOffset = timeOffset;
+        this.events = new TimingWheel<>(TICK_MS, this.now());
         this.resume();
     }
 
@@ -60,19 +110,28 @@ public class Clock {
      * Stop the internal timer, effectively pausing any calls to events
      */
     public void stop() {
-        if (this.currentTimer.cancel(true)) {
-            this.currentTimer = null;
-        } else {
-            throw new IllegalStateException("Clock is already stopped");
-        }
+        Parallel.operateLock(this.eventLock, () -> {
+            if (!this.running) {
+                throw new IllegalStateException("Clock is already stopped");
+            }
+            this.running = false;
+            if (this.currentTimer != null) { //a simulated clock may have nothing to wait for
+                this.currentTimer.cancel(false);
+                this.currentTimer = null;
+            }
+            this.nextTick = Long.MAX_VALUE;
+        });
     }
 
     /**
      * Resume the event timer if it was stopped
      */
     public void resume() {
-        Validate.isTrue(this.currentTimer == null, "Cannot resume a running clock!", IllegalArgumentException.class);
-        this.currentTimer = TICKER.scheduleAtFixedRate(this::tick, 0, CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        Parallel.operateLock(this.eventLock, () -> {
+            Validate.isTrue(!this.running, "Cannot resume a running clock!", IllegalArgumentException.class);
+            this.running = true;
+            this.wakeAt(this.now());
+        });
     }
 
     /**
@@ -81,9 +140,30 @@ public class Clock {
      * @return {@code true} if the timer is running, {@code false} otherwise
      */
     public boolean isRunning() {
-        return this.currentTimer != null
-                && !this.currentTimer.isDone()
-                && !this.currentTimer.isCancelled();
+        return this.running;
+    }
+
+    /**
+     * Sets a lock for the timer to hold while it fires events. Advancing waits
+     * for any events the timer is firing, so if events wait on a lock which
+     * may be held while advancing, the timer must take that lock first, or
+     * the two would wait on each other
+     *
+     * @param firingLock The {@link Lock} to take before firing, or
+     *                   {@code null} for none
+     */
+    public void setFiringLock(Lock firingLock) {
+        this.firingLock = firingLock;
+    }
+
+    /**
+     * Whether this clock only passes time when it is
+     * {@link #advanceTime advanced}, rather than with the real time
+     *
+     * @return {@code true} if the time is simulated
+     */
+    public boolean isSimulated() {
+        return this.simulated;
     }
 
     /**
@@ -99,96 +179,386 @@ public class Clock {
 
     /**
      * Advances the reference point for the "current time" by the given
-     * parameters, such that any new reference NOW would become NOW+(params)
+     * parameters, such that any new reference NOW would become NOW+(params).
+     * <p>
+     * Every event due in the time skipped over is run on the calling thread,
+     * in the order they were due, with the current time reading when each was
+     * due as it runs; events they register within that time are run in turn.
+     * Any events the timer is already firing are finished first. This
+     * returns once the clock has reached the new time, which is then
+     * kept in the state file, if any. A stopped clock only moves its time,
+     * leaving the events to be run once it is resumed
      *
      * @param days The number of days to offset the current time
      * @param hours The number of hours to offset the current time
      * @see #advanceTime(int)
      */
     public void advanceTime(int days, int hours) {
-        this.timeOffsetHours += (days * 24) + hours;
+        try {
+            Parallel.operateLock(this.advanceLock, () -> {
+                Parallel.operateLock(this.eventLock, () -> this.advancing++);
+                long target = this.now() + TimeUnit.HOURS.toMillis((days * 24L) + hours);
+                for (;;) {
+                    //buckets only bound their events, so some steps fire nothing
+                    long step = Parallel.operateLock(this.eventLock, () -> {
+                        return this.running ? this.events.nextExpiration() : Long.MAX_VALUE;
+                    });
+                    if (step > target) {
+                        break; //a stopped clock catches up once resumed
+                    }
+                    //steps are whole ticks, so the clock is pinned to each deadline instead
+                    this.fire(Parallel.operateLock(this.eventLock, () -> this.events.advance(step)), target, true);
+                }
+                Parallel.operateLock(this.eventLock, () -> this.moveTo(target));
+                this.save();
+            });
+        } finally {
+            //only once done, as the timer skips waking up while we advance
+            Parallel.operateLock(this.eventLock, () -> this.endAdvance(true));
+        }
     }
 
     /**
      * Returns the "current time", including any calculated offsets that have
      * been provided to the clock throughout the runtime of the program
      *
-     * TODO: Do we persist a clock-ahead? I think it'd present with data
-     *    inconsistencies if not
-     *
      * @return An {@link Instant} describing the current+offset time
      */
     public Instant getCurrentTime() {
-        return Instant.now().plus(this.timeOffsetHours, ChronoUnit.HOURS);
+        return this.simulated ? Instant.ofEpochMilli(this.timeOffset) : Instant.now().plusMillis(this.timeOffset);
     }
 
+    /**
+     * Registers a task to run every day at the given time of day
+     *
+     * @param hours The hour of the day
+     * @param minutes The minute of the hour
+     * @param task The task to run
+     * @return The {@link RegisteredTask}, which may be cancelled
+     * @see #registerTask(int, Runnable)
+     */
     public RegisteredTask registerTask(int hours, int minutes, Runnable task) {
         return this.registerTask(hours, minutes, 0, task);
     }
 
+    /**
+     * Registers a task to run every day at the given time of day
+     *
+     * @param hours The hour of the day
+     * @param minutes The minute of the hour
+     * @param seconds The second of the minute
+     * @param task The task to run
+     * @return The {@link RegisteredTask}, which may be cancelled
+     * @see #registerTask(int, Runnable)
+     */
     public RegisteredTask registerTask(int hours, int minutes, int seconds, Runnable task) {
         return this.registerTask(((hours * 60) + minutes) * 60 + seconds, task);
     }
 
+    /**
+     * Registers a task to run every day at the given time of day, in the
+     * system's time zone. If that time has already passed today, the task is
+     * run right away, so whatever it does is caught up on
+     *
+     * @param secondsOfDay The number of seconds into the day to run at
+     * @param task The task to run
+     * @return The {@link RegisteredTask}, which may be cancelled
+     */
     public RegisteredTask registerTask(int secondsOfDay, Runnable task) {
-        RegisteredTask back;
-        this.events.add(back = new RegisteredTask(secondsOfDay, task));
+        ZonedDateTime today = this.getCurrentTime().atZone(ZoneId.systemDefault()).truncatedTo(ChronoUnit.DAYS);
+        return this.schedule(today.plusSeconds(secondsOfDay).toInstant(), last -> {
+            return last.atZone(ZoneId.systemDefault()).plusDays(1).toInstant();
+        }, task);
+    }
+
+    /**
+     * Registers a task to run once, at the given time
+     *
+     * @param at When to run the task, relative to {@link #getCurrentTime()}.
+     *           A time which has already passed is run right away
+     * @param task The task to run
+     * @return The {@link RegisteredTask}, which may be cancelled
+     */
+    public RegisteredTask registerTask(Instant at, Runnable task) {
+        return this.schedule(at, null, task);
+    }
+
+    /**
+     * Registers a task to run at the given time, and again each period after
+     *
+     * @param first When to first run the task, relative to
+     *              {@link #getCurrentTime()}
+     * @param period How long to wait between each run
+     * @param task The task to run
+     * @return The {@link RegisteredTask}, which may be cancelled
+     */
+    public RegisteredTask registerTask(Instant first, Duration period, Runnable task) {
+        Validate.isTrue(!period.isNegative() && !period.isZero(), "Period must be positive", IllegalArgumentException.class);
+        return this.schedule(first, last -> last.plus(period), task);
+    }
+
+    private RegisteredTask schedule(Instant at, UnaryOperator<Instant> repeat, Runnable task) {
+        RegisteredTask back = new RegisteredTask(at, repeat, task);
+        Parallel.operateLock(this.eventLock, back::enqueue);
         return back;
     }
 
+    //the current time, as the wheel holds it
+    private long now() {
+        return this.simulated ? this.timeOffset : System.currentTimeMillis() + this.timeOffset;
+    }
+
+    //must hold the event lock, moves the current time forward to the given time
+    private void moveTo(long time) {
+        long now = this.now();
+        if (time > now) {
+            this.timeOffset += time - now;
+        }
+    }
+
+    //must hold the event lock, brings the next wake-up forward to the given time
+    private void wakeAt(long time) {
+        if (!this.running || time >= this.nextTick) {
+            return;
+        }
+        if (this.advancing > 0) {
+            this.rearm = true; //advancing wakes the timer itself once done
+            return;
+        }
+        long now = this.now();
+        if (this.simulated && time > now) {
+            return; //only advancing makes this due
+        }
+        if (this.currentTimer != null) {
+            this.currentTimer.cancel(false);
+        }
+        this.nextTick = time;
+        this.currentTimer = TICKER.schedule(this::tick, Math.max(0, time - now), TimeUnit.MILLISECONDS);
+    }
+
     //our "event loop"
     private void tick() {
         try {
-            int now = this.getCurrentTime().atZone(ZoneOffset.systemDefault()).get(ChronoField.SECOND_OF_DAY);
-            if (now - this.lastSecondTick.getAndSet(now) < 0) { //no time has passed, or physics broke
-                Parallel.operateLock(this.eventLock.writeLock(), () -> {
-                    this.events.addAll(this.expiredEvents);
-                    this.expiredEvents.clear();
-                });
+            boolean due = Parallel.operateLock(this.eventLock, () -> {
+                this.nextTick = Long.MAX_VALUE;
+                return this.running && this.events.nextExpiration() <= this.now();
+            });
+            Lock firing = this.firingLock;
+            if (due && firing != null) {
+                firing.lock();
+                try {
+                    this.fireDue();
+                } finally {
+                    firing.unlock();
+                }
+            } else if (due) {
+                this.fireDue();
             }
-            if (this.events.isEmpty()) return;
-            RegisteredTask next = this.events.peek();
-            if (next == null) {
-                return;
+            Parallel.operateLock(this.eventLock, () -> {
+                this.wakeAt(Math.min(this.events.nextExpiration(), this.now() + MAX_WAIT_MS));
+            });
+        } catch (Throwable fucker) {
+            Errors.reportAndExit(fucker);
+        }
+    }
+
+    //fires whatever is due, unless advancing already is, holding off advancing until done
+    private void fireDue() {
+        if (!this.advanceLock.tryLock()) {
+            return; //advancing wakes the timer itself once done
+        }
+        try {
+            Parallel.operateLock(this.eventLock, () -> this.advancing++);
+            long now = this.now();
+            List<RegisteredTask> due = Parallel.operateLock(this.eventLock, () -> {
+                return this.running ? this.events.advance(now) : Collections.<RegisteredTask>emptyList();
+            });
+            this.fire(due, now, false);
+        } finally {
+            this.advanceLock.unlock();
+            //after unlocking, so a wake-up it arms is not turned away by tryLock
+            Parallel.operateLock(this.eventLock, () -> this.endAdvance(false));
+        }
+    }
+
+    //must hold the event lock, wakes the timer for anything skipped while advancing
+    private void endAdvance(boolean jumped) {
+        this.rearm |= jumped;
+        if (--this.advancing > 0 || !this.rearm) {
+            return; //the outermost advance wakes the timer, if anything asked it to
+        }
+        this.rearm = false;
+        //whatever wake-up is pending may be for the time before advancing
+        this.nextTick = Long.MAX_VALUE;
+        this.wakeAt(this.now());
+    }
+
+    //runs a batch of due tasks in order, outside of the event lock so tasks may register more
+    private void fire(List<RegisteredTask> due, long until, boolean pin) {
+        PriorityQueue<RegisteredTask> firing = new PriorityQueue<>(due);
+        while (!firing.isEmpty()) {
+            RegisteredTask next = firing.poll();
+            boolean run = Parallel.operateLock(this.eventLock, () -> {
+                if (!next.begin()) {
+                    return false; //cancelled meanwhile
+                }
+                if (pin) {
+                    this.moveTo(Math.min(next.deadline.toEpochMilli(), until));
+                }
+                return true;
+            });
+            if (!run) {
+                continue;
             }
-            if (next.secondsOfDay > now) {
-                return;
+            try {
+                next.run();
+            } catch (Throwable fucker) {
+                Errors.reportAndExit(fucker);
             }
-            RegisteredTask found = Parallel.operateLock(this.eventLock.writeLock(), this.events::poll);
-            if (found != next) {
-                //we had a race condition
-                Parallel.operateLock(this.eventLock.writeLock(), () -> this.events.add(found)); //whoops
-                return; //try again
+            if (Parallel.operateLock(this.eventLock, () -> next.repeat(until))) {
+                firing.add(next); //due again within the time passed
+            }
+        }
+    }
+
+    //the offset kept in a state file, or the time itself if simulated
+    private static long load(File state, boolean simulated) throws IOException {
+        long time = System.currentTimeMillis();
+        long saved = time;
+        if (state.exists()) {
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(state.toPath()))) {
+                time = in.readLong();
+                saved = in.readLong();
             }
-            found.run();
-        } catch (Throwable fucker) {
-            Errors.reportAndExit(fucker);
         }
+        return simulated ? time : time - saved;
     }
 
+    //keeps the current time, and the real time it was kept at
+    private void save() {
+        if (this.state == null) {
+            return;
+        }
+        try {
+            File parent = this.state.getAbsoluteFile().getParentFile();
+            if (parent != null) {
+                parent.mkdirs();
+            }
+            File next = new File(this.state.getPath() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(next.toPath()))) {
+                out.writeLong(this.now());
+                out.writeLong(System.currentTimeMillis());
+            }
+            Files.move(next.toPath(), this.state.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            //the time has still passed, it just won't be kept past a restart
+            Errors.report(ex);
+        }
+    }
+
+    /**
+     * A task waiting on the {@link Clock}, which may be run once or recur
+     */
     public class RegisteredTask implements Comparable<RegisteredTask>, Runnable {
 
         private final Runnable task;
-        private final int secondsOfDay;
+        private final UnaryOperator<Instant> repeat;
+        //guarded by the clock's event lock
+        private Instant deadline;
+        private TimingWheel.Entry<RegisteredTask> entry;
+        private boolean done;
 
-        public RegisteredTask(int secondsOfDay, Runnable task) {
-            this.secondsOfDay = secondsOfDay;
+        private RegisteredTask(Instant deadline, UnaryOperator<Instant> repeat, Runnable task) {
+            this.deadline = deadline;
+            this.repeat = repeat;
             this.task = task;
         }
 
+        /**
+         * Gets when this task is next due, relative to
+         * {@link Clock#getCurrentTime()}
+         *
+         * @return The time this task is next due
+         */
+        public Instant getDeadline() {
+            return Parallel.operateLock(Clock.this.eventLock, () -> this.deadline);
+        }
+
+        /**
+         * Whether this task runs again after it is next run
+         *
+         * @return {@code true} if the task recurs
+         */
+        public boolean isRecurring() {
+            return this.repeat != null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
         @Override
         public void run() {
             this.task.run();
         }
 
+        /**
+         * {@inheritDoc}
+         * @param o {@inheritDoc}
+         * @return {@inheritDoc}
+         */
         @Override
         public int compareTo(RegisteredTask o) {
-            return Integer.compare(this.secondsOfDay, o.secondsOfDay);
+            return this.deadline.compareTo(o.deadline);
         }
 
+        /**
+         * Stops this task from being run again
+         *
+         * @return {@code true} if the task was still waiting to be run
+         */
         public boolean cancel() {
-            return Clock.this.expiredEvents.remove(this)
-                    || Clock.this.events.remove(this);
+            return Parallel.operateLock(Clock.this.eventLock, () -> {
+                if (this.done) {
+                    return false;
+                }
+                this.done = true;
+                if (this.entry != null) {
+                    Clock.this.events.remove(this.entry);
+                    this.entry = null;
+                }
+                return true;
+            });
+        }
+
+        //these all must hold the clock's event lock
+
+        private void enqueue() {
+            long at = this.deadline.toEpochMilli();
+            this.entry = Clock.this.events.add(at, this);
+            Clock.this.wakeAt(at);
+        }
+
+        //whether to go ahead with running the task, which is then done if it only runs once
+        private boolean begin() {
+            if (this.done) {
+                return false;
+            }
+            this.entry = null;
+            this.done = this.repeat == null;
+            return true;
+        }
+
+        //puts a recurring task back, or returns true if it is already due again
+        private boolean repeat(long now) {
+            if (this.done || this.repeat == null) {
+                return false;
+            }
+            this.deadline = this.repeat.apply(this.deadline);
+            if (this.deadline.toEpochMilli() <= now) {
+                return true;
+            }
+            this.enqueue();
+            return false;
         }
     }
 }
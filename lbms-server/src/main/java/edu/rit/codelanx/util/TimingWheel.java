@@ -0,0 +1,272 @@
+package edu.rit.codelanx.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A hashed hierarchical timing wheel, holding values which become due at a
+ * given time in milliseconds. Each level of the wheel is a ring of
+ * {@link #SLOTS} buckets, the first spanning a single tick apiece and each
+ * level above spanning the whole of the level below per bucket, so a value
+ * is held in the lowest level its deadline fits within and falls through to
+ * lower levels as the wheel turns towards it.
+ * <p>
+ * Adding or removing a value only touches the bucket it hashes to, and
+ * advancing the wheel only visits the buckets which hold something, in the
+ * order they expire, so a long jump through time costs no more than the
+ * buckets passed on the way. The wheel is not thread-safe, its owner is
+ * expected to guard it
+ *
+ * @param <T> The type of value held
+ */
+class TimingWheel<T> {
+
+    //buckets per level, each level is this many times wider than the last
+    private static final int SLOTS = 64;
+    private final long tick;
+    private final List<Level> levels = new ArrayList<>();
+    //every bucket holding something, by when it expires
+    private final PriorityQueue<Bucket<T>> active = new PriorityQueue<>((one, two) -> Long.compare(one.expiration, two.expiration));
+    //values already due when they were added
+    private final Bucket<T> due = new Bucket<>();
+    private long current;
+    private int size;
+
+    /**
+     * Makes an empty wheel
+     *
+     * @param tick The width of a bucket of the lowest level, in milliseconds,
+     *             which is how precisely values are due
+     * @param start The time to start the wheel at, in milliseconds
+     */
+    TimingWheel(long tick, long start) {
+        Validate.isTrue(tick > 0, "Tick must be positive", IllegalArgumentException.class);
+        this.tick = tick;
+        this.current = start - Math.floorMod(start, tick);
+        this.levels.add(new Level(tick));
+    }
+
+    /**
+     * Adds a value to the wheel
+     *
+     * @param deadline When the value is due, in milliseconds. Values which are
+     *                 already due are returned by the next {@link #advance}
+     * @param value The value to hold
+     * @return The {@link Entry} holding the value, which may be
+     *         {@link #remove removed}
+     */
+    Entry<T> add(long deadline, T value) {
+        Entry<T> back = new Entry<>(deadline, value);
+        this.insert(back);
+        this.size++;
+        return back;
+    }
+
+    /**
+     * Removes an entry from the wheel, if it has not already become due
+     *
+     * @param entry The {@link Entry} to remove
+     * @return {@code true} if the entry was held by the wheel
+     */
+    boolean remove(Entry<T> entry) {
+        if (entry.bucket == null) {
+            return false;
+        }
+        Bucket<T> bucket = entry.bucket;
+        bucket.remove(entry);
+        if (bucket.isEmpty() && bucket.expiration != Long.MIN_VALUE) {
+            //dropped now, so the next expiration is never an empty bucket's
+            this.active.remove(bucket);
+            bucket.expiration = Long.MIN_VALUE;
+        }
+        this.size--;
+        return true;
+    }
+
+    /**
+     * Turns the wheel to the given time, taking out every value which has
+     * become due by then
+     *
+     * @param time The time to advance to, in milliseconds
+     * @return Every value which has become due, in no particular order
+     */
+    List<T> advance(long time) {
+        Bucket<T> next;
+        //every bucket passed is emptied, falling to lower levels or due
+        while ((next = this.active.peek()) != null && next.expiration <= time) {
+            this.active.poll();
+            this.turn(next.expiration);
+            next.expiration = Long.MIN_VALUE;
+            for (Entry<T> entry = next.drain(); entry != null;) {
+                Entry<T> following = entry.next;
+                entry.next = null;
+                this.insert(entry);
+                entry = following;
+            }
+        }
+        this.turn(time);
+        List<T> back = new ArrayList<>();
+        for (Entry<T> entry = this.due.drain(); entry != null; entry = entry.next) {
+            back.add(entry.value);
+        }
+        this.size -= back.size();
+        return back;
+    }
+
+    /**
+     * Gets the earliest time at which {@link #advance} could return anything
+     *
+     * @return The time, in milliseconds, which is the time last advanced to
+     *         if anything is already due, or {@link Long#MAX_VALUE} if the
+     *         wheel holds nothing
+     */
+    long nextExpiration() {
+        if (!this.due.isEmpty()) {
+            return this.current;
+        }
+        //every queued bucket holds something, as removing its last entry dequeues it
+        Bucket<T> next = this.active.peek();
+        return next == null ? Long.MAX_VALUE : next.expiration;
+    }
+
+    /**
+     * Gets the number of values held
+     *
+     * @return The number of values in the wheel
+     */
+    int size() {
+        return this.size;
+    }
+
+    private void insert(Entry<T> entry) {
+        //compared by difference, as the last tick may run past Long.MAX_VALUE
+        if (entry.deadline - this.current < this.tick) {
+            this.due.add(entry);
+            return;
+        }
+        for (int i = 0;; i++) {
+            if (i == this.levels.size()) {
+                Level below = this.levels.get(i - 1);
+                this.levels.add(new Level(below.span()));
+            }
+            Level level = this.levels.get(i);
+            long start = this.current - Math.floorMod(this.current, level.tick);
+            if (entry.deadline - start < level.span() || level.span() <= 0) {
+                long slot = Math.floorDiv(entry.deadline, level.tick);
+                Bucket<T> bucket = level.buckets[(int) Math.floorMod(slot, (long) SLOTS)];
+                bucket.add(entry);
+                long expiration = slot * level.tick;
+                if (bucket.expiration != expiration) {
+                    //a bucket which is queued can only share its own turn, so
+                    //this one is not, and is either new or reused
+                    bucket.expiration = expiration;
+                    this.active.add(bucket);
+                }
+                return;
+            }
+        }
+    }
+
+    private void turn(long time) {
+        long floor = time - Math.floorMod(time, this.tick);
+        if (floor > this.current) {
+            this.current = floor;
+        }
+    }
+
+    //a single ring of buckets
+    private final class Level {
+
+        private final long tick;
+        private final Bucket<T>[] buckets;
+
+        @SuppressWarnings("unchecked")
+        private Level(long tick) {
+            this.tick = tick;
+            this.buckets = new Bucket[SLOTS];
+            for (int i = 0; i < SLOTS; i++) {
+                this.buckets[i] = new Bucket<>();
+            }
+        }
+
+        //the time covered by the whole ring, non-positive once it overflows
+        private long span() {
+            return this.tick > Long.MAX_VALUE / SLOTS ? -1 : this.tick * SLOTS;
+        }
+    }
+
+    /**
+     * A value held by the wheel, linked into the bucket it hashes to
+     *
+     * @param <T> The type of value held
+     */
+    static final class Entry<T> {
+
+        private final long deadline;
+        private final T value;
+        private Bucket<T> bucket;
+        private Entry<T> prev;
+        private Entry<T> next;
+
+        private Entry(long deadline, T value) {
+            this.deadline = deadline;
+            this.value = value;
+        }
+
+        /**
+         * Gets when the value is due
+         *
+         * @return The deadline, in milliseconds
+         */
+        long getDeadline() {
+            return this.deadline;
+        }
+    }
+
+    //a doubly-linked list of entries, so any may be removed in place
+    private static final class Bucket<T> {
+
+        private Entry<T> head;
+        private long expiration = Long.MIN_VALUE;
+
+        private void add(Entry<T> entry) {
+            entry.bucket = this;
+            entry.prev = null;
+            entry.next = this.head;
+            if (this.head != null) {
+                this.head.prev = entry;
+            }
+            this.head = entry;
+        }
+
+        private void remove(Entry<T> entry) {
+            if (entry.prev == null) {
+                this.head = entry.next;
+            } else {
+                entry.prev.next = entry.next;
+            }
+            if (entry.next != null) {
+                entry.next.prev = entry.prev;
+            }
+            entry.bucket = null;
+            entry.prev = null;
+            entry.next = null;
+        }
+
+        //unlinks every entry at once, returning the first, still chained by next
+        private Entry<T> drain() {
+            Entry<T> back = this.head;
+            this.head = null;
+            for (Entry<T> entry = back; entry != null; entry = entry.next) {
+                entry.bucket = null;
+                entry.prev = null;
+            }
+            return back;
+        }
+
+        private boolean isEmpty() {
+            return this.head == null;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package edu.rit.codelanx;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestConfigKey {
+
+    @Test
+    public void testDBUrl() {
+        /*
+        Test Explanation: Building the url of the database with and without sql.url set
+        Expectation: a set url is used as is, such as for an embedded database, otherwise the MySQL url is built from the auth details
+         */
+        String h2 = "jdbc:h2:mem:lbms;MODE=MySQL";
+        assertEquals(h2, ConfigKey.getDBUrl(h2, "home.rogue.ninja", 3306, "lbms"));
+        assertEquals("jdbc:mysql://home.rogue.ninja:3306/lbms", ConfigKey.getDBUrl("", "home.rogue.ninja", 3306, "lbms"));
+        assertEquals("jdbc:mysql://localhost:3307/test", ConfigKey.getDBUrl(null, "localhost", 3307, "test"));
+    }
+}
@@ -0,0 +1,239 @@
+package edu.rit.codelanx.cmd;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.Fixtures;
+import edu.rit.codelanx.data.LibraryData;
+import edu.rit.codelanx.data.state.types.Book;
+import edu.rit.codelanx.data.state.types.Checkout;
+import edu.rit.codelanx.data.state.types.Visitor;
+import edu.rit.codelanx.data.storage.MemoryStorageAdapter;
+import edu.rit.codelanx.network.server.TextServer;
+import edu.rit.codelanx.util.Clock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestCommandEngine {
+
+    private static final int BOOKS = 20;
+    private static final int VISITORS = 10;
+
+    private DataSource library;
+    private Clock clock;
+    private TextServer server;
+    private final List<Book> books = new ArrayList<>();
+    private final List<Visitor> visitors = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.library = new LibraryData(MemoryStorageAdapter::new);
+        this.library.initialize();
+        DataSource bookStore = new LibraryData(MemoryStorageAdapter::new);
+        bookStore.initialize();
+        this.clock = new Clock();
+        this.library.getLibrary().setClock(this.clock);
+        this.server = new TextServer(this.library, bookStore, this.clock);
+        this.books.clear();
+        this.visitors.clear();
+        for (int i = 0; i < BOOKS; i++) {
+            this.books.add(Fixtures.book(String.valueOf(9780000000000L + i), "Dune Part " + i)
+                    .setValue(Book.Field.TOTAL_COPIES, 3)
+                    .build(this.library));
+        }
+        for (int i = 0; i < VISITORS; i++) {
+            this.visitors.add(Fixtures.visitor()
+                    .setValue(Visitor.Field.FIRST, "Ada" + i)
+                    .build(this.library));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.clock.stop();
+    }
+
+    //a command which runs the given task, with the given access
+    private Command command(Command.Access access, Function<CommandExecutor, ResponseFlag> task) {
+        return new Command() {
+            @Override
+            public String getName() {
+                return "test";
+            }
+
+            @Override
+            public String getUsage() {
+                return "test;";
+            }
+
+            @Override
+            public ResponseFlag onExecute(CommandExecutor executor, String... args) {
+                return task.apply(executor);
+            }
+
+            @Override
+            public Access getAccess() {
+                return access;
+            }
+        };
+    }
+
+    private CommandExecutor collect(List<String> sent) {
+        return new CommandExecutor() {
+            @Override
+            public void sendMessage(String message) {
+                sent.add(message);
+            }
+
+            @Override
+            public boolean flush() {
+                return true;
+            }
+        };
+    }
+
+    //the copies of a book taken by checkouts which are not yet returned
+    private long unreturned(Book book) {
+        return this.library.query(Checkout.class)
+                .isEqual(Checkout.Field.BOOK, book)
+                .isEqual(Checkout.Field.RETURNED, false)
+                .count();
+    }
+
+    //builds visitors in a source of their own, which are then left to be collected
+    private void discarded() {
+        DataSource other = new LibraryData(MemoryStorageAdapter::new);
+        try {
+            other.initialize();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        for (int i = 0; i < 50; i++) {
+            Fixtures.visitor()
+                    .setValue(Visitor.Field.FIRST, "Bea" + i)
+                    .build(other);
+        }
+        System.gc();
+    }
+
+    @Test
+    public void testReadsRunTogether() throws InterruptedException {
+        /*
+        Test Explanation: Running two reading commands which each wait for the other to start
+        Expectation: both are running at the same time, so neither waits in vain
+         */
+        CyclicBarrier both = new CyclicBarrier(2);
+        Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        Command read = this.command(Command.Access.READ, executor -> {
+            try {
+                both.await(5, TimeUnit.SECONDS);
+            } catch (Exception ex) {
+                errors.add(ex);
+            }
+            return ResponseFlag.SUCCESS;
+        });
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Thread thread = new Thread(() -> this.server.getCommandEngine().execute(read, this.collect(new ArrayList<>())));
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(errors.isEmpty(), errors.toString());
+    }
+
+    @Test
+    public void testReadsAlongsideWrites() throws InterruptedException {
+        /*
+        Test Explanation: Searching, listing borrowed books and reporting from many threads at once, while other threads borrow and return books
+        Expectation: no reading command fails or sees a change part way through, and every response is whole
+         */
+        this.library.getLibrary().open();
+        CommandEngine engine = this.server.getCommandEngine();
+        Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        Queue<String> broken = new ConcurrentLinkedQueue<>();
+        Command write = this.command(Command.Access.WRITE, executor -> {
+            Random random = new Random();
+            if (random.nextInt(20) == 0) {
+                //fields are shared by every source, so states left to be collected are expunged by later reads
+                this.discarded();
+            }
+            List<Checkout> open = this.library.query(Checkout.class)
+                    .isEqual(Checkout.Field.RETURNED, false)
+                    .results().collect(Collectors.toList());
+            if (!open.isEmpty() && random.nextBoolean()) {
+                open.get(random.nextInt(open.size())).returnBook(this.clock);
+                return ResponseFlag.SUCCESS;
+            }
+            Book book = this.books.get(random.nextInt(BOOKS));
+            if (book.getAvailableCopies() > 0) {
+                book.checkout(this.visitors.get(random.nextInt(VISITORS)), this.clock);
+            }
+            return ResponseFlag.SUCCESS;
+        });
+        //every book's copies checked out match the checkouts not yet returned
+        Command check = this.command(Command.Access.READ, executor -> {
+            for (Book book : this.books) {
+                if (book.getCheckedOut() != this.unreturned(book)) {
+                    broken.add(book.getTitle() + ": " + book.getCheckedOut() + " != " + this.unreturned(book));
+                }
+            }
+            return ResponseFlag.SUCCESS;
+        });
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            threads.add(new Thread(() -> {
+                for (int j = 0; j < 200; j++) {
+                    engine.execute(write, this.collect(new ArrayList<>()));
+                }
+            }));
+        }
+        for (int i = 0; i < 4; i++) {
+            int offset = i;
+            threads.add(new Thread(() -> {
+                List<String> sent = new ArrayList<>();
+                CommandExecutor executor = this.collect(sent);
+                for (int j = 0; j < 100; j++) {
+                    Visitor visitor = this.visitors.get((offset + j) % VISITORS);
+                    this.server.getInterpreter().receive(executor, "info,dune part,*,*,*,relevance,5,,text;");
+                    if (sent.stream().filter(m -> m.contains(",Dune Part ")).count() != 5) {
+                        broken.add("info listed " + sent);
+                    }
+                    this.server.getInterpreter().receive(executor, "borrowed," + visitor.getID() + ";");
+                    this.server.getInterpreter().receive(executor, "report;");
+                    engine.execute(check, executor);
+                    sent.stream().filter(m -> m.contains("invalid")).forEach(broken::add);
+                    sent.clear();
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.setUncaughtExceptionHandler((t, ex) -> errors.add(ex));
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(errors.isEmpty(), errors.toString());
+        assertTrue(broken.isEmpty(), broken.toString());
+        for (Book book : this.books) {
+            assertEquals(this.unreturned(book), book.getCheckedOut());
+        }
+    }
+}
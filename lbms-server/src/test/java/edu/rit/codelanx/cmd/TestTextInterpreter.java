@@ -1,9 +1,18 @@
 package edu.rit.codelanx.cmd;
 
+import edu.rit.codelanx.cmd.text.TextInterpreter;
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.LibraryData;
+import edu.rit.codelanx.data.storage.MemoryStorageAdapter;
+import edu.rit.codelanx.network.server.TextServer;
+import edu.rit.codelanx.util.Clock;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.IntStream;
 
 import static org.mockito.Matchers.any;
@@ -169,4 +178,39 @@ public class TestTextInterpreter {
         //Mockito.verify(dtSpy, Mockito.times(1)).getClockTime();
         //Mockito.verify(execMock).sendMessage("datetime," + formattedTime + ";");
     }
+
+    @Test
+    public void optionalParamsOnly() throws IOException {
+        /*
+        Test Explanation: Sending commands with no arguments at all
+        Expectation: a command whose parameters are all optional runs, one with a required parameter is refused
+         */
+        DataSource library = new LibraryData(MemoryStorageAdapter::new);
+        library.initialize();
+        DataSource bookStore = new LibraryData(MemoryStorageAdapter::new);
+        bookStore.initialize();
+        Clock clock = new Clock();
+        library.getLibrary().setClock(clock);
+        TextServer server = new TextServer(library, bookStore, clock);
+        List<String> sent = new ArrayList<>();
+        CommandExecutor executor = new CommandExecutor() {
+            @Override
+            public void sendMessage(String message) {
+                sent.add(message);
+            }
+
+            @Override
+            public boolean flush() {
+                return true;
+            }
+        };
+        TextInterpreter interpreter = new TextInterpreter(server);
+        interpreter.receive(executor, "report;");
+        Assertions.assertTrue(sent.get(0).startsWith("report"), sent.get(0));
+        Assertions.assertFalse(sent.get(0).contains("missing-params"), sent.get(0));
+        sent.clear();
+        interpreter.receive(executor, "arrive;");
+        Assertions.assertTrue(sent.get(0).startsWith("arrive,missing-params"), sent.get(0));
+        clock.stop();
+    }
 }
@@ -3,9 +3,13 @@ package edu.rit.codelanx.cmd.cmds;
 import edu.rit.codelanx.cmd.CommandExecutor;
 import edu.rit.codelanx.cmd.ResponseFlag;
 import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.Fixtures;
+import edu.rit.codelanx.data.LibraryData;
 import edu.rit.codelanx.data.state.types.Book;
+import edu.rit.codelanx.data.state.types.Checkout;
 import edu.rit.codelanx.data.state.types.Library;
 import edu.rit.codelanx.data.state.types.Visitor;
+import edu.rit.codelanx.data.storage.MemoryStorageAdapter;
 import edu.rit.codelanx.network.io.TextMessage;
 import edu.rit.codelanx.network.server.Server;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,6 +18,7 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.LocalDateTime;
@@ -21,6 +26,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anySet;
@@ -120,4 +126,29 @@ public class TestBorrowCommand {
         String formatted = dtf.format(now);
         Mockito.verify(execMock).sendMessage("borrow," + formatted + ";");
     }
+
+    @Test
+    public void returnedNotCounted() throws IOException {
+        /*
+        Test Explanation: Counting the checkouts of a visitor who has returned some books
+        Expectation: only the books still out count towards the borrowing limit
+         */
+        DataSource library = new LibraryData(MemoryStorageAdapter::new);
+        library.initialize();
+        Mockito.when(servMock.getLibraryData()).thenReturn(library);
+        Visitor visitor = Fixtures.visitor().build(library);
+        Book book = Fixtures.book("9780000000001", "Dune")
+                .setValue(Book.Field.TOTAL_COPIES, 5)
+                .setValue(Book.Field.CHECKED_OUT, 2)
+                .build(library);
+        for (boolean returned : new boolean[]{true, false, true, false, true}) {
+            Checkout.create()
+                    .setValue(Checkout.Field.VISITOR, visitor)
+                    .setValue(Checkout.Field.BOOK, book)
+                    .setValue(Checkout.Field.AT, Instant.EPOCH)
+                    .setValue(Checkout.Field.RETURNED, returned)
+                    .build(library);
+        }
+        assertEquals(2L, this.bor.getCheckedOut(visitor));
+    }
 }
@@ -52,11 +52,35 @@ public class TestInfoCommand {
         Mockito.doReturn(authorList).when(cmdSpy).findAuthors(Matchers.any());
         Mockito.doReturn(Collections.<Long>singleton(BOOK_ID)).when(cmdSpy).getIDs(Matchers.any());
         Book book = Mockito.mock(Book.class);
-        Mockito.doReturn(Stream.of(book)).when(cmdSpy).getBookStream(Matchers.any(), Matchers.any(), Matchers.any(), Matchers.any(), Matchers.any());
+        Mockito.doReturn(Stream.of(book)).when(cmdSpy).getBookStream(Matchers.any(), Matchers.any(), Matchers.any(), Matchers.any(), Matchers.any(), Matchers.any());
         Assertions.assertSame(ResponseFlag.SUCCESS, cmdSpy.onExecute(execMock, TITLE, AUTHOR, ISBN, PUBLISHER, "page-count"));
         Mockito.verify(execMock).sendMessage("info,invalid-sort-order;");
     }
     @Test
+    public void wrongMatch(){
+        /*
+        Test Explanation: Testing sending info a match which does not exist
+        Expectation: All inputs should be able to be handled, no info displayed
+        */
+        Assertions.assertSame(ResponseFlag.SUCCESS, cmdSpy.onExecute(execMock, TITLE, AUTHOR, ISBN, PUBLISHER, "title", "", "", "fuzzy"));
+        Mockito.verify(execMock).sendMessage("info,invalid-match;");
+    }
+    @Test
+    public void relevanceWithoutText(){
+        /*
+        Test Explanation: Testing sorting info by relevance without matching text
+        Expectation: All inputs should be able to be handled, no info displayed
+        */
+        Author authorMock = Mockito.mock(Author.class);
+        List<Author> authorList = Collections.<Author>singletonList(authorMock);
+        Mockito.doReturn(authorList).when(cmdSpy).findAuthors(Matchers.any());
+        Mockito.doReturn(Collections.<Long>singleton(BOOK_ID)).when(cmdSpy).getIDs(Matchers.any());
+        Book book = Mockito.mock(Book.class);
+        Mockito.doReturn(Stream.of(book)).when(cmdSpy).getBookStream(Matchers.any(), Matchers.any(), Matchers.any(), Matchers.any(), Matchers.any(), Matchers.any());
+        Assertions.assertSame(ResponseFlag.SUCCESS, cmdSpy.onExecute(execMock, TITLE, AUTHOR, ISBN, PUBLISHER, "relevance"));
+        Mockito.verify(execMock).sendMessage("info,invalid-sort-order;");
+    }
+    @Test
     public void happyPath() {
         /*
         Test Explanation: Testing sending info a fully correct command
@@ -69,7 +93,7 @@ public class TestInfoCommand {
         Mockito.doReturn(Mockito.mock(Query.class)).when(cmdSpy).bookQuery();
         Book book = Mockito.mock(Book.class);
         Mockito.doReturn(TITLE).when(book).getTitle();
-        Mockito.doReturn(Stream.of(book)).when(cmdSpy).getBookStream(Matchers.any(), Matchers.any(), Matchers.any(), Matchers.any(), Matchers.any());
+        Mockito.doReturn(Stream.of(book)).when(cmdSpy).getBookStream(Matchers.any(), Matchers.any(), Matchers.any(), Matchers.any(), Matchers.any(), Matchers.any());
         Assertions.assertSame(ResponseFlag.SUCCESS, cmdSpy.onExecute(execMock, TITLE, AUTHOR, ISBN, PUBLISHER, "title"));
     }
 }
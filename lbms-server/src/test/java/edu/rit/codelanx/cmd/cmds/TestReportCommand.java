@@ -2,7 +2,6 @@ package edu.rit.codelanx.cmd.cmds;
 
 import edu.rit.codelanx.cmd.CommandExecutor;
 import edu.rit.codelanx.cmd.ResponseFlag;
-import edu.rit.codelanx.data.state.types.Transaction;
 import edu.rit.codelanx.network.io.TextMessage;
 import edu.rit.codelanx.network.server.Server;
 import edu.rit.codelanx.util.Clock;
@@ -16,7 +15,6 @@ import org.mockito.MockitoAnnotations;
 
 import java.time.Instant;
 import java.util.Collections;
-import java.util.Set;
 
 public class TestReportCommand {
     @Mock
@@ -40,10 +38,10 @@ public class TestReportCommand {
         Mockito.when(servMock.getClock()).thenReturn(clockMock);
         Mockito.doReturn(Instant.now()).when(clockMock).getCurrentTime();
         Mockito.doReturn(3L).when(repSpy).getBookCount();
-        Mockito.doReturn(2L).when(repSpy).getNewVisitorCount();
+        Mockito.doReturn(2L).when(repSpy).getNewVisitorCount(Matchers.any(Instant.class));
         Mockito.doReturn(1L).when(repSpy).getBooksPurchasedAmount();
-        Mockito.doReturn(3600.00).when(repSpy).getAverageVisitLength();
-        Mockito.doReturn(Collections.<String, Set<Transaction>>emptyMap()).when(repSpy).getTransactions();
+        Mockito.doReturn(3600.00).when(repSpy).getAverageVisitLength(Matchers.any(Instant.class));
+        Mockito.doReturn(Collections.<String, Long>emptyMap()).when(repSpy).getTransactionCounts(Matchers.any(Instant.class));
     }
 
     @Test
@@ -56,6 +54,18 @@ public class TestReportCommand {
         Mockito.verify(execMock).sendMessage("report,invalid-argument");
     }
 
+    @Test
+    public void omittedDays(){
+        /*
+        Test Explanation: Testing report when no amount of days is passed
+        Expectation: A report should be generated using all data since the start of the simulation
+         */
+        Assertions.assertEquals(ResponseFlag.SUCCESS, repSpy.onExecute(this.execMock, ""));
+        Mockito.verify(repSpy, Mockito.times(1)).getNewVisitorCount(null);
+        Mockito.verify(repSpy, Mockito.times(1)).getAverageVisitLength(null);
+        Mockito.verify(repSpy, Mockito.times(1)).getTransactionCounts(null);
+    }
+
     @Test
     public void happyPath(){
         /*
@@ -72,8 +82,8 @@ public class TestReportCommand {
                 + "\n Fines Collected: " + "0"
                 + "\n Fines Outstanding: " + 0);
         Mockito.verify(repSpy, Mockito.times(1)).getBookCount();
-        Mockito.verify(repSpy, Mockito.times(1)).getNewVisitorCount();
-        Mockito.verify(repSpy, Mockito.times(1)).getAverageVisitLength();
+        Mockito.verify(repSpy, Mockito.times(1)).getNewVisitorCount(Matchers.any(Instant.class));
+        Mockito.verify(repSpy, Mockito.times(1)).getAverageVisitLength(Matchers.any(Instant.class));
         Mockito.verify(repSpy, Mockito.times(1)).getBooksPurchasedAmount();
     }
 }
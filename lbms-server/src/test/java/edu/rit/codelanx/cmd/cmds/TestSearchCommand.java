@@ -3,6 +3,7 @@ package edu.rit.codelanx.cmd.cmds;
 import edu.rit.codelanx.cmd.CommandExecutor;
 import edu.rit.codelanx.cmd.ResponseFlag;
 import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.storage.Query;
 import edu.rit.codelanx.data.state.types.Author;
 import edu.rit.codelanx.data.state.types.Library;
 import edu.rit.codelanx.data.state.types.Visitor;
@@ -15,7 +16,6 @@ import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
 import java.util.List;
-import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.Matchers.any;
@@ -25,7 +25,7 @@ public class TestSearchCommand {
     @Mock
     List<Author> authorList;
     @Mock
-    Set<Long> filterIDs;
+    Query<Author> authorQuery;
     ///
     @Mock
     private Server<TextMessage> servMock;
@@ -52,7 +52,7 @@ public class TestSearchCommand {
         Mockito.when(servMock.getBookStore()).thenReturn(DataSourceMock);
 
         Mockito.when(cmd_spy.findAuthors(validAuthors)).thenReturn(authorList);
-        Mockito.when(cmd_spy.getFilterIDs(authorList)).thenReturn(filterIDs);
+        Mockito.doReturn(authorQuery).when(cmd_spy).authorQuery(validAuthors);
         Mockito.doReturn(" ").when(cmd_spy).output(execMock, any());
         Mockito.when(libMock.isOpen()).thenReturn(true);
     }
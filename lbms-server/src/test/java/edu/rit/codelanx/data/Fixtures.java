@@ -0,0 +1,58 @@
+package edu.rit.codelanx.data;
+
+import edu.rit.codelanx.data.state.types.Book;
+import edu.rit.codelanx.data.state.types.Visitor;
+import edu.rit.codelanx.data.storage.StateBuilder;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Builders for the states most tests need, already given plain values for
+ * every field, so a test only sets the fields it is actually about
+ */
+public final class Fixtures {
+
+    public static final String FIRST = "Ada";
+    public static final String LAST = "Lovelace";
+    public static final String ADDRESS = "1 Lomb Memorial Dr";
+    public static final String PHONE = "5850000000";
+    public static final String PUBLISHER = "Chilton";
+
+    private Fixtures() {
+    }
+
+    /**
+     * Makes a builder for a visitor registered at the epoch, without any money
+     *
+     * @return A complete {@link StateBuilder} of a {@link Visitor}
+     */
+    public static StateBuilder<Visitor> visitor() {
+        return Visitor.create()
+                .setValue(Visitor.Field.FIRST, FIRST)
+                .setValue(Visitor.Field.LAST, LAST)
+                .setValue(Visitor.Field.ADDRESS, ADDRESS)
+                .setValue(Visitor.Field.PHONE, PHONE)
+                .setValue(Visitor.Field.REGISTRATION_DATE, Instant.EPOCH)
+                .setValue(Visitor.Field.MONEY, BigDecimal.ZERO);
+    }
+
+    /**
+     * Makes a builder for a 100 page book published at the epoch, of which
+     * the library holds a single copy, not checked out
+     *
+     * @param isbn The isbn of the book
+     * @param title The title of the book
+     * @return A complete {@link StateBuilder} of a {@link Book}
+     */
+    public static StateBuilder<Book> book(String isbn, String title) {
+        return Book.create()
+                .setValue(Book.Field.ISBN, isbn)
+                .setValue(Book.Field.TITLE, title)
+                .setValue(Book.Field.PUBLISHER, PUBLISHER)
+                .setValue(Book.Field.PUBLISH_DATE, Instant.EPOCH)
+                .setValue(Book.Field.PAGE_COUNT, 100)
+                .setValue(Book.Field.TOTAL_COPIES, 1)
+                .setValue(Book.Field.CHECKED_OUT, 0);
+    }
+}
@@ -0,0 +1,213 @@
+package edu.rit.codelanx.data.cache;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.Fixtures;
+import edu.rit.codelanx.data.LibraryData;
+import edu.rit.codelanx.data.state.State;
+import edu.rit.codelanx.data.state.types.Book;
+import edu.rit.codelanx.data.state.types.Checkout;
+import edu.rit.codelanx.data.state.types.Transaction;
+import edu.rit.codelanx.data.state.types.Visitor;
+import edu.rit.codelanx.data.storage.MemoryStorageAdapter;
+import edu.rit.codelanx.data.storage.Measure;
+import edu.rit.codelanx.data.storage.Query;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class TestStateCounters {
+
+    private static final Instant DAY = Instant.parse("2020-03-01T00:00:00Z");
+    private static final Measure MONEY = Measure.of(Transaction.Field.MONEY);
+
+    private DataSource library;
+    private Visitor visitor;
+    private Book book;
+    private final List<Transaction> transactions = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.library = new LibraryData(MemoryStorageAdapter::new);
+        this.library.initialize();
+        this.visitor = Fixtures.visitor().build(this.library);
+        this.book = Fixtures.book("9780000000001", "Dune").build(this.library);
+        //five days of transactions at midnight, in the morning and the last second of each day
+        this.transactions.clear();
+        long[] offsets = {0, Duration.ofHours(6).getSeconds(), Duration.ofDays(1).getSeconds() - 1};
+        for (int day = 0; day < 5; day++) {
+            for (int i = 0; i < offsets.length; i++) {
+                Instant at = DAY.plus(Duration.ofDays(day)).plusSeconds(offsets[i]);
+                this.transactions.add(this.transaction(at, i == 1 ? "payment" : "fine", day * 10 + i));
+            }
+        }
+    }
+
+    private Transaction transaction(Instant at, String reason, long cents) {
+        return Transaction.create()
+                .setValue(Transaction.Field.VISITOR, this.visitor)
+                .setValue(Transaction.Field.REASON, reason)
+                .setValue(Transaction.Field.MONEY, BigDecimal.valueOf(cents, 2))
+                .setValue(Transaction.Field.AT, at)
+                .build(this.library);
+    }
+
+    private Checkout checkout(Instant at) {
+        return Checkout.create()
+                .setValue(Checkout.Field.VISITOR, this.visitor)
+                .setValue(Checkout.Field.BOOK, this.book)
+                .setValue(Checkout.Field.AT, at)
+                .setValue(Checkout.Field.RETURNED, false)
+                .build(this.library);
+    }
+
+    private <T extends State> StateStorage<T> storage(Class<T> type) {
+        return this.library.getRelativeStorage().getStateStorage(type);
+    }
+
+    //the transactions within a range, found one by one
+    private List<Transaction> within(Instant from, boolean fromInclusive, Instant to, boolean toInclusive) {
+        return this.transactions.stream().filter(t -> {
+            Instant at = Transaction.Field.AT.get(t);
+            boolean afterFrom = from == null || (fromInclusive ? !at.isBefore(from) : at.isAfter(from));
+            boolean beforeTo = to == null || (toInclusive ? !at.isAfter(to) : at.isBefore(to));
+            return afterFrom && beforeTo;
+        }).collect(Collectors.toList());
+    }
+
+    private BigDecimal sum(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction.Field.MONEY::get).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private Map<Object, Long> reasons(List<Transaction> transactions) {
+        return transactions.stream().collect(Collectors.groupingBy(Transaction.Field.REASON::get, HashMap::new, Collectors.counting()));
+    }
+
+    @Test
+    public void testRanges() {
+        /*
+        Test Explanation: Counting, summing, averaging and grouping transactions over ranges which start and end at midnight, partway through a day, within one day and not at all
+        Expectation: the counters give the same as checking every transaction in the range, whether or not its bounds are inclusive
+         */
+        StateCounters<Transaction> counters = this.storage(Transaction.class).getCounters();
+        assertSame(Transaction.Field.AT, counters.getDayField());
+        Instant midnight = DAY.plus(Duration.ofDays(1));
+        Instant morning = DAY.plus(Duration.ofDays(1)).plus(Duration.ofHours(6));
+        Instant lastSecond = DAY.plus(Duration.ofDays(4)).minusSeconds(1);
+        Instant[][] ranges = {
+                {null, null},
+                {midnight, null},
+                {null, midnight},
+                {midnight, DAY.plus(Duration.ofDays(3))},
+                {morning, lastSecond},
+                {morning, morning},
+                {morning, morning.plus(Duration.ofHours(12))},
+                {DAY.minus(Duration.ofDays(7)), DAY},
+                {lastSecond, morning},
+        };
+        for (Instant[] range : ranges) {
+            for (boolean fromInclusive : new boolean[] {true, false}) {
+                for (boolean toInclusive : new boolean[] {true, false}) {
+                    Instant from = range[0];
+                    Instant to = range[1];
+                    String name = from + (fromInclusive ? " [" : " (") + to + (toInclusive ? "]" : ")");
+                    List<Transaction> expected = this.within(from, fromInclusive, to, toInclusive);
+                    assertEquals(expected.size(), counters.count(from, fromInclusive, to, toInclusive), name);
+                    assertEquals(this.sum(expected), counters.sum(MONEY, from, fromInclusive, to, toInclusive), name);
+                    assertEquals(this.reasons(expected), counters.countBy(Transaction.Field.REASON, from, fromInclusive, to, toInclusive), name);
+                    OptionalDouble average = counters.average(MONEY, from, fromInclusive, to, toInclusive);
+                    if (expected.isEmpty()) {
+                        assertFalse(average.isPresent(), name);
+                    } else {
+                        assertEquals(this.sum(expected).doubleValue() / expected.size(), average.getAsDouble(), 1e-9, name);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testQueryAggregates() {
+        /*
+        Test Explanation: Aggregating queries over the transaction times, and one also narrowed by another field
+        Expectation: each gives the same as aggregating the query's own results
+         */
+        Instant from = DAY.plus(Duration.ofHours(6));
+        Instant to = DAY.plus(Duration.ofDays(3));
+        List<Function<Query<Transaction>, Query<Transaction>>> queries = new ArrayList<>();
+        queries.add(q -> q);
+        queries.add(q -> q.isGreaterThanOrEq(Transaction.Field.AT, from).isLessThan(Transaction.Field.AT, to));
+        queries.add(q -> q.isGreaterThan(Transaction.Field.AT, from).isLessThanOrEq(Transaction.Field.AT, to)
+                .isLessThan(Transaction.Field.AT, to.plusSeconds(1)));
+        queries.add(q -> q.isEqual(Transaction.Field.AT, from));
+        queries.add(q -> q.isGreaterThan(Transaction.Field.AT, from).isEqual(Transaction.Field.REASON, "fine"));
+        for (Function<Query<Transaction>, Query<Transaction>> narrow : queries) {
+            List<Transaction> results = narrow.apply(this.library.query(Transaction.class)).results().collect(Collectors.toList());
+            assertEquals(results.size(), narrow.apply(this.library.query(Transaction.class)).count());
+            assertEquals(this.sum(results), narrow.apply(this.library.query(Transaction.class)).sum(MONEY));
+            assertEquals(this.reasons(results), new HashMap<>(narrow.apply(this.library.query(Transaction.class))
+                    .countBy(Transaction.Field.REASON)));
+        }
+    }
+
+    @Test
+    public void testKeptCurrent() {
+        /*
+        Test Explanation: Moving, updating and removing checkouts after their counts are materialized, along with one that has no time at all
+        Expectation: the counts follow every change, and the undated checkout is only counted without bounds
+         */
+        Checkout first = this.checkout(DAY);
+        Checkout second = this.checkout(DAY.plus(Duration.ofHours(12)));
+        Checkout undated = this.checkout(DAY);
+        Checkout.Field.AT.set(undated, null);
+        StateCounters<Checkout> counters = this.storage(Checkout.class).getCounters();
+        Instant dayAfter = DAY.plus(Duration.ofDays(1));
+        assertEquals(3, counters.count(null, true, null, true));
+        assertEquals(2, counters.count(DAY, true, dayAfter, false));
+        assertEquals(1L, counters.countBy(Checkout.Field.RETURNED, null, true, null, true).size());
+        assertEquals(3L, (long) counters.countBy(Checkout.Field.RETURNED, null, true, null, true).get(false));
+
+        Checkout.Field.AT.set(second, dayAfter.plus(Duration.ofHours(1)));
+        Checkout.Field.RETURNED.set(first, true);
+        assertEquals(1, counters.count(DAY, true, dayAfter, false));
+        assertEquals(1, counters.count(dayAfter, true, null, true));
+        Map<Object, Long> returned = counters.countBy(Checkout.Field.RETURNED, DAY, true, null, true);
+        assertEquals(1L, (long) returned.get(true));
+        assertEquals(1L, (long) returned.get(false));
+
+        this.storage(Checkout.class).remove(second);
+        Checkout.Field.AT.set(undated, dayAfter);
+        assertEquals(2, counters.count(null, true, null, true));
+        assertEquals(1, counters.count(dayAfter, true, null, true));
+        assertEquals(0, counters.count(dayAfter, false, null, true));
+        assertEquals(1L, (long) counters.countBy(Checkout.Field.RETURNED, dayAfter, true, null, true).get(false));
+    }
+
+    @Test
+    public void testMaterializedLater() {
+        /*
+        Test Explanation: Summing a measure first asked for after transactions exist, then adding more
+        Expectation: the existing transactions are counted when the measure is materialized, and later ones as they are added
+         */
+        StateCounters<Transaction> counters = this.storage(Transaction.class).getCounters();
+        assertEquals(this.sum(this.transactions), counters.sum(MONEY, null, true, null, true));
+        this.transactions.add(this.transaction(DAY.plus(Duration.ofDays(2)), "fine", 1000));
+        assertEquals(this.sum(this.transactions), counters.sum(MONEY, null, true, null, true));
+        assertEquals(this.sum(this.within(DAY.plus(Duration.ofDays(2)), true, DAY.plus(Duration.ofDays(3)), false)),
+                counters.sum(MONEY, DAY.plus(Duration.ofDays(2)), true, DAY.plus(Duration.ofDays(3)), false));
+    }
+}
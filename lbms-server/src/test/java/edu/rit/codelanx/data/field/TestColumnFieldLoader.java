@@ -0,0 +1,125 @@
+package edu.rit.codelanx.data.field;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.Fixtures;
+import edu.rit.codelanx.data.LibraryData;
+import edu.rit.codelanx.data.state.types.Book;
+import edu.rit.codelanx.data.storage.MemoryStorageAdapter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestColumnFieldLoader {
+
+    private DataSource library;
+    private ColumnFieldLoader<Integer> copies;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.library = new LibraryData(MemoryStorageAdapter::new, DataFieldLoader.Backend.COLUMNAR);
+        this.library.initialize();
+        //a default of 1, as Book.Field.TOTAL_COPIES has
+        this.copies = new ColumnFieldLoader<>(Book.Field.TOTAL_COPIES.getInitializer());
+    }
+
+    private Book book(String isbn) {
+        return Fixtures.book(isbn, "Dune").build(this.library);
+    }
+
+    @Test
+    public void testBackendPerSource() throws IOException {
+        /*
+        Test Explanation: One field of a book in a columnar source and in a map-backed source
+        Expectation: each source's field holds its own values, and only finds its own states
+         */
+        DataSource other = new LibraryData(MemoryStorageAdapter::new, DataFieldLoader.Backend.MAP);
+        other.initialize();
+        Book columnar = this.book("9780000000001");
+        Book mapped = Fixtures.book("9780000000001", "Dune").build(other);
+        Book.Field.TOTAL_COPIES.set(columnar, 4);
+        Book.Field.TOTAL_COPIES.set(mapped, 6);
+        assertEquals(Integer.valueOf(4), Book.Field.TOTAL_COPIES.get(columnar));
+        assertEquals(Integer.valueOf(6), Book.Field.TOTAL_COPIES.get(mapped));
+        assertEquals(Collections.singletonList(columnar),
+                Book.Field.TOTAL_COPIES.findStatesByValue(this.library, 4).collect(Collectors.toList()));
+        assertEquals(0, Book.Field.TOTAL_COPIES.findStatesByValue(this.library, 6).count());
+        assertEquals(Collections.singletonList(mapped),
+                Book.Field.TOTAL_COPIES.findStatesByValue(other, 6).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testNullIsInitialized() throws IOException {
+        /*
+        Test Explanation: A map-backed state is initialized with null, then initialized again
+        Expectation: null reads as the default, and counts as the state's value so it cannot be re-initialized
+         */
+        DataSource other = new LibraryData(MemoryStorageAdapter::new, DataFieldLoader.Backend.MAP);
+        other.initialize();
+        Book book = Fixtures.book("9780000000001", "Dune").build(other);
+        DataFieldLoader<Integer> copies = new DataFieldLoader<>(Book.Field.TOTAL_COPIES.getInitializer());
+        copies.initialize(book, null);
+        assertEquals(Integer.valueOf(1), copies.get(book));
+        assertThrows(UnsupportedOperationException.class, () -> copies.initialize(book, 4));
+        assertEquals(Integer.valueOf(1), copies.get(book));
+    }
+
+    @Test
+    public void testDefaultValues() {
+        /*
+        Test Explanation: Reading and mutating a field which was never given a value
+        Expectation: the field's default is read, and is what the mutation starts from
+         */
+        Book book = this.book("9780000000001");
+        this.copies.initialize(book, null);
+        assertEquals(Integer.valueOf(1), this.copies.get(book));
+        assertEquals(Integer.valueOf(3), this.copies.mutate(book, c -> c + 2));
+        assertEquals(Integer.valueOf(3), this.copies.get(book));
+    }
+
+    @Test
+    public void testValuesBySlot() {
+        /*
+        Test Explanation: Values of several states held in one column
+        Expectation: each state reads its own value, and can be found by it
+         */
+        Book first = this.book("9780000000001");
+        Book second = this.book("9780000000002");
+        this.copies.initialize(first, 4);
+        this.copies.initialize(second, 6);
+        assertThrows(UnsupportedOperationException.class, () -> this.copies.initialize(first, 5));
+        assertEquals(Integer.valueOf(4), this.copies.set(first, 6));
+        assertEquals(2, this.copies.findStatesByValue(6).count());
+        this.copies.forget(second);
+        assertEquals(Collections.singletonList(first),
+                this.copies.findStatesByValue(6).collect(Collectors.toList()));
+        assertEquals(Integer.valueOf(1), this.copies.get(second));
+    }
+
+    @Test
+    public void testUnloadedState() {
+        /*
+        Test Explanation: A state is unloaded and its slot given to a new state
+        Expectation: the unloaded state no longer reads or writes through the reused slot
+         */
+        Book old = this.book("9780000000001");
+        int slot = old.getSlot();
+        assertTrue(slot >= 0);
+        this.copies.initialize(old, 4);
+        this.copies.forget(old);
+        this.library.getRelativeStorage().getStateStorage(Book.class).remove(old);
+        assertEquals(-1, old.getSlot());
+        Book next = this.book("9780000000002");
+        assertEquals(slot, next.getSlot());
+        this.copies.initialize(next, 9);
+        assertEquals(Integer.valueOf(1), this.copies.get(old));
+        assertThrows(IllegalStateException.class, () -> this.copies.set(old, 2));
+        assertEquals(Integer.valueOf(9), this.copies.get(next));
+    }
+}
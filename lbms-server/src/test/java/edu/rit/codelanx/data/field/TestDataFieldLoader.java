@@ -0,0 +1,103 @@
+package edu.rit.codelanx.data.field;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.Fixtures;
+import edu.rit.codelanx.data.LibraryData;
+import edu.rit.codelanx.data.state.types.Book;
+import edu.rit.codelanx.data.storage.MemoryStorageAdapter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CyclicBarrier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestDataFieldLoader {
+
+    private static final int THREADS = 4;
+    private static final int ROUNDS = 2000;
+
+    private DataSource library;
+    private DataFieldLoader<Integer> copies;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.library = new LibraryData(MemoryStorageAdapter::new, DataFieldLoader.Backend.MAP);
+        this.library.initialize();
+        //a default of 1, as Book.Field.TOTAL_COPIES has
+        this.copies = new DataFieldLoader<>(Book.Field.TOTAL_COPIES.getInitializer());
+    }
+
+    private Book book(String isbn) {
+        return Fixtures.book(isbn, "Dune").build(this.library);
+    }
+
+    @Test
+    public void testStoredNull() {
+        /*
+        Test Explanation: Finding states by value after one was initialized with null
+        Expectation: the null is found as that state's value, apart from the states holding values
+         */
+        Book absent = this.book("9780000000001");
+        Book held = this.book("9780000000002");
+        this.copies.initialize(absent, null);
+        this.copies.initialize(held, 4);
+        assertEquals(Collections.singletonList(absent),
+                this.copies.findStatesByValue(null).collect(Collectors.toList()));
+        assertEquals(Collections.singletonList(held),
+                this.copies.findStatesByValue(4).collect(Collectors.toList()));
+        this.copies.forget(absent);
+        assertEquals(0, this.copies.findStatesByValue(null).count());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws InterruptedException {
+        /*
+        Test Explanation: Several threads reading, searching and mutating the values of shared books at once
+        Expectation: no thread fails, and every mutation is counted
+         */
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            Book book = this.book(String.valueOf(9780000000000L + i));
+            this.copies.initialize(book, 0);
+            books.add(book);
+        }
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            Book own = books.get(i);
+            Thread t = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int round = 0; round < ROUNDS; round++) {
+                        this.copies.mutate(own, c -> c + 1);
+                        for (Book book : books) {
+                            this.copies.get(book);
+                        }
+                        this.copies.findStatesByValue(round).count();
+                    }
+                } catch (Throwable ex) {
+                    failures.add(ex);
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertTrue(failures.isEmpty(), () -> "Failed: " + failures);
+        for (Book book : books) {
+            assertEquals(Integer.valueOf(ROUNDS), this.copies.get(book));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package edu.rit.codelanx.data.field.column;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestColumn {
+
+    @Test
+    public void testPrimitiveColumns() {
+        /*
+        Test Explanation: Integer and Long fields are given primitive columns
+        Expectation: values read back as set, and absent slots read as null or the given default
+         */
+        Column<Integer> ints = Column.forType(Integer.class);
+        Column<Long> longs = Column.forType(Long.class);
+        assertTrue(ints instanceof IntColumn);
+        assertTrue(longs instanceof LongColumn);
+        ints.set(3, 0);
+        longs.set(3, 7L);
+        assertEquals(Integer.valueOf(0), ints.get(3)); //zero is still present
+        assertNull(ints.get(2));
+        assertEquals(-1, ((IntColumn) ints).getInt(2, -1));
+        assertEquals(7L, ((LongColumn) longs).getLong(3, -1));
+    }
+
+    @Test
+    public void testGrowAndClear() {
+        /*
+        Test Explanation: Writing far past the initial capacity, then clearing
+        Expectation: the column grows to fit, and a cleared or null-written slot is absent
+         */
+        Column<String> column = Column.forType(String.class);
+        assertNull(column.set(1000, "a"));
+        assertEquals("a", column.set(1000, "b"));
+        assertEquals(1000, column.nextPresent(0));
+        column.set(5, "c");
+        assertEquals(5, column.nextPresent(0));
+        assertEquals("c", column.set(5, null));
+        assertFalse(column.isPresent(5));
+        column.clear(1000);
+        assertEquals(-1, column.nextPresent(0));
+    }
+
+    @Test
+    public void testNoSlot() {
+        /*
+        Test Explanation: Using the slot of an unloaded state
+        Expectation: reads see nothing, and writes fail rather than corrupting another slot
+         */
+        Column<Integer> column = Column.forType(Integer.class);
+        assertNull(column.get(-1));
+        assertFalse(column.isPresent(-1));
+        assertThrows(IllegalStateException.class, () -> column.set(-1, 4));
+    }
+
+    @Test
+    public void testReadWhileGrowing() throws InterruptedException {
+        /*
+        Test Explanation: One thread reads a slot while another grows the column past it
+        Expectation: the reader always sees the value, never a half-copied array
+         */
+        Column<Long> column = Column.forType(Long.class);
+        column.set(0, 42L);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger misses = new AtomicInteger();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                Long value = column.get(0);
+                if (value == null || value != 42L) {
+                    misses.incrementAndGet();
+                }
+            }
+        });
+        reader.start();
+        for (int i = 1; i < 200_000; i++) {
+            column.set(i, (long) i);
+        }
+        done.set(true);
+        reader.join();
+        assertEquals(0, misses.get());
+        assertEquals(Long.valueOf(199_999), column.get(199_999));
+    }
+}
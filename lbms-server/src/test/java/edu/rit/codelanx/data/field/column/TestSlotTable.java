@@ -0,0 +1,142 @@
+package edu.rit.codelanx.data.field.column;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.field.DataField;
+import edu.rit.codelanx.data.state.State;
+import edu.rit.codelanx.data.state.types.Book;
+import edu.rit.codelanx.data.state.types.StateType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class TestSlotTable {
+
+    private SlotTable table;
+
+    @BeforeEach
+    public void setUp() {
+        this.table = new SlotTable();
+    }
+
+    @Test
+    public void testReuseAfterRelease() {
+        /*
+        Test Explanation: Releasing a slot, then assigning another state
+        Expectation: the released slot is handed out before a new one
+         */
+        Ghost first = new Ghost(1);
+        Ghost second = new Ghost(2);
+        Ghost third = new Ghost(3);
+        assertEquals(0, this.table.acquire(first));
+        assertEquals(1, this.table.acquire(second));
+        this.table.release(0);
+        assertNull(this.table.getOwner(0));
+        assertEquals(0, this.table.acquire(third));
+        assertSame(third, this.table.getOwner(0));
+        assertEquals(2, this.table.getAssigned());
+    }
+
+    @Test
+    public void testReleaseTwice() {
+        /*
+        Test Explanation: Releasing the same slot twice
+        Expectation: the slot is only freed once, so no two states share it
+         */
+        Ghost first = new Ghost(1);
+        this.table.acquire(first);
+        this.table.release(0);
+        this.table.release(0);
+        Ghost second = new Ghost(2);
+        Ghost third = new Ghost(3);
+        assertEquals(0, this.table.acquire(second));
+        assertEquals(1, this.table.acquire(third));
+    }
+
+    @Test
+    public void testReuseAfterCollection() throws InterruptedException {
+        /*
+        Test Explanation: A state which is never unloaded, but is no longer referenced
+        Expectation: its slot is reclaimed and cleared from every column, rather than held forever
+         */
+        Column<String> column = Column.forType(String.class);
+        this.table.register(column);
+        int slot = this.acquireUnreferenced(column);
+        for (int i = 0; i < 50 && this.table.getAssigned() > 0; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertEquals(0, this.table.getAssigned());
+        assertFalse(column.isPresent(slot));
+        Ghost next = new Ghost(2);
+        assertEquals(slot, this.table.acquire(next));
+    }
+
+    //the state is only reachable from within this call
+    private int acquireUnreferenced(Column<String> column) {
+        int slot = this.table.acquire(new Ghost(1));
+        column.set(slot, "held");
+        return slot;
+    }
+
+    //the least of a state, which nothing else holds on to
+    private static class Ghost implements State {
+
+        private final long id;
+
+        private Ghost(long id) {
+            this.id = id;
+        }
+
+        @Override
+        public long getID() {
+            return this.id;
+        }
+
+        @Override
+        public DataField<Long> getIDField() {
+            return Book.Field.ID;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public DataField<? super Object>[] getFields() {
+            return new DataField[0];
+        }
+
+        @Override
+        public Type getType() {
+            return StateType.BOOK;
+        }
+
+        @Override
+        public DataSource getLoader() {
+            return null;
+        }
+
+        @Override
+        public boolean isValid() {
+            return true;
+        }
+
+        @Override
+        public void unload() {
+        }
+
+        @Override
+        public int getSlot() {
+            return -1;
+        }
+
+        @Override
+        public Map<String, Object> serialize() {
+            return Collections.emptyMap();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package edu.rit.codelanx.data.field.index;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.Fixtures;
+import edu.rit.codelanx.data.LibraryData;
+import edu.rit.codelanx.data.state.State;
+import edu.rit.codelanx.data.state.types.Book;
+import edu.rit.codelanx.data.state.types.Checkout;
+import edu.rit.codelanx.data.state.types.Visitor;
+import edu.rit.codelanx.data.storage.MemoryStorageAdapter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestIndexOrdered {
+
+    private final Instant base = Instant.parse("2000-01-01T00:00:00Z");
+    private DataSource library;
+    private Visitor visitor;
+    private Book book;
+    private final List<Checkout> checkouts = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.library = new LibraryData(MemoryStorageAdapter::new);
+        this.library.initialize();
+        this.visitor = Fixtures.visitor()
+                .setValue(Visitor.Field.REGISTRATION_DATE, this.base)
+                .build(this.library);
+        this.book = Fixtures.book("9780000000001", "Dune")
+                .setValue(Book.Field.PUBLISH_DATE, this.base)
+                .setValue(Book.Field.TOTAL_COPIES, 5)
+                .build(this.library);
+        this.checkouts.clear();
+        //two checkouts on each of hours 0, 1, 2, 3, 4
+        for (int i = 0; i < 10; i++) {
+            this.checkouts.add(Checkout.create()
+                    .setValue(Checkout.Field.VISITOR, this.visitor)
+                    .setValue(Checkout.Field.BOOK, this.book)
+                    .setValue(Checkout.Field.AT, this.hour(i / 2))
+                    .setValue(Checkout.Field.RETURNED, false)
+                    .build(this.library));
+        }
+    }
+
+    private Instant hour(int hours) {
+        return this.base.plus(Duration.ofHours(hours));
+    }
+
+    private List<Checkout> checkouts(int... indexes) {
+        return Arrays.stream(indexes).mapToObj(this.checkouts::get).collect(Collectors.toList());
+    }
+
+    private List<State> sorted(Stream<? extends State> states) {
+        return states.sorted().collect(Collectors.toList());
+    }
+
+    @Test
+    public void testRangeBounds() {
+        /*
+        Test Explanation: Ranges with each combination of inclusive and exclusive bounds
+        Expectation: only the states within the bounds are found and counted
+         */
+        assertEquals(this.checkouts(2, 3, 4, 5, 6, 7), this.sorted(Checkout.Field.AT
+                .findStatesInRange(this.library, this.hour(1), true, this.hour(3), true)));
+        assertEquals(this.checkouts(4, 5), this.sorted(Checkout.Field.AT
+                .findStatesInRange(this.library, this.hour(1), false, this.hour(3), false)));
+        assertEquals(6, Checkout.Field.AT.countStatesInRange(this.library, this.hour(1), false, null, false));
+        assertEquals(4, Checkout.Field.AT.countStatesInRange(this.library, null, false, this.hour(2), false));
+        assertEquals(10, Checkout.Field.AT.countStatesInRange(this.library, null, false, null, false));
+    }
+
+    @Test
+    public void testEmptyRanges() {
+        /*
+        Test Explanation: Ranges whose bounds cross, or meet without both being inclusive
+        Expectation: nothing is found
+         */
+        assertEquals(0, Checkout.Field.AT.countStatesInRange(this.library, this.hour(3), true, this.hour(1), true));
+        assertEquals(0, Checkout.Field.AT.countStatesInRange(this.library, this.hour(2), true, this.hour(2), false));
+        assertEquals(2, Checkout.Field.AT.countStatesInRange(this.library, this.hour(2), true, this.hour(2), true));
+        assertTrue(this.sorted(Checkout.Field.AT
+                .findStatesInRange(this.library, this.hour(9), true, null, false)).isEmpty());
+    }
+
+    @Test
+    public void testInOrder() {
+        /*
+        Test Explanation: Walking a range in either direction
+        Expectation: states come in the order of their value, with ties in id order
+         */
+        assertEquals(this.checkouts(2, 3, 4, 5), Checkout.Field.AT
+                .findStatesInOrder(this.library, this.hour(1), true, this.hour(2), true, false)
+                .collect(Collectors.toList()));
+        assertEquals(this.checkouts(4, 5, 2, 3), Checkout.Field.AT
+                .findStatesInOrder(this.library, this.hour(1), true, this.hour(2), true, true)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testReindexOnSet() {
+        /*
+        Test Explanation: Changing the value of an indexed state
+        Expectation: the state moves from its old value to its new one
+         */
+        Checkout moved = this.checkouts.get(0);
+        Checkout.Field.AT.set(moved, this.hour(10));
+        assertEquals(1, Checkout.Field.AT.countStatesInRange(this.library, this.hour(0), true, this.hour(0), true));
+        assertEquals(Collections.singletonList(moved), this.sorted(Checkout.Field.AT
+                .findStatesInRange(this.library, this.hour(5), true, null, false)));
+    }
+
+    @Test
+    public void testForgottenStateIsUnindexed() {
+        /*
+        Test Explanation: Removing a state which was indexed
+        Expectation: it is no longer found in any range
+         */
+        this.library.getRelativeStorage().getStateStorage(Checkout.class).remove(this.checkouts.get(9));
+        assertEquals(this.checkouts(8), this.sorted(Checkout.Field.AT
+                .findStatesInRange(this.library, this.hour(4), true, null, false)));
+    }
+}
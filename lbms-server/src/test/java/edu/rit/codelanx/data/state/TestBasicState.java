@@ -0,0 +1,104 @@
+package edu.rit.codelanx.data.state;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.Fixtures;
+import edu.rit.codelanx.data.LibraryData;
+import edu.rit.codelanx.data.field.DataFieldLoader;
+import edu.rit.codelanx.data.state.types.Author;
+import edu.rit.codelanx.data.state.types.Book;
+import edu.rit.codelanx.data.storage.MemoryStorageAdapter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestBasicState {
+
+    private DataSource library;
+    private Book book;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.library = this.newLibrary();
+        this.book = this.book(this.library);
+    }
+
+    private DataSource newLibrary() throws IOException {
+        DataSource back = new LibraryData(MemoryStorageAdapter::new, DataFieldLoader.Backend.MAP);
+        back.initialize();
+        return back;
+    }
+
+    private Book book(DataSource library) {
+        return Fixtures.book("9780000000001", "Dune").build(library);
+    }
+
+    @Test
+    public void testEqualByTypeAndId() throws IOException {
+        /*
+        Test Explanation: Two instances of the same book, loaded separately
+        Expectation: they are equal and hash alike, as states are identified by type and id
+         */
+        Book copy = new Book(this.newLibrary(), this.book.serialize());
+        assertTrue(copy != this.book);
+        assertEquals(this.book.getID(), copy.getID());
+        assertEquals(this.book, copy);
+        assertEquals(this.book.hashCode(), copy.hashCode());
+        Set<State> states = new HashSet<>();
+        states.add(this.book);
+        assertTrue(states.contains(copy));
+    }
+
+    @Test
+    public void testTypeSeparatesIds() throws IOException {
+        /*
+        Test Explanation: States of different types which may share an id
+        Expectation: they are never equal, and cannot be compared
+         */
+        //each type counts its ids separately, so an author may be loaded with the book's id
+        Map<String, Object> file = new HashMap<>();
+        file.put(Author.Field.ID.getName(), this.book.getID());
+        file.put(Author.Field.NAME.getName(), "Frank Herbert");
+        Author author = new Author(this.newLibrary(), file);
+        assertEquals(this.book.getID(), author.getID());
+        assertNotEquals(this.book, author);
+        assertNotEquals(this.book.hashCode(), author.hashCode());
+        assertThrows(IllegalArgumentException.class, () -> this.book.compareTo(author));
+    }
+
+    @Test
+    public void testSlotOnlyWhenColumnar() throws IOException {
+        /*
+        Test Explanation: Books built in a map-backed source and in a columnar source
+        Expectation: only the columnar source's book is given a slot
+         */
+        assertEquals(-1, this.book.getSlot());
+        DataSource columnar = new LibraryData(MemoryStorageAdapter::new, DataFieldLoader.Backend.COLUMNAR);
+        columnar.initialize();
+        assertTrue(this.book(columnar).getSlot() >= 0);
+    }
+
+    @Test
+    public void testHashIsStable() {
+        /*
+        Test Explanation: Hashing a state before and after its mutable fields change
+        Expectation: the hash does not change, so the state stays findable in maps
+         */
+        int hash = this.book.hashCode();
+        Set<State> states = new HashSet<>();
+        states.add(this.book);
+        Book.Field.CHECKED_OUT.set(this.book, 1);
+        assertEquals(hash, this.book.hashCode());
+        assertTrue(states.contains(this.book));
+        assertEquals(-1, this.book.compareTo(this.book(this.library)));
+    }
+}
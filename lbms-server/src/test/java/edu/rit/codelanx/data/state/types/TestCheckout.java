@@ -0,0 +1,89 @@
+package edu.rit.codelanx.data.state.types;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.Fixtures;
+import edu.rit.codelanx.data.LibraryData;
+import edu.rit.codelanx.data.storage.MemoryStorageAdapter;
+import edu.rit.codelanx.util.Clock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestCheckout {
+
+    private File folder;
+    private Clock clock;
+    private DataSource library;
+    private Visitor visitor;
+    private Book book;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.folder = Files.createTempDirectory("lbms-checkout").toFile();
+        this.clock = new Clock(new File(this.folder, "clock.dat"), true);
+        this.library = new LibraryData(MemoryStorageAdapter::new);
+        this.library.initialize();
+        this.library.getLibrary().setClock(this.clock);
+        this.visitor = Fixtures.visitor()
+                .setValue(Visitor.Field.REGISTRATION_DATE, this.clock.getCurrentTime())
+                .build(this.library);
+        this.book = Fixtures.book("9780000000001", "Dune")
+                .setValue(Book.Field.TOTAL_COPIES, 2)
+                .build(this.library);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.clock.stop();
+        File[] files = this.folder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        this.folder.delete();
+    }
+
+    @Test
+    public void testReturnFreesCopy() {
+        /*
+        Test Explanation: Borrowing a book and returning it on time
+        Expectation: the copy is freed without adding a new one, and the checkout is marked returned
+         */
+        Checkout checkout = this.book.checkout(this.visitor, this.clock);
+        assertEquals(1, this.book.getCheckedOut());
+        assertFalse(checkout.wasReturned());
+        assertNull(checkout.returnBook(this.clock));
+        assertTrue(checkout.wasReturned());
+        assertEquals(0, this.book.getCheckedOut());
+        assertEquals(2, this.book.getTotalCopies());
+        assertThrows(IllegalStateException.class, () -> checkout.returnBook(this.clock));
+    }
+
+    @Test
+    public void testLateReturnIsStillReturned() {
+        /*
+        Test Explanation: Returning a book two weeks late
+        Expectation: the visitor is fined, and the copy is freed and the checkout marked returned all the same
+         */
+        Checkout checkout = this.book.checkout(this.visitor, this.clock);
+        this.clock.advanceTime(15);
+        assertEquals(0, BigDecimal.valueOf(-12).compareTo(checkout.returnBook(this.clock)));
+        assertEquals(0, BigDecimal.valueOf(-12).compareTo(this.visitor.getMoney()));
+        assertEquals(0, BigDecimal.valueOf(12).compareTo(Library.Field.MONEY.get(this.library.getLibrary())));
+        assertTrue(checkout.wasReturned());
+        assertEquals(0, this.book.getCheckedOut());
+        assertEquals(2, this.book.getTotalCopies());
+    }
+}
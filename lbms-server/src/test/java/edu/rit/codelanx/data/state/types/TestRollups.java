@@ -0,0 +1,205 @@
+package edu.rit.codelanx.data.state.types;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.Fixtures;
+import edu.rit.codelanx.data.LibraryData;
+import edu.rit.codelanx.data.storage.MemoryStorageAdapter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestRollups {
+
+    private static final Instant DAY = Instant.parse("2020-03-10T00:00:00Z");
+
+    private DataSource library;
+    private Visitor visitor;
+    private final List<Visit> visits = new ArrayList<>();
+    private final List<Transaction> transactions = new ArrayList<>();
+    private final Map<Instant, Integer> purchases = new LinkedHashMap<>();
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.library = new LibraryData(MemoryStorageAdapter::new);
+        this.library.initialize();
+        this.visitor = Fixtures.visitor().build(this.library);
+        this.visits.clear();
+        this.transactions.clear();
+        this.purchases.clear();
+        //activity on either side of midnight and of the hours of the last day
+        this.visit(DAY.minus(Duration.ofDays(2)).plus(Duration.ofHours(10)), 1800);
+        this.visit(DAY.minusSeconds(1), 600);
+        this.visit(DAY, 60);
+        this.visit(this.at(9, 15), 900);
+        this.visit(this.at(9, 45), 1200);
+        this.visit(this.at(10, 0), 300);
+        this.transaction(DAY.minus(Duration.ofDays(2)).plus(Duration.ofHours(11)), Transaction.Reason.CHARGING_LATE_FEE, "-12.50");
+        this.transaction(DAY.minusSeconds(1), Transaction.Reason.PAYING_LATE_FEE, "5.00");
+        this.transaction(this.at(9, 20), Transaction.Reason.CHARGING_LATE_FEE, "-3.25");
+        this.transaction(this.at(9, 50), Transaction.Reason.PAYING_LATE_FEE, "7.50");
+        this.transaction(this.at(10, 5), Transaction.Reason.CHARGING_LATE_FEE, "-1.00");
+    }
+
+    private Instant at(int hours, int minutes) {
+        return DAY.plus(Duration.ofHours(hours)).plus(Duration.ofMinutes(minutes));
+    }
+
+    private void visit(Instant start, long seconds) {
+        this.visits.add(Visit.create()
+                .setValue(Visit.Field.VISITOR, this.visitor)
+                .setValue(Visit.Field.START, start)
+                .setValue(Visit.Field.END, start.plusSeconds(seconds))
+                .build(this.library));
+    }
+
+    private void transaction(Instant at, Transaction.Reason reason, String amount) {
+        this.transactions.add(Transaction.create()
+                .setValue(Transaction.Field.VISITOR, this.visitor)
+                .setValue(Transaction.Field.REASON, reason.getReason())
+                .setValue(Transaction.Field.MONEY, new BigDecimal(amount))
+                .setValue(Transaction.Field.AT, at)
+                .build(this.library));
+    }
+
+    //rolls up everything built so far, then purchases made since
+    private Rollups rollups(int retentionDays) {
+        Rollups back = new Rollups(this.library, retentionDays);
+        this.purchase(back, DAY.minus(Duration.ofDays(1)).plus(Duration.ofHours(10)), 4);
+        this.purchase(back, this.at(9, 10), 2);
+        this.purchase(back, this.at(9, 55), 1);
+        this.purchase(back, this.at(11, 0), 3);
+        return back;
+    }
+
+    private void purchase(Rollups rollups, Instant at, int copies) {
+        rollups.recordPurchase(at, copies);
+        this.purchases.put(at, copies);
+    }
+
+    private List<Object> values(Rollups.Summary summary) {
+        return Arrays.asList(summary.getVisits(), summary.getVisitSeconds(),
+                summary.getFinesCharged(), this.cents(summary.getFinesChargedAmount()),
+                summary.getFinesPaid(), this.cents(summary.getFinesPaidAmount()),
+                summary.getBooksPurchased());
+    }
+
+    private long cents(BigDecimal amount) {
+        return amount.movePointRight(2).longValueExact();
+    }
+
+    //counted one by one: raw rows from the instant given, and purchases from the start of its hour
+    private List<Object> expected(Instant rawFrom, Instant purchasesFrom) {
+        long visits = 0;
+        long seconds = 0;
+        for (Visit visit : this.visits) {
+            if (!visit.getStart().isBefore(rawFrom)) {
+                visits++;
+                seconds += Duration.between(visit.getStart(), visit.getEnd()).getSeconds();
+            }
+        }
+        long charged = 0;
+        long chargedCents = 0;
+        long paid = 0;
+        long paidCents = 0;
+        for (Transaction transaction : this.transactions) {
+            if (transaction.getTime().isBefore(rawFrom)) {
+                continue;
+            }
+            long cents = this.cents(transaction.getAmount().abs());
+            if (Transaction.Reason.CHARGING_LATE_FEE.getReason().equals(transaction.getReason())) {
+                charged++;
+                chargedCents += cents;
+            } else {
+                paid++;
+                paidCents += cents;
+            }
+        }
+        long copies = this.purchases.entrySet().stream()
+                .filter(e -> !e.getKey().isBefore(purchasesFrom))
+                .mapToLong(Map.Entry::getValue).sum();
+        return Arrays.asList(visits, seconds, charged, chargedCents, paid, paidCents, copies);
+    }
+
+    @Test
+    public void testSummarizeBoundaries() {
+        /*
+        Test Explanation: Summarizing from points in time before everything, at and around midnight, within and at the edges of hours, and after everything
+        Expectation: raw visits and transactions count from the exact point, purchases from the start of its hour, where raw rows, hourly and daily rollups meet
+         */
+        Rollups rollups = this.rollups(0);
+        assertEquals(this.expected(Instant.EPOCH, Instant.EPOCH), this.values(rollups.summarize(null)));
+        Instant[] points = {
+                DAY.minus(Duration.ofDays(3)),
+                DAY.minus(Duration.ofDays(1)),
+                DAY.minus(Duration.ofMinutes(30)),
+                DAY.minusSeconds(1),
+                DAY,
+                DAY.plusSeconds(1),
+                this.at(9, 0),
+                this.at(9, 15),
+                this.at(9, 16),
+                this.at(9, 50),
+                this.at(10, 0).minusSeconds(1),
+                this.at(10, 0),
+                this.at(10, 1),
+                DAY.plus(Duration.ofDays(1)),
+        };
+        for (Instant since : points) {
+            assertEquals(this.expected(since, Rollup.Period.HOUR.truncate(since)), this.values(rollups.summarize(since)), since.toString());
+        }
+    }
+
+    @Test
+    public void testCompactExpired() {
+        /*
+        Test Explanation: Recording activity long after the retention, then compacting as the maintenance task does
+        Expectation: recording removes nothing, while compacting removes raw rows and hourly rollups from before the retention, after which summaries from then count whole days
+         */
+        Rollups rollups = this.rollups(1);
+        rollups.recordPurchase(DAY.plus(Duration.ofDays(30)), 1);
+        this.purchases.put(DAY.plus(Duration.ofDays(30)), 1);
+        assertEquals(6, this.library.query(Visit.class).count());
+        assertEquals(5, this.library.query(Transaction.class).count());
+
+        //counted before compacting, as the raw rows counted are then gone
+        Instant cutoff = DAY.minus(Duration.ofDays(1));
+        Instant early = DAY.minus(Duration.ofDays(2)).plus(Duration.ofHours(12));
+        Instant earlyDay = Rollup.Period.DAY.truncate(early);
+        List<Object> fromEarlyDay = this.expected(earlyDay, earlyDay);
+        List<Object> everything = this.expected(Instant.EPOCH, Instant.EPOCH);
+        List<Object> fromCutoff = this.expected(cutoff, cutoff);
+        List<Object> fromMorning = this.expected(this.at(9, 30), this.at(9, 0));
+
+        rollups.compactExpired(this.at(12, 0));
+        assertEquals(5, this.library.query(Visit.class).count());
+        assertEquals(4, this.library.query(Transaction.class).count());
+        assertEquals(0, this.library.query(Rollup.class)
+                .isEqual(Rollup.Field.PERIOD, Rollup.Period.HOUR.getName())
+                .isLessThan(Rollup.Field.START, cutoff).count());
+        assertTrue(this.library.query(Rollup.class)
+                .isEqual(Rollup.Field.PERIOD, Rollup.Period.DAY.getName())
+                .isLessThan(Rollup.Field.START, cutoff).count() > 0);
+
+        //before the cutoff only daily rollups remain, so the whole day is counted
+        assertEquals(fromEarlyDay, this.values(rollups.summarize(early)));
+        assertEquals(everything, this.values(rollups.summarize(null)));
+        assertEquals(fromCutoff, this.values(rollups.summarize(cutoff)));
+        assertEquals(fromMorning, this.values(rollups.summarize(this.at(9, 30))));
+
+        //compacting again as of the same day does nothing more
+        rollups.compactExpired(this.at(23, 0));
+        assertEquals(5, this.library.query(Visit.class).count());
+    }
+}
@@ -0,0 +1,197 @@
+package edu.rit.codelanx.data.storage;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.Fixtures;
+import edu.rit.codelanx.data.LibraryData;
+import edu.rit.codelanx.data.state.State;
+import edu.rit.codelanx.data.state.types.Book;
+import edu.rit.codelanx.data.state.types.StateType;
+import edu.rit.codelanx.data.state.types.Visitor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestBinaryStateReader {
+
+    private Path file;
+    private DataSource library;
+    private final List<Book> books = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.file = Files.createTempFile("lbms-container", ".bin");
+        this.library = new LibraryData(MemoryStorageAdapter::new);
+        this.library.initialize();
+        this.books.clear();
+        this.books.add(this.book("9780000000001", "Dune", "Chilton", 412));
+        this.books.add(this.book("9780000000002", "Emma", "Penguin Random House", 474));
+        this.books.add(this.book("9780000000003", "Ulysses", "Penguin Random House", 730));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.file);
+    }
+
+    private Book book(String isbn, String title, String publisher, int pages) {
+        return Fixtures.book(isbn, title)
+                .setValue(Book.Field.PUBLISHER, publisher)
+                .setValue(Book.Field.PUBLISH_DATE, Instant.parse("1965-08-01T00:00:00Z"))
+                .setValue(Book.Field.PAGE_COUNT, pages)
+                .setValue(Book.Field.TOTAL_COPIES, 2)
+                .build(this.library);
+    }
+
+    private void write(StateType type, List<? extends State> states) throws IOException {
+        try (BinaryStateWriter out = new BinaryStateWriter(this.file, type)) {
+            for (State state : states) {
+                out.write(state);
+            }
+        }
+    }
+
+    private List<Map<String, Object>> read(StateType type) throws IOException {
+        List<Map<String, Object>> back = new ArrayList<>();
+        try (BinaryStateReader in = new BinaryStateReader(this.file)) {
+            in.forEach(type, back::add);
+        }
+        return back;
+    }
+
+    //the values a record of the state should be read back as, in schema order
+    private Map<String, Object> expected(State state) {
+        Map<String, Object> back = new LinkedHashMap<>();
+        Arrays.stream(state.getFields()).forEach(f -> back.put(f.getName(), f.serialize(state)));
+        return back;
+    }
+
+    private int occurrences(String text) throws IOException {
+        byte[] all = Files.readAllBytes(this.file);
+        byte[] find = text.getBytes(StandardCharsets.UTF_8);
+        int count = 0;
+        for (int i = 0; i + find.length <= all.length; i++) {
+            if (Arrays.equals(Arrays.copyOfRange(all, i, i + find.length), find)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        /*
+        Test Explanation: Writing books, then reading the container back
+        Expectation: each record holds the values of its book, in the order they were written
+         */
+        this.write(StateType.BOOK, this.books);
+        List<Map<String, Object>> read = this.read(StateType.BOOK);
+        assertEquals(this.books.size(), read.size());
+        for (int i = 0; i < read.size(); i++) {
+            assertEquals(this.expected(this.books.get(i)), read.get(i));
+        }
+    }
+
+    @Test
+    public void testDecimalsAndNulls() throws IOException {
+        /*
+        Test Explanation: Writing visitor records with decimals and with missing values
+        Expectation: decimals keep their scale and sign, and only the missing values are read back as null
+         */
+        Map<String, Object> full = new LinkedHashMap<>();
+        full.put(Visitor.Field.ID.getName(), 1L);
+        full.put(Visitor.Field.FIRST.getName(), Fixtures.FIRST);
+        full.put(Visitor.Field.LAST.getName(), Fixtures.LAST);
+        full.put(Visitor.Field.MONEY.getName(), new BigDecimal("-1234567890123.50"));
+        Map<String, Object> sparse = new LinkedHashMap<>();
+        sparse.put(Visitor.Field.ID.getName(), 2L);
+        try (BinaryStateWriter out = new BinaryStateWriter(this.file, StateType.VISITOR)) {
+            out.write(full);
+            out.write(sparse);
+        }
+        List<Map<String, Object>> read = this.read(StateType.VISITOR);
+        assertEquals(2, read.size());
+        assertEquals(new BigDecimal("-1234567890123.50"), read.get(0).get(Visitor.Field.MONEY.getName()));
+        assertEquals(Fixtures.LAST, read.get(0).get(Visitor.Field.LAST.getName()));
+        assertNull(read.get(0).get(Visitor.Field.ADDRESS.getName()));
+        assertEquals(2L, read.get(1).get(Visitor.Field.ID.getName()));
+        for (Map.Entry<String, Object> ent : read.get(1).entrySet()) {
+            if (!ent.getKey().equals(Visitor.Field.ID.getName())) {
+                assertNull(ent.getValue(), ent.getKey());
+            }
+        }
+    }
+
+    @Test
+    public void testStringsAreDeduplicated() throws IOException {
+        /*
+        Test Explanation: Writing books which share a publisher
+        Expectation: the publisher is stored once, and every book still reads it back
+         */
+        this.write(StateType.BOOK, this.books);
+        assertEquals(1, this.occurrences("Penguin Random House"));
+        List<Map<String, Object>> read = this.read(StateType.BOOK);
+        assertEquals("Penguin Random House", read.get(1).get(Book.Field.PUBLISHER.getName()));
+        assertEquals("Penguin Random House", read.get(2).get(Book.Field.PUBLISHER.getName()));
+    }
+
+    @Test
+    public void testVersionMismatch() throws IOException {
+        /*
+        Test Explanation: A container claiming a version this reader does not know
+        Expectation: it is reported as a malformed container, before any record is read
+         */
+        this.write(StateType.BOOK, this.books);
+        byte[] all = Files.readAllBytes(this.file);
+        all[BinaryStateWriter.MAGIC.length] = (byte) (BinaryStateWriter.VERSION + 1);
+        Files.write(this.file, all);
+        List<Map<String, Object>> read = new ArrayList<>();
+        MalformedContainerException ex = assertThrows(MalformedContainerException.class, () -> {
+            try (BinaryStateReader in = new BinaryStateReader(this.file)) {
+                in.forEach(StateType.BOOK, read::add);
+            }
+        });
+        assertTrue(ex.getMessage().contains("version"));
+        assertTrue(read.isEmpty());
+    }
+
+    @Test
+    public void testWrongType() throws IOException {
+        /*
+        Test Explanation: Reading a container of books as a container of visitors
+        Expectation: it is reported as a malformed container
+         */
+        this.write(StateType.BOOK, this.books);
+        assertThrows(MalformedContainerException.class, () -> this.read(StateType.VISITOR));
+    }
+
+    @Test
+    public void testTruncated() throws IOException {
+        /*
+        Test Explanation: Every shorter prefix of a container, as left by a write cut short
+        Expectation: each is reported as a malformed container, rather than any other exception
+         */
+        this.write(StateType.BOOK, this.books);
+        byte[] all = Files.readAllBytes(this.file);
+        for (int length = 0; length < all.length; length++) {
+            Files.write(this.file, Arrays.copyOf(all, length));
+            assertThrows(MalformedContainerException.class, () -> this.read(StateType.BOOK), "length " + length);
+        }
+    }
+}
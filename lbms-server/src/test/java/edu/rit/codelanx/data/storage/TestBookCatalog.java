@@ -0,0 +1,204 @@
+package edu.rit.codelanx.data.storage;
+
+import edu.rit.codelanx.util.BookParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestBookCatalog {
+
+    private File folder;
+    private File index;
+    private File catalog;
+    private final List<BookParser.Entry> entries = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.folder = Files.createTempDirectory("lbms-catalog").toFile();
+        this.index = new File(this.folder, "books.idx");
+        this.catalog = new File(this.folder, "books.txt");
+        try (InputStream in = BookParser.getBundledCatalog().openStream()) {
+            Files.copy(in, this.catalog.toPath());
+        }
+        this.entries.clear();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                Files.newInputStream(this.catalog.toPath()), StandardCharsets.UTF_8))) {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                if (!line.isEmpty()) {
+                    this.entries.add(BookParser.parseLine(line));
+                }
+            }
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        File[] files = this.folder.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        this.folder.delete();
+    }
+
+    private BookCatalog open() throws IOException {
+        return BookCatalog.open(this.index, this.catalog.toURI().toURL());
+    }
+
+    //the names of a book's authors, in the order they were listed
+    private List<String> authors(BookCatalog catalog, int row) {
+        return catalog.findListingsByBook(row)
+                .mapToObj(l -> catalog.getAuthorName(catalog.getListingAuthor(l)))
+                .collect(Collectors.toList());
+    }
+
+    private void assertMatchesCatalog(BookCatalog catalog) {
+        assertEquals(this.entries.size(), catalog.getBookCount());
+        for (int row = 0; row < this.entries.size(); row++) {
+            BookParser.Entry entry = this.entries.get(row);
+            assertEquals(entry.getISBN(), catalog.getISBN(row));
+            assertEquals(entry.getTitle(), catalog.getTitle(row));
+            assertEquals(entry.getPublisher(), catalog.getPublisher(row));
+            assertEquals(entry.getPageCount(), catalog.getPageCount(row));
+            assertEquals(entry.getPublishDate().getEpochSecond(), catalog.getPublishDate(row));
+            assertEquals(entry.getAuthors(), this.authors(catalog, row));
+        }
+    }
+
+    @Test
+    public void testCompileAndReopen() throws IOException {
+        /*
+        Test Explanation: Compiling the bundled catalog, then opening the index again without recompiling
+        Expectation: every book reads back with the values and authors of its line, and the index is reused
+         */
+        this.assertMatchesCatalog(this.open());
+        long compiled = this.index.lastModified();
+        byte[] before = Files.readAllBytes(this.index.toPath());
+        BookCatalog reopened = this.open();
+        this.assertMatchesCatalog(reopened);
+        assertEquals(compiled, this.index.lastModified());
+        assertTrue(Arrays.equals(before, Files.readAllBytes(this.index.toPath())));
+    }
+
+    @Test
+    public void testSegments() throws IOException {
+        /*
+        Test Explanation: Mapping an index in segments far smaller than its records and strings
+        Expectation: values spanning segments read back exactly as from a single mapping
+         */
+        this.open();
+        for (int segment : new int[] {64, 100, 4099}) {
+            this.assertMatchesCatalog(BookCatalog.map(this.index, segment));
+        }
+    }
+
+    @Test
+    public void testLookups() throws IOException {
+        /*
+        Test Explanation: Finding books by isbn, title, publisher and author name
+        Expectation: the same rows as testing every line by hand, in order
+         */
+        BookCatalog catalog = BookCatalog.map(this.indexed(), 128);
+        BookParser.Entry some = this.entries.get(this.entries.size() / 2);
+        assertEquals(this.rows(e -> e.getISBN().equals(some.getISBN())),
+                this.list(catalog.findBooksByISBN(some.getISBN())));
+        assertEquals(this.rows(e -> e.getTitle().equals(some.getTitle())),
+                this.list(catalog.findBooksByTitle(some.getTitle())));
+        assertEquals(this.rows(e -> e.getPublisher().equals(some.getPublisher())),
+                this.list(catalog.findBooksByPublisher(some.getPublisher())));
+        String author = some.getAuthors().get(0);
+        assertEquals(this.rows(e -> e.getAuthors().contains(author)), catalog.findAuthorsByName(author)
+                .flatMap(catalog::findListingsByAuthor)
+                .map(catalog::getListingBook)
+                .sorted().boxed().collect(Collectors.toList()));
+        assertTrue(this.list(catalog.findBooksByISBN("not an isbn")).isEmpty());
+        assertTrue(this.list(catalog.findBooksByTitle(null)).isEmpty());
+    }
+
+    @Test
+    public void testDistinctAuthors() throws IOException {
+        /*
+        Test Explanation: Counting the authors and listings within the catalog
+        Expectation: each author is stored once, in order of first appearance, with one listing per author of a book
+         */
+        BookCatalog catalog = BookCatalog.map(this.indexed(), 256);
+        Map<String, Integer> first = new LinkedHashMap<>();
+        this.entries.forEach(e -> e.getAuthors().forEach(a -> first.putIfAbsent(a, first.size())));
+        assertEquals(first.size(), catalog.getAuthorCount());
+        assertEquals(this.entries.stream().mapToInt(e -> e.getAuthors().size()).sum(), catalog.getListingCount());
+        first.forEach((name, row) -> {
+            assertEquals(name, catalog.getAuthorName(row));
+            assertEquals(Collections.singletonList(row), this.list(catalog.findAuthorsByName(name)));
+        });
+    }
+
+    @Test
+    public void testRecompile() throws IOException {
+        /*
+        Test Explanation: Opening an index after its catalog changes, and after the index is damaged
+        Expectation: the index is recompiled from the catalog each time
+         */
+        this.open();
+        List<BookParser.Entry> fewer = new ArrayList<>(this.entries.subList(0, 10));
+        List<String> lines = Files.readAllLines(this.catalog.toPath(), StandardCharsets.UTF_8).subList(0, 10);
+        Files.write(this.catalog.toPath(), lines, StandardCharsets.UTF_8);
+        this.catalog.setLastModified(this.catalog.lastModified() - 10_000);
+        this.entries.clear();
+        this.entries.addAll(fewer);
+        this.assertMatchesCatalog(this.open());
+        try (RandomAccessFile raw = new RandomAccessFile(this.index, "rw")) {
+            raw.setLength(raw.length() / 2);
+        }
+        this.assertMatchesCatalog(this.open());
+    }
+
+    @Test
+    public void testNotAnIndex() throws IOException {
+        /*
+        Test Explanation: Mapping files which are empty, or not an index at all
+        Expectation: each is reported as a malformed container
+         */
+        Files.write(this.index.toPath(), new byte[0]);
+        assertThrows(MalformedContainerException.class, () -> BookCatalog.map(this.index, 64));
+        Files.write(this.index.toPath(), "not a book catalog index at all, but long enough".getBytes(StandardCharsets.UTF_8));
+        assertThrows(MalformedContainerException.class, () -> BookCatalog.map(this.index, 64));
+    }
+
+    private File indexed() throws IOException {
+        this.open();
+        return this.index;
+    }
+
+    private List<Integer> rows(Predicate<BookParser.Entry> test) {
+        return IntStream.range(0, this.entries.size())
+                .filter(i -> test.test(this.entries.get(i)))
+                .boxed().collect(Collectors.toList());
+    }
+
+    private List<Integer> list(IntStream rows) {
+        return rows.boxed().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,172 @@
+package edu.rit.codelanx.data.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestConnectionPool {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private String url;
+    private final List<ConnectionPool> pools = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        //a fresh in-memory database per test, kept open until the pool is closed
+        this.url = "jdbc:h2:mem:lbms-pool-" + DATABASES.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        try (Connection conn = this.pool(1, 1, 0, 0).borrow();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE books (id BIGINT PRIMARY KEY, title VARCHAR(255))");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        try (Connection conn = this.pool(1, 1, 0, 0).borrow();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("SHUTDOWN");
+        }
+        this.pools.forEach(ConnectionPool::close);
+    }
+
+    private ConnectionPool pool(int min, int max, long validateMs, long leakMs) throws SQLException {
+        ConnectionPool back = new ConnectionPool(this.url, "sa", "", min, max, 200, validateMs, 60_000, leakMs);
+        this.pools.add(back);
+        return back;
+    }
+
+    private int count(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM books")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    public void testBorrowAndReturn() throws SQLException {
+        /*
+        Test Explanation: Borrowing connections from an embedded database in MySQL mode, then giving them back
+        Expectation: each borrow is counted until it is closed, after which the proxy can no longer be used and its connection is reused
+         */
+        ConnectionPool pool = this.pool(1, 2, 60_000, 0);
+        Connection first = pool.borrow();
+        Connection raw = first.unwrap(Connection.class);
+        try (Statement stmt = first.createStatement()) {
+            stmt.executeUpdate("INSERT INTO books (id, title) VALUES (1, 'Dune')");
+        }
+        assertEquals(1, pool.getBorrowed());
+        first.close();
+        first.close(); //giving back twice does nothing
+        assertEquals(0, pool.getBorrowed());
+        assertTrue(first.isClosed());
+        assertThrows(SQLException.class, first::createStatement);
+        try (Connection second = pool.borrow()) {
+            assertEquals(raw, second.unwrap(Connection.class));
+            assertEquals(1, this.count(second));
+        }
+    }
+
+    @Test
+    public void testBorrowTimesOut() throws SQLException {
+        /*
+        Test Explanation: Borrowing more connections than the pool allows at once
+        Expectation: the extra borrow gives up after the timeout, and succeeds once a connection is given back
+         */
+        ConnectionPool pool = this.pool(0, 1, 60_000, 0);
+        Connection held = pool.borrow();
+        assertThrows(SQLTimeoutException.class, pool::borrow);
+        held.close();
+        try (Connection conn = pool.borrow()) {
+            assertFalse(conn.isClosed());
+        }
+    }
+
+    @Test
+    public void testReturnRollsBack() throws SQLException {
+        /*
+        Test Explanation: Giving back a connection part way through a transaction
+        Expectation: the transaction is rolled back, and the next borrower gets the connection in auto-commit mode
+         */
+        ConnectionPool pool = this.pool(1, 1, 60_000, 0);
+        try (Connection conn = pool.borrow()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("INSERT INTO books (id, title) VALUES (1, 'Dune')");
+            }
+        }
+        try (Connection conn = pool.borrow()) {
+            assertTrue(conn.getAutoCommit());
+            assertEquals(0, this.count(conn));
+        }
+    }
+
+    @Test
+    public void testValidation() throws SQLException {
+        /*
+        Test Explanation: A connection which stopped working while it sat idle in the pool
+        Expectation: it is found to be invalid on the next borrow, and a working connection is opened in its place
+         */
+        ConnectionPool pool = this.pool(1, 1, 0, 0);
+        Connection raw;
+        try (Connection conn = pool.borrow()) {
+            raw = conn.unwrap(Connection.class);
+        }
+        raw.close();
+        try (Connection conn = pool.borrow()) {
+            assertFalse(raw.equals(conn.unwrap(Connection.class)));
+            assertEquals(0, this.count(conn));
+        }
+    }
+
+    @Test
+    public void testLeakDetection() throws SQLException, InterruptedException {
+        /*
+        Test Explanation: Holding a borrowed and a dedicated connection past the leak threshold
+        Expectation: only the borrowed one is reported, along with where it was borrowed
+         */
+        ConnectionPool pool = this.pool(0, 2, 60_000, 100);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintStream err = System.err;
+        System.setErr(new PrintStream(out, true));
+        try (Connection dedicated = pool.borrowDedicated();
+             Connection leaked = this.borrowForLeak(pool)) {
+            long until = System.currentTimeMillis() + 5000;
+            while (!this.text(out).contains("Possible connection leak") && System.currentTimeMillis() < until) {
+                Thread.sleep(50);
+            }
+        } finally {
+            System.setErr(err);
+        }
+        String report = this.text(out);
+        assertEquals(1, report.split("Possible connection leak", -1).length - 1);
+        assertTrue(report.contains("borrowForLeak"));
+    }
+
+    private String text(ByteArrayOutputStream out) {
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    //borrows from a method of its own, so the leak report can be traced back here
+    private Connection borrowForLeak(ConnectionPool pool) throws SQLException {
+        return pool.borrow();
+    }
+}
@@ -0,0 +1,227 @@
+package edu.rit.codelanx.data.storage;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.Fixtures;
+import edu.rit.codelanx.data.LibraryData;
+import edu.rit.codelanx.data.state.types.Book;
+import edu.rit.codelanx.data.state.types.StateType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestJournal {
+
+    private File folder;
+    private File file;
+    private Journal journal;
+    private DataSource library;
+    private Book first;
+    private Book second;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.folder = Files.createTempDirectory("lbms-journal").toFile();
+        this.file = new File(this.folder, "journal.dat");
+        this.journal = this.open();
+        this.library = new LibraryData(MemoryStorageAdapter::new);
+        this.library.initialize();
+        this.first = this.book("9780000000001", "Dune");
+        this.second = this.book("9780000000002", "Emma");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        this.journal.close();
+        File[] files = this.folder.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        this.folder.delete();
+    }
+
+    private Journal open() throws IOException {
+        return new Journal(this.file, Long.MAX_VALUE, () -> {});
+    }
+
+    private Book book(String isbn, String title) {
+        return Fixtures.book(isbn, title).build(this.library);
+    }
+
+    //closes the journal and reads it back as a fresh one would on startup
+    private List<Journal.Record> reopen() throws IOException {
+        this.journal.close();
+        this.journal = this.open();
+        List<Journal.Record> back = new ArrayList<>();
+        this.journal.replay(back::add);
+        return back;
+    }
+
+    @Test
+    public void testReplay() throws IOException {
+        /*
+        Test Explanation: Recording an insert, an update and a removal, then reopening the journal
+        Expectation: every record is read back in order, with the values it was recorded with
+         */
+        this.journal.insert(this.first);
+        this.journal.update(this.first, Book.Field.TITLE.getName(), "Dune Messiah");
+        this.journal.remove(this.second);
+        List<Journal.Record> records = this.reopen();
+        assertEquals(3, records.size());
+        Journal.Record insert = records.get(0);
+        assertEquals(Journal.Op.INSERT, insert.getOp());
+        assertEquals(StateType.BOOK, insert.getType());
+        assertEquals(this.first.getID(), insert.getID());
+        assertEquals(this.first.serialize(), insert.getValues());
+        Journal.Record update = records.get(1);
+        assertEquals(Journal.Op.UPDATE, update.getOp());
+        assertEquals("Dune Messiah", update.getValues().get(Book.Field.TITLE.getName()));
+        Journal.Record remove = records.get(2);
+        assertEquals(Journal.Op.REMOVE, remove.getOp());
+        assertEquals(this.second.getID(), remove.getID());
+        assertTrue(remove.getValues().isEmpty());
+    }
+
+    @Test
+    public void testLongText() throws IOException {
+        /*
+        Test Explanation: Recording a value whose utf-8 encoding is longer than 64KB
+        Expectation: the whole value is read back, rather than failing to be written
+         */
+        StringBuilder title = new StringBuilder();
+        while (title.length() < 40000) {
+            title.append("Dune\u00e9");
+        }
+        this.journal.update(this.first, Book.Field.TITLE.getName(), title.toString());
+        List<Journal.Record> records = this.reopen();
+        assertEquals(1, records.size());
+        assertEquals(title.toString(), records.get(0).getValues().get(Book.Field.TITLE.getName()));
+    }
+
+    @Test
+    public void testUnrecordableValue() throws IOException {
+        /*
+        Test Explanation: Recording a value the journal has no encoding for
+        Expectation: the failure is reported rather than thrown at the caller, and no partial record is written
+         */
+        this.journal.update(this.first, Book.Field.TITLE.getName(), new Object());
+        this.journal.insert(this.second);
+        List<Journal.Record> records = this.reopen();
+        assertEquals(1, records.size());
+        assertEquals(this.second.getID(), records.get(0).getID());
+    }
+
+    @Test
+    public void testTruncatedTail() throws IOException {
+        /*
+        Test Explanation: A crash part way through writing the last record
+        Expectation: the intact records are replayed, the torn one is cut off, and new records follow on from them
+         */
+        this.journal.insert(this.first);
+        this.journal.sync();
+        long intact = this.file.length();
+        this.journal.insert(this.second);
+        this.journal.close();
+        try (RandomAccessFile raw = new RandomAccessFile(this.file, "rw")) {
+            raw.setLength(raw.length() - 3);
+        }
+        this.journal = this.open();
+        List<Journal.Record> records = new ArrayList<>();
+        this.journal.replay(records::add);
+        assertEquals(1, records.size());
+        assertEquals(this.first.getID(), records.get(0).getID());
+        assertEquals(intact, this.file.length());
+        this.journal.remove(this.first);
+        records = this.reopen();
+        assertEquals(2, records.size());
+        assertEquals(Journal.Op.REMOVE, records.get(1).getOp());
+    }
+
+    @Test
+    public void testCrcMismatch() throws IOException {
+        /*
+        Test Explanation: A record whose payload no longer matches its checksum
+        Expectation: replay stops before it, and it and everything after it are cut off
+         */
+        this.journal.insert(this.first);
+        this.journal.sync();
+        long intact = this.file.length();
+        this.journal.insert(this.second);
+        this.journal.update(this.second, Book.Field.TITLE.getName(), "Persuasion");
+        this.journal.close();
+        try (RandomAccessFile raw = new RandomAccessFile(this.file, "rw")) {
+            long at = intact + 4 + 10; //within the payload of the second record
+            raw.seek(at);
+            int b = raw.read();
+            raw.seek(at);
+            raw.write(b ^ 0xFF);
+        }
+        this.journal = this.open();
+        List<Journal.Record> records = new ArrayList<>();
+        this.journal.replay(records::add);
+        assertEquals(1, records.size());
+        assertEquals(this.first.getID(), records.get(0).getID());
+        assertEquals(intact, this.file.length());
+    }
+
+    @Test
+    public void testCompactKeepsLaterRecords() throws IOException {
+        /*
+        Test Explanation: Compacting while changes keep being recorded as the snapshot is written
+        Expectation: the states are copied under the guard, which is released for the write, and only the changes made after the copy remain
+         */
+        ReentrantLock guard = new ReentrantLock();
+        this.journal.insert(this.first);
+        this.journal.sync();
+        this.journal.insert(this.second); //buffered, but not yet synced
+        List<Boolean> held = new ArrayList<>();
+        this.journal.compact(guard, () -> {
+            held.add(guard.isHeldByCurrentThread());
+            return () -> {
+                held.add(guard.isHeldByCurrentThread());
+                this.journal.update(this.second, Book.Field.TITLE.getName(), "Persuasion");
+            };
+        });
+        assertTrue(held.get(0));
+        assertFalse(held.get(1));
+        assertFalse(guard.isLocked());
+        List<Journal.Record> records = this.reopen();
+        assertEquals(1, records.size());
+        assertEquals(Journal.Op.UPDATE, records.get(0).getOp());
+        assertEquals("Persuasion", records.get(0).getValues().get(Book.Field.TITLE.getName()));
+    }
+
+    @Test
+    public void testFailedCompactKeepsRecords() throws IOException {
+        /*
+        Test Explanation: A snapshot which fails to be written
+        Expectation: no record is lost, including those which had only been buffered
+         */
+        ReentrantLock guard = new ReentrantLock();
+        this.journal.insert(this.first);
+        this.journal.sync();
+        this.journal.insert(this.second);
+        assertThrows(IOException.class, () -> this.journal.compact(guard, () -> () -> {
+            throw new IOException("disk full");
+        }));
+        assertFalse(guard.isLocked());
+        List<Journal.Record> records = this.reopen();
+        assertEquals(2, records.size());
+        assertEquals(this.first.getID(), records.get(0).getID());
+        assertEquals(this.second.getID(), records.get(1).getID());
+    }
+}
@@ -0,0 +1,168 @@
+package edu.rit.codelanx.data.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestJsonStateReader {
+
+    private Path file;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.file = Files.createTempFile("lbms-container", ".json");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.file);
+    }
+
+    private List<Map<String, Object>> records() {
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("id", 1L);
+        first.put("title", "Quote \" slash \\ tab \t line \n bell \u0007 é ☃");
+        first.put("money", new BigDecimal("-12.50"));
+        first.put("returned", true);
+        first.put("at", "2000-01-01T00:00:00Z");
+        first.put("publisher", null);
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("id", -9000000000L);
+        second.put("title", "");
+        return Arrays.asList(first, second);
+    }
+
+    private void write(boolean yaml, List<Map<String, Object>> records) throws IOException {
+        try (JsonStateWriter out = new JsonStateWriter(this.file, yaml)) {
+            for (Map<String, Object> record : records) {
+                out.write(record);
+            }
+        }
+    }
+
+    private List<Map<String, Object>> read() throws IOException {
+        List<Map<String, Object>> back = new ArrayList<>();
+        try (JsonStateReader in = new JsonStateReader(this.file)) {
+            in.forEach(back::add);
+        }
+        return back;
+    }
+
+    private List<Map<String, Object>> read(String text) throws IOException {
+        Files.write(this.file, text.getBytes(StandardCharsets.UTF_8));
+        return this.read();
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        /*
+        Test Explanation: Writing records with escapes, decimals, nulls and large numbers, then reading them back
+        Expectation: every record comes back with the same values, in order
+         */
+        this.write(false, this.records());
+        assertEquals(this.records(), this.read());
+        this.write(false, Collections.emptyList());
+        assertTrue(this.read().isEmpty());
+    }
+
+    @Test
+    public void testYamlRoundTrip() throws IOException {
+        /*
+        Test Explanation: Writing records as a YAML container, then reading them back one at a time
+        Expectation: every record comes back the same, and an empty container is still a sequence
+         */
+        this.write(true, this.records());
+        List<Map<String, Object>> back = new ArrayList<>();
+        try (JsonStateReader in = new JsonStateReader(this.file)) {
+            assertTrue(in.forEachYaml(back::add));
+        }
+        assertEquals(this.records(), back);
+        this.write(true, Collections.emptyList());
+        assertEquals("data: []\n", new String(Files.readAllBytes(this.file), StandardCharsets.UTF_8));
+        try (JsonStateReader in = new JsonStateReader(this.file)) {
+            assertTrue(in.forEachYaml(back::add));
+        }
+        assertEquals(2, back.size());
+    }
+
+    @Test
+    public void testOlderYaml() throws IOException {
+        /*
+        Test Explanation: A YAML container holding a tree of states, as older versions wrote
+        Expectation: it is recognized without parsing any record, so it can be loaded the old way
+         */
+        Files.write(this.file, "data:\n- ==: Book\n  id: 1\n".getBytes(StandardCharsets.UTF_8));
+        List<Map<String, Object>> back = new ArrayList<>();
+        try (JsonStateReader in = new JsonStateReader(this.file)) {
+            assertFalse(in.forEachYaml(back::add));
+        }
+        Files.write(this.file, "# saved\ndata: []\n".getBytes(StandardCharsets.UTF_8));
+        try (JsonStateReader in = new JsonStateReader(this.file)) {
+            assertFalse(in.forEachYaml(back::add));
+        }
+        assertTrue(back.isEmpty());
+    }
+
+    @Test
+    public void testUnicodeEscape() throws IOException {
+        /*
+        Test Explanation: Unicode escapes which are complete, and ones cut short by the end of the input
+        Expectation: complete escapes are decoded, anything else is reported as a malformed container
+         */
+        assertEquals("é☃", this.read("{\"data\":[{\"t\":\"\\u00e9\\u2603\"}]}").get(0).get("t"));
+        assertThrows(MalformedContainerException.class, () -> this.read("{\"data\":[{\"t\":\"\\u00"));
+        assertThrows(MalformedContainerException.class, () -> this.read("{\"data\":[{\"t\":\"\\u"));
+        assertThrows(MalformedContainerException.class, () -> this.read("{\"data\":[{\"t\":\"\\u00g9\"}]}"));
+    }
+
+    @Test
+    public void testMalformed() {
+        /*
+        Test Explanation: Containers which are truncated or are not JSON
+        Expectation: each is reported as a malformed container, rather than any other exception
+         */
+        String[] bad = {
+                "",
+                "[]",
+                "{\"data\":[",
+                "{\"data\":[{\"id\":1}",
+                "{\"data\":[{\"id\":1,}]}",
+                "{\"data\":[{\"id\" 1}]}",
+                "{\"data\":[{\"id\":\"open}]}",
+                "{\"data\":[{\"id\":tru}]}",
+                "{\"data\":[{\"id\":1-2}]}",
+                "{\"data\":[{\"id\":\"\\",
+        };
+        for (String text : bad) {
+            assertThrows(MalformedContainerException.class, () -> this.read(text), text);
+        }
+    }
+
+    @Test
+    public void testSkipsUnknownKeys() throws IOException {
+        /*
+        Test Explanation: A container with keys other than data, holding nested values
+        Expectation: the other keys are skipped, and the records are read as usual
+         */
+        List<Map<String, Object>> back = this.read(
+                "{\"version\":{\"major\":[1,2,{\"x\":null}]}, \"data\" : [ {\"id\" : 7} ], \"after\":false}");
+        assertEquals(Collections.singletonList(Collections.singletonMap("id", 7L)), back);
+    }
+}
@@ -0,0 +1,59 @@
+package edu.rit.codelanx.data.storage;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.Fixtures;
+import edu.rit.codelanx.data.LibraryData;
+import edu.rit.codelanx.data.state.types.Book;
+import edu.rit.codelanx.data.state.types.Library;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class TestMemoryStorageAdapter {
+
+    private DataSource library;
+
+    @BeforeEach
+    public void setUp() {
+        this.library = new LibraryData(MemoryStorageAdapter::new);
+    }
+
+    @Test
+    public void testLibraryBuiltOnLoad() throws IOException {
+        /*
+        Test Explanation: Initializing an in-memory data source, twice
+        Expectation: the library is only built once the source is initialized, and only once
+         */
+        assertNull(this.library.getLibrary());
+        this.library.initialize();
+        Library built = this.library.getLibrary();
+        assertNotNull(built);
+        assertEquals(0, BigDecimal.ZERO.compareTo(Library.Field.MONEY.get(built)));
+        this.library.initialize();
+        assertSame(built, this.library.getLibrary());
+        assertEquals(1, this.library.query(Library.class).count());
+    }
+
+    @Test
+    public void testLoadInserted() throws IOException {
+        /*
+        Test Explanation: Loading a state back out of the adapter it was inserted into
+        Expectation: it is found by id, and by the value of a keyed field
+         */
+        this.library.initialize();
+        Book book = Fixtures.book("9780000000001", "Dune").build(this.library);
+        StorageAdapter adapter = this.library.getAdapter();
+        assertSame(book, adapter.loadState(book.getID(), Book.class));
+        assertEquals(Collections.singletonList(book), adapter.loadState(Book.class, Book.Field.ISBN, "9780000000001")
+                .collect(Collectors.toList()));
+    }
+}
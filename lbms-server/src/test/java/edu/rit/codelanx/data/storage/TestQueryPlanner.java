@@ -0,0 +1,150 @@
+package edu.rit.codelanx.data.storage;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.LibraryData;
+import edu.rit.codelanx.data.state.State;
+import edu.rit.codelanx.data.state.types.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestQueryPlanner {
+
+    private static final String[] PUBLISHERS = {"Chilton", "Penguin", "Norton", "Vintage"};
+    private static final String[] WORDS = {"Art", "Dune", "Emma", "Guide", "Life", "Ocean"};
+
+    private DataSource library;
+    private final List<Book> books = new ArrayList<>();
+    private final Instant base = Instant.parse("2000-01-01T00:00:00Z");
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.library = new LibraryData(MemoryStorageAdapter::new);
+        this.library.initialize();
+        this.books.clear();
+        Random random = new Random(262);
+        for (int i = 0; i < 200; i++) {
+            this.books.add(Book.create()
+                    .setValue(Book.Field.ISBN, String.format("978%010d", i))
+                    .setValue(Book.Field.TITLE, WORDS[random.nextInt(WORDS.length)] + ' ' + random.nextInt(20))
+                    .setValue(Book.Field.PUBLISHER, PUBLISHERS[random.nextInt(PUBLISHERS.length)])
+                    .setValue(Book.Field.PUBLISH_DATE, this.day(random.nextInt(60)))
+                    .setValue(Book.Field.PAGE_COUNT, random.nextInt(500))
+                    .setValue(Book.Field.TOTAL_COPIES, 1)
+                    .setValue(Book.Field.CHECKED_OUT, 0)
+                    .build(this.library));
+        }
+    }
+
+    private Instant day(int days) {
+        return this.base.plus(Duration.ofDays(days));
+    }
+
+    private Set<Book> scan(Predicate<Book> test) {
+        return this.books.stream().filter(test).collect(Collectors.toSet());
+    }
+
+    @Test
+    public void testIntersectedLookups() {
+        /*
+        Test Explanation: Two indexed equalities and a runtime filter together
+        Expectation: the same states as testing every book by hand
+         */
+        Set<Book> found = this.library.query(Book.class)
+                .isEqual(Book.Field.PUBLISHER, "Penguin")
+                .isEqual(Book.Field.PUBLISH_DATE, this.day(7))
+                .filterBy(Book.Field.PAGE_COUNT, p -> p > 100)
+                .results().collect(Collectors.toSet());
+        assertEquals(this.scan(b -> b.getPublisher().equals("Penguin")
+                && b.getPublishDate().equals(this.day(7))
+                && b.getPageCount() > 100), found);
+    }
+
+    @Test
+    public void testMergedWindow() {
+        /*
+        Test Explanation: Both bounds of an ordered field, plus an equality
+        Expectation: the bounds form one window, with the exact same results as a scan
+         */
+        Set<Book> found = this.library.query(Book.class)
+                .isGreaterThanOrEq(Book.Field.PUBLISH_DATE, this.day(10))
+                .isLessThan(Book.Field.PUBLISH_DATE, this.day(20))
+                .isGreaterThan(Book.Field.PUBLISH_DATE, this.day(5))
+                .isAny(Book.Field.PUBLISHER, "Norton", "Vintage")
+                .results().collect(Collectors.toSet());
+        Set<Book> expected = this.scan(b -> {
+            Instant at = b.getPublishDate();
+            return !at.isBefore(this.day(10)) && at.isBefore(this.day(20))
+                    && (b.getPublisher().equals("Norton") || b.getPublisher().equals("Vintage"));
+        });
+        assertTrue(!expected.isEmpty());
+        assertEquals(expected, found);
+    }
+
+    @Test
+    public void testEmptyWindow() {
+        /*
+        Test Explanation: Bounds which cannot both hold
+        Expectation: nothing is found
+         */
+        assertEquals(0, this.library.query(Book.class)
+                .isGreaterThan(Book.Field.PUBLISH_DATE, this.day(30))
+                .isLessThanOrEq(Book.Field.PUBLISH_DATE, this.day(30))
+                .results().count());
+        assertEquals(0, this.library.query(Book.class)
+                .isEqual(Book.Field.PUBLISHER, "Nobody")
+                .isGreaterThan(Book.Field.PUBLISH_DATE, this.day(0))
+                .results().count());
+    }
+
+    @Test
+    public void testOrderedWalkWithLimit() {
+        /*
+        Test Explanation: A limited query ordered by an ordered field, walked through its index
+        Expectation: the first results of a full sort, with ties broken by id
+         */
+        List<Book> found = this.library.query(Book.class)
+                .isEqual(Book.Field.PUBLISHER, "Chilton")
+                .orderBy(Book.Field.PUBLISH_DATE, Query.Direction.DESCENDING)
+                .limit(10)
+                .results().collect(Collectors.toList());
+        List<Book> expected = this.books.stream()
+                .filter(b -> b.getPublisher().equals("Chilton"))
+                .sorted(Comparator.comparing(Book::getPublishDate).reversed()
+                        .thenComparingLong(State::getID))
+                .limit(10)
+                .collect(Collectors.toList());
+        assertEquals(expected, found);
+    }
+
+    @Test
+    public void testOrderedWalkWithinWindow() {
+        /*
+        Test Explanation: An ordered query whose window also drives the lookup
+        Expectation: every result within the window, in ascending order
+         */
+        List<Book> found = this.library.query(Book.class)
+                .isLessThan(Book.Field.PUBLISH_DATE, this.day(15))
+                .orderBy(Book.Field.PUBLISH_DATE, Query.Direction.ASCENDING)
+                .results().collect(Collectors.toList());
+        List<Book> expected = this.books.stream()
+                .filter(b -> b.getPublishDate().isBefore(this.day(15)))
+                .sorted(Comparator.comparing(Book::getPublishDate)
+                        .thenComparingLong(State::getID))
+                .collect(Collectors.toList());
+        assertEquals(expected, found);
+    }
+}
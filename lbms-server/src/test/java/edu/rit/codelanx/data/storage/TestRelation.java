@@ -0,0 +1,122 @@
+package edu.rit.codelanx.data.storage;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.Fixtures;
+import edu.rit.codelanx.data.LibraryData;
+import edu.rit.codelanx.data.state.State;
+import edu.rit.codelanx.data.state.types.Author;
+import edu.rit.codelanx.data.state.types.AuthorListing;
+import edu.rit.codelanx.data.state.types.Book;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestRelation {
+
+    private final List<Integer> lookups = new ArrayList<>();
+    private int isbn;
+
+    //a memory adapter which counts how many states each lookup of related states is for
+    private DataSource library(boolean cached) throws IOException {
+        DataSource back = new LibraryData(source -> new MemoryStorageAdapter(source) {
+            @Override
+            public <S extends State, R extends State> Map<S, List<R>> findRelated(Relation<S, R> relation, Collection<S> states) {
+                TestRelation.this.lookups.add(states.size());
+                return super.findRelated(relation, states);
+            }
+
+            @Override
+            public boolean isCached() {
+                return cached;
+            }
+        });
+        back.initialize();
+        return back;
+    }
+
+    private Book book(DataSource library, String title, Author... authors) {
+        Book back = Fixtures.book(String.valueOf(9780000000000L + this.isbn++), title).build(library);
+        for (Author author : authors) {
+            AuthorListing.create()
+                    .setValue(AuthorListing.Field.AUTHOR, author)
+                    .setValue(AuthorListing.Field.BOOK, back)
+                    .build(library);
+        }
+        return back;
+    }
+
+    private Author author(DataSource library, String name) {
+        return Author.create().setValue(Author.Field.NAME, name).build(library);
+    }
+
+    private List<String> names(Book book) {
+        return book.getAuthors().map(Author::getName).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testIncludeBatchesLookup() throws IOException {
+        /*
+        Test Explanation: Querying books along with their authors, who were linked out of the order they were made in, then reading each book's authors
+        Expectation: a single lookup resolves every book's authors, which are then read without another, in the order they were linked
+         */
+        DataSource library = this.library(true);
+        Author ada = this.author(library, "Ada Smith");
+        Author bea = this.author(library, "Bea Jones");
+        Author cy = this.author(library, "Cy Twombly");
+        this.book(library, "Dune", cy, ada, bea);
+        this.book(library, "Emma", bea, ada);
+        this.book(library, "Ulysses");
+        this.lookups.clear();
+
+        List<Book> books = library.query(Book.class)
+                .include(Book.AUTHORS)
+                .results()
+                .sorted((one, two) -> one.getTitle().compareTo(two.getTitle()))
+                .collect(Collectors.toList());
+        assertEquals(Arrays.asList(3), this.lookups);
+        assertEquals(Arrays.asList("Cy Twombly", "Ada Smith", "Bea Jones"), this.names(books.get(0)));
+        assertEquals(Arrays.asList("Bea Jones", "Ada Smith"), this.names(books.get(1)));
+        assertEquals(Arrays.asList(), this.names(books.get(2)));
+        this.names(books.get(0));
+        assertEquals(Arrays.asList(3), this.lookups);
+
+        //a new link drops what was resolved for its book alone
+        Author dee = this.author(library, "Dee Dee");
+        this.book(library, "Emma 2", dee);
+        AuthorListing.create()
+                .setValue(AuthorListing.Field.AUTHOR, dee)
+                .setValue(AuthorListing.Field.BOOK, books.get(0))
+                .build(library);
+        this.lookups.clear();
+        library.query(Book.class).include(Book.AUTHORS).results().collect(Collectors.toList());
+        assertEquals(Arrays.asList(2), this.lookups);
+        assertEquals(Arrays.asList("Cy Twombly", "Ada Smith", "Bea Jones", "Dee Dee"), this.names(books.get(0)));
+    }
+
+    @Test
+    public void testNotCachedIsNotKept() throws IOException {
+        /*
+        Test Explanation: Querying books along with their authors from an adapter which is not cached, then reading each book's authors twice
+        Expectation: nothing is resolved ahead of time, and each read looks up the authors afresh, in the order they were linked
+         */
+        DataSource library = this.library(false);
+        Author ada = this.author(library, "Ada Smith");
+        Author bea = this.author(library, "Bea Jones");
+        Book dune = this.book(library, "Dune", bea, ada);
+        this.lookups.clear();
+
+        library.query(Book.class).include(Book.AUTHORS).results().collect(Collectors.toList());
+        assertEquals(Arrays.asList(), this.lookups);
+        assertEquals(Arrays.asList("Bea Jones", "Ada Smith"), this.names(dune));
+        assertEquals(Arrays.asList("Bea Jones", "Ada Smith"), this.names(dune));
+        assertEquals(Arrays.asList(1, 1), this.lookups);
+    }
+}
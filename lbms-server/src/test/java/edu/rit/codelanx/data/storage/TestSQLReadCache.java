@@ -0,0 +1,167 @@
+package edu.rit.codelanx.data.storage;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.Fixtures;
+import edu.rit.codelanx.data.LibraryData;
+import edu.rit.codelanx.data.state.types.Author;
+import edu.rit.codelanx.data.state.types.Book;
+import edu.rit.codelanx.data.state.types.StateType;
+import edu.rit.codelanx.data.state.types.Visitor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class TestSQLReadCache {
+
+    private DataSource library;
+    private Book first;
+    private Book second;
+    private Visitor visitor;
+    private SQLReadCache cache;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.library = new LibraryData(MemoryStorageAdapter::new);
+        this.library.initialize();
+        this.first = this.book("9780000000001", "Dune");
+        this.second = this.book("9780000000002", "Emma");
+        this.visitor = Fixtures.visitor().build(this.library);
+        this.cache = new SQLReadCache(100, 100);
+    }
+
+    private Book book(String isbn, String title) {
+        return Fixtures.book(isbn, title).build(this.library);
+    }
+
+    private StateQuery<Book> books(String publisher) {
+        return (StateQuery<Book>) this.library.query(Book.class).isEqual(Book.Field.PUBLISHER, publisher);
+    }
+
+    private StateQuery<Visitor> visitors(String last) {
+        return (StateQuery<Visitor>) this.library.query(Visitor.class).isEqual(Visitor.Field.LAST, last);
+    }
+
+    @Test
+    public void testWriteInvalidatesType() {
+        /*
+        Test Explanation: Caching rows and queries of two types, then changing a state of one of them
+        Expectation: the changed state's row and every query of its type are dropped, everything else is kept
+         */
+        Map<String, Object> firstRow = this.first.serialize();
+        Map<String, Object> secondRow = this.second.serialize();
+        Map<String, Object> visitorRow = this.visitor.serialize();
+        this.cache.putRow(StateType.BOOK, this.first.getID(), firstRow, this.cache.getVersion(StateType.BOOK));
+        this.cache.putRow(StateType.BOOK, this.second.getID(), secondRow, this.cache.getVersion(StateType.BOOK));
+        this.cache.putRow(StateType.VISITOR, this.visitor.getID(), visitorRow, this.cache.getVersion(StateType.VISITOR));
+        long[] bookIds = {this.first.getID(), this.second.getID()};
+        long[] visitorIds = {this.visitor.getID()};
+        this.cache.putQuery(this.books("Chilton"), bookIds, this.cache.getVersion(StateType.BOOK));
+        this.cache.putQuery(this.visitors("Lovelace"), visitorIds, this.cache.getVersion(StateType.VISITOR));
+        assertSame(bookIds, this.cache.getQuery(this.books("Chilton")));
+
+        long before = this.cache.getVersion(StateType.BOOK);
+        this.cache.invalidate(this.first);
+        assertEquals(before + 1, this.cache.getVersion(StateType.BOOK));
+        assertNull(this.cache.getRow(StateType.BOOK, this.first.getID()));
+        assertSame(secondRow, this.cache.getRow(StateType.BOOK, this.second.getID()));
+        assertNull(this.cache.getQuery(this.books("Chilton")));
+        assertSame(visitorRow, this.cache.getRow(StateType.VISITOR, this.visitor.getID()));
+        assertSame(visitorIds, this.cache.getQuery(this.visitors("Lovelace")));
+    }
+
+    @Test
+    public void testStaleReadIsNotCached() {
+        /*
+        Test Explanation: A read which started before a change to its type, and finished after it
+        Expectation: neither its row nor its query is cached, while a read started after the change is
+         */
+        long version = this.cache.getVersion(StateType.BOOK);
+        this.cache.invalidate(this.second);
+        this.cache.putRow(StateType.BOOK, this.first.getID(), this.first.serialize(), version);
+        this.cache.putQuery(this.books("Chilton"), new long[] {this.first.getID()}, version);
+        assertNull(this.cache.getRow(StateType.BOOK, this.first.getID()));
+        assertNull(this.cache.getQuery(this.books("Chilton")));
+        long[] ids = {this.first.getID()};
+        this.cache.putQuery(this.books("Chilton"), ids, this.cache.getVersion(StateType.BOOK));
+        assertSame(ids, this.cache.getQuery(this.books("Chilton")));
+        this.cache.invalidate(this.visitor);
+        assertSame(ids, this.cache.getQuery(this.books("Chilton")));
+    }
+
+    @Test
+    public void testQueryKeys() {
+        /*
+        Test Explanation: Caching a query, then looking up an equivalent one and one joining another type
+        Expectation: comparisons in another order share the cached ids, while the join is never cached
+         */
+        long[] ids = {this.first.getID()};
+        this.cache.putQuery((StateQuery<Book>) this.books("Chilton").isEqual(Book.Field.TITLE, "Dune"),
+                ids, this.cache.getVersion(StateType.BOOK));
+        assertArrayEquals(ids, this.cache.getQuery((StateQuery<Book>) this.library.query(Book.class)
+                .isEqual(Book.Field.TITLE, "Dune").isEqual(Book.Field.PUBLISHER, "Chilton")));
+        assertNull(this.cache.getQuery((StateQuery<Book>) this.books("Chilton").isEqual(Book.Field.TITLE, "Emma")));
+        StateQuery<Book> joined = (StateQuery<Book>) this.books("Chilton")
+                .join(Book.AUTHORS, this.library.query(Author.class));
+        this.cache.putQuery(joined, ids, this.cache.getVersion(StateType.BOOK));
+        assertNull(this.cache.getQuery(joined));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        /*
+        Test Explanation: Filling a cache past its weight, after reading back its oldest entry
+        Expectation: the least recently used entries are evicted until it is within its weight again
+         */
+        LRUCache<String, String> lru = new LRUCache<>(6, String::length);
+        lru.put("a", "aa");
+        lru.put("b", "bb");
+        lru.put("c", "cc");
+        assertEquals("aa", lru.get("a"));
+        lru.put("d", "ddd");
+        assertNull(lru.get("b"));
+        assertNull(lru.get("c"));
+        assertEquals("aa", lru.get("a"));
+        assertEquals("ddd", lru.get("d"));
+        CacheStats stats = lru.getStats();
+        assertEquals(2, stats.getEvictions());
+        assertEquals(2, stats.getSize());
+        assertEquals(5, stats.getWeight());
+        assertEquals(3, stats.getHits());
+        assertEquals(2, stats.getMisses());
+    }
+
+    @Test
+    public void testWeightStaysWithinCapacity() {
+        /*
+        Test Explanation: Replacing, removing and oversizing entries of a cache
+        Expectation: the weight always matches what is cached, never passes the maximum, and a zero maximum caches nothing
+         */
+        LRUCache<String, String> lru = new LRUCache<>(6, String::length);
+        lru.put("a", "aaaa");
+        lru.put("a", "a");
+        assertEquals(1, lru.getStats().getWeight());
+        lru.put("b", "bbbbb");
+        assertEquals(6, lru.getStats().getWeight());
+        lru.put("a", "aaaaaaa"); //heavier than the whole cache
+        assertNull(lru.get("a"));
+        assertEquals("bbbbb", lru.get("b"));
+        assertEquals(5, lru.getStats().getWeight());
+        lru.put("c", "");
+        assertEquals(6, lru.getStats().getWeight()); //weighs at least one
+        lru.removeIf(k -> !k.equals("c"));
+        assertEquals(1, lru.getStats().getWeight());
+        assertEquals(0, lru.getStats().getEvictions());
+
+        LRUCache<String, String> disabled = new LRUCache<>(0, String::length);
+        disabled.put("a", "a");
+        assertNull(disabled.get("a"));
+        assertEquals(0, disabled.getStats().getSize());
+    }
+}
@@ -0,0 +1,363 @@
+package edu.rit.codelanx.data.storage;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.Fixtures;
+import edu.rit.codelanx.data.LibraryData;
+import edu.rit.codelanx.data.state.types.Book;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestSQLWriter {
+
+    private static final String URL = "jdbc:lbms-fake:writer";
+    private static final String BAD_TITLE = "Bad Row";
+
+    private FakeDriver driver;
+    private ConnectionPool pool;
+    private DataSource library;
+
+    @BeforeEach
+    public void setUp() throws SQLException, IOException {
+        this.driver = new FakeDriver();
+        DriverManager.registerDriver(this.driver);
+        this.pool = new ConnectionPool(URL, "", "", 0, 4, 1000, 0, 60_000, 0);
+        this.library = new LibraryData(MemoryStorageAdapter::new);
+        this.library.initialize();
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        this.pool.close();
+        DriverManager.deregisterDriver(this.driver);
+    }
+
+    private Book book(String title) {
+        return Fixtures.book("9780000000001", title).build(this.library);
+    }
+
+    //the statement verb and the id of the state each row of a commit changed
+    private List<String> changes(List<String> commit) {
+        return commit.stream().map(row -> {
+            String[] parts = row.split(" ", 2);
+            String[] params = parts[1].substring(1, parts[1].length() - 1).split(", ");
+            return parts[0] + " " + (parts[0].equals("UPDATE") ? params[1] + "=" + params[0] : params[0]);
+        }).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testOneTransaction() throws SQLException {
+        /*
+        Test Explanation: Queueing inserts, repeated updates and a removal, then flushing
+        Expectation: a single commit, with inserts first, only the last update of a field, and the removal last
+         */
+        SQLWriter writer = new SQLWriter(this.pool, 100);
+        Book first = this.book("Dune");
+        Book second = this.book("Emma");
+        writer.insert(first);
+        writer.insert(second);
+        writer.update(first, Book.Field.CHECKED_OUT.getName(), 1);
+        writer.update(first, Book.Field.CHECKED_OUT.getName(), 2);
+        writer.remove(second);
+        assertTrue(this.driver.commits.isEmpty());
+        writer.flush();
+        assertEquals(1, this.driver.commits.size());
+        assertEquals(Arrays.asList("INSERT " + first.getID(), "INSERT " + second.getID(),
+                "UPDATE " + first.getID() + "=2", "DELETE " + second.getID()),
+                this.changes(this.driver.commits.get(0)));
+        writer.flush();
+        assertEquals(1, this.driver.commits.size());
+        writer.close();
+    }
+
+    @Test
+    public void testBatchSize() {
+        /*
+        Test Explanation: Queueing as many changes as the batch size, without flushing
+        Expectation: they are committed together as soon as the last one is queued
+         */
+        SQLWriter writer = new SQLWriter(this.pool, 3);
+        writer.insert(this.book("Dune"));
+        writer.insert(this.book("Emma"));
+        assertTrue(this.driver.commits.isEmpty());
+        writer.insert(this.book("Ulysses"));
+        assertEquals(1, this.driver.commits.size());
+        assertEquals(3, this.driver.commits.get(0).size());
+        writer.close();
+    }
+
+    @Test
+    public void testInsertAfterRemoval() throws SQLException {
+        /*
+        Test Explanation: Inserting a state after a removal is queued
+        Expectation: the removal runs before the insert, within the same commit
+         */
+        SQLWriter writer = new SQLWriter(this.pool, 100);
+        Book first = this.book("Dune");
+        Book second = this.book("Emma");
+        writer.remove(first);
+        writer.insert(second);
+        writer.flush();
+        assertEquals(Collections.singletonList(Arrays.asList("DELETE " + first.getID(), "INSERT " + second.getID())),
+                this.driver.commits.stream().map(this::changes).collect(Collectors.toList()));
+        writer.close();
+    }
+
+    @Test
+    public void testReadSeesWaitingChanges() throws SQLException {
+        /*
+        Test Explanation: Reading between changes, as a command does part way through
+        Expectation: each read sees the changes before it without committing them, and all are committed once, together
+         */
+        SQLWriter writer = new SQLWriter(this.pool, 100);
+        Book first = this.book("Dune");
+        writer.insert(first);
+        assertEquals(1, (int) writer.read(conn -> this.driver.of(conn).open.size()));
+        writer.update(first, Book.Field.CHECKED_OUT.getName(), 1);
+        assertEquals(2, (int) writer.read(conn -> this.driver.of(conn).open.size()));
+        assertTrue(this.driver.commits.isEmpty());
+        writer.flush();
+        assertEquals(1, this.driver.commits.size());
+        assertEquals(Arrays.asList("INSERT " + first.getID(), "UPDATE " + first.getID() + "=1"),
+                this.changes(this.driver.commits.get(0)));
+        assertEquals(0, (int) writer.read(conn -> this.driver.of(conn).open.size()));
+        writer.close();
+    }
+
+    @Test
+    public void testBadRowIsDropped() throws SQLException {
+        /*
+        Test Explanation: A change which the database always rejects, queued alongside good ones
+        Expectation: flushes fail and keep every change until the retry limit, then the good changes are written and only the bad one dropped
+         */
+        SQLWriter writer = new SQLWriter(this.pool, 100);
+        Book good = this.book("Dune");
+        Book bad = this.book(BAD_TITLE);
+        Book later = this.book("Emma");
+        writer.insert(good);
+        writer.insert(bad);
+        writer.update(good, Book.Field.CHECKED_OUT.getName(), 1);
+        for (int i = 1; i < SQLWriter.MAX_ATTEMPTS; i++) {
+            assertThrows(SQLException.class, writer::flush);
+            assertTrue(this.driver.commits.isEmpty());
+        }
+        writer.flush();
+        List<String> written = this.driver.commits.stream().flatMap(c -> this.changes(c).stream()).collect(Collectors.toList());
+        assertEquals(Arrays.asList("INSERT " + good.getID(), "UPDATE " + good.getID() + "=1"), written);
+        writer.insert(later);
+        writer.flush();
+        assertEquals(Collections.singletonList("INSERT " + later.getID()),
+                this.changes(this.driver.commits.get(this.driver.commits.size() - 1)));
+        writer.close();
+    }
+
+    @Test
+    public void testLostConnectionKeepsChanges() throws SQLException {
+        /*
+        Test Explanation: The database going away, for longer than the retry limit
+        Expectation: no change is dropped, and every one is committed once the database is back
+         */
+        SQLWriter writer = new SQLWriter(this.pool, 100);
+        Book first = this.book("Dune");
+        writer.insert(first);
+        writer.flush();
+        writer.update(first, Book.Field.CHECKED_OUT.getName(), 1);
+        this.driver.down = true;
+        for (int i = 0; i < SQLWriter.MAX_ATTEMPTS * 2; i++) {
+            assertThrows(SQLException.class, writer::flush);
+        }
+        this.driver.down = false;
+        writer.flush();
+        assertEquals(2, this.driver.commits.size());
+        assertEquals(Collections.singletonList("UPDATE " + first.getID() + "=1"), this.changes(this.driver.commits.get(1)));
+        writer.close();
+    }
+
+    //a database which only records what was committed, and rejects any row holding BAD_TITLE
+    public static class FakeDriver implements Driver {
+
+        private final List<List<String>> commits = Collections.synchronizedList(new ArrayList<>());
+        private volatile boolean down;
+
+        //the fake behind a connection, through any pool proxy around it
+        private FakeConnection of(Connection conn) throws SQLException {
+            FakeConnection back = conn.unwrap(FakeConnection.class);
+            assertNotNull(back);
+            return back;
+        }
+
+        private void check() throws SQLException {
+            if (this.down) {
+                throw new SQLException("The database is down");
+            }
+        }
+
+        @Override
+        public Connection connect(String url, Properties info) throws SQLException {
+            if (!this.acceptsURL(url)) {
+                return null;
+            }
+            this.check();
+            FakeConnection fake = new FakeConnection();
+            return (Connection) Proxy.newProxyInstance(FakeDriver.class.getClassLoader(), new Class<?>[] {Connection.class}, fake);
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return URL.equals(url);
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+
+        private class FakeConnection implements InvocationHandler {
+
+            private final List<String> open = new ArrayList<>(); //run, but not yet committed
+            private boolean autoCommit = true;
+            private boolean closed;
+
+            @Override
+            public Object invoke(Object proxy, java.lang.reflect.Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "unwrap":
+                        return this;
+                    case "isValid":
+                        return !FakeDriver.this.down && !this.closed;
+                    case "isClosed":
+                        return this.closed;
+                    case "close":
+                        this.closed = true;
+                        this.open.clear();
+                        return null;
+                    case "getAutoCommit":
+                        return this.autoCommit;
+                    case "setAutoCommit":
+                        FakeDriver.this.check();
+                        if ((boolean) args[0] && !this.autoCommit) {
+                            this.commit();
+                        }
+                        this.autoCommit = (boolean) args[0];
+                        return null;
+                    case "commit":
+                        FakeDriver.this.check();
+                        this.commit();
+                        return null;
+                    case "rollback":
+                        FakeDriver.this.check();
+                        this.open.clear();
+                        return null;
+                    case "prepareStatement":
+                        FakeDriver.this.check();
+                        return this.statement((String) args[0]);
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "FakeConnection";
+                    default:
+                        throw new SQLFeatureNotSupportedException(method.getName());
+                }
+            }
+
+            private void commit() {
+                if (!this.open.isEmpty()) {
+                    FakeDriver.this.commits.add(new ArrayList<>(this.open));
+                    this.open.clear();
+                }
+            }
+
+            //records each row as its verb and parameters, such as "UPDATE [1, 2]"
+            private PreparedStatement statement(String sql) {
+                String verb = sql.substring(0, sql.indexOf(' '));
+                List<Object> params = new ArrayList<>();
+                List<List<Object>> batch = new ArrayList<>();
+                return (PreparedStatement) Proxy.newProxyInstance(FakeDriver.class.getClassLoader(),
+                        new Class<?>[] {PreparedStatement.class}, (p, method, args) -> {
+                    switch (method.getName()) {
+                        case "setObject":
+                            int index = (int) args[0];
+                            while (params.size() < index) {
+                                params.add(null);
+                            }
+                            params.set(index - 1, args[1]);
+                            return null;
+                        case "addBatch":
+                            batch.add(new ArrayList<>(params));
+                            return null;
+                        case "executeBatch":
+                            List<List<Object>> rows = new ArrayList<>(batch);
+                            batch.clear();
+                            this.run(verb, rows);
+                            return new int[rows.size()];
+                        case "executeUpdate":
+                            this.run(verb, Collections.singletonList(params));
+                            return 1;
+                        case "close":
+                            return null;
+                        default:
+                            throw new SQLFeatureNotSupportedException(method.getName());
+                    }
+                });
+            }
+
+            private void run(String verb, List<List<Object>> rows) throws SQLException {
+                FakeDriver.this.check();
+                for (List<Object> row : rows) {
+                    if (row.contains(BAD_TITLE)) {
+                        throw new SQLException("Rejected row " + row);
+                    }
+                }
+                rows.forEach(row -> this.open.add(verb + " " + row));
+                if (this.autoCommit) {
+                    this.commit();
+                }
+            }
+        }
+    }
+}
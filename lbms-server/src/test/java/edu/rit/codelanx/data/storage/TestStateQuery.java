@@ -0,0 +1,451 @@
+package edu.rit.codelanx.data.storage;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.Fixtures;
+import edu.rit.codelanx.data.cache.StateStorage;
+import edu.rit.codelanx.data.LibraryData;
+import edu.rit.codelanx.data.field.DataField;
+import edu.rit.codelanx.data.state.State;
+import edu.rit.codelanx.data.state.StorageContainer;
+import edu.rit.codelanx.data.state.types.Author;
+import edu.rit.codelanx.data.state.types.AuthorListing;
+import edu.rit.codelanx.data.state.types.Book;
+import edu.rit.codelanx.data.state.types.Checkout;
+import edu.rit.codelanx.data.state.types.Visitor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestStateQuery {
+
+    private DataSource library;
+    private Book first;
+    private Book second;
+    private Book third;
+    private Visitor visitor;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.library = new LibraryData(MemoryStorageAdapter::new);
+        this.library.initialize();
+        this.first = this.book("9780000000001", "Dune", "Chilton");
+        this.second = this.book("9780000000002", "Emma", "Penguin");
+        this.third = this.book("9780000000003", "Ulysses", "Penguin");
+        this.visitor = Fixtures.visitor().build(this.library);
+    }
+
+    private Book book(String isbn, String title, String publisher) {
+        return Fixtures.book(isbn, title)
+                .setValue(Book.Field.PUBLISHER, publisher)
+                .build(this.library);
+    }
+
+    private Set<Book> results(Query<Book> query) {
+        return query.results().collect(Collectors.toSet());
+    }
+
+    //the compiled statement, followed by its parameters
+    private List<Object> sql(Query<?> query) throws SQLException {
+        return ((StateQuery<?>) query).runSQLQuery(this::statement);
+    }
+
+    private List<Object> statement(String stmt, Object[] params) {
+        List<Object> back = new ArrayList<>();
+        back.add(stmt);
+        back.addAll(Arrays.asList(params));
+        return back;
+    }
+
+    @Test
+    public void testEqualityThroughIndex() {
+        /*
+        Test Explanation: Looking up a keyed field by equality
+        Expectation: only the state holding that value is found
+         */
+        assertEquals(Collections.singleton(this.second),
+                this.results(this.library.query(Book.class).isEqual(Book.Field.ISBN, "9780000000002")));
+        assertEquals(2, Book.Field.PUBLISHER.countStatesByValue(this.library, "Penguin"));
+        assertTrue(this.results(this.library.query(Book.class).isEqual(Book.Field.ISBN, "missing")).isEmpty());
+    }
+
+    @Test
+    public void testIsAnyThroughIndex() {
+        /*
+        Test Explanation: Looking up a keyed field by several values
+        Expectation: every state holding any of the values is found once
+         */
+        Set<Book> found = this.results(this.library.query(Book.class)
+                .isAny(Book.Field.PUBLISHER, "Chilton", "Penguin", "Nobody"));
+        assertEquals(new HashSet<>(Arrays.asList(this.first, this.second, this.third)), found);
+        assertEquals(0, this.library.query(Book.class).isAny(Book.Field.PUBLISHER, Collections.emptyList()).count());
+    }
+
+    @Test
+    public void testIndexedAndUnindexed() {
+        /*
+        Test Explanation: An indexed comparison alongside one which must be tested
+        Expectation: the index finds candidates, which are then narrowed by the other
+         */
+        Set<Book> found = this.results(this.library.query(Book.class)
+                .isEqual(Book.Field.PUBLISHER, "Penguin")
+                .filterBy(Book.Field.TITLE, t -> t.startsWith("U")));
+        assertEquals(Collections.singleton(this.third), found);
+    }
+
+    @Test
+    public void testRemovedStateIsUnindexed() {
+        /*
+        Test Explanation: Removing a state which was indexed
+        Expectation: the state can no longer be found through its old value
+         */
+        this.library.getRelativeStorage().getStateStorage(Book.class).remove(this.second);
+        assertEquals(Collections.singleton(this.third),
+                this.results(this.library.query(Book.class).isEqual(Book.Field.PUBLISHER, "Penguin")));
+        assertEquals(0, Book.Field.ISBN.countStatesByValue(this.library, "9780000000002"));
+    }
+
+    @Test
+    public void testSQLWhere() throws SQLException {
+        /*
+        Test Explanation: Compiling a query with several comparisons, including a state and nulls
+        Expectation: each comparison is joined by AND in the order it was added, with its value as a parameter
+         */
+        assertEquals(Arrays.asList("SELECT * FROM books WHERE publisher = ? AND page_count > ? AND title <= ?",
+                "Penguin", 50, "M"), this.sql(this.library.query(Book.class)
+                .isEqual(Book.Field.PUBLISHER, "Penguin")
+                .isGreaterThan(Book.Field.PAGE_COUNT, 50)
+                .isLessThanOrEq(Book.Field.TITLE, "M")));
+        assertEquals(Collections.singletonList("SELECT * FROM books"), this.sql(this.library.query(Book.class)));
+        assertEquals(Arrays.asList("SELECT * FROM checkouts WHERE book = ?", this.first.getID()),
+                this.sql(this.library.query(Checkout.class).isEqual(Checkout.Field.BOOK, this.first)));
+        assertEquals(Collections.singletonList("SELECT * FROM books WHERE publisher IS NULL AND 1 = 0"),
+                this.sql(this.library.query(Book.class)
+                        .isEqual(Book.Field.PUBLISHER, null)
+                        .isGreaterThan(Book.Field.TITLE, null)));
+    }
+
+    @Test
+    public void testSQLIsAny() throws SQLException {
+        /*
+        Test Explanation: Compiling comparisons against several values, and against none
+        Expectation: one placeholder per distinct value within an IN list, and a clause matching nothing when empty
+         */
+        List<Object> sql = this.sql(this.library.query(Book.class)
+                .isAny(Book.Field.ISBN, Arrays.asList("a", "b", "a", "c")));
+        assertEquals("SELECT * FROM books WHERE isbn IN (?, ?, ?)", sql.get(0));
+        assertEquals(new HashSet<>(Arrays.asList("a", "b", "c")), new HashSet<>(sql.subList(1, sql.size())));
+        assertEquals(3, sql.size() - 1);
+        assertEquals(Arrays.asList("SELECT * FROM books WHERE 1 = 0 AND publisher = ?", "Penguin"),
+                this.sql(this.library.query(Book.class)
+                        .isAny(Book.Field.ISBN, Collections.emptyList())
+                        .isEqual(Book.Field.PUBLISHER, "Penguin")));
+    }
+
+    @Test
+    public void testSQLOrderAndLimit() throws SQLException {
+        /*
+        Test Explanation: Compiling ordered and paged queries, with and without filters applied at runtime
+        Expectation: orderings end with id as a tiebreak, and the limit and offset are only pushed down when the database answers the whole query
+         */
+        Query<Book> ordered = this.library.query(Book.class)
+                .isEqual(Book.Field.PUBLISHER, "Penguin")
+                .orderBy(Book.Field.TITLE, Query.Direction.DESCENDING)
+                .limit(10)
+                .offset(20);
+        assertEquals(Arrays.asList("SELECT * FROM books WHERE publisher = ? ORDER BY title DESC, id ASC LIMIT 10 OFFSET 20",
+                "Penguin"), this.sql(ordered));
+        assertTrue(((StateQuery<Book>) ordered).isPushedDown());
+        assertEquals(Collections.singletonList("SELECT * FROM books ORDER BY id ASC LIMIT 5"),
+                this.sql(this.library.query(Book.class).limit(5)));
+        assertEquals(Collections.singletonList("SELECT * FROM books ORDER BY title ASC, id ASC"),
+                this.sql(this.library.query(Book.class).orderBy(Book.Field.TITLE, Query.Direction.ASCENDING)));
+
+        Query<Book> unlimited = this.library.query(Book.class).offset(2); //SQL has no OFFSET without a LIMIT
+        assertEquals(Collections.singletonList("SELECT * FROM books ORDER BY id ASC"), this.sql(unlimited));
+        assertFalse(((StateQuery<Book>) unlimited).isPushedDown());
+        Query<Book> filtered = this.library.query(Book.class)
+                .filterBy(Book.Field.TITLE, t -> t.startsWith("U"))
+                .limit(1);
+        assertEquals(Collections.singletonList("SELECT * FROM books ORDER BY id ASC"), this.sql(filtered));
+        assertFalse(((StateQuery<Book>) filtered).isPushedDown());
+        assertEquals(Collections.singletonList(this.third), filtered.results().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testSQLAggregate() throws SQLException {
+        /*
+        Test Explanation: Compiling aggregates of a query
+        Expectation: the same WHERE clause and parameters as the query, grouped by the counted field if there is one
+         */
+        StateQuery<Book> query = (StateQuery<Book>) this.library.query(Book.class)
+                .isEqual(Book.Field.PUBLISHER, "Penguin");
+        assertEquals(Arrays.asList("SELECT COUNT(*) FROM books WHERE publisher = ?", "Penguin"),
+                query.runSQLAggregate(Aggregate.count(), this::statement));
+        assertEquals("SELECT title, COUNT(*) FROM books WHERE publisher = ? GROUP BY title",
+                query.runSQLAggregate(Aggregate.countBy(Book.Field.TITLE), this::statement).get(0));
+    }
+
+    @Test
+    public void testCursorSQL() throws SQLException {
+        /*
+        Test Explanation: Compiling the page after a cursor, whose ordering values are and are not null
+        Expectation: non-null values are compared as parameters, while null values are matched with IS NULL, in the order nulls sort
+         */
+        assertEquals(Arrays.asList("SELECT * FROM books WHERE (title > ? OR (title = ? AND id > ?))"
+                        + " ORDER BY title ASC, id ASC LIMIT 2", "Emma", "Emma", this.second.getID()),
+                this.sql(this.library.query(Book.class)
+                        .orderBy(Book.Field.TITLE, Query.Direction.ASCENDING).limit(2).after(this.second)));
+        assertEquals(Arrays.asList("SELECT * FROM books WHERE (title < ? OR title IS NULL OR (title = ? AND id > ?))"
+                        + " ORDER BY title DESC, id ASC LIMIT 2", "Emma", "Emma", this.second.getID()),
+                this.sql(this.library.query(Book.class)
+                        .orderBy(Book.Field.TITLE, Query.Direction.DESCENDING).limit(2).after(this.second)));
+        Checkout undated = this.checkout(this.first, null);
+        assertEquals(Arrays.asList("SELECT * FROM checkouts WHERE (at IS NOT NULL OR (at IS NULL AND"
+                        + " (returned < ? OR returned IS NULL OR (returned = ? AND id > ?)))) ORDER BY at ASC, returned DESC, id ASC",
+                        false, false, undated.getID()),
+                this.sql(this.library.query(Checkout.class)
+                        .orderBy(Checkout.Field.AT, Query.Direction.ASCENDING)
+                        .orderBy(Checkout.Field.RETURNED, Query.Direction.DESCENDING)
+                        .after(undated)));
+        assertEquals(Arrays.asList("SELECT * FROM checkouts WHERE (at IS NULL AND id > ?)"
+                        + " ORDER BY at DESC, id ASC", undated.getID()),
+                this.sql(this.library.query(Checkout.class)
+                        .orderBy(Checkout.Field.AT, Query.Direction.DESCENDING).after(undated)));
+    }
+
+    @Test
+    public void testPagingWithNulls() throws SQLException {
+        /*
+        Test Explanation: Paging two at a time by a field holding nulls, both in memory and through an embedded database in MySQL mode
+        Expectation: in either direction, the pages hold every checkout once, in the same order as the whole query
+         */
+        Instant day = Instant.parse("2020-01-01T00:00:00Z");
+        this.checkout(this.first, null);
+        this.checkout(this.second, day);
+        this.checkout(this.third, null);
+        this.checkout(this.first, day.plusSeconds(60));
+        this.checkout(this.second, day);
+        this.checkout(this.third, null);
+        this.checkout(this.first, day.minusSeconds(60));
+        StateStorage<Checkout> checkouts = this.library.getRelativeStorage().getStateStorage(Checkout.class);
+        try (Connection conn = DriverManager.getConnection("jdbc:h2:mem:lbms-query;MODE=MySQL")) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE checkouts (id BIGINT PRIMARY KEY, visitor BIGINT, book BIGINT, at TIMESTAMP, returned BOOLEAN)");
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO checkouts VALUES (?, ?, ?, ?, ?)")) {
+                for (Checkout checkout : checkouts.streamLoaded().collect(Collectors.toList())) {
+                    Object[] values = Arrays.stream(checkout.getFields()).map(f -> InputMapper.toSQL(f.getOrNull(checkout))).toArray();
+                    for (int i = 0; i < values.length; i++) {
+                        stmt.setObject(i + 1, values[i]);
+                    }
+                    stmt.executeUpdate();
+                }
+            }
+            for (Query.Direction direction : Query.Direction.values()) {
+                List<Checkout> whole = this.library.query(Checkout.class)
+                        .orderBy(Checkout.Field.AT, direction)
+                        .results().collect(Collectors.toList());
+                assertEquals(7, whole.size());
+                List<Checkout> inMemory = new ArrayList<>();
+                List<Checkout> inDatabase = new ArrayList<>();
+                List<Checkout> page;
+                do {
+                    page = this.page(direction, inMemory).results().collect(Collectors.toList());
+                    inMemory.addAll(page);
+                } while (!page.isEmpty());
+                do {
+                    page = ((StateQuery<Checkout>) this.page(direction, inDatabase)).runSQLQuery((sql, params) -> {
+                        List<Checkout> back = new ArrayList<>();
+                        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                            for (int i = 0; i < params.length; i++) {
+                                stmt.setObject(i + 1, params[i]);
+                            }
+                            try (ResultSet rs = stmt.executeQuery()) {
+                                while (rs.next()) {
+                                    back.add(checkouts.getByID(rs.getLong("id")));
+                                }
+                            }
+                        }
+                        return back;
+                    });
+                    inDatabase.addAll(page);
+                } while (!page.isEmpty());
+                assertEquals(whole, inMemory, direction.name());
+                assertEquals(whole, inDatabase, direction.name());
+            }
+        }
+    }
+
+    //a checkout of a book made at the given time, or never dated if null
+    private Checkout checkout(Book book, Instant at) {
+        Checkout back = Checkout.create()
+                .setValue(Checkout.Field.VISITOR, this.visitor)
+                .setValue(Checkout.Field.BOOK, book)
+                .setValue(Checkout.Field.AT, Instant.EPOCH)
+                .setValue(Checkout.Field.RETURNED, false)
+                .build(this.library);
+        Checkout.Field.AT.set(back, at);
+        return back;
+    }
+
+    @Test
+    public void testJoinSQL() throws SQLException {
+        /*
+        Test Explanation: Compiling joins through the authors of books, to a query the database answers whole, one filtered at runtime, and one matching nothing
+        Expectation: the whole query is joined as a subquery along with its parameters, otherwise the ids of its results are listed, or nothing is matched
+         */
+        Author ada = this.author("Ada Smith", this.first, this.second);
+        Author bea = this.author("Bea Jones", this.second);
+        assertEquals(Arrays.asList("SELECT * FROM books WHERE publisher = ? AND id IN (SELECT l.book FROM book_authors l"
+                        + " JOIN (SELECT id FROM authors WHERE name = ? ORDER BY id ASC LIMIT 1) r ON l.author = r.id)",
+                        "Penguin", "Ada Smith"),
+                this.sql(this.library.query(Book.class)
+                        .isEqual(Book.Field.PUBLISHER, "Penguin")
+                        .join(Book.AUTHORS, this.library.query(Author.class).isEqual(Author.Field.NAME, "Ada Smith").limit(1))));
+        List<Object> filtered = this.sql(this.library.query(Book.class)
+                .join(Book.AUTHORS, this.library.query(Author.class).filterBy(Author.Field.NAME, n -> n.contains(" "))));
+        assertEquals("SELECT * FROM books WHERE id IN (SELECT l.book FROM book_authors l WHERE l.author IN (?, ?))", filtered.get(0));
+        assertEquals(new HashSet<>(Arrays.asList(ada.getID(), bea.getID())), new HashSet<>(filtered.subList(1, filtered.size())));
+        assertEquals(Collections.singletonList("SELECT * FROM books WHERE 1 = 0"),
+                this.sql(this.library.query(Book.class)
+                        .join(Book.AUTHORS, this.library.query(Author.class).filterBy(Author.Field.NAME, n -> false))));
+    }
+
+    @Test
+    public void testJoinMatchesInMemory() throws SQLException {
+        /*
+        Test Explanation: Joining books to queries over their authors, both in memory and through an embedded database in MySQL mode
+        Expectation: each join finds the same books either way, once each however many of their authors match, and in the same order when ordered
+         */
+        Book fourth = this.book("9780000000004", "Walden", "Chilton");
+        this.author("Ada Smith", this.first, this.second);
+        this.author("Bea Jones", this.second, this.third);
+        this.author("Cy Twombly", this.third, this.first);
+        List<Supplier<Query<Book>>> queries = Arrays.asList(
+                () -> this.library.query(Book.class)
+                        .join(Book.AUTHORS, this.library.query(Author.class).isEqual(Author.Field.NAME, "Ada Smith")),
+                () -> this.library.query(Book.class)
+                        .join(Book.AUTHORS, this.library.query(Author.class).isAny(Author.Field.NAME, "Ada Smith", "Cy Twombly")),
+                () -> this.library.query(Book.class)
+                        .isEqual(Book.Field.PUBLISHER, "Penguin")
+                        .join(Book.AUTHORS, this.library.query(Author.class).isAny(Author.Field.NAME, "Ada Smith", "Cy Twombly")),
+                () -> this.library.query(Book.class)
+                        .join(Book.AUTHORS, this.library.query(Author.class).filterBy(Author.Field.NAME, n -> n.startsWith("B"))),
+                () -> this.library.query(Book.class)
+                        .join(Book.AUTHORS, this.library.query(Author.class)
+                                .orderBy(Author.Field.NAME, Query.Direction.DESCENDING).limit(1)),
+                () -> this.library.query(Book.class)
+                        .join(Book.AUTHORS, this.library.query(Author.class).isEqual(Author.Field.NAME, "Nobody")),
+                () -> this.library.query(Book.class)
+                        .join(Book.AUTHORS, this.library.query(Author.class))
+                        .orderBy(Book.Field.TITLE, Query.Direction.DESCENDING)
+                        .limit(2));
+        try (Connection conn = DriverManager.getConnection("jdbc:h2:mem:lbms-join;MODE=MySQL")) {
+            this.copy(conn, Book.class);
+            this.copy(conn, Author.class);
+            this.copy(conn, AuthorListing.class);
+            StateStorage<Book> books = this.library.getRelativeStorage().getStateStorage(Book.class);
+            for (int i = 0; i < queries.size(); i++) {
+                List<Book> inMemory = queries.get(i).get().results().collect(Collectors.toList());
+                List<Book> inDatabase = ((StateQuery<Book>) queries.get(i).get()).runSQLQuery((sql, params) -> {
+                    List<Book> back = new ArrayList<>();
+                    try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                        for (int p = 0; p < params.length; p++) {
+                            stmt.setObject(p + 1, params[p]);
+                        }
+                        try (ResultSet rs = stmt.executeQuery()) {
+                            while (rs.next()) {
+                                back.add(books.getByID(rs.getLong("id")));
+                            }
+                        }
+                    }
+                    return back;
+                });
+                assertEquals(new HashSet<>(inMemory).size(), inMemory.size(), "query " + i);
+                assertEquals(new HashSet<>(inMemory), new HashSet<>(inDatabase), "query " + i);
+                assertEquals(inMemory.size(), inDatabase.size(), "query " + i);
+                assertFalse(inMemory.contains(fourth), "query " + i);
+            }
+            assertEquals(Arrays.asList(this.third, this.second), queries.get(6).get().results().collect(Collectors.toList()));
+            assertEquals(new HashSet<>(Arrays.asList(this.first, this.second, this.third)),
+                    this.results(queries.get(1).get()));
+        }
+    }
+
+    //an author of the given books, listed in the order given
+    private Author author(String name, Book... books) {
+        Author back = Author.create().setValue(Author.Field.NAME, name).build(this.library);
+        for (Book book : books) {
+            AuthorListing.create()
+                    .setValue(AuthorListing.Field.AUTHOR, back)
+                    .setValue(AuthorListing.Field.BOOK, book)
+                    .build(this.library);
+        }
+        return back;
+    }
+
+    //copies every state of a type into a table of its own, with a column per field
+    private <T extends State> void copy(Connection conn, Class<T> type) throws SQLException {
+        List<T> states = this.library.getRelativeStorage().getStateStorage(type).streamLoaded().collect(Collectors.toList());
+        DataField<? super Object>[] fields = states.get(0).getFields();
+        String table = type.getAnnotation(StorageContainer.class).value();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE " + table + " (" + Arrays.stream(fields)
+                    .map(f -> f.getName() + " " + this.columnType(f.getType()))
+                    .collect(Collectors.joining(", ")) + ")");
+        }
+        String placeholders = Arrays.stream(fields).map(f -> "?").collect(Collectors.joining(", "));
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO " + table + " VALUES (" + placeholders + ")")) {
+            for (T state : states) {
+                for (int i = 0; i < fields.length; i++) {
+                    stmt.setObject(i + 1, InputMapper.toSQL(fields[i].getOrNull(state)));
+                }
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    private String columnType(Class<?> type) {
+        if (InputMapper.isStateClass(type) || type == Long.class) {
+            return "BIGINT";
+        } else if (type == Integer.class) {
+            return "INT";
+        } else if (type == Instant.class) {
+            return "TIMESTAMP";
+        } else if (type == Boolean.class) {
+            return "BOOLEAN";
+        } else if (type == BigDecimal.class) {
+            return "DECIMAL(19, 2)";
+        }
+        return "VARCHAR(255)";
+    }
+
+    //the next two checkouts by time, after those already paged through
+    private Query<Checkout> page(Query.Direction direction, List<Checkout> before) {
+        Query<Checkout> back = this.library.query(Checkout.class)
+                .orderBy(Checkout.Field.AT, direction)
+                .limit(2);
+        return before.isEmpty() ? back : back.after(before.get(before.size() - 1));
+    }
+}
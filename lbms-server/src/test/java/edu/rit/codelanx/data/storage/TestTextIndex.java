@@ -0,0 +1,154 @@
+package edu.rit.codelanx.data.storage;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.Fixtures;
+import edu.rit.codelanx.data.LibraryData;
+import edu.rit.codelanx.data.state.types.Author;
+import edu.rit.codelanx.data.state.types.AuthorListing;
+import edu.rit.codelanx.data.state.types.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestTextIndex {
+
+    private DataSource library;
+    private final Map<String, Author> authors = new HashMap<>();
+    private int isbn;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.library = new LibraryData(MemoryStorageAdapter::new);
+        this.library.initialize();
+        this.authors.clear();
+        this.isbn = 0;
+    }
+
+    private Book book(String title, String publisher, String... authors) {
+        Book back = Fixtures.book(String.valueOf(9780000000000L + this.isbn++), title)
+                .setValue(Book.Field.PUBLISHER, publisher)
+                .build(this.library);
+        for (String name : authors) {
+            Author author = this.authors.computeIfAbsent(name, n -> Author.create()
+                    .setValue(Author.Field.NAME, n)
+                    .build(this.library));
+            AuthorListing.create()
+                    .setValue(AuthorListing.Field.AUTHOR, author)
+                    .setValue(AuthorListing.Field.BOOK, back)
+                    .build(this.library);
+        }
+        return back;
+    }
+
+    private List<Long> search(String query) {
+        return this.library.getAdapter().getTextIndex().search(TextQuery.parse(query));
+    }
+
+    private List<Long> ids(Book... books) {
+        return Arrays.stream(books).map(Book::getID).collect(Collectors.toList());
+    }
+
+    //the five books most tests search
+    private Book[] shelf() {
+        return new Book[] {
+                this.book("Modern Art History", "Phaidon", "Ada Smith"),
+                this.book("The Art of Modern Living", "Modern Press", "Bea Jones"),
+                this.book("A History of Art", "Phaidon", "Modern Collective"),
+                this.book("Gardening", "Art House", "Cy Twombly"),
+                this.book("Dune", "Chilton", "Frank Herbert"),
+        };
+    }
+
+    @Test
+    public void testEveryClauseMatches() {
+        /*
+        Test Explanation: Searching for several words, which books hold in their titles, publishers or authors
+        Expectation: only books holding every word in some text are found, and a word no book holds finds nothing
+         */
+        Book[] books = this.shelf();
+        assertEquals(this.ids(books[0], books[1], books[2]), this.sorted(this.search("modern art")));
+        assertEquals(this.ids(books[3]), this.search("art gardening"));
+        assertEquals(this.ids(books[3]), this.search("twombly house"));
+        assertEquals(Collections.emptyList(), this.search("modern dune"));
+        assertEquals(Collections.emptyList(), this.search("modern sculpture"));
+        assertEquals(Collections.emptyList(), this.search("  "));
+    }
+
+    private List<Long> sorted(List<Long> ids) {
+        return ids.stream().sorted().collect(Collectors.toList());
+    }
+
+    @Test
+    public void testPhrases() {
+        /*
+        Test Explanation: Searching for phrases which books hold in order, out of order, and split between two texts
+        Expectation: a phrase only finds books holding its words next to each other and in order within a single text
+         */
+        Book[] books = this.shelf();
+        assertEquals(this.ids(books[0]), this.search("\"modern art\""));
+        assertEquals(this.ids(books[1]), this.search("\"art of modern\""));
+        assertEquals(this.ids(books[2]), this.search("\"modern collective\" \"history of\""));
+        assertEquals(Collections.emptyList(), this.search("\"art modern\""));
+        assertEquals(Collections.emptyList(), this.search("\"gardening art\"")); //title then publisher
+    }
+
+    @Test
+    public void testPrefixes() {
+        /*
+        Test Explanation: Searching for words and phrases ending in *, and for the same words cut short without it
+        Expectation: a prefix finds every book holding a word it starts, while a word cut short finds nothing
+         */
+        Book[] books = this.shelf();
+        assertEquals(this.ids(books[0], books[2]), this.sorted(this.search("hist*")));
+        assertEquals(Collections.emptyList(), this.search("hist"));
+        assertEquals(this.sorted(this.search("modern art")), this.sorted(this.search("mod* ar*")));
+        assertEquals(this.ids(books[0], books[1], books[2], books[3]), this.sorted(this.search("a*")));
+        assertEquals(this.ids(books[1]), this.search("\"art of mod*\""));
+        assertEquals(this.ids(books[4]), this.search("herb*"));
+    }
+
+    @Test
+    public void testRankedByWeight() {
+        /*
+        Test Explanation: Searching for a word held in the titles of some books and the publisher or an author of others
+        Expectation: title matches come before author matches, which come before publisher matches, and ties stay in id order
+         */
+        Book publisher = this.book("Gardening", "Art House", "Cy Twombly");
+        Book author = this.book("Sculpture", "Phaidon", "Art Collective");
+        Book title = this.book("Modern Art", "Phaidon", "Ada Smith");
+        Book laterTitle = this.book("Art History", "Phaidon", "Ada Smith");
+        this.book("Dune", "Chilton", "Frank Herbert");
+        //ties in title are listed by id, which is the order they were made in
+        assertEquals(this.ids(title, laterTitle, author, publisher), this.search("art"));
+    }
+
+    @Test
+    public void testRankedByRarity() {
+        /*
+        Test Explanation: Searching for a rare and a common word, which two books each hold one in their title and the other in their publisher
+        Expectation: the book holding the rare word in its title comes first, whichever book was made first
+         */
+        Book commonTitle = this.book("Common Ground", "Rare Press");
+        Book rareTitle = this.book("Rare Finds", "Common House");
+        for (int i = 0; i < 6; i++) {
+            this.book("Common Tales " + i, "Chilton");
+        }
+        //rare appears in 2 of 8 books, common in all 8
+        double rare = Math.log(1 + 8 / 2.0);
+        double common = Math.log(1 + 8 / 8.0);
+        assertTrue(3 * rare + common > rare + 3 * common);
+        assertEquals(this.ids(rareTitle, commonTitle), this.search("common rare"));
+        assertEquals(this.ids(rareTitle, commonTitle), this.search("rare common"));
+        assertEquals(this.ids(commonTitle), this.search("\"common ground\" rare"));
+    }
+}
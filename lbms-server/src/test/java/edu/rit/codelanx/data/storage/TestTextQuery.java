@@ -0,0 +1,77 @@
+package edu.rit.codelanx.data.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestTextQuery {
+
+    //each clause as its terms, with a trailing * if it is a prefix
+    private List<String> clauses(String text) {
+        return TextQuery.parse(text).getClauses().stream()
+                .map(c -> String.join(" ", c.getTerms()) + (c.isPrefix() ? "*" : ""))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testTokenize() {
+        /*
+        Test Explanation: Breaking up text with accents, mixed case, punctuation, digits and compatibility characters
+        Expectation: accents are stripped and case folded, anything but letters and digits separates terms, and repeats are kept
+         */
+        assertEquals(Arrays.asList("ca", "c", "est", "l", "ete", "2020"), TextQuery.tokenize("Ça, c'est l'Été-2020!"));
+        assertEquals(Arrays.asList("fine", "art", "art"), TextQuery.tokenize("  ﬁne ART\tart  "));
+        assertEquals(Collections.emptyList(), TextQuery.tokenize("-- ! --"));
+        assertEquals(Collections.emptyList(), TextQuery.tokenize(""));
+        assertEquals(Collections.emptyList(), TextQuery.tokenize(null));
+    }
+
+    @Test
+    public void testParse() {
+        /*
+        Test Explanation: Parsing queries of words, quoted phrases, prefixes, punctuated words and unclosed quotes
+        Expectation: each word or phrase is a clause in the order typed, only the last term of a word can be a prefix, and an unclosed quote runs to the end
+         */
+        assertEquals(Arrays.asList("modern art", "hist*"), this.clauses("\"Modern Art\" hist*"));
+        assertEquals(Arrays.asList("o", "ne*", "dune"), this.clauses("O'Ne*  Dune"));
+        assertEquals(Arrays.asList("dune", "god emperor"), this.clauses("dune \"god emperor"));
+        assertEquals(Arrays.asList("god emp*", "art"), this.clauses("\"god emp*\" art"));
+        assertEquals(Collections.singletonList("art"), this.clauses("* \"\" art --"));
+
+        TextQuery phrase = TextQuery.parse("\"modern art\"");
+        assertTrue(phrase.getClauses().get(0).isPhrase());
+        assertFalse(TextQuery.parse("modern").getClauses().get(0).isPhrase());
+        assertTrue(TextQuery.parse("  ").isEmpty());
+        assertTrue(TextQuery.parse("\"\" * ").isEmpty());
+        assertTrue(TextQuery.parse(null).isEmpty());
+    }
+
+    @Test
+    public void testClauseMatches() {
+        /*
+        Test Explanation: Matching words, phrases and prefixes against the terms of some text
+        Expectation: a phrase only matches its terms next to each other and in order, and only the last term of a prefix may be cut short
+         */
+        List<String> text = TextQuery.tokenize("A History of Modern Art");
+        TextQuery.Clause word = TextQuery.parse("modern").getClauses().get(0);
+        assertTrue(word.matches(text));
+        assertFalse(word.matches(TextQuery.tokenize("Modernity")));
+
+        assertTrue(TextQuery.parse("\"modern art\"").getClauses().get(0).matches(text));
+        assertFalse(TextQuery.parse("\"art modern\"").getClauses().get(0).matches(text));
+        assertFalse(TextQuery.parse("\"history modern\"").getClauses().get(0).matches(text));
+        assertFalse(TextQuery.parse("\"modern art history\"").getClauses().get(0).matches(text));
+
+        assertTrue(TextQuery.parse("\"history of mod*\"").getClauses().get(0).matches(text));
+        assertFalse(TextQuery.parse("\"hist* of modern\"").getClauses().get(0).matches(text));
+        assertTrue(TextQuery.parse("hist*").getClauses().get(0).matches(text));
+        assertFalse(TextQuery.parse("arts*").getClauses().get(0).matches(text));
+    }
+}
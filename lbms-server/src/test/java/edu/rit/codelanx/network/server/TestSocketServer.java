@@ -0,0 +1,191 @@
+package edu.rit.codelanx.network.server;
+
+import edu.rit.codelanx.ConfigKey;
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.Fixtures;
+import edu.rit.codelanx.data.LibraryData;
+import edu.rit.codelanx.data.state.types.Visitor;
+import edu.rit.codelanx.data.storage.MemoryStorageAdapter;
+import edu.rit.codelanx.util.Clock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestSocketServer {
+
+    private DataSource library;
+    private Clock clock;
+    private TextServer server;
+    private SocketServer sockets;
+    private final List<Socket> clients = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.library = new LibraryData(MemoryStorageAdapter::new);
+        this.library.initialize();
+        this.clock = new Clock();
+        this.library.getLibrary().setClock(this.clock);
+        this.server = new TextServer(this.library, new LibraryData(MemoryStorageAdapter::new), this.clock);
+        this.sockets = new SocketServer(this.server, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        this.sockets.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        for (Socket client : this.clients) {
+            client.close();
+        }
+        this.clients.clear();
+        this.sockets.close();
+        this.clock.stop();
+    }
+
+    private Socket connect() throws IOException {
+        Socket back = new Socket();
+        back.connect(this.sockets.getAddress(), 5000);
+        back.setSoTimeout(5000);
+        back.setTcpNoDelay(true);
+        this.clients.add(back);
+        return back;
+    }
+
+    private void send(Socket client, byte[] data) throws IOException {
+        OutputStream out = client.getOutputStream();
+        out.write(data);
+        out.flush();
+    }
+
+    private void send(Socket client, String data) throws IOException {
+        this.send(client, data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //the first line of the next response, read up to its terminating byte
+    private String response(Socket client) throws IOException {
+        InputStream in = client.getInputStream();
+        ByteArrayOutputStream back = new ByteArrayOutputStream();
+        for (int b = in.read(); b != SocketServer.RESPONSE_END; b = in.read()) {
+            if (b < 0) {
+                throw new IOException("Server closed the connection");
+            }
+            back.write(b);
+        }
+        return new String(back.toByteArray(), StandardCharsets.UTF_8).split("\n")[0];
+    }
+
+    private String register(String first) {
+        return String.join(",", "register", first, Fixtures.LAST, Fixtures.ADDRESS, Fixtures.PHONE) + ";";
+    }
+
+    @Test
+    public void testFraming() throws IOException, InterruptedException {
+        /*
+        Test Explanation: Sending a command in pieces, split within a multi-byte character, followed by two commands at once with whitespace around them
+        Expectation: each command is run once it is terminated, with one response each, ended by the terminating byte
+         */
+        Socket client = this.connect();
+        byte[] command = this.register("Zoë").getBytes(StandardCharsets.UTF_8);
+        int split = this.register("Zo").length() + 1; //between the two bytes of ë
+        this.send(client, "  ".getBytes(StandardCharsets.UTF_8));
+        this.send(client, Arrays.copyOfRange(command, 0, split));
+        Thread.sleep(50);
+        this.send(client, Arrays.copyOfRange(command, split, command.length));
+        this.send(client, "\r\n datetime ;\ndatetime;");
+        assertTrue(this.response(client).startsWith("register,"));
+        assertTrue(this.response(client).startsWith("datetime,"));
+        assertTrue(this.response(client).startsWith("datetime,"));
+        assertEquals(Arrays.asList("Zoë"), this.library.query(Visitor.class).results()
+                .map(Visitor::getFirstName).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testOrderWithinConnection() throws IOException {
+        /*
+        Test Explanation: Sending many commands at once from each of two connections
+        Expectation: each connection's commands are run one at a time in the order sent, so visitors are registered in that order
+         */
+        Socket first = this.connect();
+        Socket second = this.connect();
+        StringBuilder commands = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            commands.append(this.register("Ada" + i));
+        }
+        this.send(first, commands.toString());
+        this.send(second, commands.toString().replace("Ada", "Bea"));
+        for (Socket client : Arrays.asList(first, second)) {
+            long last = -1;
+            for (int i = 0; i < 20; i++) {
+                String[] response = this.response(client).split(",");
+                assertEquals("register", response[0]);
+                long id = Long.parseLong(response[1]);
+                assertTrue(id > last, "registered out of order");
+                last = id;
+            }
+        }
+    }
+
+    @Test
+    public void testPendingBackpressure() throws IOException, InterruptedException {
+        /*
+        Test Explanation: Sending more commands than may wait at once while no command can run, then letting them run
+        Expectation: reading stops once the limit is waiting, and resumes as they run, until every command is answered in order
+         */
+        int limit = ConfigKey.NETWORK_MAX_PENDING_COMMANDS.as(int.class);
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> this.server.getCommandEngine().exclusive(() -> {
+            held.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        holder.start();
+        held.await();
+        Socket client = this.connect();
+        StringBuilder commands = new StringBuilder();
+        for (int i = 0; i < limit; i++) {
+            commands.append(this.register("Ada" + i));
+        }
+        this.send(client, commands.toString());
+        this.awaitPending(limit);
+        this.send(client, this.register("Late") + "datetime;");
+        Thread.sleep(200);
+        assertEquals(limit, this.sockets.getPendingCommands());
+
+        release.countDown();
+        for (int i = 0; i < limit; i++) {
+            assertTrue(this.response(client).startsWith("register,"));
+        }
+        assertTrue(this.response(client).startsWith("register,"));
+        assertTrue(this.response(client).startsWith("datetime,"));
+        holder.join();
+        this.awaitPending(0);
+        assertEquals(limit + 1, this.library.query(Visitor.class).count());
+    }
+
+    private void awaitPending(int count) throws InterruptedException {
+        long until = System.currentTimeMillis() + 5000;
+        while (this.sockets.getPendingCommands() != count && System.currentTimeMillis() < until) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, this.sockets.getPendingCommands());
+    }
+}
@@ -0,0 +1,131 @@
+package edu.rit.codelanx.util;
+
+import edu.rit.codelanx.data.DataSource;
+import edu.rit.codelanx.data.LibraryData;
+import edu.rit.codelanx.data.state.types.Author;
+import edu.rit.codelanx.data.state.types.Book;
+import edu.rit.codelanx.data.storage.MemoryStorageAdapter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestBookIngester {
+
+    private final List<String> lines = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.lines.clear();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                BookParser.getBundledCatalog().openStream(), StandardCharsets.UTF_8))) {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                this.lines.add(line);
+            }
+        }
+    }
+
+    private InputStream catalog(List<String> lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+
+    //every value of an entry, as entries have no equality of their own
+    private List<Object> values(BookParser.Entry entry) {
+        return Arrays.asList(entry.getISBN(), entry.getTitle(), entry.getAuthors(),
+                entry.getPublisher(), entry.getPublishDate(), entry.getPageCount());
+    }
+
+    private List<List<Object>> sequential() {
+        return this.lines.stream().map(BookParser::parseLine).map(this::values).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testMatchesSequentialParse() throws IOException {
+        /*
+        Test Explanation: Parsing the bundled catalog in small chunks across several workers
+        Expectation: the entries arrive in catalog order, the same as parsing each line in turn
+         */
+        for (int workers : new int[] {1, 4}) {
+            List<List<Object>> parsed = new ArrayList<>();
+            List<Integer> sizes = new ArrayList<>();
+            new BookIngester(workers, 7).ingest(this.catalog(this.lines), chunk -> {
+                sizes.add(chunk.size());
+                chunk.forEach(e -> parsed.add(this.values(e)));
+            });
+            assertEquals(this.sequential(), parsed);
+            assertEquals((this.lines.size() + 6) / 7, sizes.size());
+            assertTrue(sizes.subList(0, sizes.size() - 1).stream().allMatch(s -> s == 7));
+        }
+    }
+
+    @Test
+    public void testSharedAuthors() {
+        /*
+        Test Explanation: Inserting the bundled catalog, where some authors wrote several books
+        Expectation: books are inserted in catalog order, each author once, and every book lists its own authors in order
+         */
+        DataSource library = new LibraryData(MemoryStorageAdapter::new);
+        List<Book> books = BookParser.parseBooks(library, this.catalog(this.lines));
+        List<BookParser.Entry> entries = this.lines.stream().map(BookParser::parseLine).collect(Collectors.toList());
+        assertEquals(entries.size(), books.size());
+        Set<String> names = new HashSet<>();
+        entries.forEach(e -> names.addAll(e.getAuthors()));
+        List<Author> authors = library.query(Author.class).results().collect(Collectors.toList());
+        assertEquals(names.size(), authors.size());
+        assertTrue(names.size() < entries.stream().mapToInt(e -> e.getAuthors().size()).sum());
+        Map<String, Author> byName = authors.stream().collect(Collectors.toMap(Author::getName, Function.identity()));
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            BookParser.Entry entry = entries.get(i);
+            assertEquals(entry.getISBN(), book.getISBN());
+            List<Author> listed = book.getAuthors().collect(Collectors.toList());
+            assertEquals(entry.getAuthors(), listed.stream().map(Author::getName).collect(Collectors.toList()));
+            for (Author author : listed) {
+                assertSame(byName.get(author.getName()), author);
+            }
+        }
+    }
+
+    @Test
+    public void testMalformedLine() {
+        /*
+        Test Explanation: A catalog with a malformed line partway through
+        Expectation: the same exception as parsing that line alone, rather than hanging or losing it
+         */
+        List<String> bad = new ArrayList<>(this.lines);
+        bad.add(bad.size() / 2, "not a catalog line");
+        RuntimeException alone = assertThrows(RuntimeException.class, () -> BookParser.parseLine("not a catalog line"));
+        RuntimeException ingested = assertThrows(RuntimeException.class,
+                () -> new BookIngester(4, 5).ingest(this.catalog(bad), chunk -> {}));
+        assertEquals(alone.getClass(), ingested.getClass());
+    }
+
+    @Test
+    public void testEmptyCatalog() throws IOException {
+        /*
+        Test Explanation: Parsing a catalog with no lines
+        Expectation: no chunk is handed back
+         */
+        List<Integer> sizes = new ArrayList<>();
+        new BookIngester(2).ingest(this.catalog(new ArrayList<>()), chunk -> sizes.add(chunk.size()));
+        assertTrue(sizes.isEmpty());
+    }
+}
@@ -0,0 +1,227 @@
+package edu.rit.codelanx.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestClock {
+
+    private File folder;
+    private File file;
+    private final List<Clock> clocks = new ArrayList<>();
+    private final List<String> fired = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.folder = Files.createTempDirectory("lbms-clock").toFile();
+        this.file = new File(this.folder, "clock.state");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.release.countDown(); //never leave the clock thread waiting
+        for (Clock clock : this.clocks) {
+            if (clock.isRunning()) {
+                clock.stop();
+            }
+        }
+        File[] files = this.folder.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        this.folder.delete();
+    }
+
+    private Clock clock(boolean simulated) throws IOException {
+        Clock back = new Clock(this.file, simulated);
+        this.clocks.add(back);
+        return back;
+    }
+
+    //records the task's name, and the time the clock reads as it runs
+    private Runnable record(Clock clock, String name, Instant start) {
+        return () -> this.fired.add(name + "@" + Duration.between(start, clock.getCurrentTime()).toMinutes());
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Test
+    public void testAdvanceStepByStep() throws IOException, InterruptedException {
+        /*
+        Test Explanation: Advancing a simulated clock an hour at a time past one-off tasks, a recurring task, and a task registered by another as it runs
+        Expectation: each step runs exactly the tasks due within it, in order and on the advancing thread, with the clock reading each task's deadline, and the clock never moves by itself
+         */
+        Clock clock = this.clock(true);
+        Instant start = clock.getCurrentTime();
+        Thread.sleep(50);
+        assertEquals(start, clock.getCurrentTime());
+        Thread advancing = Thread.currentThread();
+        clock.registerTask(start.plus(Duration.ofMinutes(180)), this.record(clock, "c", start));
+        clock.registerTask(start.plus(Duration.ofMinutes(60)), this.record(clock, "a", start));
+        clock.registerTask(start.plus(Duration.ofMinutes(120)), () -> {
+            this.record(clock, "b", start).run();
+            assertEquals(advancing, Thread.currentThread());
+            clock.registerTask(start.plus(Duration.ofMinutes(150)), this.record(clock, "d", start));
+        });
+        Clock.RegisteredTask recurring = clock.registerTask(start.plus(Duration.ofMinutes(20)), Duration.ofMinutes(70), this.record(clock, "r", start));
+        assertTrue(recurring.isRecurring());
+
+        List<List<String>> steps = Arrays.asList(
+                Arrays.asList("r@20", "a@60"),
+                Arrays.asList("r@90", "b@120"),
+                Arrays.asList("d@150", "r@160", "c@180"),
+                Arrays.asList("r@230"));
+        for (int i = 0; i < steps.size(); i++) {
+            clock.advanceTime(0, 1);
+            assertEquals(start.plus(Duration.ofHours(i + 1)), clock.getCurrentTime());
+            assertEquals(steps.get(i), this.fired, "hour " + (i + 1));
+            this.fired.clear();
+        }
+        assertEquals(start.plus(Duration.ofMinutes(300)), recurring.getDeadline());
+
+        //a stopped clock only moves its time, catching up once resumed
+        assertTrue(recurring.cancel());
+        clock.registerTask(start.plus(Duration.ofMinutes(270)), this.record(clock, "e", start));
+        clock.stop();
+        clock.advanceTime(1);
+        assertEquals(Collections.emptyList(), this.fired);
+        assertEquals(start.plus(Duration.ofHours(28)), clock.getCurrentTime());
+        clock.resume();
+        clock.advanceTime(0, 0);
+        assertEquals(Collections.singletonList("e@1680"), this.fired);
+    }
+
+    @Test
+    public void testReload() throws IOException {
+        /*
+        Test Explanation: Advancing a clock kept in a state file, then making a new clock from the same file, simulated or not
+        Expectation: a simulated clock picks up at exactly the time it was advanced to, and one following the real time stays as far ahead
+         */
+        Clock simulated = this.clock(true);
+        assertFalse(this.file.exists());
+        Instant start = simulated.getCurrentTime();
+        simulated.advanceTime(2, 5);
+        simulated.stop();
+        assertTrue(this.file.exists());
+        Clock reloaded = this.clock(true);
+        assertTrue(reloaded.isSimulated());
+        assertEquals(start.plus(Duration.ofHours(53)), reloaded.getCurrentTime());
+        reloaded.advanceTime(0, 1);
+        reloaded.stop();
+        assertEquals(start.plus(Duration.ofHours(54)), this.clock(true).getCurrentTime());
+
+        this.file.delete();
+        Clock real = this.clock(false);
+        assertFalse(real.isSimulated());
+        real.advanceTime(1);
+        real.stop();
+        Duration ahead = Duration.between(Instant.now(), this.clock(false).getCurrentTime());
+        assertTrue(ahead.compareTo(Duration.ofHours(23)) > 0 && ahead.compareTo(Duration.ofHours(25)) < 0, ahead.toString());
+    }
+
+    @Test
+    public void testAdvanceWaitsForTimer() throws IOException, InterruptedException {
+        /*
+        Test Explanation: Advancing a clock while the timer is still running a task it fired, which is waiting to be let go
+        Expectation: advancing waits for the task to finish before running anything, so the tasks never overlap and each runs once, in order
+         */
+        Clock clock = this.clock(false);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        clock.registerTask(clock.getCurrentTime(), () -> {
+            if (running.incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            this.fired.add("timer");
+            started.countDown();
+            this.await(this.release);
+            running.decrementAndGet();
+        });
+        clock.registerTask(clock.getCurrentTime().plus(Duration.ofHours(1)), () -> {
+            if (running.incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            this.fired.add("advanced");
+            running.decrementAndGet();
+        });
+        this.await(started);
+
+        Thread advancing = new Thread(() -> clock.advanceTime(0, 2));
+        advancing.start();
+        advancing.join(200);
+        assertTrue(advancing.isAlive());
+        assertEquals(Collections.singletonList("timer"), this.fired);
+        this.release.countDown();
+        advancing.join(5000);
+        assertFalse(advancing.isAlive());
+        assertEquals(Arrays.asList("timer", "advanced"), this.fired);
+        assertEquals(0, overlaps.get());
+    }
+
+    @Test
+    public void testTimerWaitsForAdvance() throws IOException, InterruptedException {
+        /*
+        Test Explanation: Letting a task come due in real time while advancing is held up running another task, then waiting on the timer afterwards
+        Expectation: the timer leaves the task to the advance, which runs it once after the one holding it up, and the timer still wakes up for tasks after advancing
+         */
+        Clock clock = this.clock(false);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch after = new CountDownLatch(1);
+        List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+        Instant before = clock.getCurrentTime();
+        clock.registerTask(clock.getCurrentTime().plus(Duration.ofMinutes(30)), () -> {
+            this.fired.add("first");
+            started.countDown();
+            this.await(this.release);
+        });
+        Thread advancing = new Thread(() -> clock.advanceTime(0, 1));
+        advancing.start();
+        this.await(started);
+        clock.registerTask(clock.getCurrentTime().plusMillis(20), () -> {
+            this.fired.add("second");
+            threads.add(Thread.currentThread());
+            //just past where advancing stops, so only the timer runs it
+            clock.registerTask(before.plus(Duration.ofHours(1)).plusMillis(300), () -> {
+                threads.add(Thread.currentThread());
+                after.countDown();
+            });
+        });
+        Thread.sleep(1100); //the timer wakes at least once a second, so comes due meanwhile
+        assertEquals(Collections.singletonList("first"), this.fired);
+        this.release.countDown();
+        advancing.join(5000);
+        assertFalse(advancing.isAlive());
+        assertEquals(Arrays.asList("first", "second"), this.fired);
+        assertEquals(Collections.singletonList(advancing), threads);
+        this.await(after);
+        assertEquals(2, threads.size());
+        assertTrue(threads.get(1) != advancing);
+    }
+}
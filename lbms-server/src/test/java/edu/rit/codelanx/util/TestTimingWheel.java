@@ -0,0 +1,193 @@
+package edu.rit.codelanx.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestTimingWheel {
+
+    private static final long TICK = 10;
+
+    private List<Long> sorted(List<Long> values) {
+        List<Long> back = new ArrayList<>(values);
+        Collections.sort(back);
+        return back;
+    }
+
+    @Test
+    public void testCascading() {
+        /*
+        Test Explanation: Holding deadlines within each of the first three levels, then advancing to just before and exactly at each of them
+        Expectation: each value falls through the levels below it, and is only due once the wheel reaches its deadline
+         */
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK, 0);
+        //one tick, within the first level, the second, and the third
+        List<Long> deadlines = Arrays.asList(10L, 630L, 640L, 40_950L, 40_960L, 2_621_430L, 2_621_440L, 9_000_000L);
+        for (long deadline : deadlines) {
+            wheel.add(deadline, deadline);
+        }
+        assertEquals(deadlines.size(), wheel.size());
+        for (int i = 0; i < deadlines.size(); i++) {
+            long deadline = deadlines.get(i);
+            assertEquals(Collections.emptyList(), wheel.advance(deadline - 1), "before " + deadline);
+            assertTrue(wheel.nextExpiration() <= deadline, "next after " + deadline);
+            assertEquals(Collections.singletonList(deadline), wheel.advance(deadline), "at " + deadline);
+            assertEquals(deadlines.size() - i - 1, wheel.size());
+        }
+        assertEquals(Long.MAX_VALUE, wheel.nextExpiration());
+    }
+
+    @Test
+    public void testMatchesEveryDeadline() {
+        /*
+        Test Explanation: Advancing by random steps through random deadlines of every size, some added along the way
+        Expectation: every step returns exactly the values whose deadlines it passed, within a tick, and each only once
+         */
+        Random random = new Random(42);
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK, 5);
+        List<Long> waiting = new ArrayList<>();
+        long now = 5;
+        for (int step = 0; step < 2000; step++) {
+            for (int i = random.nextInt(4); i > 0; i--) {
+                long deadline = now + (long) Math.pow(10, random.nextDouble() * 7);
+                wheel.add(deadline, deadline);
+                waiting.add(deadline);
+            }
+            now += random.nextInt(2000);
+            long reached = now - Math.floorMod(now, TICK);
+            List<Long> expected = new ArrayList<>();
+            for (Long deadline : waiting) {
+                if (deadline < reached + TICK) {
+                    expected.add(deadline);
+                }
+            }
+            waiting.removeAll(expected);
+            assertEquals(this.sorted(expected), this.sorted(wheel.advance(now)), "at " + now);
+            assertEquals(waiting.size(), wheel.size());
+        }
+    }
+
+    @Test
+    public void testRemove() {
+        /*
+        Test Explanation: Removing values from each level, one after it has fallen to a lower level, one twice, and one after it was due
+        Expectation: removed values are never due, removing again or after being due does nothing, and the rest are still due
+         */
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 0);
+        TimingWheel.Entry<String> low = wheel.add(100, "low");
+        TimingWheel.Entry<String> middle = wheel.add(5_000, "middle");
+        TimingWheel.Entry<String> high = wheel.add(100_000, "high");
+        wheel.add(100_000, "kept");
+        TimingWheel.Entry<String> fallen = wheel.add(200_000, "fallen");
+        assertTrue(wheel.remove(low));
+        assertFalse(wheel.remove(low));
+        assertTrue(wheel.remove(middle));
+        assertEquals(Collections.emptyList(), wheel.advance(99_999));
+        assertTrue(wheel.remove(high));
+        assertEquals(Collections.singletonList("kept"), wheel.advance(100_000));
+        assertEquals(Collections.emptyList(), wheel.advance(199_000)); //fallen to the lowest level
+        assertTrue(wheel.remove(fallen));
+        assertEquals(0, wheel.size());
+        assertEquals(Long.MAX_VALUE, wheel.nextExpiration());
+        assertEquals(Collections.emptyList(), wheel.advance(1_000_000));
+
+        TimingWheel.Entry<String> due = wheel.add(1_000_010, "due");
+        assertEquals(Collections.singletonList("due"), wheel.advance(1_000_010));
+        assertFalse(wheel.remove(due));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testRemoveEmptiesBucket() {
+        /*
+        Test Explanation: Removing the only value of a bucket, then adding another value to the same bucket
+        Expectation: the emptied bucket no longer bounds the next expiration, and is queued again for the new value
+         */
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 0);
+        TimingWheel.Entry<String> removed = wheel.add(300, "removed");
+        assertEquals(300, wheel.nextExpiration());
+        assertTrue(wheel.remove(removed));
+        assertEquals(Long.MAX_VALUE, wheel.nextExpiration());
+        wheel.add(300, "added");
+        assertEquals(300, wheel.nextExpiration());
+        assertEquals(Collections.singletonList("added"), wheel.advance(300));
+        assertEquals(Long.MAX_VALUE, wheel.nextExpiration());
+    }
+
+    @Test
+    public void testAlreadyDue() {
+        /*
+        Test Explanation: Adding values whose deadlines have passed, or fall within the current tick
+        Expectation: they are due at once, without the wheel moving, and the next expiration is the current time
+         */
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK, 1_005);
+        wheel.add(0, 0L);
+        wheel.add(1_000, 1_000L);
+        wheel.add(1_009, 1_009L);
+        wheel.add(1_010, 1_010L);
+        assertEquals(1_000, wheel.nextExpiration());
+        assertEquals(Arrays.asList(0L, 1_000L, 1_009L), this.sorted(wheel.advance(1_000)));
+        assertEquals(1_010, wheel.nextExpiration());
+        assertEquals(Collections.emptyList(), wheel.advance(500)); //never turns backwards
+        assertEquals(Collections.singletonList(1_010L), wheel.advance(1_010));
+    }
+
+    @Test
+    public void testFarDeadlines() {
+        /*
+        Test Explanation: Holding deadlines so far off that the span of the highest level needed passes Long.MAX_VALUE
+        Expectation: they are held in a level which never overflows, and are due once the wheel reaches them, even within the last tick
+         */
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK, 0);
+        long far = Long.MAX_VALUE / 2 / TICK * TICK;
+        long last = Long.MAX_VALUE / TICK * TICK; //its tick runs past Long.MAX_VALUE
+        wheel.add(Long.MAX_VALUE, Long.MAX_VALUE);
+        wheel.add(last, last);
+        wheel.add(far, far);
+        wheel.add(1_000, 1_000L);
+        assertEquals(Collections.singletonList(1_000L), wheel.advance(1_000));
+        assertTrue(wheel.nextExpiration() <= far);
+        assertEquals(Collections.emptyList(), wheel.advance(far - 1));
+        assertEquals(Collections.singletonList(far), wheel.advance(far));
+        assertEquals(Collections.emptyList(), wheel.advance(last - 1));
+        assertEquals(Arrays.asList(last, Long.MAX_VALUE), this.sorted(wheel.advance(last)));
+        assertEquals(Long.MAX_VALUE, wheel.nextExpiration());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testNextExpiration() {
+        /*
+        Test Explanation: Asking for the next expiration of an empty wheel, one holding values in different levels, and one whose values were removed
+        Expectation: nothing held is never due, otherwise it is the earliest time anything could be due, no later than the earliest deadline
+         */
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 0);
+        assertEquals(Long.MAX_VALUE, wheel.nextExpiration());
+        wheel.add(50_000, "later");
+        long bound = wheel.nextExpiration();
+        assertTrue(bound > 0 && bound <= 50_000, String.valueOf(bound));
+        TimingWheel.Entry<String> sooner = wheel.add(300, "sooner");
+        assertEquals(300, wheel.nextExpiration());
+        wheel.remove(sooner);
+        assertEquals(bound, wheel.nextExpiration());
+
+        //every expiration reached on the way fires nothing until the deadline
+        Map<Long, List<String>> fired = new HashMap<>();
+        for (long next = wheel.nextExpiration(); next != Long.MAX_VALUE; next = wheel.nextExpiration()) {
+            fired.put(next, wheel.advance(next));
+        }
+        assertEquals(Collections.singletonList("later"), fired.get(50_000L));
+        fired.remove(50_000L);
+        fired.values().forEach(v -> assertEquals(Collections.emptyList(), v));
+    }
+}